@@ -0,0 +1,11 @@
+#!/bin/bash
+# Compila el proyecto + benchmarks y ejecuta un escenario.
+# Uso: ./bench/run_bench.sh [mapeo|crear|obtener|obtener-sin-cache|listar|todos] [filas]
+cd "$(dirname "$0")/.." || exit 1
+
+CP="lib/*"
+mkdir -p out bench/out
+javac -encoding UTF-8 -d out -cp "$CP" $(find src -name '*.java') || exit 1
+javac -encoding UTF-8 -d bench/out -cp "out:$CP" $(find bench/src -name '*.java') || exit 1
+
+java -Xms1g -Xmx1g -cp "out:bench/out:$CP" bench.PedidoBenchmarks "${1:-todos}" "${2:-10000}"
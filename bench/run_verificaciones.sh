@@ -0,0 +1,11 @@
+#!/bin/bash
+# Compila el proyecto + bench y corre las verificaciones sin base de datos (JDBC de prueba en memoria).
+# Uso: ./bench/run_verificaciones.sh [pool|replicas|indice|copia|todas]
+cd "$(dirname "$0")/.." || exit 1
+
+CP="lib/*"
+mkdir -p out bench/out
+javac -encoding UTF-8 -d out -cp "$CP" $(find src -name '*.java') || exit 1
+javac -encoding UTF-8 -d bench/out -cp "out:$CP" $(find bench/src -name '*.java') || exit 1
+
+java -cp "out:bench/out:$CP" bench.Verificaciones "${1:-todas}"
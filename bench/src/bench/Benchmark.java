@@ -0,0 +1,49 @@
+package bench;
+
+import config.LatencyHistogram;
+
+// Harness mínimo de micro-benchmarks: calentamiento + medición por iteración.
+// No reemplaza a JMH, pero da números comparables entre versiones en la misma máquina.
+public class Benchmark {
+
+    @FunctionalInterface
+    public interface Operacion {
+        // Devuelve algo derivado del trabajo para que el JIT no lo elimine
+        Object ejecutar() throws Exception;
+    }
+
+    private final String nombre;
+    private final int calentamiento;
+    private final int iteraciones;
+    private final int opsPorIteracion;
+
+    private static volatile Object sumidero;
+
+    public Benchmark(String nombre, int calentamiento, int iteraciones, int opsPorIteracion) {
+        this.nombre = nombre;
+        this.calentamiento = calentamiento;
+        this.iteraciones = iteraciones;
+        this.opsPorIteracion = opsPorIteracion;
+    }
+
+    public void correr(Operacion op) throws Exception {
+        for (int i = 0; i < calentamiento; i++) {
+            for (int k = 0; k < opsPorIteracion; k++) sumidero = op.ejecutar();
+        }
+
+        LatencyHistogram histograma = new LatencyHistogram();
+        long inicioTotal = System.nanoTime();
+        for (int i = 0; i < iteraciones; i++) {
+            for (int k = 0; k < opsPorIteracion; k++) {
+                long inicio = System.nanoTime();
+                sumidero = op.ejecutar();
+                histograma.registrarNanos(System.nanoTime() - inicio);
+            }
+        }
+        long totalNanos = System.nanoTime() - inicioTotal;
+        long ops = (long) iteraciones * opsPorIteracion;
+
+        System.out.printf("%-28s ops=%-8d ops/s=%-12.1f %s%n",
+                nombre, ops, ops * 1e9 / totalNanos, histograma);
+    }
+}
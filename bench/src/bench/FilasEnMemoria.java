@@ -0,0 +1,108 @@
+package bench;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+// Connection/PreparedStatement/ResultSet de mentira sobre filas en memoria.
+// Permite medir el mapeo ResultSet -> entidad de los DAOs sin red ni base de datos.
+// Todas las consultas devuelven las mismas filas sintéticas (con todas las columnas que usan los DAOs).
+public final class FilasEnMemoria {
+
+    private static final String[] COLUMNAS = {
+        "id", "eliminado", "numero", "fecha", "clienteNombre", "total", "estado", "id_envio", "version",
+        "e_id", "e_eliminado", "tracking", "empresa", "tipo", "costo", "fechaDespacho", "fechaEstimada", "e_estado",
+        "e_version"
+    };
+    private static final Map<String, Integer> INDICES = new HashMap<>();
+    static {
+        for (int i = 0; i < COLUMNAS.length; i++) INDICES.put(COLUMNAS[i].toLowerCase(), i + 1);
+    }
+
+    private final Object[][] filas;
+
+    public FilasEnMemoria(int cantidad) {
+        filas = new Object[cantidad][];
+        Date fecha = Date.valueOf(LocalDate.of(2025, 11, 10));
+        for (int i = 0; i < cantidad; i++) {
+            int id = i + 1;
+            filas[i] = new Object[]{
+                id, false, "PED-" + id, fecha, "Cliente " + id, new BigDecimal("25000.00"), "NUEVO", id, 0,
+                id, false, "TRK-" + id, "ANDREANI", "ESTANDAR", i % 3 == 0 ? null : new BigDecimal("1500.00"),
+                fecha, i % 2 == 0 ? null : fecha, "EN_PREPARACION", 0
+            };
+        }
+    }
+
+    public Connection conexion() {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+            (proxy, m, args) -> {
+                switch (m.getName()) {
+                    case "prepareStatement": return sentencia();
+                    case "getAutoCommit": case "isValid": return true;
+                    case "isClosed": return false;
+                    default: return valorPorDefecto(m.getReturnType());
+                }
+            });
+    }
+
+    private PreparedStatement sentencia() {
+        return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[]{PreparedStatement.class},
+            (proxy, m, args) -> {
+                if (m.getName().equals("executeQuery")) return resultado();
+                return valorPorDefecto(m.getReturnType());
+            });
+    }
+
+    private ResultSet resultado() {
+        int[] fila = {-1};
+        boolean[] ultimoNulo = {false};
+        return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ResultSet.class},
+            (proxy, m, args) -> {
+                String nombre = m.getName();
+                if (nombre.equals("next")) return ++fila[0] < filas.length;
+                if (nombre.equals("wasNull")) return ultimoNulo[0];
+                if (nombre.equals("findColumn")) return indice(args[0]);
+                if (nombre.equals("close")) return null;
+                if (nombre.startsWith("get") && args != null && args.length == 1) {
+                    Object v = filas[fila[0]][indice(args[0]) - 1];
+                    ultimoNulo[0] = v == null;
+                    return convertir(v, nombre);
+                }
+                return valorPorDefecto(m.getReturnType());
+            });
+    }
+
+    private static int indice(Object columna) throws SQLException {
+        if (columna instanceof Integer) return (Integer) columna;
+        Integer i = INDICES.get(((String) columna).toLowerCase());
+        if (i == null) throw new SQLException("Columna inexistente: " + columna);
+        return i;
+    }
+
+    private static Object convertir(Object v, String getter) {
+        switch (getter) {
+            case "getInt": return v == null ? 0 : ((Number) v).intValue();
+            case "getLong": return v == null ? 0L : ((Number) v).longValue();
+            case "getDouble": return v == null ? 0d : ((Number) v).doubleValue();
+            case "getBoolean": return v != null && (Boolean) v;
+            case "getString": return v == null ? null : v.toString();
+            default: return v; // getObject, getDate, getBigDecimal
+        }
+    }
+
+    static Object valorPorDefecto(Class<?> tipo) {
+        if (tipo == boolean.class) return false;
+        if (tipo == int.class) return 0;
+        if (tipo == long.class) return 0L;
+        return null;
+    }
+}
@@ -0,0 +1,133 @@
+package bench;
+
+import config.ConnectionFactory;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// JDBC embebido de prueba: una ConnectionFactory cuyas conexiones físicas no hablan con ninguna base
+// pero registran lo que se les hace (commits, rollbacks, autocommit, cierres) y cómo se configuran sus
+// sentencias (queryTimeout, maxRows, fetchSize, poolable). Sirve para ConnectionPool, ReplicaRouter y
+// DatabaseConnection.setPool sin SQL Server. Las consultas devuelven un ResultSet vacío.
+public final class JdbcEnMemoria implements ConnectionFactory {
+
+    private final String nombre;
+    private final AtomicInteger creadas = new AtomicInteger();
+    private final AtomicInteger cerradas = new AtomicInteger();
+    private final AtomicInteger commits = new AtomicInteger();
+    private final AtomicInteger rollbacks = new AtomicInteger();
+    private final AtomicInteger sentenciasCreadas = new AtomicInteger();
+    private volatile boolean caida;
+    private volatile long demoraEjecucionMs;
+    private volatile Sentencia ultimaSentencia;
+
+    public JdbcEnMemoria(String nombre) {
+        this.nombre = nombre;
+    }
+
+    // Estado de una sentencia física tal como la dejó el último que la usó
+    public static final class Sentencia {
+        public final String sql;
+        volatile int queryTimeout;
+        volatile int maxRows;
+        volatile int fetchSize;
+        volatile boolean poolable = true;
+        volatile boolean cerrada;
+
+        Sentencia(String sql) { this.sql = sql; }
+
+        public int getQueryTimeout() { return queryTimeout; }
+        public int getMaxRows() { return maxRows; }
+        public boolean isPoolable() { return poolable; }
+        public boolean isCerrada() { return cerrada; }
+    }
+
+    @Override
+    public Connection crear() throws SQLException {
+        if (caida) throw new SQLException(nombre + " no responde");
+        creadas.incrementAndGet();
+        boolean[] autoCommit = {true};
+        boolean[] cerrada = {false};
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+            (proxy, m, args) -> {
+                switch (m.getName()) {
+                    case "close":
+                        if (!cerrada[0]) { cerrada[0] = true; cerradas.incrementAndGet(); }
+                        return null;
+                    case "isClosed": return cerrada[0];
+                    case "isValid": return !cerrada[0] && !caida;
+                    case "getAutoCommit": return autoCommit[0];
+                    case "setAutoCommit": autoCommit[0] = (Boolean) args[0]; return null;
+                    case "commit": commits.incrementAndGet(); return null;
+                    case "rollback": rollbacks.incrementAndGet(); return null;
+                    case "prepareStatement": return sentencia((String) args[0], PreparedStatement.class);
+                    case "createStatement": return sentencia(null, Statement.class);
+                    case "equals": return proxy == args[0];
+                    case "hashCode": return System.identityHashCode(proxy);
+                    case "toString": return nombre + "#" + System.identityHashCode(proxy);
+                    default: return FilasEnMemoria.valorPorDefecto(m.getReturnType());
+                }
+            });
+    }
+
+    private Object sentencia(String sql, Class<? extends Statement> tipo) {
+        Sentencia s = new Sentencia(sql);
+        sentenciasCreadas.incrementAndGet();
+        ultimaSentencia = s;
+        return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{tipo},
+            (proxy, m, args) -> {
+                switch (m.getName()) {
+                    case "setQueryTimeout": s.queryTimeout = (Integer) args[0]; return null;
+                    case "getQueryTimeout": return s.queryTimeout;
+                    case "setMaxRows": s.maxRows = (Integer) args[0]; return null;
+                    case "getMaxRows": return s.maxRows;
+                    case "setFetchSize": s.fetchSize = (Integer) args[0]; return null;
+                    case "getFetchSize": return s.fetchSize;
+                    case "setPoolable": s.poolable = (Boolean) args[0]; return null;
+                    case "isPoolable": return s.poolable;
+                    case "close": s.cerrada = true; return null;
+                    case "isClosed": return s.cerrada;
+                    case "executeQuery": ejecutar(s); return vacio();
+                    case "executeUpdate": ejecutar(s); return 0;
+                    case "execute": ejecutar(s); return false;
+                    case "equals": return proxy == args[0];
+                    case "hashCode": return System.identityHashCode(proxy);
+                    default: return FilasEnMemoria.valorPorDefecto(m.getReturnType());
+                }
+            });
+    }
+
+    // Demora simulada; con queryTimeout, el "servidor" corta la sentencia como lo haría el driver
+    private void ejecutar(Sentencia s) throws SQLException, InterruptedException {
+        if (s.cerrada) throw new SQLException("La sentencia está cerrada");
+        long demora = demoraEjecucionMs;
+        if (demora <= 0) return;
+        if (s.queryTimeout > 0 && demora > s.queryTimeout * 1000L) {
+            Thread.sleep(s.queryTimeout * 1000L);
+            throw new SQLTimeoutException("Se superó el queryTimeout (" + s.queryTimeout + " s)");
+        }
+        Thread.sleep(demora);
+    }
+
+    private ResultSet vacio() {
+        return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ResultSet.class},
+            (proxy, m, args) -> FilasEnMemoria.valorPorDefecto(m.getReturnType()));
+    }
+
+    // crear() falla y las conexiones abiertas dejan de ser válidas
+    public void setCaida(boolean caida) { this.caida = caida; }
+    public void setDemoraEjecucionMs(long ms) { this.demoraEjecucionMs = ms; }
+
+    public int getCreadas() { return creadas.get(); }
+    public int getCerradas() { return cerradas.get(); }
+    public int getCommits() { return commits.get(); }
+    public int getRollbacks() { return rollbacks.get(); }
+    public int getSentenciasCreadas() { return sentenciasCreadas.get(); }
+    public Sentencia getUltimaSentencia() { return ultimaSentencia; }
+}
@@ -0,0 +1,158 @@
+package bench;
+
+import cache.PedidoCache;
+import config.DatabaseConnection;
+import dao.PedidoDAO;
+import dao.impl.PedidoDAOImpl;
+import entities.Envio;
+import entities.Pedido;
+import service.PedidoService;
+import service.ResultadoLote;
+import service.impl.PedidoServiceImpl;
+
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Benchmarks de la capa DAO y Service.
+//
+// Uso: java -cp "out:bench/out:lib/*" bench.PedidoBenchmarks <escenario> [filas]
+//   mapeo             mapeo ResultSet -> entidad (sin base, filas en memoria)
+//   crear             PedidoService.crearPedidoCompleto
+//   obtener           PedidoService.obtenerPedidoPorId (con caché)
+//   obtener-sin-cache PedidoDAO.buscarPorId
+//   listar [filas]    PedidoDAO.listarTodos con la tabla sembrada hasta 'filas' (10000, 100000, 1000000)
+//   todos             todos los anteriores con 10000 filas
+//
+// Los escenarios con base usan la conexión de config.DatabaseConnection; se siembran
+// pedidos "BENCH-*" con crearPedidosEnLote hasta llegar a la cantidad pedida.
+public class PedidoBenchmarks {
+
+    private static final String PREFIJO = "BENCH-";
+
+    public static void main(String[] args) throws Exception {
+        String escenario = args.length > 0 ? args[0] : "todos";
+        int filas = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+
+        try {
+            switch (escenario) {
+                case "mapeo" -> mapeo();
+                case "crear" -> crear();
+                case "obtener" -> obtener(filas, true);
+                case "obtener-sin-cache" -> obtener(filas, false);
+                case "listar" -> listar(filas);
+                case "todos" -> {
+                    mapeo();
+                    crear();
+                    obtener(filas, true);
+                    obtener(filas, false);
+                    listar(filas);
+                }
+                default -> System.out.println("Escenario desconocido: " + escenario);
+            }
+        } finally {
+            DatabaseConnection.cerrarPool();
+        }
+    }
+
+    private static void mapeo() throws Exception {
+        PedidoDAO dao = new PedidoDAOImpl();
+        for (int filas : new int[]{10_000, 100_000}) {
+            FilasEnMemoria datos = new FilasEnMemoria(filas);
+            Connection conn = datos.conexion();
+            new Benchmark("mapeo listarTodos " + filas, 5, 10, 1)
+                .correr(() -> dao.listarTodos(conn).size());
+            new Benchmark("mapeo listarResumenPagina " + filas, 5, 10, 1)
+                .correr(() -> dao.listarResumenPagina(0, filas, conn).size());
+        }
+        Connection conn = new FilasEnMemoria(1).conexion();
+        new Benchmark("mapeo buscarPorId", 5, 10, 50_000)
+            .correr(() -> dao.buscarPorId(1, conn));
+    }
+
+    private static void crear() throws Exception {
+        PedidoService service = new PedidoServiceImpl();
+        String corrida = corrida();
+        int[] secuencia = {0};
+        new Benchmark("crearPedidoCompleto", 2, 5, 200).correr(() -> {
+            int n = secuencia[0]++;
+            Pedido p = nuevoPedido(PREFIJO + "C" + corrida + "-" + n);
+            service.crearPedidoCompleto(p, p.getEnvio());
+            return p.getId();
+        });
+    }
+
+    private static void obtener(int filas, boolean conCache) throws Exception {
+        List<Long> ids = sembrar(filas);
+        PedidoDAO dao = new PedidoDAOImpl();
+        PedidoService service = new PedidoServiceImpl(new PedidoCache());
+        // Conjunto "caliente" de 1000 pedidos, como la página de seguimiento
+        List<Long> calientes = ids.subList(0, Math.min(1_000, ids.size()));
+
+        if (conCache) {
+            new Benchmark("obtenerPedidoPorId (cache)", 5, 10, 5_000).correr(() -> {
+                long id = calientes.get(ThreadLocalRandom.current().nextInt(calientes.size()));
+                return service.obtenerPedidoPorId((int) id);
+            });
+        } else {
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                new Benchmark("buscarPorId (DAO)", 2, 10, 1_000).correr(() -> {
+                    long id = calientes.get(ThreadLocalRandom.current().nextInt(calientes.size()));
+                    return dao.buscarPorId((int) id, conn);
+                });
+            }
+        }
+    }
+
+    private static void listar(int filas) throws Exception {
+        sembrar(filas);
+        PedidoDAO dao = new PedidoDAOImpl();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            new Benchmark("listarTodos " + filas, 1, 5, 1).correr(() -> dao.listarTodos(conn).size());
+            new Benchmark("listarStream " + filas, 1, 5, 1).correr(() -> {
+                try (var s = dao.listarStream(1_000, conn)) {
+                    return s.count();
+                }
+            });
+        }
+    }
+
+    // Completa la tabla con pedidos BENCH-* hasta tener al menos 'filas' pedidos; devuelve sus ids
+    private static List<Long> sembrar(int filas) throws Exception {
+        PedidoDAO dao = new PedidoDAOImpl();
+        List<Long> ids = new ArrayList<>(filas);
+        try (Connection conn = DatabaseConnection.getConnection();
+             var s = dao.listarStream(5_000, conn)) {
+            s.limit(filas).forEach(p -> ids.add(p.getId()));
+        }
+        if (ids.size() >= filas) return ids;
+
+        PedidoService service = new PedidoServiceImpl();
+        String corrida = corrida();
+        int faltan = filas - ids.size();
+        System.out.println("Sembrando " + faltan + " pedidos...");
+        for (int desde = 0; desde < faltan; desde += 10_000) {
+            List<Pedido> lote = new ArrayList<>();
+            for (int i = desde; i < Math.min(faltan, desde + 10_000); i++) {
+                lote.add(nuevoPedido(PREFIJO + corrida + "-" + i));
+            }
+            for (ResultadoLote r : service.crearPedidosEnLote(lote, 1_000)) {
+                if (r.isExito()) ids.add(r.getIdPedido());
+            }
+        }
+        return ids;
+    }
+
+    // Prefijo corto por ejecución: numero es VARCHAR(20)
+    private static String corrida() {
+        return Long.toString(System.currentTimeMillis() / 1000 % 60_466_176L, 36); // 36^5 -> máx. 5 caracteres
+    }
+
+    private static Pedido nuevoPedido(String numero) {
+        Envio e = new Envio(null, false, "TRK-" + numero, "ANDREANI", "ESTANDAR", 1500.0,
+                LocalDate.now(), LocalDate.now().plusDays(5), "EN_PREPARACION");
+        return new Pedido(null, false, numero, LocalDate.now(), "Cliente Bench", 25000.0, "NUEVO", e);
+    }
+}
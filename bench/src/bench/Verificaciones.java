@@ -0,0 +1,357 @@
+package bench;
+
+import cache.CacheSnapshot;
+import cache.PedidoCache;
+import cache.TrackingIndex;
+import config.ConnectionPool;
+import config.MarcaEscritura;
+import config.PlazoConsulta;
+import config.ReplicaRouter;
+import config.TransactionHooks;
+import dao.MarcaCambios;
+import dao.TrackingEnvio;
+import entities.Envio;
+import entities.Pedido;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+// Verificaciones sin base de datos, sobre el JDBC de prueba (JdbcEnMemoria).
+//
+// Uso: java -cp "out:bench/out:lib/*" bench.Verificaciones [grupo]
+//   pool     ConnectionPool: límites, devolución, unwrap, caché de sentencias, plazo de la llamada
+//   replicas ReplicaRouter: rotación, caída al primario, lectura de lo propio desde otro hilo
+//   indice   TransactionHooks y TrackingIndex: acciones al confirmar, memoria fuera del heap acotada
+//   copia    CacheSnapshot: ida y vuelta de PedidoCache + TrackingIndex, exclusiones, archivos dañados
+//   todas    todos los grupos (default)
+//
+// Termina con código 1 si alguna verificación falla.
+public class Verificaciones {
+
+    private static final List<String> FALLAS = new ArrayList<>();
+    private static int verificadas;
+
+    public static void main(String[] args) throws Exception {
+        String grupo = args.length > 0 ? args[0] : "todas";
+        switch (grupo) {
+            case "pool" -> pool();
+            case "replicas" -> replicas();
+            case "indice" -> indice();
+            case "copia" -> copia();
+            case "todas" -> {
+                pool();
+                replicas();
+                indice();
+                copia();
+            }
+            default -> {
+                System.out.println("Grupo desconocido: " + grupo);
+                System.exit(2);
+            }
+        }
+        System.out.println(verificadas + " verificaciones, " + FALLAS.size() + " fallas");
+        FALLAS.forEach(f -> System.out.println("  FALLA: " + f));
+        if (!FALLAS.isEmpty()) System.exit(1);
+    }
+
+    private static void verificar(boolean condicion, String descripcion) {
+        verificadas++;
+        if (!condicion) FALLAS.add(descripcion);
+    }
+
+    private static ConnectionPool pool(JdbcEnMemoria jdbc, int maximo, long timeoutAdquisicionMs) {
+        return new ConnectionPool(jdbc, 0, maximo, timeoutAdquisicionMs, 60_000, 1, 16);
+    }
+
+    private static void pool() throws Exception {
+        System.out.println("== pool");
+        JdbcEnMemoria jdbc = new JdbcEnMemoria("primario");
+        try (ConnectionPool pool = pool(jdbc, 2, 200)) {
+            Connection a = pool.getConnection();
+            Connection b = pool.getConnection();
+            long inicio = System.nanoTime();
+            try {
+                pool.getConnection().close();
+                verificar(false, "el pool entrega más conexiones que su máximo");
+            } catch (SQLTimeoutException e) {
+                long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+                verificar(ms >= 150, "la espera de conexión respeta timeoutAdquisicionMs (" + ms + " ms)");
+            }
+
+            // Devolución: el trabajo sin confirmar se deshace y vuelve con autocommit
+            a.setAutoCommit(false);
+            a.close();
+            verificar(jdbc.getRollbacks() == 1, "devolver una conexión en transacción hace rollback");
+            verificar(a.isClosed(), "la conexión devuelta se ve cerrada");
+            try {
+                a.createStatement();
+                verificar(false, "una conexión devuelta sigue usable");
+            } catch (SQLException esperada) {
+                verificar(true, "");
+            }
+            Connection c = pool.getConnection();
+            verificar(c.getAutoCommit(), "la conexión reusada vuelve con autocommit=true");
+            verificar(jdbc.getCreadas() == 2, "se reusa la física devuelta en lugar de abrir otra");
+
+            // unwrap no expone la física
+            verificar(c.unwrap(Connection.class) == c, "unwrap(Connection.class) devuelve el proxy del pool");
+            verificar(c.isWrapperFor(Connection.class), "isWrapperFor(Connection.class)");
+            try {
+                c.unwrap(String.class);
+                verificar(false, "unwrap a otra clase no se rechaza");
+            } catch (SQLException esperada) {
+                verificar(true, "");
+            }
+            b.close();
+            c.close();
+        }
+        verificar(jdbc.getCerradas() == jdbc.getCreadas(), "close() del pool cierra las físicas inactivas");
+
+        // Caché de sentencias: se reusa, se restaura al devolverse y respeta setPoolable(false)
+        jdbc = new JdbcEnMemoria("primario");
+        try (ConnectionPool pool = pool(jdbc, 1, 200)) {
+            try (Connection c = pool.getConnection()) {
+                try (PreparedStatement ps = c.prepareStatement("SELECT 1")) {
+                    ps.setMaxRows(5);
+                    ps.setQueryTimeout(7);
+                }
+                JdbcEnMemoria.Sentencia fisica = jdbc.getUltimaSentencia();
+                verificar(fisica.getMaxRows() == 0 && fisica.getQueryTimeout() == 0,
+                        "maxRows y queryTimeout se restauran al devolver la sentencia");
+                try (PreparedStatement ps = c.prepareStatement("SELECT 1")) {
+                    verificar(ps.getMaxRows() == 0, "la sentencia reusada no trae el maxRows anterior");
+                }
+                verificar(jdbc.getSentenciasCreadas() == 1 && pool.getAciertosSentencias() == 1,
+                        "la misma SQL reusa la sentencia física");
+
+                try (PreparedStatement ps = c.prepareStatement("SELECT 2")) {
+                    ps.setPoolable(false);
+                }
+                verificar(jdbc.getUltimaSentencia().isCerrada(), "una sentencia no poolable se cierra al devolverse");
+                c.prepareStatement("SELECT 2").close();
+                verificar(jdbc.getSentenciasCreadas() == 3, "una sentencia no poolable no queda en la caché");
+            }
+
+            // Plazo de la llamada: queryTimeout con lo que resta, y error si ya venció
+            new PlazoConsulta(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(1_500)).ejecutar(() -> {
+                try (Connection c = pool.getConnection(); PreparedStatement ps = c.prepareStatement("SELECT 3")) {
+                    verificar(ps.getQueryTimeout() == 2, "el plazo restante llega como queryTimeout (" + ps.getQueryTimeout() + ")");
+                }
+                return null;
+            });
+            new PlazoConsulta(System.nanoTime() - 1).ejecutar(() -> {
+                try (Connection c = pool.getConnection()) {
+                    c.prepareStatement("SELECT 4").close();
+                    verificar(false, "una sentencia sale con el plazo vencido");
+                } catch (SQLTimeoutException esperada) {
+                    verificar(true, "");
+                }
+                return null;
+            });
+            jdbc.setDemoraEjecucionMs(5_000);
+            long inicio = System.nanoTime();
+            try {
+                new PlazoConsulta(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(800)).ejecutar(() -> {
+                    try (Connection c = pool.getConnection(); PreparedStatement ps = c.prepareStatement("SELECT 5")) {
+                        return ps.executeQuery();
+                    }
+                });
+                verificar(false, "una sentencia lenta no se corta al vencer el plazo");
+            } catch (SQLTimeoutException esperada) {
+                long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+                verificar(ms < 2_500, "la sentencia se corta con el plazo (" + ms + " ms)");
+            }
+        }
+    }
+
+    private static void replicas() throws Exception {
+        System.out.println("== replicas");
+        JdbcEnMemoria r1 = new JdbcEnMemoria("replica1");
+        JdbcEnMemoria r2 = new JdbcEnMemoria("replica2");
+        try (ReplicaRouter router = new ReplicaRouter(List.of("replica1", "replica2"),
+                List.of(pool(r1, 2, 100), pool(r2, 2, 100)), ReplicaRouter.Seleccion.ROUND_ROBIN, 300, 60_000)) {
+            List<String> usadas = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                try (Connection c = router.conexion(null)) {
+                    usadas.add(c.toString().contains("replica1") ? "replica1" : "replica2");
+                }
+            }
+            verificar(usadas.equals(List.of("replica1", "replica2", "replica1", "replica2"))
+                      || usadas.equals(List.of("replica2", "replica1", "replica2", "replica1")),
+                    "ROUND_ROBIN alterna las réplicas " + usadas);
+
+            // Lectura de lo propio: el commit se marca en un hilo y la lectura corre en otro
+            MarcaEscritura escrituras = new MarcaEscritura();
+            CompletableFuture.runAsync(escrituras::registrar).join();
+            Connection tras = CompletableFuture.supplyAsync(() -> router.conexion(escrituras)).join();
+            verificar(tras == null, "tras un commit propio se lee del primario aunque cambie el hilo");
+            Connection ajena = router.conexion(new MarcaEscritura());
+            verificar(ajena != null, "sin commits propios se lee de una réplica");
+            if (ajena != null) ajena.close();
+            Thread.sleep(350);
+            Connection despues = router.conexion(escrituras);
+            verificar(despues != null, "pasado retrasoMaximoMs se vuelve a las réplicas");
+            if (despues != null) despues.close();
+
+            // Caídas: una réplica que no conecta sale de la rotación; sin ninguna, al primario
+            r1.setCaida(true);
+            boolean soloR2 = true;
+            for (int i = 0; i < 4; i++) {
+                try (Connection c = router.conexion(null)) {
+                    soloR2 &= c != null && c.toString().contains("replica2");
+                }
+            }
+            verificar(soloR2, "con una réplica caída se lee de la otra");
+            r2.setCaida(true);
+            verificar(router.conexion(null) == null, "sin réplicas disponibles se lee del primario");
+            verificar(router.getFallosReplica() > 0, "las caídas se cuentan en fallosReplica");
+        }
+    }
+
+    private static void indice() throws Exception {
+        System.out.println("== indice");
+        // Acciones al confirmar: esperan al commit, corren en orden, se descartan con el rollback
+        JdbcEnMemoria jdbc = new JdbcEnMemoria("primario");
+        try (Connection c = jdbc.crear()) {
+            List<Integer> corridas = new ArrayList<>();
+            c.setAutoCommit(false);
+            TransactionHooks.alConfirmar(c, () -> corridas.add(1));
+            TransactionHooks.alConfirmar(c, () -> { throw new IllegalStateException("prueba"); });
+            TransactionHooks.alConfirmar(c, () -> corridas.add(2));
+            verificar(corridas.isEmpty(), "las acciones no corren antes del commit");
+            Logger.getLogger("tpi.transacciones").setLevel(Level.OFF); // la falla de "prueba" es esperada
+            int fallidas = TransactionHooks.confirmada(c);
+            verificar(corridas.equals(List.of(1, 2)) && fallidas == 1,
+                    "al confirmar corren en orden y una que falla se cuenta sin cortar a las demás");
+            TransactionHooks.alConfirmar(c, () -> corridas.add(3));
+            TransactionHooks.descartada(c);
+            verificar(TransactionHooks.confirmada(c) == 0 && corridas.size() == 2, "el rollback descarta las acciones");
+            c.setAutoCommit(true);
+            TransactionHooks.alConfirmar(c, () -> corridas.add(4));
+            verificar(corridas.size() == 3, "en autocommit la acción corre en el acto");
+        }
+
+        // Cambios de tracking del mismo Envio: la clave vieja se libera y los segmentos se compactan
+        int envios = 100_000;
+        TrackingIndex indice = new TrackingIndex();
+        for (int i = 0; i < envios; i++) indice.registrar("TRK-" + i, i, null, false, "EN_TRANSITO");
+        long inicial = indice.getBytesFueraDelHeap();
+        verificar(indice.buscar("TRK-5") == null, "un Envio con Pedido sin resolver no se responde desde el índice");
+        indice.asignarPedidos(new int[]{5}, new int[]{55});
+        TrackingEnvio t5 = indice.buscar("TRK-5");
+        verificar(t5 != null && Integer.valueOf(55).equals(t5.idPedido()), "asignarPedidos resuelve el Pedido");
+
+        for (int ronda = 0; ronda < 50; ronda++) {
+            for (int i = 0; i < envios; i++) indice.registrar("TRK-" + ronda + "-" + i, i, i, true, "ENTREGADO");
+        }
+        long fin = indice.getBytesFueraDelHeap();
+        verificar(fin <= Math.max(inicial, 8 << 20) * 3,
+                "la memoria fuera del heap no crece con los cambios de tracking (" + inicial + " -> " + fin + " bytes)");
+        verificar(indice.getTamanio() == envios, "un Envio ocupa una sola entrada (" + indice.getTamanio() + ")");
+        verificar(indice.buscar("TRK-7") == null, "la clave vieja deja de encontrarse");
+        TrackingEnvio t = indice.buscar("TRK-49-7");
+        verificar(t != null && t.idEnvio() == 7 && "ENTREGADO".equals(t.estado()), "la clave nueva se encuentra tras compactar");
+
+        indice.cambiarEstado(List.of(7), "ESTADO_DEL_TRANSPORTISTA");
+        t = indice.buscar("TRK-49-7");
+        verificar(t != null && "ESTADO_DEL_TRANSPORTISTA".equals(t.estado()), "un estado fuera del enum conserva su texto");
+
+        // Bajas de Pedidos: por la tabla por Pedido, sin recorrer el índice
+        indice.registrar("TRK-VIEJO-9", envios + 9, 9, true, "ENTREGADO"); // el mismo Pedido en otro Envio
+        indice.quitar(List.of(10));
+        indice.pedidosDadosDeBaja(List.of(7, 9, 11));
+        TrackingEnvio t9 = indice.buscar("TRK-49-9");
+        TrackingEnvio viejo9 = indice.buscar("TRK-VIEJO-9");
+        TrackingEnvio t12 = indice.buscar("TRK-49-12");
+        verificar(t9 != null && t9.idPedido() == null && viejo9 != null && viejo9.idPedido() == null,
+                "la baja de un Pedido deja sin Pedido a todos sus Envios en el índice");
+        verificar(indice.buscar("TRK-49-11").idPedido() == null && t12 != null && Integer.valueOf(12).equals(t12.idPedido()),
+                "la baja no toca los Envios de otros Pedidos");
+        long inicioBajas = System.nanoTime();
+        for (int i = 20_000; i < 30_000; i++) indice.pedidosDadosDeBaja(List.of(i));
+        long msBajas = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicioBajas);
+        TrackingEnvio t25 = indice.buscar("TRK-49-25000");
+        verificar(t25 != null && t25.idPedido() == null && msBajas < 1_000,
+                "10 000 bajas sueltas no recorren el índice cada una (" + msBajas + " ms)");
+    }
+
+    private static void copia() throws Exception {
+        System.out.println("== copia");
+        PedidoCache cache = new PedidoCache();
+        for (int i = 1; i <= 1_000; i++) {
+            Envio e = i % 3 == 0 ? null : new Envio((long) i, false, "TRK-" + i, "OCA", "ESTANDAR",
+                    i % 2 == 0 ? null : 1.5 * i, LocalDate.of(2025, 1, 1), null, "EN_TRANSITO");
+            if (e != null) e.setVersion(i);
+            Pedido p = new Pedido((long) i, false, "PED-" + i, LocalDate.of(2025, 1, 2), "Cliente ñ " + i, 10.0 * i, "NUEVO", e);
+            p.setVersion(2);
+            cache.actualizar(p);
+        }
+        TrackingIndex indice = new TrackingIndex();
+        indice.cargar(IntStream.rangeClosed(1, 50_000).mapToObj(
+                i -> new TrackingEnvio("TRK-" + i, i, i % 5 == 0 ? null : i, i % 2 == 0 ? "EN_TRANSITO" : "ENTREGADO")));
+
+        Path dir = Files.createTempDirectory("tpi-copia");
+        Path archivo = dir.resolve("caches.bin");
+        try {
+            MarcaCambios marca = new MarcaCambios(12345L, LocalDateTime.of(2026, 1, 1, 10, 0), "srv/tpi");
+            CacheSnapshot.escribir(archivo, marca, cache, indice);
+
+            PedidoCache cache2 = new PedidoCache();
+            TrackingIndex indice2 = new TrackingIndex();
+            CacheSnapshot copia = CacheSnapshot.abrir(archivo);
+            verificar(copia.getMarca().equals(marca) && copia.isIndiceCompleto(), "la marca y el índice completo se conservan");
+            CacheSnapshot.Resumen r = copia.restaurar(cache2, indice2, Set.of(5, 7), Set.of(10, 11));
+            verificar(r.pedidos() == 998 && r.descartados() == 4, "los ids excluidos se descartan (" + r + ")");
+            verificar(indice2.isCompleto(), "el índice restaurado queda completo");
+
+            Pedido p4 = cache2.getPorId(4);
+            verificar(p4 != null && "Cliente ñ 4".equals(p4.getClienteNombre()) && p4.getVersion() == 2
+                      && p4.getEnvio().getCosto() == null && p4.getEnvio().getVersion() == 4,
+                    "un Pedido vuelve con sus campos, versión y Envio");
+            verificar(cache2.getPorId(5) == null && cache2.getPorId(3).getEnvio() == null,
+                    "los excluidos no vuelven y un Pedido sin Envio sigue sin Envio");
+            int distintos = 0;
+            for (int i = 1; i <= 50_000; i++) {
+                if (i == 10 || i == 11) continue;
+                TrackingEnvio antes = indice.buscar("TRK-" + i);
+                if (antes == null ? indice2.buscar("TRK-" + i) != null : !antes.equals(indice2.buscar("TRK-" + i))) distintos++;
+            }
+            verificar(distintos == 0 && indice2.buscar("TRK-10") == null, "el índice restaurado responde igual (" + distintos + " distintos)");
+
+            byte[] bytes = Files.readAllBytes(archivo);
+            bytes[bytes.length / 2] ^= 1;
+            Files.write(archivo, bytes);
+            verificar(rechaza(archivo), "una copia con un bit cambiado se rechaza (CRC)");
+            Files.write(archivo, Arrays.copyOf(bytes, 100));
+            verificar(rechaza(archivo), "una copia truncada se rechaza");
+        } finally {
+            Files.deleteIfExists(archivo);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    private static boolean rechaza(Path archivo) {
+        try {
+            CacheSnapshot.abrir(archivo);
+            return false;
+        } catch (IOException esperada) {
+            return true;
+        }
+    }
+}
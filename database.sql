@@ -17,7 +17,10 @@ CREATE TABLE Envio (
     costo DECIMAL(10,2),
     fechaDespacho DATE,
     fechaEstimada DATE,
-    estado VARCHAR(40)
+    estado VARCHAR(40),
+    fechaEliminacion DATETIME2 NULL,    -- momento de la baja lógica (para el archivado)
+    version INT NOT NULL CONSTRAINT DF_Envio_version DEFAULT 0,  -- concurrencia optimista
+    rv ROWVERSION                       -- marca de agua de la copia de cachés (V006)
 );
 
 -- Tabla Pedido (A)
@@ -30,5 +33,35 @@ CREATE TABLE Pedido (
     total DECIMAL(12,2) NOT NULL,
     estado VARCHAR(40) NOT NULL,
     id_envio INT UNIQUE,
+    fechaEliminacion DATETIME2 NULL,    -- momento de la baja lógica (para el archivado)
+    version INT NOT NULL CONSTRAINT DF_Pedido_version DEFAULT 0, -- concurrencia optimista
+    rv ROWVERSION,                      -- marca de agua de la copia de cachés (V006)
     CONSTRAINT FK_Pedido_Envio FOREIGN KEY (id_envio) REFERENCES Envio(id)
 );
+
+-- Archivo de filas dadas de baja hace más de N días (las mueve service.ArchivadorService).
+-- Sin IDENTITY ni FK: reciben los ids originales vía DELETE ... OUTPUT INTO.
+CREATE TABLE EnvioArchivo (
+    id INT PRIMARY KEY,
+    tracking VARCHAR(40),
+    empresa VARCHAR(40),
+    tipo VARCHAR(40),
+    costo DECIMAL(10,2),
+    fechaDespacho DATE,
+    fechaEstimada DATE,
+    estado VARCHAR(40),
+    fechaEliminacion DATETIME2 NULL,
+    fechaArchivo DATETIME2 NOT NULL DEFAULT SYSUTCDATETIME()
+);
+
+CREATE TABLE PedidoArchivo (
+    id INT PRIMARY KEY,
+    numero VARCHAR(20) NOT NULL,
+    fecha DATE NOT NULL,
+    clienteNombre VARCHAR(120) NOT NULL,
+    total DECIMAL(12,2) NOT NULL,
+    estado VARCHAR(40) NOT NULL,
+    id_envio INT,
+    fechaEliminacion DATETIME2 NULL,
+    fechaArchivo DATETIME2 NOT NULL DEFAULT SYSUTCDATETIME()
+);
@@ -0,0 +1,39 @@
+-- Bases creadas con una versión anterior de database.sql:
+-- columna fechaEliminacion y tablas de archivo (ver ArchivadorService).
+
+IF COL_LENGTH('Envio', 'fechaEliminacion') IS NULL
+    ALTER TABLE Envio ADD fechaEliminacion DATETIME2 NULL;
+GO
+
+IF COL_LENGTH('Pedido', 'fechaEliminacion') IS NULL
+    ALTER TABLE Pedido ADD fechaEliminacion DATETIME2 NULL;
+GO
+
+IF OBJECT_ID('EnvioArchivo', 'U') IS NULL
+CREATE TABLE EnvioArchivo (
+    id INT PRIMARY KEY,
+    tracking VARCHAR(40),
+    empresa VARCHAR(40),
+    tipo VARCHAR(40),
+    costo DECIMAL(10,2),
+    fechaDespacho DATE,
+    fechaEstimada DATE,
+    estado VARCHAR(40),
+    fechaEliminacion DATETIME2 NULL,
+    fechaArchivo DATETIME2 NOT NULL DEFAULT SYSUTCDATETIME()
+);
+GO
+
+IF OBJECT_ID('PedidoArchivo', 'U') IS NULL
+CREATE TABLE PedidoArchivo (
+    id INT PRIMARY KEY,
+    numero VARCHAR(20) NOT NULL,
+    fecha DATE NOT NULL,
+    clienteNombre VARCHAR(120) NOT NULL,
+    total DECIMAL(12,2) NOT NULL,
+    estado VARCHAR(40) NOT NULL,
+    id_envio INT,
+    fechaEliminacion DATETIME2 NULL,
+    fechaArchivo DATETIME2 NOT NULL DEFAULT SYSUTCDATETIME()
+);
+GO
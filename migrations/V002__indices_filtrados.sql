@@ -0,0 +1,35 @@
+-- Índices filtrados sobre las filas vivas (todas las consultas de los DAOs llevan "eliminado = 0")
+-- y cubrientes para los listados/reportes, que así no vuelven a la tabla.
+
+-- Reportes de Pedido por estado y rango de fechas
+CREATE INDEX IX_Pedido_estado_fecha ON Pedido (estado, fecha)
+    INCLUDE (numero, clienteNombre, total, id_envio)
+    WHERE eliminado = 0;
+GO
+
+-- Reportes de Pedido por rango de fechas (sin estado)
+CREATE INDEX IX_Pedido_fecha ON Pedido (fecha)
+    INCLUDE (numero, clienteNombre, total, estado, id_envio)
+    WHERE eliminado = 0;
+GO
+
+-- Búsqueda por cliente (LIKE 'prefijo%')
+CREATE INDEX IX_Pedido_clienteNombre ON Pedido (clienteNombre)
+    INCLUDE (numero, fecha, total, estado, id_envio)
+    WHERE eliminado = 0;
+GO
+
+-- Reportes de Envio por empresa/estado
+CREATE INDEX IX_Envio_empresa_estado ON Envio (empresa, estado)
+    INCLUDE (tracking, tipo, costo, fechaDespacho, fechaEstimada)
+    WHERE eliminado = 0;
+GO
+
+-- Barrido del archivador: solo las bajas lógicas, ordenadas por antigüedad
+CREATE INDEX IX_Pedido_bajas ON Pedido (fechaEliminacion)
+    WHERE eliminado = 1;
+GO
+
+CREATE INDEX IX_Envio_bajas ON Envio (fechaEliminacion)
+    WHERE eliminado = 1;
+GO
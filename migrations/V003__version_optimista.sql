@@ -0,0 +1,10 @@
+-- Control de concurrencia optimista: cada UPDATE de los DAOs incrementa "version"
+-- y solo se aplica si la fila sigue con la versión que se leyó.
+
+IF COL_LENGTH('Envio', 'version') IS NULL
+    ALTER TABLE Envio ADD version INT NOT NULL CONSTRAINT DF_Envio_version DEFAULT 0;
+GO
+
+IF COL_LENGTH('Pedido', 'version') IS NULL
+    ALTER TABLE Pedido ADD version INT NOT NULL CONSTRAINT DF_Pedido_version DEFAULT 0;
+GO
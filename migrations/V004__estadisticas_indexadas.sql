@@ -0,0 +1,42 @@
+-- Agregados del tablero como vistas indexadas: SQL Server las mantiene en la misma transacción
+-- que cada INSERT/UPDATE/DELETE sobre Pedido y Envio (altas, cambios de estado, bajas lógicas, archivado).
+-- Se consultan con WITH (NOEXPAND) desde EstadisticasDAOImpl.
+-- Requisitos de vista indexada: SCHEMABINDING, nombres de dos partes, COUNT_BIG(*) y SUM sobre expresiones no nulas.
+
+IF OBJECT_ID('dbo.EstadisticaPedidoDia', 'V') IS NOT NULL DROP VIEW dbo.EstadisticaPedidoDia;
+GO
+
+-- Pedidos vivos por día y estado (por estado = suma de los días)
+CREATE VIEW dbo.EstadisticaPedidoDia WITH SCHEMABINDING AS
+SELECT fecha,
+       estado,
+       COUNT_BIG(*) AS cantidad,
+       SUM(total)   AS montoTotal
+FROM dbo.Pedido
+WHERE eliminado = 0
+GROUP BY fecha, estado;
+GO
+
+CREATE UNIQUE CLUSTERED INDEX CX_EstadisticaPedidoDia ON dbo.EstadisticaPedidoDia (fecha, estado);
+GO
+
+IF OBJECT_ID('dbo.EstadisticaEnvio', 'V') IS NOT NULL DROP VIEW dbo.EstadisticaEnvio;
+GO
+
+-- Pedidos vivos con Envio vivo, por empresa y tipo; el plazo es fechaEstimada - fechaDespacho en días
+CREATE VIEW dbo.EstadisticaEnvio WITH SCHEMABINDING AS
+SELECT e.empresa,
+       e.tipo,
+       COUNT_BIG(*)                                   AS cantidad,
+       SUM(p.total)                                   AS montoTotal,
+       SUM(ISNULL(e.costo, 0))                        AS costoTotal,
+       SUM(ISNULL(DATEDIFF(DAY, e.fechaDespacho, e.fechaEstimada), 0)) AS diasPlazo,
+       SUM(CASE WHEN e.fechaDespacho IS NOT NULL AND e.fechaEstimada IS NOT NULL THEN 1 ELSE 0 END) AS conPlazo
+FROM dbo.Pedido p
+JOIN dbo.Envio e ON p.id_envio = e.id
+WHERE p.eliminado = 0 AND e.eliminado = 0
+GROUP BY e.empresa, e.tipo;
+GO
+
+CREATE UNIQUE CLUSTERED INDEX CX_EstadisticaEnvio ON dbo.EstadisticaEnvio (empresa, tipo);
+GO
@@ -0,0 +1,23 @@
+-- Outbox transaccional: los servicios graban un evento por cada alta, cambio o baja de un Pedido
+-- en la misma transacción que el cambio; PublicadorEventosServiceImpl los entrega en orden de id.
+
+CREATE TABLE EventoPedido (
+    id BIGINT IDENTITY(1,1) NOT NULL CONSTRAINT PK_EventoPedido PRIMARY KEY,
+    idPedido INT NOT NULL,
+    tipo VARCHAR(20) NOT NULL,
+    datos NVARCHAR(MAX) NULL,
+    fechaCreacion DATETIME2 NOT NULL CONSTRAINT DF_EventoPedido_fechaCreacion DEFAULT SYSUTCDATETIME(),
+    fechaPublicacion DATETIME2 NULL
+);
+GO
+
+-- Lectura del publicador: solo los pendientes, en orden de id
+CREATE INDEX IX_EventoPedido_pendientes ON EventoPedido (id)
+    INCLUDE (fechaCreacion)
+    WHERE fechaPublicacion IS NULL;
+GO
+
+-- Purga de los ya publicados, por antigüedad
+CREATE INDEX IX_EventoPedido_publicados ON EventoPedido (fechaPublicacion)
+    WHERE fechaPublicacion IS NOT NULL;
+GO
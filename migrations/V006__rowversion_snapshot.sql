@@ -0,0 +1,24 @@
+-- Marca de agua para la copia de las cachés (service.SnapshotService): SQL Server asigna un rowversion
+-- nuevo a cada INSERT/UPDATE, así que al arrancar se descarta de la copia lo que tenga rv >= la marca guardada.
+
+IF COL_LENGTH('Envio', 'rv') IS NULL
+    ALTER TABLE Envio ADD rv ROWVERSION;
+GO
+
+IF COL_LENGTH('Pedido', 'rv') IS NULL
+    ALTER TABLE Pedido ADD rv ROWVERSION;
+GO
+
+-- Cambiados desde la marca: lectura por rango en lugar de recorrer la tabla
+CREATE INDEX IX_Envio_rv ON Envio (rv);
+GO
+
+CREATE INDEX IX_Pedido_rv ON Pedido (rv) INCLUDE (id_envio);
+GO
+
+-- Lo archivado después de la marca también sale de la copia (ya no está en Pedido/Envio para comparar rv)
+CREATE INDEX IX_PedidoArchivo_fechaArchivo ON PedidoArchivo (fechaArchivo);
+GO
+
+CREATE INDEX IX_EnvioArchivo_fechaArchivo ON EnvioArchivo (fechaArchivo);
+GO
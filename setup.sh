@@ -106,14 +106,17 @@ if [ "$SETUP_DB" = "s" ] || [ "$SETUP_DB" = "S" ]; then
         echo "Por favor verifica tus credenciales y que MySQL esté corriendo"
     fi
     
-    # Actualizar DatabaseConnection.java
+    # Actualizar tpi.properties (el código no se toca)
     echo ""
     echo "Actualizando configuración de conexión..."
-    if [ -f "src/config/DatabaseConnection.java" ]; then
-        sed -i.bak "s/private static final String USER = \".*\";/private static final String USER = \"$MYSQL_USER\";/" src/config/DatabaseConnection.java
-        sed -i.bak "s/private static final String PASS = \".*\";/private static final String PASS = \"$MYSQL_PASS\";/" src/config/DatabaseConnection.java
-        print_success "Configuración actualizada en DatabaseConnection.java"
+    if [ -f "tpi.properties" ]; then
+        grep -v '^tpi\.db\.usuario=\|^tpi\.db\.clave=' tpi.properties > tpi.properties.tmp
+    else
+        : > tpi.properties.tmp
     fi
+    printf 'tpi.db.usuario=%s\ntpi.db.clave=%s\n' "$MYSQL_USER" "$MYSQL_PASS" >> tpi.properties.tmp
+    mv tpi.properties.tmp tpi.properties
+    print_success "Credenciales guardadas en tpi.properties"
 fi
 
 # Compilar proyecto
@@ -147,7 +150,7 @@ echo "   Setup Completado"
 echo "================================================"
 echo ""
 echo "Próximos pasos:"
-echo "1. Verifica que el archivo DatabaseConnection.java tenga las credenciales correctas"
+echo "1. Verifica que tpi.properties tenga la URL y las credenciales correctas (o usa TPI_DB_URL, TPI_DB_USUARIO, TPI_DB_CLAVE)"
 echo "2. Coloca mysql-connector-j-8.3.0.jar en la carpeta lib/ si no está"
 echo "3. Compila: javac -d out -cp lib/mysql-connector-j-8.3.0.jar src/**/*.java"
 echo "4. Ejecuta: java -cp \"out:lib/mysql-connector-j-8.3.0.jar\" main.AppMenu"
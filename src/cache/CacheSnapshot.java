@@ -0,0 +1,290 @@
+package cache;
+
+import dao.MarcaCambios;
+import entities.Envio;
+import entities.Pedido;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+// Copia binaria de PedidoCache y TrackingIndex para arrancar con las cachés llenas.
+// Formato (big-endian):
+//   "TPICACHE" | formato (int) | marca: rowversion (long), fechaUtc (epoch ms), base (texto)
+//   | índice completo (byte) | pedidos: [1, restanteMs, Pedido]* 0 | trackings: [1, largo, bytes, idEnvio, pedido, estado]* 0
+//   | CRC32 de todo lo anterior (long)
+// Se escribe en un temporal que después reemplaza al archivo; se lee mapeado en memoria (sin copiarlo al heap).
+public final class CacheSnapshot {
+
+    private static final byte[] MAGICO = "TPICACHE".getBytes(StandardCharsets.US_ASCII);
+    private static final int FORMATO = 1;
+    private static final int TRAMO_TRACKINGS = 4096;
+
+    private final Path archivo;
+    private final ByteBuffer datos;
+    private final MarcaCambios marca;
+    private final boolean indiceCompleto;
+    private final int inicioPedidos;
+
+    public record Resumen(long pedidos, long trackings, long descartados, long bytes) {
+    }
+
+    private CacheSnapshot(Path archivo, ByteBuffer datos) throws IOException {
+        this.archivo = archivo;
+        this.datos = datos;
+        try {
+            byte[] magico = new byte[MAGICO.length];
+            datos.get(magico);
+            if (!java.util.Arrays.equals(magico, MAGICO)) throw new IOException(archivo + " no es una copia de cachés");
+            int formato = datos.getInt();
+            if (formato != FORMATO) throw new IOException("Formato de copia " + formato + " no soportado");
+            long rowversion = datos.getLong();
+            LocalDateTime fecha = LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC)
+                    .plusNanos(datos.getLong() * 1_000_000);
+            this.marca = new MarcaCambios(rowversion, fecha, leerTexto(datos));
+            this.indiceCompleto = datos.get() == 1;
+            this.inicioPedidos = datos.position();
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Copia truncada: " + archivo, e);
+        }
+    }
+
+    // Mapea el archivo y verifica encabezado y CRC; no carga nada todavía
+    public static CacheSnapshot abrir(Path archivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            long tamanio = canal.size();
+            if (tamanio > Integer.MAX_VALUE) throw new IOException("Copia demasiado grande para mapearla: " + tamanio + " bytes");
+            if (tamanio < MAGICO.length + 8) throw new IOException("Copia truncada: " + archivo);
+            MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamanio);
+
+            CRC32 crc = new CRC32();
+            crc.update(mapa.slice(0, (int) tamanio - 8));
+            if (crc.getValue() != mapa.getLong((int) tamanio - 8))
+                throw new IOException("CRC inválido: copia incompleta o dañada (" + archivo + ")");
+            return new CacheSnapshot(archivo, mapa.slice(0, (int) tamanio - 8));
+        }
+    }
+
+    public MarcaCambios getMarca() { return marca; }
+    public boolean isIndiceCompleto() { return indiceCompleto; }
+
+    // Carga lo guardado salvo los ids excluidos (cambiaron en la BD después de la marca).
+    // El índice queda completo si lo estaba al guardarse.
+    public Resumen restaurar(PedidoCache cache, TrackingIndex indice, Set<Integer> pedidosExcluidos,
+                             Set<Integer> enviosExcluidos) throws IOException {
+        ByteBuffer b = datos.duplicate().position(inicioPedidos);
+        long pedidos = 0, trackings = 0, descartados = 0;
+        try {
+            while (b.get() == 1) {
+                long restanteMs = b.getLong();
+                Pedido p = leerPedido(b);
+                if (pedidosExcluidos.contains(p.getId().intValue())) {
+                    descartados++;
+                    continue;
+                }
+                cache.restaurar(p, restanteMs);
+                pedidos++;
+            }
+
+            byte[][] claves = new byte[TRAMO_TRACKINGS][];
+            int[] envios = new int[TRAMO_TRACKINGS];
+            int[] pedidosTramo = new int[TRAMO_TRACKINGS];
+            byte[] estados = new byte[TRAMO_TRACKINGS];
+            boolean ok = false;
+            indice.iniciarCarga();
+            try {
+                int n = 0;
+                while (b.get() == 1) {
+                    byte[] clave = new byte[b.get() & 0xFF];
+                    b.get(clave);
+                    claves[n] = clave;
+                    envios[n] = b.getInt();
+                    pedidosTramo[n] = b.getInt();
+                    estados[n] = b.get();
+                    if (enviosExcluidos.contains(envios[n])) {
+                        descartados++;
+                        continue;
+                    }
+                    trackings++;
+                    if (++n == TRAMO_TRACKINGS) {
+                        indice.restaurarTramo(claves, envios, pedidosTramo, estados, n, enviosExcluidos);
+                        n = 0;
+                    }
+                }
+                indice.restaurarTramo(claves, envios, pedidosTramo, estados, n, enviosExcluidos);
+                ok = true;
+            } finally {
+                indice.terminarCarga(ok && indiceCompleto);
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Copia inválida (" + archivo + "): " + e.getMessage(), e);
+        }
+        return new Resumen(pedidos, trackings, descartados, datos.capacity() + 8L);
+    }
+
+    public static Resumen escribir(Path archivo, MarcaCambios marca, PedidoCache cache, TrackingIndex indice)
+            throws IOException {
+        Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+        if (archivo.getParent() != null) Files.createDirectories(archivo.getParent());
+        long[] pedidos = {0};
+        long[] trackings = {0};
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            CheckedOutputStream verificado = new CheckedOutputStream(Channels.newOutputStream(canal), new CRC32());
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(verificado, 1 << 16));
+            out.write(MAGICO);
+            out.writeInt(FORMATO);
+            out.writeLong(marca.rowversion());
+            out.writeLong(marca.fechaUtc().toInstant(ZoneOffset.UTC).toEpochMilli());
+            escribirTexto(out, marca.base());
+            boolean completo = indice.isCompleto(); // antes de recorrer: si termina de cargar después, no cuenta
+            out.writeByte(completo ? 1 : 0);
+
+            try {
+                cache.recorrerVigentes((p, restanteMs) -> {
+                    try {
+                        out.writeByte(1);
+                        out.writeLong(restanteMs);
+                        escribirPedido(out, p);
+                        pedidos[0]++;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.writeByte(0);
+
+            byte[] copia = new byte[255];
+            indice.recorrer((segmento, offset, largo, idEnvio, pedido, estado) -> {
+                segmento.get(offset, copia, 0, largo);
+                out.writeByte(1);
+                out.writeByte(largo);
+                out.write(copia, 0, largo);
+                out.writeInt(idEnvio);
+                out.writeInt(pedido);
+                out.writeByte(estado);
+                trackings[0]++;
+            });
+            out.writeByte(0);
+
+            out.flush();
+            long crc = verificado.getChecksum().getValue();
+            out.writeLong(crc);
+            out.flush();
+            canal.force(true);
+        }
+        Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new Resumen(pedidos[0], trackings[0], 0, Files.size(archivo));
+    }
+
+    private static void escribirPedido(DataOutputStream out, Pedido p) throws IOException {
+        out.writeLong(p.getId());
+        out.writeBoolean(p.isEliminado());
+        escribirTexto(out, p.getNumero());
+        escribirFecha(out, p.getFecha());
+        escribirTexto(out, p.getClienteNombre());
+        escribirDecimal(out, p.getTotal());
+        escribirTexto(out, p.getEstado());
+        escribirEntero(out, p.getVersion());
+        Envio e = p.getEnvio();
+        out.writeBoolean(e != null);
+        if (e == null) return;
+        out.writeLong(e.getId() != null ? e.getId() : -1);
+        out.writeBoolean(e.isEliminado());
+        escribirTexto(out, e.getTracking());
+        escribirTexto(out, e.getEmpresa());
+        escribirTexto(out, e.getTipo());
+        escribirDecimal(out, e.getCosto());
+        escribirFecha(out, e.getFechaDespacho());
+        escribirFecha(out, e.getFechaEstimada());
+        escribirTexto(out, e.getEstado());
+        escribirEntero(out, e.getVersion());
+    }
+
+    private static Pedido leerPedido(ByteBuffer b) {
+        long id = b.getLong();
+        boolean eliminado = b.get() != 0;
+        String numero = leerTexto(b);
+        LocalDate fecha = leerFecha(b);
+        String cliente = leerTexto(b);
+        Double total = leerDecimal(b);
+        String estado = leerTexto(b);
+        Integer version = leerEntero(b);
+        Envio envio = null;
+        if (b.get() != 0) {
+            long idEnvio = b.getLong();
+            envio = new Envio(idEnvio >= 0 ? idEnvio : null, b.get() != 0, leerTexto(b), leerTexto(b), leerTexto(b),
+                    leerDecimal(b), leerFecha(b), leerFecha(b), leerTexto(b));
+            envio.setVersion(leerEntero(b));
+        }
+        Pedido p = new Pedido(id, eliminado, numero, fecha, cliente, total, estado, envio);
+        p.setVersion(version);
+        return p;
+    }
+
+    // Texto: largo en bytes (short, -1 = null) + UTF-8
+    private static void escribirTexto(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeShort(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) throw new IOException("Texto demasiado largo para la copia");
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String leerTexto(ByteBuffer b) {
+        short largo = b.getShort();
+        if (largo < 0) return null;
+        byte[] bytes = new byte[largo];
+        b.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void escribirFecha(DataOutputStream out, LocalDate f) throws IOException {
+        out.writeLong(f != null ? f.toEpochDay() : Long.MIN_VALUE);
+    }
+
+    private static LocalDate leerFecha(ByteBuffer b) {
+        long dia = b.getLong();
+        return dia == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(dia);
+    }
+
+    private static void escribirDecimal(DataOutputStream out, Double d) throws IOException {
+        out.writeBoolean(d != null);
+        if (d != null) out.writeDouble(d);
+    }
+
+    private static Double leerDecimal(ByteBuffer b) {
+        return b.get() != 0 ? b.getDouble() : null;
+    }
+
+    private static void escribirEntero(DataOutputStream out, Integer i) throws IOException {
+        out.writeBoolean(i != null);
+        if (i != null) out.writeInt(i);
+    }
+
+    private static Integer leerEntero(ByteBuffer b) {
+        return b.get() != 0 ? b.getInt() : null;
+    }
+}
@@ -0,0 +1,207 @@
+package cache;
+
+import entities.Envio;
+import entities.Pedido;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+// Caché LRU acotada de Pedidos (con su Envio) indexada por id y por numero.
+// - Las entradas vencen a los ttl indicados.
+// - Se guardan y se entregan copias: quien modifica el Pedido recibido no altera la caché.
+// - "epoca" se incrementa en cada escritura; una lectura de la BD solo se cachea si no hubo
+//   escrituras mientras tanto (evita volver a cachear un dato viejo después de un commit).
+// - Con réplicas de lectura (setRetrasoLecturas) tampoco se cachea lo leído de un id escrito hace
+//   menos que el retraso admitido: la réplica todavía puede devolver la versión anterior.
+public class PedidoCache {
+
+    public static final int CAPACIDAD_DEFAULT = 10_000;
+    public static final long TTL_DEFAULT_MS = TimeUnit.MINUTES.toMillis(5);
+
+    private final int capacidad;
+    private final long ttlNanos;
+
+    private final Map<Long, Entrada> porId;
+    private final Map<String, Long> porNumero = new HashMap<>();
+    private long epoca;
+
+    private long retrasoLecturasNanos; // 0: las lecturas nunca vienen atrasadas
+    private final LinkedHashMap<Long, Long> escriturasRecientes = new LinkedHashMap<>(); // id -> nanoTime, por antigüedad
+
+    private long aciertos;
+    private long fallos;
+    private long desalojos;
+    private long vencidos;
+
+    private static final class Entrada {
+        final Pedido pedido;
+        final long venceNanos;
+        Entrada(Pedido pedido, long venceNanos) { this.pedido = pedido; this.venceNanos = venceNanos; }
+    }
+
+    public PedidoCache() {
+        this(CAPACIDAD_DEFAULT, TTL_DEFAULT_MS);
+    }
+
+    public PedidoCache(int capacidad, long ttlMs) {
+        if (capacidad < 1) throw new IllegalArgumentException("Capacidad de caché debe ser >= 1");
+        this.capacidad = capacidad;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.porId = new LinkedHashMap<>(16, 0.75f, true) { // orden de acceso = LRU
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entrada> masVieja) {
+                if (size() <= PedidoCache.this.capacidad) return false;
+                porNumero.remove(masVieja.getValue().pedido.getNumero());
+                desalojos++;
+                return true;
+            }
+        };
+    }
+
+    public synchronized Pedido getPorId(long id) {
+        Entrada e = porId.get(id);
+        if (e == null) { fallos++; return null; }
+        if (System.nanoTime() - e.venceNanos > 0) {
+            quitar(id);
+            vencidos++;
+            fallos++;
+            return null;
+        }
+        aciertos++;
+        return copiar(e.pedido);
+    }
+
+    public synchronized Pedido getPorNumero(String numero) {
+        Long id = porNumero.get(numero);
+        if (id == null) { fallos++; return null; }
+        return getPorId(id);
+    }
+
+    // Leer antes de ir a la BD y pasarla a putSiVigente
+    public synchronized long epoca() {
+        return epoca;
+    }
+
+    // Read-through: cachea lo leído de la BD solo si no hubo escrituras desde epocaLeida
+    public synchronized void putSiVigente(Pedido p, long epocaLeida) {
+        if (epocaLeida != epoca || p == null || escritoHacePoco(p.getId())) return;
+        guardar(p);
+    }
+
+    // Escritura confirmada (llamar después del commit)
+    public synchronized void actualizar(Pedido p) {
+        epoca++;
+        quitar(p.getId());
+        registrarEscritura(p.getId());
+        guardar(p);
+    }
+
+    // Escritura confirmada (llamar después del commit)
+    public synchronized void invalidar(long id) {
+        epoca++;
+        quitar(id);
+        registrarEscritura(id);
+    }
+
+    // Atraso máximo de las lecturas que llegan a putSiVigente (el de las réplicas; 0 = sin réplicas)
+    public synchronized void setRetrasoLecturas(long ms) {
+        if (ms < 0) throw new IllegalArgumentException("Retraso de lecturas debe ser >= 0");
+        retrasoLecturasNanos = TimeUnit.MILLISECONDS.toNanos(ms);
+        if (ms == 0) escriturasRecientes.clear();
+    }
+
+    // Para CacheSnapshot: las vigentes de la menos a la más usada (restauradas en ese orden, el LRU queda igual)
+    // con los ms que les quedan. El Pedido es el de la caché: no modificarlo.
+    public synchronized void recorrerVigentes(BiConsumer<Pedido, Long> accion) {
+        long ahora = System.nanoTime();
+        for (Entrada e : porId.values()) {
+            long restante = e.venceNanos - ahora;
+            if (restante > 0) accion.accept(e.pedido, TimeUnit.NANOSECONDS.toMillis(restante));
+        }
+    }
+
+    // Restauración de CacheSnapshot: no pisa lo que ya esté (se cacheó después, es más nuevo)
+    public synchronized void restaurar(Pedido p, long restanteMs) {
+        if (p == null || p.getId() == null || porId.containsKey(p.getId()) || restanteMs <= 0) return;
+        guardar(p, Math.min(ttlNanos, TimeUnit.MILLISECONDS.toNanos(restanteMs)));
+    }
+
+    public synchronized void limpiar() {
+        epoca++;
+        porId.clear();
+        porNumero.clear();
+    }
+
+    private void guardar(Pedido p) {
+        guardar(p, ttlNanos);
+    }
+
+    private void guardar(Pedido p, long duracionNanos) {
+        if (p == null || p.getId() == null) return;
+        Pedido copia = copiar(p);
+        Entrada anterior = porId.put(copia.getId(), new Entrada(copia, System.nanoTime() + duracionNanos));
+        if (anterior != null && !anterior.pedido.getNumero().equals(copia.getNumero()))
+            porNumero.remove(anterior.pedido.getNumero());
+        porNumero.put(copia.getNumero(), copia.getId());
+    }
+
+    private void registrarEscritura(Long id) {
+        if (retrasoLecturasNanos == 0 || id == null) return;
+        long ahora = System.nanoTime();
+        escriturasRecientes.remove(id);
+        escriturasRecientes.put(id, ahora);
+        // Orden de inserción = orden de escritura: las que ya no importan están al principio
+        Iterator<Long> it = escriturasRecientes.values().iterator();
+        while (it.hasNext() && ahora - it.next() > retrasoLecturasNanos) it.remove();
+    }
+
+    private boolean escritoHacePoco(Long id) {
+        Long escrito = escriturasRecientes.get(id);
+        return escrito != null && System.nanoTime() - escrito <= retrasoLecturasNanos;
+    }
+
+    private void quitar(Long id) {
+        if (id == null) return;
+        Entrada e = porId.remove(id);
+        if (e != null) porNumero.remove(e.pedido.getNumero());
+    }
+
+    private static Pedido copiar(Pedido p) {
+        Envio e = p.getEnvio();
+        Envio copiaEnvio = null;
+        if (e != null) {
+            copiaEnvio = new Envio(e.getId(), e.isEliminado(), e.getTracking(), e.getEmpresa(),
+                    e.getTipo(), e.getCosto(), e.getFechaDespacho(), e.getFechaEstimada(), e.getEstado());
+            copiaEnvio.setVersion(e.getVersion());
+            copiaEnvio.limpiarCambios(); // la caché guarda el estado de la BD
+        }
+        Pedido copia = new Pedido(p.getId(), p.isEliminado(), p.getNumero(), p.getFecha(), p.getClienteNombre(),
+                p.getTotal(), p.getEstado(), copiaEnvio);
+        copia.setVersion(p.getVersion());
+        copia.limpiarCambios();
+        return copia;
+    }
+
+    // Métricas
+    public synchronized int getTamanio() { return porId.size(); }
+    public synchronized long getAciertos() { return aciertos; }
+    public synchronized long getFallos() { return fallos; }
+    public synchronized long getDesalojos() { return desalojos; }
+    public synchronized long getVencidos() { return vencidos; }
+
+    public synchronized double getTasaAciertos() {
+        long total = aciertos + fallos;
+        return total == 0 ? 0 : (double) aciertos / total;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "PedidoCache{tamanio=" + porId.size() + "/" + capacidad + ", aciertos=" + aciertos +
+               ", fallos=" + fallos + ", tasa=" + String.format("%.1f%%", getTasaAciertos() * 100) +
+               ", desalojos=" + desalojos + ", vencidos=" + vencidos + "}";
+    }
+}
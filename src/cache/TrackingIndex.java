@@ -0,0 +1,573 @@
+package cache;
+
+import dao.TrackingEnvio;
+import entities.EstadoEnvio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+// Índice en memoria tracking -> (idEnvio, idPedido, estado), pensado para decenas de millones de Envios.
+// - Sin un objeto por entrada: los datos van en arreglos primitivos paralelos y los trackings (bytes UTF-8)
+//   en segmentos directos fuera del heap, así el GC no recorre el índice.
+// - Tres tablas hash de direccionamiento abierto (sondeo lineal) guardan el número de entrada:
+//   por tracking, por idEnvio (escrituras que solo traen ids) y por idPedido (bajas de Pedidos).
+// - buscar() devuelve null si no sabe la respuesta completa (tracking ausente o Pedido todavía no
+//   resuelto): quien llama va a la BD y cachea con putSiVigente. Los estados fuera de EstadoEnvio
+//   (datos viejos) guardan su texto aparte.
+// - Reescribir un Envio con el mismo tracking no vuelve a guardar la clave; el espacio de las claves
+//   quitadas se recupera compactando los segmentos cuando pasa de la mitad de lo escrito.
+// - Igual que PedidoCache, "epoca" cambia con cada escritura confirmada: una lectura de la BD solo se
+//   guarda si no hubo escrituras mientras tanto.
+// Refleja las escrituras de este proceso: los cambios de otros procesos se ven al recargar (cargar).
+public class TrackingIndex {
+
+    private static final int SEGMENTO_BYTES = 8 << 20;
+    private static final int COMPACTAR_DESDE_BYTES = SEGMENTO_BYTES; // menos liberado no vale la copia
+    private static final float CARGA_MAXIMA = 0.7f;
+    private static final int PEDIDO_DESCONOCIDO = -1;   // se resuelve en la BD en la primera búsqueda
+    private static final byte ESTADO_NULO = 0;
+    private static final byte ESTADO_OTRO = -1;          // texto que no es un EstadoEnvio
+    private static final EstadoEnvio[] ESTADOS = EstadoEnvio.values();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Entradas: la 'e' está libre si claves[e] == 0
+    private long[] claves;      // referencia al tracking en los segmentos (+1)
+    private int[] hashes;
+    private int[] envios;
+    private int[] pedidos;      // 0 = sin Pedido vivo
+    private byte[] estados;     // ordinal + 1
+    private int usadas;
+    private int[] libres = new int[16];
+    private int cantidadLibres;
+    private int tamanio;
+
+    // Tablas: número de entrada + 1, 0 = vacío
+    private int[] porTracking;
+    private int[] porEnvio;
+    private int[] porPedido;    // solo entradas con Pedido vivo; puede repetir Pedido (datos viejos de una carga)
+
+    // Texto de los estados ESTADO_OTRO, por idEnvio
+    private final Map<Integer, String> estadosOtros = new HashMap<>();
+
+    private final List<ByteBuffer> segmentos = new ArrayList<>();
+    private long bytesUsados;
+    private long bytesLiberados;
+
+    private long epoca;
+    private Set<Integer> escritosDuranteCarga; // != null mientras corre una carga
+    private volatile boolean completo;         // tiene todos los Envios vivos (cargar terminó bien)
+
+    // Se cuentan con el lock de lectura: sin sincronizar entre búsquedas
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+
+    public TrackingIndex() {
+        this(1 << 16);
+    }
+
+    public TrackingIndex(int capacidadInicial) {
+        if (capacidadInicial < 1) throw new IllegalArgumentException("Capacidad debe ser >= 1");
+        iniciar(capacidadInicial);
+    }
+
+    private void iniciar(int capacidad) {
+        claves = new long[capacidad];
+        hashes = new int[capacidad];
+        envios = new int[capacidad];
+        pedidos = new int[capacidad];
+        estados = new byte[capacidad];
+        usadas = 0;
+        cantidadLibres = 0;
+        tamanio = 0;
+        int slots = 2;
+        while (slots * CARGA_MAXIMA < capacidad && slots < 1 << 30) slots <<= 1;
+        porTracking = new int[slots];
+        porEnvio = new int[slots];
+        porPedido = new int[slots];
+        estadosOtros.clear();
+        segmentos.clear();
+        bytesUsados = 0;
+        bytesLiberados = 0;
+    }
+
+    public TrackingEnvio buscar(String tracking) {
+        if (tracking == null) return null;
+        byte[] clave = tracking.getBytes(StandardCharsets.UTF_8);
+        int hash = mezclar(Arrays.hashCode(clave));
+        lock.readLock().lock();
+        try {
+            int e = entradaPorTracking(clave, hash);
+            // Un ESTADO_OTRO sin texto viene de una copia (CacheSnapshot no lo guarda)
+            String otro = e >= 0 && estados[e] == ESTADO_OTRO ? estadosOtros.get(envios[e]) : null;
+            if (e < 0 || pedidos[e] == PEDIDO_DESCONOCIDO || (estados[e] == ESTADO_OTRO && otro == null)) {
+                fallos.increment();
+                return null;
+            }
+            aciertos.increment();
+            String estado = estados[e] == ESTADO_NULO ? null : otro != null ? otro : ESTADOS[estados[e] - 1].name();
+            return new TrackingEnvio(tracking, envios[e], pedidos[e] == 0 ? null : pedidos[e], estado);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Leer antes de ir a la BD y pasarla a putSiVigente
+    public long epoca() {
+        lock.readLock().lock();
+        try {
+            return epoca;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Read-through: guarda lo leído de la BD solo si no hubo escrituras desde epocaLeida
+    public void putSiVigente(TrackingEnvio t, long epocaLeida) {
+        if (t == null || t.tracking() == null) return;
+        lock.writeLock().lock();
+        try {
+            if (epocaLeida == epoca) poner(t);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Escritura confirmada: alta o cambio de un Envio. idPedido desconocido: null y pedidoConocido = false.
+    public void registrar(String tracking, int idEnvio, Integer idPedido, boolean pedidoConocido, String estado) {
+        lock.writeLock().lock();
+        try {
+            escrito(idEnvio);
+            if (tracking == null) {
+                quitarEntrada(entradaPorEnvio(idEnvio));
+            } else {
+                int pedido = !pedidoConocido ? PEDIDO_DESCONOCIDO : idPedido == null ? 0 : idPedido;
+                reemplazar(tracking.getBytes(StandardCharsets.UTF_8), idEnvio, pedido, estado);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Escritura confirmada: cambio de estado de Envios que pueden no estar en el índice
+    public void cambiarEstado(Collection<Integer> idsEnvio, String estado) {
+        byte codigo = codigo(estado);
+        lock.writeLock().lock();
+        try {
+            for (int id : idsEnvio) {
+                escrito(id);
+                int e = entradaPorEnvio(id);
+                if (e >= 0) fijarEstado(e, codigo, estado);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Escritura confirmada: Pedidos creados para Envios que entraron sin Pedido resuelto (registrar con
+    // pedidoConocido = false). Así el alta no obliga a la primera búsqueda a ir a la BD.
+    public void asignarPedidos(int[] idsEnvio, int[] idsPedido) {
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < idsEnvio.length; i++) {
+                int e = entradaPorEnvio(idsEnvio[i]);
+                if (e >= 0 && pedidos[e] == PEDIDO_DESCONOCIDO) fijarPedido(e, idsPedido[i]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Escritura confirmada: baja lógica de Envios
+    public void quitar(Collection<Integer> idsEnvio) {
+        lock.writeLock().lock();
+        try {
+            for (int id : idsEnvio) {
+                escrito(id);
+                quitarEntrada(entradaPorEnvio(id));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Escritura confirmada: baja lógica de Pedidos (o cambio de su Envio). id_envio es UNIQUE, así que
+    // el Envio queda sin Pedido vivo. Por la tabla por Pedido: cuesta lo que las entradas de esos Pedidos.
+    public void pedidosDadosDeBaja(Collection<Integer> idsPedido) {
+        if (idsPedido.isEmpty()) return;
+        lock.writeLock().lock();
+        try {
+            epoca++;
+            List<Integer> entradas = new ArrayList<>();
+            for (int id : idsPedido) {
+                entradas.clear();
+                int mascara = porPedido.length - 1;
+                for (int i = mezclar(id) & mascara; porPedido[i] != 0; i = (i + 1) & mascara) {
+                    if (pedidos[porPedido[i] - 1] == id) entradas.add(porPedido[i] - 1);
+                }
+                // Fuera del sondeo: quitar de la tabla corre las demás entradas
+                for (int e : entradas) {
+                    fijarPedido(e, 0);
+                    if (escritosDuranteCarga != null) escritosDuranteCarga.add(envios[e]);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Carga masiva (lectura por cursor de todos los Envios vivos). Se puede llamar con el índice en uso:
+    // no pisa lo que escribieron las transacciones confirmadas durante la carga. Devuelve las filas leídas.
+    public long cargar(Stream<TrackingEnvio> filas) {
+        iniciarCarga();
+        long leidas = 0;
+        boolean ok = false;
+        try {
+            // De a tramos: las búsquedas y escrituras concurrentes no esperan toda la carga
+            List<TrackingEnvio> tramo = new ArrayList<>(4096);
+            for (TrackingEnvio t : (Iterable<TrackingEnvio>) filas::iterator) {
+                leidas++;
+                tramo.add(t);
+                if (tramo.size() == 4096) {
+                    cargarTramo(tramo);
+                    tramo.clear();
+                }
+            }
+            cargarTramo(tramo);
+            ok = true;
+        } finally {
+            terminarCarga(ok);
+        }
+        return leidas;
+    }
+
+    void iniciarCarga() {
+        lock.writeLock().lock();
+        try {
+            escritosDuranteCarga = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void terminarCarga(boolean quedaCompleto) {
+        lock.writeLock().lock();
+        try {
+            escritosDuranteCarga = null;
+            if (quedaCompleto) completo = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Entrada tal como está guardada, para CacheSnapshot (pedido -1 = sin resolver; estado = código interno)
+    interface Visitante {
+        void entrada(ByteBuffer segmento, int offset, int largo, int idEnvio, int pedido, byte estado) throws IOException;
+    }
+
+    // Con el lock de lectura todo el recorrido: las escrituras esperan (se usa al cerrar la aplicación)
+    void recorrer(Visitante v) throws IOException {
+        lock.readLock().lock();
+        try {
+            for (int e = 0; e < usadas; e++) {
+                if (claves[e] == 0) continue;
+                long ref = claves[e] - 1;
+                ByteBuffer seg = segmento(ref);
+                int o = offset(ref);
+                v.entrada(seg, o + 1, seg.get(o) & 0xFF, envios[e], pedidos[e], estados[e]);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Restauración de CacheSnapshot, entre iniciarCarga y terminarCarga. Se saltean los excluidos
+    // (cambiaron en la BD después de la copia) y lo escrito desde que empezó la carga.
+    void restaurarTramo(byte[][] trackings, int[] idsEnvio, int[] pedidosTramo, byte[] estadosTramo, int n,
+                        Set<Integer> excluidos) {
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < n; i++) {
+                int envio = idsEnvio[i];
+                if (excluidos.contains(envio) || escritosDuranteCarga.contains(envio)) continue;
+                if (estadosTramo[i] != ESTADO_OTRO && (estadosTramo[i] < 0 || estadosTramo[i] > ESTADOS.length))
+                    throw new IllegalArgumentException("Estado inválido en la copia: " + estadosTramo[i]);
+                reemplazar(trackings[i], envio, pedidosTramo[i], estadosTramo[i], null);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isCompleto() { return completo; }
+
+    private void cargarTramo(List<TrackingEnvio> tramo) {
+        lock.writeLock().lock();
+        try {
+            for (TrackingEnvio t : tramo) {
+                if (t.tracking() == null || escritosDuranteCarga.contains(t.idEnvio())) continue;
+                poner(t);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void limpiar() {
+        lock.writeLock().lock();
+        try {
+            epoca++;
+            completo = false;
+            iniciar(16);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void escrito(int idEnvio) {
+        epoca++;
+        if (escritosDuranteCarga != null) escritosDuranteCarga.add(idEnvio);
+    }
+
+    private void poner(TrackingEnvio t) {
+        reemplazar(t.tracking().getBytes(StandardCharsets.UTF_8), t.idEnvio(), t.idPedido() == null ? 0 : t.idPedido(),
+                t.estado());
+    }
+
+    private void reemplazar(byte[] clave, int idEnvio, int pedido, String estado) {
+        reemplazar(clave, idEnvio, pedido, codigo(estado), estado);
+    }
+
+    // Alta o reemplazo de la entrada de un Envio. Con el mismo tracking se reescribe en el lugar.
+    private void reemplazar(byte[] clave, int idEnvio, int pedido, byte estado, String textoEstado) {
+        int e = entradaPorEnvio(idEnvio);
+        if (e >= 0 && hashes[e] == mezclar(Arrays.hashCode(clave)) && mismaClave(claves[e] - 1, clave)) {
+            fijarPedido(e, pedido);
+            fijarEstado(e, estado, textoEstado);
+            return;
+        }
+        quitarEntrada(e); // el tracking cambió
+        if (clave.length > 255) return; // VARCHAR(40): no pasa
+        int hash = mezclar(Arrays.hashCode(clave));
+        e = entradaPorTracking(clave, hash);
+        if (e >= 0) {
+            // Mismo tracking con otro Envio (el anterior ya no existe en la BD)
+            estadosOtros.remove(envios[e]);
+            quitarDeTabla(porEnvio, posicion(porEnvio, mezclar(envios[e]), e));
+        } else {
+            if (tamanio + 1 > porTracking.length * CARGA_MAXIMA) agrandarTablas();
+            e = nuevaEntrada();
+            claves[e] = guardarClave(clave) + 1;
+            hashes[e] = hash;
+            insertar(porTracking, hash, e);
+            tamanio++;
+        }
+        fijarPedido(e, pedido);
+        envios[e] = idEnvio;
+        fijarEstado(e, estado, textoEstado);
+        insertar(porEnvio, mezclar(idEnvio), e);
+    }
+
+    // Todo cambio de pedidos[e] pasa por acá para mantener porPedido
+    private void fijarPedido(int e, int pedido) {
+        if (pedidos[e] == pedido) return;
+        if (pedidos[e] > 0) quitarDeTabla(porPedido, posicion(porPedido, mezclar(pedidos[e]), e));
+        pedidos[e] = pedido;
+        if (pedido > 0) insertar(porPedido, mezclar(pedido), e);
+    }
+
+    private void fijarEstado(int e, byte estado, String texto) {
+        estados[e] = estado;
+        if (estado == ESTADO_OTRO && texto != null) estadosOtros.put(envios[e], texto);
+        else estadosOtros.remove(envios[e]);
+    }
+
+    private void quitarEntrada(int e) {
+        if (e < 0) return;
+        quitarDeTabla(porTracking, posicion(porTracking, hashes[e], e));
+        quitarDeTabla(porEnvio, posicion(porEnvio, mezclar(envios[e]), e));
+        fijarPedido(e, 0);
+        bytesLiberados += 1 + (segmento(claves[e] - 1).get(offset(claves[e] - 1)) & 0xFF);
+        estadosOtros.remove(envios[e]);
+        claves[e] = 0;
+        if (cantidadLibres == libres.length) libres = Arrays.copyOf(libres, libres.length * 2);
+        libres[cantidadLibres++] = e;
+        tamanio--;
+    }
+
+    private int nuevaEntrada() {
+        if (cantidadLibres > 0) return libres[--cantidadLibres];
+        if (usadas == claves.length) {
+            int n = claves.length + (claves.length >> 1) + 1;
+            claves = Arrays.copyOf(claves, n);
+            hashes = Arrays.copyOf(hashes, n);
+            envios = Arrays.copyOf(envios, n);
+            pedidos = Arrays.copyOf(pedidos, n);
+            estados = Arrays.copyOf(estados, n);
+        }
+        return usadas++;
+    }
+
+    private int entradaPorTracking(byte[] clave, int hash) {
+        int mascara = porTracking.length - 1;
+        for (int i = hash & mascara; ; i = (i + 1) & mascara) {
+            int v = porTracking[i];
+            if (v == 0) return -1;
+            int e = v - 1;
+            if (hashes[e] == hash && mismaClave(claves[e] - 1, clave)) return e;
+        }
+    }
+
+    private int entradaPorEnvio(int idEnvio) {
+        int mascara = porEnvio.length - 1;
+        for (int i = mezclar(idEnvio) & mascara; ; i = (i + 1) & mascara) {
+            int v = porEnvio[i];
+            if (v == 0) return -1;
+            if (envios[v - 1] == idEnvio) return v - 1;
+        }
+    }
+
+    private static void insertar(int[] tabla, int hash, int e) {
+        int mascara = tabla.length - 1;
+        int i = hash & mascara;
+        while (tabla[i] != 0) i = (i + 1) & mascara;
+        tabla[i] = e + 1;
+    }
+
+    private static int posicion(int[] tabla, int hash, int e) {
+        int mascara = tabla.length - 1;
+        int i = hash & mascara;
+        while (tabla[i] != e + 1) i = (i + 1) & mascara;
+        return i;
+    }
+
+    // Borrado con corrimiento hacia atrás: sin lápidas, las búsquedas no se alargan con el uso
+    private void quitarDeTabla(int[] tabla, int hueco) {
+        int mascara = tabla.length - 1;
+        int i = hueco;
+        while (true) {
+            i = (i + 1) & mascara;
+            int v = tabla[i];
+            if (v == 0) break;
+            int ideal = (tabla == porTracking ? hashes[v - 1]
+                         : mezclar(tabla == porEnvio ? envios[v - 1] : pedidos[v - 1])) & mascara;
+            if (((i - ideal) & mascara) >= ((i - hueco) & mascara)) {
+                tabla[hueco] = v;
+                hueco = i;
+            }
+        }
+        tabla[hueco] = 0;
+    }
+
+    private void agrandarTablas() {
+        porTracking = new int[porTracking.length * 2];
+        porEnvio = new int[porEnvio.length * 2];
+        porPedido = new int[porPedido.length * 2];
+        for (int e = 0; e < usadas; e++) {
+            if (claves[e] == 0) continue;
+            insertar(porTracking, hashes[e], e);
+            insertar(porEnvio, mezclar(envios[e]), e);
+            if (pedidos[e] > 0) insertar(porPedido, mezclar(pedidos[e]), e);
+        }
+    }
+
+    // Formato en el segmento: largo (1 byte) + bytes UTF-8. Un tracking nunca cruza dos segmentos.
+    private long guardarClave(byte[] clave) {
+        if (bytesLiberados >= COMPACTAR_DESDE_BYTES && bytesLiberados > bytesUsados / 2) compactar();
+        int largo = 1 + clave.length;
+        ByteBuffer actual = segmentos.isEmpty() ? null : segmentos.get(segmentos.size() - 1);
+        if (actual == null || actual.remaining() < largo) {
+            actual = ByteBuffer.allocateDirect(SEGMENTO_BYTES);
+            segmentos.add(actual);
+        }
+        long ref = (long) (segmentos.size() - 1) * SEGMENTO_BYTES + actual.position();
+        actual.put((byte) clave.length).put(clave);
+        bytesUsados += largo;
+        return ref;
+    }
+
+    // Copia las claves vivas a segmentos nuevos; los viejos los libera el GC (ByteBuffer directo)
+    private void compactar() {
+        List<ByteBuffer> viejos = new ArrayList<>(segmentos);
+        segmentos.clear();
+        bytesUsados = 0;
+        bytesLiberados = 0;
+        byte[] copia = new byte[255];
+        for (int e = 0; e < usadas; e++) {
+            if (claves[e] == 0) continue;
+            long ref = claves[e] - 1;
+            ByteBuffer s = viejos.get((int) (ref / SEGMENTO_BYTES));
+            int o = offset(ref);
+            int largo = s.get(o) & 0xFF;
+            s.get(o + 1, copia, 0, largo);
+            claves[e] = guardarClave(Arrays.copyOf(copia, largo)) + 1;
+        }
+    }
+
+    private boolean mismaClave(long ref, byte[] clave) {
+        ByteBuffer s = segmento(ref);
+        int o = offset(ref);
+        if ((s.get(o) & 0xFF) != clave.length) return false;
+        for (int i = 0; i < clave.length; i++) {
+            if (s.get(o + 1 + i) != clave[i]) return false;
+        }
+        return true;
+    }
+
+    private ByteBuffer segmento(long ref) { return segmentos.get((int) (ref / SEGMENTO_BYTES)); }
+    private static int offset(long ref) { return (int) (ref % SEGMENTO_BYTES); }
+
+    private static byte codigo(String estado) {
+        if (estado == null) return ESTADO_NULO;
+        EstadoEnvio e = EstadoEnvio.desde(estado);
+        return e == null ? ESTADO_OTRO : (byte) (e.ordinal() + 1);
+    }
+
+    private static int mezclar(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // Métricas
+    public int getTamanio() {
+        lock.readLock().lock();
+        try { return tamanio; } finally { lock.readLock().unlock(); }
+    }
+
+    public long getAciertos() { return aciertos.sum(); }
+    public long getFallos() { return fallos.sum(); }
+
+    public long getBytesFueraDelHeap() {
+        lock.readLock().lock();
+        try { return (long) segmentos.size() * SEGMENTO_BYTES; } finally { lock.readLock().unlock(); }
+    }
+
+    @Override
+    public String toString() {
+        lock.readLock().lock();
+        try {
+            long heap = (long) claves.length * (8 + 4 + 4 + 4 + 1) + (long) (porTracking.length + porEnvio.length + porPedido.length) * 4;
+            long aciertos = this.aciertos.sum();
+            long fallos = this.fallos.sum();
+            long total = aciertos + fallos;
+            return "TrackingIndex{tamanio=" + tamanio + ", aciertos=" + aciertos + ", fallos=" + fallos +
+                   ", tasa=" + String.format("%.1f%%", total == 0 ? 0 : aciertos * 100.0 / total) +
+                   ", heap=" + heap / (1 << 20) + " MB, fueraDelHeap=" + (long) segmentos.size() * SEGMENTO_BYTES / (1 << 20) +
+                   " MB (en uso " + (bytesUsados - bytesLiberados) / 1024 + " KB)}";
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// Crea conexiones físicas. Permite usar el pool con SQL Server o con cualquier JDBC de prueba.
+@FunctionalInterface
+public interface ConnectionFactory {
+    Connection crear() throws SQLException;
+}
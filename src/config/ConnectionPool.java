@@ -0,0 +1,388 @@
+package config;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Pool acotado de conexiones JDBC.
+// - Mantiene un mínimo de conexiones "calientes" y nunca supera el máximo.
+// - Si no hay conexión libre espera hasta timeoutAdquisicionMs.
+// - Valida la conexión al prestarla y desaloja las inactivas por encima del mínimo.
+// - La Connection que se entrega es un proxy: close() la devuelve al pool con autocommit=true.
+//   unwrap() no expone la física (cerrarla o cambiarle el estado esquivaría al pool): devuelve el proxy.
+// - Cada conexión física tiene su caché de PreparedStatement (ver StatementCache).
+// - Tamaños y timeouts se pueden cambiar en caliente (reconfigurar): las conexiones prestadas no se tocan.
+// - Dentro de un PlazoConsulta la espera se acota al plazo y las sentencias salen con su queryTimeout.
+public class ConnectionPool implements AutoCloseable {
+
+    private final ConnectionFactory fabrica;
+    // Modificables con reconfigurar(); se leen también fuera del lock
+    private volatile int minimo;
+    private volatile int maximo;
+    private volatile long timeoutAdquisicionMs;
+    private volatile long timeoutInactivaMs;
+    private volatile int timeoutValidacionSeg;
+    private volatile int tamanioCacheSentencias;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition disponible = lock.newCondition();
+    private final ArrayDeque<Inactiva> inactivas = new ArrayDeque<>(); // primero = la más reciente
+    private int total;     // conexiones físicas abiertas (o creándose)
+    private int activas;   // prestadas
+    private int enEspera;  // hilos esperando una conexión
+    private boolean cerrado;
+
+    private final LatencyHistogram histogramaAdquisicion = new LatencyHistogram();
+    private final LongAdder aciertosSentencias = new LongAdder();
+    private final LongAdder fallosSentencias = new LongAdder();
+    private final ScheduledExecutorService mantenimiento;
+
+    // Conexión física + su caché de sentencias
+    private static final class Fisica {
+        final Connection conexion;
+        final StatementCache sentencias; // null si la caché está deshabilitada
+        Fisica(Connection conexion, StatementCache sentencias) { this.conexion = conexion; this.sentencias = sentencias; }
+    }
+
+    private static final class Inactiva {
+        final Fisica fisica;
+        final long desdeNanos;
+        Inactiva(Fisica fisica, long desdeNanos) { this.fisica = fisica; this.desdeNanos = desdeNanos; }
+    }
+
+    public ConnectionPool(ConnectionFactory fabrica, int minimo, int maximo,
+                          long timeoutAdquisicionMs, long timeoutInactivaMs, int timeoutValidacionSeg) {
+        this(fabrica, minimo, maximo, timeoutAdquisicionMs, timeoutInactivaMs, timeoutValidacionSeg, 0);
+    }
+
+    public ConnectionPool(ConnectionFactory fabrica, int minimo, int maximo,
+                          long timeoutAdquisicionMs, long timeoutInactivaMs, int timeoutValidacionSeg,
+                          int tamanioCacheSentencias) {
+        if (fabrica == null) throw new IllegalArgumentException("ConnectionFactory requerida");
+        validarTamanios(minimo, maximo);
+        this.fabrica = fabrica;
+        this.minimo = minimo;
+        this.maximo = maximo;
+        this.timeoutAdquisicionMs = timeoutAdquisicionMs;
+        this.timeoutInactivaMs = timeoutInactivaMs;
+        this.timeoutValidacionSeg = timeoutValidacionSeg;
+        this.tamanioCacheSentencias = tamanioCacheSentencias;
+
+        this.mantenimiento = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-mantenimiento");
+            t.setDaemon(true);
+            return t;
+        });
+        long periodo = Math.max(1_000, timeoutInactivaMs / 2);
+        // Primera ejecución inmediata: calienta el mínimo sin bloquear al constructor
+        mantenimiento.scheduleWithFixedDelay(this::mantener, 0, periodo, TimeUnit.MILLISECONDS);
+    }
+
+    // Aplica a partir de la próxima operación. Si baja el máximo, las conexiones de más se cierran
+    // al devolverse (una transacción en curso termina normalmente); si sube, despierta a los que esperan.
+    // La caché de sentencias nueva vale para las conexiones físicas que se abran desde ahora.
+    public void reconfigurar(int minimo, int maximo, long timeoutAdquisicionMs, long timeoutInactivaMs,
+                             int timeoutValidacionSeg, int tamanioCacheSentencias) {
+        validarTamanios(minimo, maximo);
+        List<Fisica> aCerrar = new ArrayList<>();
+        lock.lock();
+        try {
+            this.minimo = minimo;
+            this.maximo = maximo;
+            this.timeoutAdquisicionMs = timeoutAdquisicionMs;
+            this.timeoutInactivaMs = timeoutInactivaMs;
+            this.timeoutValidacionSeg = timeoutValidacionSeg;
+            this.tamanioCacheSentencias = tamanioCacheSentencias;
+            // Las inactivas que sobran se cierran ya, de la más vieja a la más nueva
+            while (total > maximo && !inactivas.isEmpty()) {
+                aCerrar.add(inactivas.pollLast().fisica);
+                total--;
+            }
+            disponible.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        aCerrar.forEach(ConnectionPool::cerrarSilencioso);
+        try {
+            mantenimiento.execute(this::mantener); // repone hasta el mínimo nuevo
+        } catch (RejectedExecutionException ignore) {
+            // Pool cerrado
+        }
+    }
+
+    private static void validarTamanios(int minimo, int maximo) {
+        if (minimo < 0 || maximo < 1 || minimo > maximo)
+            throw new IllegalArgumentException("Tamaños de pool inválidos: min=" + minimo + ", max=" + maximo);
+    }
+
+    public Connection getConnection() throws SQLException {
+        long inicio = System.nanoTime();
+        long limite = PlazoConsulta.acotar(inicio + TimeUnit.MILLISECONDS.toNanos(timeoutAdquisicionMs));
+        while (true) {
+            Fisica fisica = null;
+            boolean crear = false;
+
+            lock.lock();
+            try {
+                while (true) {
+                    if (cerrado) throw new SQLException("El pool de conexiones está cerrado");
+                    Inactiva libre = inactivas.pollFirst();
+                    if (libre != null) { fisica = libre.fisica; activas++; break; }
+                    if (total < maximo) { total++; activas++; crear = true; break; }
+
+                    long restante = limite - System.nanoTime();
+                    if (restante <= 0)
+                        throw new SQLTimeoutException("Timeout esperando conexión del pool (" + timeoutAdquisicionMs + " ms)");
+                    enEspera++;
+                    try {
+                        disponible.awaitNanos(restante);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrumpido esperando conexión del pool", e);
+                    } finally {
+                        enEspera--;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (crear) {
+                try {
+                    fisica = nuevaFisica();
+                } catch (SQLException | RuntimeException e) {
+                    descartar(null, true);
+                    throw e;
+                }
+            } else if (!esValida(fisica)) {
+                descartar(fisica, true);
+                continue;
+            }
+
+            histogramaAdquisicion.registrarNanos(System.nanoTime() - inicio);
+            return envolver(fisica);
+        }
+    }
+
+    private Fisica nuevaFisica() throws SQLException {
+        Connection c = fabrica.crear();
+        return new Fisica(c, tamanioCacheSentencias > 0
+                ? new StatementCache(c, tamanioCacheSentencias, aciertosSentencias, fallosSentencias)
+                : null);
+    }
+
+    private boolean esValida(Fisica fisica) {
+        try {
+            return fisica.conexion.isValid(timeoutValidacionSeg);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    // Cierra la física y libera su lugar en el pool
+    private void descartar(Fisica fisica, boolean estabaActiva) {
+        if (fisica != null) cerrarSilencioso(fisica);
+        lock.lock();
+        try {
+            total--;
+            if (estabaActiva) activas--;
+            disponible.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void devolver(Fisica fisica) {
+        boolean sana = true;
+        try {
+            // Sentencias que el usuario no cerró vuelven a la caché
+            if (fisica.sentencias != null) fisica.sentencias.liberarPrestadas();
+            Connection c = fisica.conexion;
+            if (c.isClosed()) {
+                sana = false;
+            } else if (!c.getAutoCommit()) {
+                // Trabajo sin confirmar no debe filtrarse al próximo que use la conexión
+                c.rollback();
+                c.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            sana = false;
+        }
+
+        boolean cerrarFisica = false;
+        lock.lock();
+        try {
+            activas--;
+            if (cerrado || !sana || total > maximo) { // total > maximo: se bajó el máximo en caliente
+                total--;
+                cerrarFisica = true;
+            } else {
+                inactivas.addFirst(new Inactiva(fisica, System.nanoTime()));
+            }
+            disponible.signal();
+        } finally {
+            lock.unlock();
+        }
+        if (cerrarFisica) cerrarSilencioso(fisica);
+    }
+
+    // Desaloja inactivas viejas por encima del mínimo y repone hasta el mínimo
+    private void mantener() {
+        List<Fisica> aCerrar = new ArrayList<>();
+        int aCrear = 0;
+        lock.lock();
+        try {
+            if (cerrado) return;
+            long ahora = System.nanoTime();
+            long limite = TimeUnit.MILLISECONDS.toNanos(timeoutInactivaMs);
+            Iterator<Inactiva> it = inactivas.descendingIterator(); // de la más vieja a la más nueva
+            while (it.hasNext() && total > minimo) {
+                Inactiva in = it.next();
+                if (ahora - in.desdeNanos < limite) break;
+                it.remove();
+                total--;
+                aCerrar.add(in.fisica);
+            }
+            while (total + aCrear < minimo) aCrear++;
+            total += aCrear;
+        } finally {
+            lock.unlock();
+        }
+
+        aCerrar.forEach(ConnectionPool::cerrarSilencioso);
+
+        for (int i = 0; i < aCrear; i++) {
+            Fisica nueva;
+            try {
+                nueva = nuevaFisica();
+            } catch (SQLException | RuntimeException e) {
+                // La base no está disponible: se reintenta en la próxima pasada
+                lock.lock();
+                try { total -= (aCrear - i); disponible.signal(); } finally { lock.unlock(); }
+                return;
+            }
+            lock.lock();
+            try {
+                if (cerrado) { total--; cerrarSilencioso(nueva); }
+                else { inactivas.addLast(new Inactiva(nueva, System.nanoTime())); disponible.signal(); }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private Connection envolver(Fisica fisica) {
+        Connection c = fisica.conexion;
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean devuelta;
+
+            @Override
+            public Object invoke(Object proxy, java.lang.reflect.Method m, Object[] args) throws Throwable {
+                switch (m.getName()) {
+                    case "close":
+                        if (!devuelta) { devuelta = true; devolver(fisica); }
+                        return null;
+                    case "isClosed":
+                        return devuelta || c.isClosed();
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "PooledConnection[" + c + (devuelta ? ", devuelta" : "") + "]";
+                    case "isWrapperFor":
+                        return ((Class<?>) args[0]).isInstance(proxy);
+                    case "unwrap":
+                        if (((Class<?>) args[0]).isInstance(proxy)) return proxy;
+                        throw new SQLException("La conexión del pool no expone la conexión física (" + args[0] + ")");
+                    default:
+                        if (devuelta) throw new SQLException("La conexión ya fue devuelta al pool");
+                        Object r = null;
+                        if (fisica.sentencias != null && m.getName().equals("prepareStatement")) {
+                            r = fisica.sentencias.preparar((Connection) proxy, m, args);
+                        }
+                        if (r == null) {
+                            try {
+                                r = m.invoke(c, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                        }
+                        if (r instanceof Statement) PlazoConsulta.aplicar((Statement) r);
+                        return r;
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, handler);
+    }
+
+    @Override
+    public void close() {
+        List<Fisica> aCerrar = new ArrayList<>();
+        lock.lock();
+        try {
+            if (cerrado) return;
+            cerrado = true;
+            for (Inactiva in : inactivas) aCerrar.add(in.fisica);
+            total -= inactivas.size();
+            inactivas.clear();
+            disponible.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        mantenimiento.shutdownNow();
+        // Las activas se cierran cuando sus usuarios las devuelven
+        aCerrar.forEach(ConnectionPool::cerrarSilencioso);
+    }
+
+    private static void cerrarSilencioso(Fisica f) {
+        if (f.sentencias != null) f.sentencias.cerrarTodo();
+        try { f.conexion.close(); } catch (SQLException ignore) {}
+    }
+
+    // Métricas
+    public int getActivas() { lock.lock(); try { return activas; } finally { lock.unlock(); } }
+    public int getInactivas() { lock.lock(); try { return inactivas.size(); } finally { lock.unlock(); } }
+    public int getEnEspera() { lock.lock(); try { return enEspera; } finally { lock.unlock(); } }
+    public int getTotal() { lock.lock(); try { return total; } finally { lock.unlock(); } }
+    public int getMaximo() { return maximo; }
+    public LatencyHistogram getHistogramaAdquisicion() { return histogramaAdquisicion; }
+    public long getAciertosSentencias() { return aciertosSentencias.sum(); }
+    public long getFallosSentencias() { return fallosSentencias.sum(); }
+
+    public double getTasaAciertosSentencias() {
+        long a = aciertosSentencias.sum();
+        long total = a + fallosSentencias.sum();
+        return total == 0 ? 0 : (double) a / total;
+    }
+
+    @Override
+    public String toString() {
+        lock.lock();
+        try {
+            return "ConnectionPool{total=" + total + ", activas=" + activas + ", inactivas=" + inactivas.size() +
+                   ", enEspera=" + enEspera + ", min=" + minimo + ", max=" + maximo +
+                   ", adquisicion=[" + histogramaAdquisicion + "]" +
+                   ", sentencias=[aciertos=" + aciertosSentencias.sum() + ", fallos=" + fallosSentencias.sum() +
+                   ", tasa=" + String.format("%.1f%%", getTasaAciertosSentencias() * 100) + "]}";
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package config;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+
+// Configuración de acceso a datos, inmutable. Cada clave sale de (gana la última):
+//   valor por defecto → archivo de propiedades → variable de entorno → propiedad de sistema (-D).
+// El archivo es "tpi.properties" en el directorio de trabajo, u otro con -Dtpi.config / TPI_CONFIG.
+// Variable de entorno de una clave: en mayúsculas y con '_' en lugar de '.' (tpi.pool.max → TPI_POOL_MAX).
+public final class DataSourceConfig {
+
+    public static final String ARCHIVO_DEFAULT = "tpi.properties";
+
+    private final String url;
+    private final String usuario;
+    private final String clave;
+    private final int poolMinimo;
+    private final int poolMaximo;
+    private final long timeoutAdquisicionMs;
+    private final long timeoutInactivaMs;
+    private final int timeoutValidacionSeg;
+    private final int tamanioCacheSentencias;   // por conexión física
+    private final int fetchSize;                // cursores de exportación
+    private final int filasPorCommit;           // altas en lote de PedidoService
+    private final int filasPorCommitImportacion;
+    private final List<String> replicas;
+    private final ReplicaRouter.Seleccion seleccionReplica;
+    private final long retrasoMaximoReplicaMs;
+    private final long pausaReintentoReplicaMs;
+    private final long slowlogUmbralMs;         // < 0 = log de consultas lentas apagado
+    private final double slowlogMuestreo;       // fracción de sentencias medidas
+    private final String slowlogEnmascarar;     // columnas separadas por coma
+    private final String slowlogArchivo;        // estos tres: solo al abrir el log
+    private final int slowlogMaxBytes;
+    private final int slowlogArchivos;
+
+    private DataSourceConfig(Fuente f) {
+        this.url = f.texto("tpi.db.url", null);
+        this.usuario = f.texto("tpi.db.usuario", null);
+        this.clave = f.texto("tpi.db.clave", "");
+        this.poolMinimo = f.entero("tpi.pool.min", 2);
+        this.poolMaximo = f.entero("tpi.pool.max", 10);
+        this.timeoutAdquisicionMs = f.largo("tpi.pool.timeoutAdquisicionMs", 5_000);
+        this.timeoutInactivaMs = f.largo("tpi.pool.timeoutInactivaMs", 60_000);
+        this.timeoutValidacionSeg = f.entero("tpi.pool.timeoutValidacionSeg", 2);
+        this.tamanioCacheSentencias = f.entero("tpi.pool.cacheSentencias", 64);
+        this.fetchSize = f.entero("tpi.jdbc.fetchSize", 1_000);
+        this.filasPorCommit = f.entero("tpi.lote.filasPorCommit", 500);
+        this.filasPorCommitImportacion = f.entero("tpi.importacion.filasPorCommit", 1_000);
+
+        List<String> urls = new ArrayList<>();
+        for (String r : f.texto("tpi.replicas", "").split(",")) {
+            if (!r.isBlank()) urls.add(r.trim());
+        }
+        this.replicas = Collections.unmodifiableList(urls);
+        try {
+            this.seleccionReplica = ReplicaRouter.Seleccion.valueOf(
+                f.texto("tpi.replicas.seleccion", "ROUND_ROBIN").trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("tpi.replicas.seleccion inválida (ROUND_ROBIN o MENOS_CARGADA)");
+        }
+        this.retrasoMaximoReplicaMs = f.largo("tpi.replicas.retrasoMaximoMs", 2_000);
+        this.pausaReintentoReplicaMs = f.largo("tpi.replicas.pausaReintentoMs", 10_000);
+        // Apagado por defecto: medir envuelve cada sentencia y cada ResultSet en proxies
+        this.slowlogUmbralMs = f.largo("tpi.slowlog.umbralMs", -1);
+        this.slowlogMuestreo = f.decimal("tpi.slowlog.muestreo", 0.01);
+        this.slowlogEnmascarar = f.texto("tpi.slowlog.enmascarar", "clienteNombre");
+        this.slowlogArchivo = f.texto("tpi.slowlog.archivo", "logs/slow-queries.%g.log");
+        this.slowlogMaxBytes = f.entero("tpi.slowlog.maxBytes", 10 * 1024 * 1024);
+        this.slowlogArchivos = f.entero("tpi.slowlog.archivos", 5);
+        validar();
+    }
+
+    private void validar() {
+        if (poolMinimo < 0 || poolMaximo < 1 || poolMinimo > poolMaximo)
+            throw new IllegalArgumentException("Tamaños de pool inválidos: min=" + poolMinimo + ", max=" + poolMaximo);
+        if (timeoutAdquisicionMs < 0 || timeoutInactivaMs < 0 || timeoutValidacionSeg < 0)
+            throw new IllegalArgumentException("Los timeouts del pool deben ser >= 0");
+        if (tamanioCacheSentencias < 0) throw new IllegalArgumentException("tpi.pool.cacheSentencias debe ser >= 0");
+        if (fetchSize < 1) throw new IllegalArgumentException("tpi.jdbc.fetchSize debe ser >= 1");
+        if (filasPorCommit < 1 || filasPorCommitImportacion < 1)
+            throw new IllegalArgumentException("Las filas por commit deben ser >= 1");
+        if (retrasoMaximoReplicaMs < 0 || pausaReintentoReplicaMs < 0)
+            throw new IllegalArgumentException("Los tiempos de réplicas deben ser >= 0");
+        if (slowlogMuestreo < 0 || slowlogMuestreo > 1)
+            throw new IllegalArgumentException("tpi.slowlog.muestreo debe estar entre 0 y 1");
+        if (slowlogMaxBytes < 1 || slowlogArchivos < 1)
+            throw new IllegalArgumentException("tpi.slowlog.maxBytes y tpi.slowlog.archivos deben ser >= 1");
+    }
+
+    // Solo hace falta para abrir conexiones: con un pool reemplazado (setPool) puede no haber credenciales
+    void verificarCredenciales() {
+        if (url == null || url.isBlank())
+            throw new IllegalStateException("Falta tpi.db.url (" + ARCHIVO_DEFAULT + ", TPI_DB_URL o -Dtpi.db.url)");
+        if (usuario == null || usuario.isBlank())
+            throw new IllegalStateException("Falta tpi.db.usuario (" + ARCHIVO_DEFAULT + ", TPI_DB_USUARIO o -Dtpi.db.usuario)");
+    }
+
+    // Lee el archivo (si existe), el entorno y las propiedades de sistema
+    public static DataSourceConfig cargar() {
+        return cargar(archivo(), System.getenv(), System.getProperties());
+    }
+
+    static DataSourceConfig cargar(Path archivo, Map<String, String> entorno, Properties sistema) {
+        Properties desdeArchivo = new Properties();
+        if (archivo != null && Files.isRegularFile(archivo)) {
+            try (Reader in = Files.newBufferedReader(archivo, StandardCharsets.UTF_8)) {
+                desdeArchivo.load(in);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("No se pudo leer " + archivo + ": " + e.getMessage(), e);
+            }
+        }
+        return new DataSourceConfig(new Fuente(desdeArchivo, entorno, sistema));
+    }
+
+    public static Path archivo() {
+        String ruta = System.getProperty("tpi.config", System.getenv("TPI_CONFIG"));
+        return Paths.get(ruta != null ? ruta : ARCHIVO_DEFAULT);
+    }
+
+    private static final class Fuente {
+        private final Properties archivo;
+        private final Map<String, String> entorno;
+        private final Properties sistema;
+
+        Fuente(Properties archivo, Map<String, String> entorno, Properties sistema) {
+            this.archivo = archivo;
+            this.entorno = entorno;
+            this.sistema = sistema;
+        }
+
+        String texto(String clave, String porDefecto) {
+            String v = sistema.getProperty(clave);
+            if (v == null) v = entorno.get(clave.toUpperCase(Locale.ROOT).replace('.', '_'));
+            if (v == null) v = archivo.getProperty(clave);
+            return v != null ? v.trim() : porDefecto;
+        }
+
+        double decimal(String clave, double porDefecto) {
+            String v = texto(clave, null);
+            if (v == null || v.isEmpty()) return porDefecto;
+            try {
+                return Double.parseDouble(v);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(clave + " no es un número: " + v);
+            }
+        }
+
+        int entero(String clave, int porDefecto) {
+            return (int) largo(clave, porDefecto);
+        }
+
+        long largo(String clave, long porDefecto) {
+            String v = texto(clave, null);
+            if (v == null || v.isEmpty()) return porDefecto;
+            try {
+                return Long.parseLong(v.replace("_", ""));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(clave + " no es un número: " + v);
+            }
+        }
+    }
+
+    // Lo que no se puede cambiar en caliente: exige reiniciar
+    boolean mismaConexion(DataSourceConfig otra) {
+        return Objects.equals(url, otra.url) && Objects.equals(usuario, otra.usuario) && clave.equals(otra.clave) &&
+               replicas.equals(otra.replicas) && seleccionReplica == otra.seleccionReplica &&
+               retrasoMaximoReplicaMs == otra.retrasoMaximoReplicaMs &&
+               pausaReintentoReplicaMs == otra.pausaReintentoReplicaMs;
+    }
+
+    public String getUrl() { return url; }
+    public String getUsuario() { return usuario; }
+    public String getClave() { return clave; }
+    public int getPoolMinimo() { return poolMinimo; }
+    public int getPoolMaximo() { return poolMaximo; }
+    public long getTimeoutAdquisicionMs() { return timeoutAdquisicionMs; }
+    public long getTimeoutInactivaMs() { return timeoutInactivaMs; }
+    public int getTimeoutValidacionSeg() { return timeoutValidacionSeg; }
+    public int getTamanioCacheSentencias() { return tamanioCacheSentencias; }
+    public int getFetchSize() { return fetchSize; }
+    public int getFilasPorCommit() { return filasPorCommit; }
+    public int getFilasPorCommitImportacion() { return filasPorCommitImportacion; }
+    public List<String> getReplicas() { return replicas; }
+    public ReplicaRouter.Seleccion getSeleccionReplica() { return seleccionReplica; }
+    public long getRetrasoMaximoReplicaMs() { return retrasoMaximoReplicaMs; }
+    public long getPausaReintentoReplicaMs() { return pausaReintentoReplicaMs; }
+    public long getSlowlogUmbralMs() { return slowlogUmbralMs; }
+    public double getSlowlogMuestreo() { return slowlogMuestreo; }
+    public String getSlowlogEnmascarar() { return slowlogEnmascarar; }
+    public String getSlowlogArchivo() { return slowlogArchivo; }
+    public int getSlowlogMaxBytes() { return slowlogMaxBytes; }
+    public int getSlowlogArchivos() { return slowlogArchivos; }
+
+    // Sin la clave
+    @Override
+    public String toString() {
+        return "DataSourceConfig{url=" + url + ", usuario=" + usuario +
+               ", pool=[min=" + poolMinimo + ", max=" + poolMaximo + ", adquisicion=" + timeoutAdquisicionMs +
+               " ms, inactiva=" + timeoutInactivaMs + " ms, validacion=" + timeoutValidacionSeg +
+               " s, cacheSentencias=" + tamanioCacheSentencias + "], fetchSize=" + fetchSize +
+               ", filasPorCommit=" + filasPorCommit + ", filasPorCommitImportacion=" + filasPorCommitImportacion +
+               ", replicas=" + replicas.size() +
+               ", slowlog=" + (slowlogUmbralMs < 0 ? "apagado" : slowlogUmbralMs + " ms/" + slowlogMuestreo) + "}";
+    }
+}
@@ -1,21 +1,216 @@
 package config;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+// Punto de acceso a las conexiones. La configuración viene de DataSourceConfig (tpi.properties,
+// entorno, -D); si el archivo cambia, los tamaños y timeouts de los pools se aplican en caliente.
 public class DatabaseConnection {
 
-    private static final String URL =
-        "jdbc:sqlserver://localhost:1433;" +
-        "databaseName=TPI_Prog2_PedidoEnvio;" +
-        "encrypt=false;";
+    // Cada cuánto se mira si cambió el archivo de configuración (0 = no se recarga solo)
+    private static final long PERIODO_RECARGA_MS = Long.getLong("tpi.config.recargaMs", 5_000);
 
-    // USUARIO NUEVO DEL TPI
-    private static final String USER = "tpi_user";
-    private static final String PASS = "MiClaveSegura123";
+    private static final Logger LOG = Logger.getLogger("tpi.config");
 
+    private static volatile DataSourceConfig config;
+    // volatile: getPool/getRouter se leen sin lock en cada operación; solo se escriben bajo el lock
+    private static volatile ConnectionPool pool;
+    private static volatile ReplicaRouter router;
+    private static volatile boolean routerIniciado;
+    private static ScheduledExecutorService recarga;
+    private static FileTime modificacionCargada;
+    // Único shutdown hook que cierra el pool (ver alSalir)
+    private static Thread cierreAlSalir;
+
+    // Entrega una conexión del pool: close() la devuelve en lugar de cerrarla.
+    // Si el log de consultas lentas está activo, sus sentencias se miden (ver SlowQueryLog).
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USER, PASS);
+        return SlowQueryLog.envolver(getPool().getConnection(), getConfig());
+    }
+
+    // Para lecturas que toleran el atraso de las réplicas (tpi.replicas.retrasoMaximoMs): una réplica si hay
+    // alguna disponible y 'escrituras' (las de quien lee; null si no escribe) no tiene un commit reciente;
+    // si no, el primario
+    public static Connection getConnectionLectura(MarcaEscritura escrituras) throws SQLException {
+        ReplicaRouter r = getRouter();
+        Connection replica = r != null ? r.conexion(escrituras) : null;
+        return SlowQueryLog.envolver(replica != null ? replica : getPool().getConnection(), getConfig());
+    }
+
+    // La vigente: quien la usa en cada operación (fetch size, filas por commit) ve los cambios recargados
+    public static DataSourceConfig getConfig() {
+        DataSourceConfig c = config;
+        if (c == null) {
+            synchronized (DatabaseConnection.class) {
+                if (config == null) {
+                    modificacionCargada = modificacion(DataSourceConfig.archivo());
+                    config = DataSourceConfig.cargar();
+                }
+                c = config;
+            }
+        }
+        return c;
+    }
+
+    // null si no hay réplicas configuradas
+    public static ReplicaRouter getRouter() {
+        if (routerIniciado) return router;
+        synchronized (DatabaseConnection.class) {
+            if (!routerIniciado) {
+                DataSourceConfig c = getConfig();
+                if (!c.getReplicas().isEmpty()) {
+                    c.verificarCredenciales();
+                    List<ConnectionPool> pools = new ArrayList<>();
+                    for (String url : c.getReplicas()) pools.add(crearPool(c, () -> conectarSoloLectura(url, c)));
+                    router = new ReplicaRouter(c.getReplicas(), pools, c.getSeleccionReplica(),
+                        c.getRetrasoMaximoReplicaMs(), c.getPausaReintentoReplicaMs());
+                }
+                routerIniciado = true; // después de router: quien lo ve en true ya ve el router
+            }
+            return router;
+        }
+    }
+
+    // Permite reemplazar las réplicas (null = todas las lecturas al primario)
+    public static synchronized void setRouter(ReplicaRouter nuevo) {
+        if (router != null && router != nuevo) router.close();
+        router = nuevo;
+        routerIniciado = true;
+    }
+
+    // Atraso que pueden traer las lecturas de getConnectionLectura (0 sin réplicas)
+    public static long getRetrasoLecturasMs() {
+        ReplicaRouter r = getRouter();
+        return r != null ? r.getRetrasoMaximoMs() : 0;
+    }
+
+    // Con las credenciales del arranque, igual que el primario
+    private static Connection conectarSoloLectura(String url, DataSourceConfig c) throws SQLException {
+        Connection conn = DriverManager.getConnection(url, c.getUsuario(), c.getClave());
+        conn.setReadOnly(true);
+        return conn;
+    }
+
+    public static ConnectionPool getPool() {
+        ConnectionPool p = pool;
+        if (p != null) return p;
+        synchronized (DatabaseConnection.class) {
+            if (pool == null) {
+                DataSourceConfig c = getConfig();
+                c.verificarCredenciales();
+                pool = crearPool(c, () -> DriverManager.getConnection(c.getUrl(), c.getUsuario(), c.getClave()));
+                if (cierreAlSalir == null) registrarCierre(DatabaseConnection::cerrarPool);
+                iniciarRecarga();
+            }
+            return pool;
+        }
+    }
+
+    // Trabajo que necesita la base al apagarse la JVM (incluido Ctrl+C): corre en el mismo hook que cierra
+    // el pool y antes de cerrarlo. Los shutdown hooks corren en paralelo y sin orden, así que uno propio
+    // podría encontrar el pool ya cerrado. Reemplaza al hook que haya registrado getPool().
+    public static synchronized void alSalir(Runnable antes) {
+        registrarCierre(() -> {
+            try {
+                antes.run();
+            } finally {
+                cerrarPool();
+            }
+        });
+    }
+
+    private static void registrarCierre(Runnable cierre) {
+        if (cierreAlSalir != null) Runtime.getRuntime().removeShutdownHook(cierreAlSalir);
+        cierreAlSalir = new Thread(cierre, "connection-pool-shutdown");
+        Runtime.getRuntime().addShutdownHook(cierreAlSalir);
+    }
+
+    private static ConnectionPool crearPool(DataSourceConfig c, ConnectionFactory fabrica) {
+        return new ConnectionPool(fabrica, c.getPoolMinimo(), c.getPoolMaximo(), c.getTimeoutAdquisicionMs(),
+            c.getTimeoutInactivaMs(), c.getTimeoutValidacionSeg(), c.getTamanioCacheSentencias());
+    }
+
+    // Permite reemplazar el pool (por ejemplo, con un JDBC embebido en pruebas)
+    public static synchronized void setPool(ConnectionPool nuevo) {
+        if (pool != null && pool != nuevo) pool.close();
+        pool = nuevo;
+    }
+
+    // Vuelve a leer la configuración y aplica lo que se puede cambiar en caliente.
+    // Si la nueva es inválida se conserva la vigente. Devuelve un resumen para el log o el menú.
+    public static synchronized String recargarConfiguracion() {
+        DataSourceConfig anterior = getConfig();
+        DataSourceConfig nueva;
+        try {
+            modificacionCargada = modificacion(DataSourceConfig.archivo());
+            nueva = DataSourceConfig.cargar();
+        } catch (IllegalArgumentException e) {
+            return "Configuración inválida, se mantiene la anterior: " + e.getMessage();
+        }
+
+        if (pool != null) aplicar(pool, nueva);
+        if (router != null) router.getPools().forEach(p -> aplicar(p, nueva));
+        config = nueva;
+
+        String resumen = "Configuración recargada: " + nueva;
+        if (!nueva.mismaConexion(anterior))
+            resumen += System.lineSeparator() + "  URL, credenciales y réplicas se aplican al reiniciar";
+        return resumen;
+    }
+
+    private static void aplicar(ConnectionPool p, DataSourceConfig c) {
+        p.reconfigurar(c.getPoolMinimo(), c.getPoolMaximo(), c.getTimeoutAdquisicionMs(), c.getTimeoutInactivaMs(),
+            c.getTimeoutValidacionSeg(), c.getTamanioCacheSentencias());
+    }
+
+    // Sondeo de la fecha de modificación: no depende de que el sistema de archivos soporte WatchService
+    private static void iniciarRecarga() {
+        if (PERIODO_RECARGA_MS <= 0 || recarga != null) return;
+        recarga = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "config-recarga");
+            t.setDaemon(true);
+            return t;
+        });
+        recarga.scheduleWithFixedDelay(() -> {
+            FileTime actual = modificacion(DataSourceConfig.archivo());
+            boolean cambio;
+            synchronized (DatabaseConnection.class) {
+                cambio = actual != null && !actual.equals(modificacionCargada);
+            }
+            if (!cambio) return;
+            // Por el logger tpi.config y no por System.out: este hilo corre mientras el menú espera una opción
+            DataSourceConfig antes = getConfig();
+            String resumen = recargarConfiguracion();
+            LOG.log(getConfig() == antes ? Level.WARNING : Level.INFO, resumen);
+        }, PERIODO_RECARGA_MS, PERIODO_RECARGA_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private static FileTime modificacion(Path archivo) {
+        try {
+            return Files.getLastModifiedTime(archivo);
+        } catch (IOException e) {
+            return null; // sin archivo: solo entorno y -D
+        }
+    }
+
+    public static synchronized void cerrarPool() {
+        if (recarga != null) {
+            recarga.shutdownNow();
+            recarga = null;
+        }
+        if (pool != null) pool.close();
+        if (router != null) router.close();
     }
 }
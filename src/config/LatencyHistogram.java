@@ -0,0 +1,63 @@
+package config;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Histograma de latencias con buckets en potencias de 2 (en microsegundos).
+// Registrar es lock-free, así que se puede dejar activo siempre.
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 32; // 1us .. ~35 min
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder cantidad = new LongAdder();
+    private final LongAdder sumaMicros = new LongAdder();
+    private volatile long maxMicros;
+
+    public void registrarNanos(long nanos) {
+        long micros = Math.max(0, nanos / 1_000);
+        int idx = micros == 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        buckets.incrementAndGet(idx);
+        cantidad.increment();
+        sumaMicros.add(micros);
+        if (micros > maxMicros) maxMicros = micros; // carrera benigna: solo es una métrica
+    }
+
+    public long getCantidad() { return cantidad.sum(); }
+
+    public long getMaxMicros() { return maxMicros; }
+
+    public double getPromedioMicros() {
+        long n = cantidad.sum();
+        return n == 0 ? 0 : (double) sumaMicros.sum() / n;
+    }
+
+    // Devuelve el límite superior (us) del bucket que contiene el percentil pedido (0..100)
+    public long percentilMicros(double percentil) {
+        long total = 0;
+        long[] copia = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) { copia[i] = buckets.get(i); total += copia[i]; }
+        if (total == 0) return 0;
+        long objetivo = (long) Math.ceil(total * percentil / 100.0);
+        long acumulado = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            acumulado += copia[i];
+            if (acumulado >= objetivo) return 1L << i;
+        }
+        return 1L << (BUCKETS - 1);
+    }
+
+    public void reiniciar() {
+        for (int i = 0; i < BUCKETS; i++) buckets.set(i, 0);
+        cantidad.reset();
+        sumaMicros.reset();
+        maxMicros = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "n=" + getCantidad() + ", avg=" + String.format("%.1f", getPromedioMicros()) + "us" +
+               ", p50<=" + percentilMicros(50) + "us, p99<=" + percentilMicros(99) + "us" +
+               ", max=" + getMaxMicros() + "us";
+    }
+}
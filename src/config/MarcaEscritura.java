@@ -0,0 +1,23 @@
+package config;
+
+import java.util.concurrent.TimeUnit;
+
+// Último commit de un origen de escrituras (un servicio, una sesión de usuario). Las lecturas que la pasan
+// a DatabaseConnection.getConnectionLectura van al primario mientras las réplicas puedan no tenerlo.
+// Es un objeto que se pasa y no un ThreadLocal: sigue valiendo aunque la lectura corra en otro hilo
+// (hilos virtuales de PedidoServiceAsync, pools de un servidor).
+public final class MarcaEscritura {
+
+    private volatile long ultimaNanos;
+    private volatile boolean registrada;
+
+    // Llamar después de cada commit en el primario
+    public void registrar() {
+        ultimaNanos = System.nanoTime();
+        registrada = true;
+    }
+
+    boolean reciente(long ahoraNanos, long retrasoMaximoMs) {
+        return registrada && ahoraNanos - ultimaNanos < TimeUnit.MILLISECONDS.toNanos(retrasoMaximoMs);
+    }
+}
@@ -0,0 +1,57 @@
+package config;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+// Plazo de una llamada que baja hasta JDBC. Mientras corre ejecutar(), el pool acota a este plazo la espera
+// de una conexión y cada sentencia que entrega sale con setQueryTimeout = tiempo restante (redondeado hacia
+// arriba a segundos, la unidad de JDBC): al vencer, el driver cancela la sentencia en el servidor.
+// Vale solo para el hilo que llama a ejecutar() y solo durante esa llamada; no se hereda a otros hilos.
+public final class PlazoConsulta {
+
+    private static final ThreadLocal<PlazoConsulta> ACTUAL = new ThreadLocal<>();
+
+    private final long limiteNanos; // System.nanoTime()
+
+    public PlazoConsulta(long limiteNanos) {
+        this.limiteNanos = limiteNanos;
+    }
+
+    public <T> T ejecutar(Callable<T> llamada) throws Exception {
+        PlazoConsulta anterior = ACTUAL.get();
+        ACTUAL.set(this);
+        try {
+            return llamada.call();
+        } finally {
+            if (anterior != null) ACTUAL.set(anterior);
+            else ACTUAL.remove();
+        }
+    }
+
+    public long restanteNanos() {
+        return limiteNanos - System.nanoTime();
+    }
+
+    // Límite (nanoTime) para esperar una conexión: el menor entre el del pool y el del plazo en curso
+    static long acotar(long limiteNanos) {
+        PlazoConsulta p = ACTUAL.get();
+        return p != null && p.limiteNanos - limiteNanos < 0 ? p.limiteNanos : limiteNanos;
+    }
+
+    // Sentencia recién entregada por el pool; no hace nada fuera de un plazo
+    static void aplicar(Statement st) throws SQLException {
+        PlazoConsulta p = ACTUAL.get();
+        if (p == null) return;
+        long restante = p.restanteNanos();
+        if (restante <= 0) {
+            st.close();
+            throw new SQLTimeoutException("Plazo de la llamada vencido antes de ejecutar la sentencia");
+        }
+        int segundos = (int) Math.min(Integer.MAX_VALUE, TimeUnit.NANOSECONDS.toSeconds(restante + 999_999_999L));
+        int actual = st.getQueryTimeout();
+        if (actual == 0 || actual > segundos) st.setQueryTimeout(segundos);
+    }
+}
@@ -0,0 +1,139 @@
+package config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Enruta las lecturas a réplicas de solo lectura, cada una con su ConnectionPool.
+// - Selección ROUND_ROBIN o MENOS_CARGADA (la de menos conexiones prestadas).
+// - Una réplica que no entrega conexión queda fuera durante pausaReintentoMs y se prueba la siguiente;
+//   si no queda ninguna, conexion() devuelve null y se lee del primario.
+// - Lectura de lo propio: quien confirmó una escritura (su MarcaEscritura) lee del primario durante
+//   retrasoMaximoMs (el atraso que se admite en las réplicas).
+public class ReplicaRouter implements AutoCloseable {
+
+    public enum Seleccion { ROUND_ROBIN, MENOS_CARGADA }
+
+    private final List<Replica> replicas;
+    private final Seleccion seleccion;
+    private final long retrasoMaximoMs;
+    private final long pausaReintentoNanos;
+    private final AtomicInteger siguiente = new AtomicInteger();
+
+    private final LongAdder lecturasReplica = new LongAdder();
+    private final LongAdder lecturasPrimario = new LongAdder();
+    private final LongAdder fallosReplica = new LongAdder();
+
+    private static final class Replica {
+        final String nombre;
+        final ConnectionPool pool;
+        volatile long fueraHastaNanos;
+        volatile boolean fuera;
+
+        Replica(String nombre, ConnectionPool pool) { this.nombre = nombre; this.pool = pool; }
+
+        boolean disponible(long ahora) {
+            return !fuera || ahora - fueraHastaNanos >= 0;
+        }
+    }
+
+    public ReplicaRouter(List<String> nombres, List<ConnectionPool> pools, Seleccion seleccion,
+                         long retrasoMaximoMs, long pausaReintentoMs) {
+        if (pools == null || pools.isEmpty()) throw new IllegalArgumentException("Al menos una réplica requerida");
+        if (nombres.size() != pools.size()) throw new IllegalArgumentException("Un nombre por réplica");
+        if (retrasoMaximoMs < 0 || pausaReintentoMs < 0) throw new IllegalArgumentException("Tiempos deben ser >= 0");
+        this.replicas = new ArrayList<>(pools.size());
+        for (int i = 0; i < pools.size(); i++) replicas.add(new Replica(nombres.get(i), pools.get(i)));
+        this.seleccion = seleccion;
+        this.retrasoMaximoMs = retrasoMaximoMs;
+        this.pausaReintentoNanos = TimeUnit.MILLISECONDS.toNanos(pausaReintentoMs);
+    }
+
+    // Conexión de una réplica, o null si la lectura tiene que ir al primario.
+    // escrituras: las de quien lee (null si no escribe)
+    public Connection conexion(MarcaEscritura escrituras) {
+        long ahora = System.nanoTime();
+        if (escrituras != null && escrituras.reciente(ahora, retrasoMaximoMs)) {
+            lecturasPrimario.increment();
+            return null;
+        }
+
+        int n = replicas.size();
+        int inicio = Math.floorMod(siguiente.getAndIncrement(), n);
+        boolean[] probada = new boolean[n];
+        for (int intento = 0; intento < n; intento++) {
+            int i = elegir(inicio, probada, ahora);
+            if (i < 0) break;
+            probada[i] = true;
+            Replica r = replicas.get(i);
+            try {
+                Connection c = r.pool.getConnection();
+                r.fuera = false;
+                lecturasReplica.increment();
+                return c;
+            } catch (SQLTimeoutException e) {
+                fallosReplica.increment(); // saturada pero viva: no se la saca de la rotación
+            } catch (SQLException e) {
+                r.fueraHastaNanos = System.nanoTime() + pausaReintentoNanos;
+                r.fuera = true;
+                fallosReplica.increment();
+            }
+        }
+        lecturasPrimario.increment();
+        return null;
+    }
+
+    // Índice de la próxima réplica a probar, o -1 si no queda ninguna disponible sin probar
+    private int elegir(int inicio, boolean[] probada, long ahora) {
+        int n = replicas.size();
+        int elegida = -1;
+        int menorCarga = Integer.MAX_VALUE;
+        for (int k = 0; k < n; k++) {
+            int i = (inicio + k) % n;
+            Replica r = replicas.get(i);
+            if (probada[i] || !r.disponible(ahora)) continue;
+            if (seleccion == Seleccion.ROUND_ROBIN) return i;
+            int carga = r.pool.getActivas() + r.pool.getEnEspera();
+            if (carga < menorCarga) {   // empate: gana la primera desde 'inicio'
+                menorCarga = carga;
+                elegida = i;
+            }
+        }
+        return elegida;
+    }
+
+    // Para aplicarles los cambios de configuración en caliente
+    public List<ConnectionPool> getPools() {
+        List<ConnectionPool> pools = new ArrayList<>(replicas.size());
+        for (Replica r : replicas) pools.add(r.pool);
+        return pools;
+    }
+
+    public long getRetrasoMaximoMs() { return retrasoMaximoMs; }
+    public long getLecturasReplica() { return lecturasReplica.sum(); }
+    public long getLecturasPrimario() { return lecturasPrimario.sum(); }
+    public long getFallosReplica() { return fallosReplica.sum(); }
+
+    @Override
+    public void close() {
+        for (Replica r : replicas) r.pool.close();
+    }
+
+    @Override
+    public String toString() {
+        long ahora = System.nanoTime();
+        StringBuilder sb = new StringBuilder("Réplicas (" + seleccion + ", retraso máximo " + retrasoMaximoMs + " ms): " +
+                "lecturas réplica=" + getLecturasReplica() + ", primario=" + getLecturasPrimario() +
+                ", fallos=" + getFallosReplica());
+        for (Replica r : replicas) {
+            sb.append(System.lineSeparator()).append("  ").append(r.nombre)
+              .append(r.disponible(ahora) ? " [ok] " : " [fuera] ").append(r.pool);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,194 @@
+package config;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Migraciones de esquema versionadas.
+// - Scripts "V<numero>__<descripcion>.sql" en el directorio de migraciones, aplicados en orden.
+// - Cada script se separa en lotes por las líneas "GO" (como los .sql del proyecto) y se aplica en una transacción.
+// - Las aplicadas quedan en la tabla SchemaVersion con su checksum; si un script ya aplicado cambió, falla.
+// - verificarIndices() falla si falta alguno de los índices que esperan los DAOs.
+public class SchemaMigrator {
+
+    public static final String DIRECTORIO_DEFAULT = "migrations";
+
+    private static final Pattern NOMBRE = Pattern.compile("V(\\d+)__(.+)\\.sql");
+    private static final Pattern SEPARADOR_GO = Pattern.compile("(?im)^\\s*GO\\s*;?\\s*$");
+
+    // Índices que asumen las consultas de los DAOs (tabla o vista indexada -> índices)
+    private static final Map<String, String[]> INDICES_REQUERIDOS = Map.of(
+        "Pedido", new String[]{"IX_Pedido_estado_fecha", "IX_Pedido_fecha", "IX_Pedido_clienteNombre", "IX_Pedido_bajas",
+                               "IX_Pedido_rv"},
+        "Envio", new String[]{"IX_Envio_empresa_estado", "IX_Envio_bajas", "IX_Envio_rv"},
+        "EstadisticaPedidoDia", new String[]{"CX_EstadisticaPedidoDia"},
+        "EstadisticaEnvio", new String[]{"CX_EstadisticaEnvio"},
+        "EventoPedido", new String[]{"IX_EventoPedido_pendientes", "IX_EventoPedido_publicados"},
+        "PedidoArchivo", new String[]{"IX_PedidoArchivo_fechaArchivo"},
+        "EnvioArchivo", new String[]{"IX_EnvioArchivo_fechaArchivo"}
+    );
+
+    private final Path directorio;
+
+    public SchemaMigrator(Path directorio) {
+        this.directorio = directorio;
+    }
+
+    // Punto de entrada al iniciar la aplicación
+    public static void migrarAlIniciar() throws SQLException {
+        SchemaMigrator migrador = new SchemaMigrator(
+                Paths.get(System.getProperty("tpi.migraciones", DIRECTORIO_DEFAULT)));
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            int aplicadas = migrador.migrar(conn);
+            if (aplicadas > 0) System.out.println("Migraciones aplicadas: " + aplicadas);
+            migrador.verificarIndices(conn);
+        }
+    }
+
+    public int migrar(Connection conn) throws SQLException {
+        TreeMap<Integer, Path> scripts = buscarScripts();
+        boolean autoCommit = conn.getAutoCommit();
+        try (Statement st = conn.createStatement()) {
+            st.execute(
+                "IF OBJECT_ID('SchemaVersion', 'U') IS NULL " +
+                "CREATE TABLE SchemaVersion (" +
+                "  version INT PRIMARY KEY," +
+                "  descripcion VARCHAR(200) NOT NULL," +
+                "  checksum CHAR(64) NOT NULL," +
+                "  fechaAplicacion DATETIME2 NOT NULL DEFAULT SYSUTCDATETIME())");
+
+            Map<Integer, String> aplicadas = leerAplicadas(conn);
+            conn.setAutoCommit(false);
+
+            int cantidad = 0;
+            for (Map.Entry<Integer, Path> e : scripts.entrySet()) {
+                int version = e.getKey();
+                String contenido = leer(e.getValue());
+                String checksum = sha256(contenido);
+
+                String aplicada = aplicadas.get(version);
+                if (aplicada != null) {
+                    if (!aplicada.equals(checksum))
+                        throw new SQLException("La migración V" + version + " cambió después de aplicarse (" +
+                                               e.getValue().getFileName() + ")");
+                    continue;
+                }
+
+                try {
+                    // Lock de aplicación: si arrancan varias instancias a la vez, migra una sola
+                    st.execute("EXEC sp_getapplock @Resource = 'SchemaMigrator', @LockMode = 'Exclusive', " +
+                               "@LockOwner = 'Transaction', @LockTimeout = 60000");
+                    // Otra instancia pudo aplicarla mientras esperábamos el lock
+                    if (leerAplicadas(conn).containsKey(version)) { conn.commit(); continue; }
+
+                    for (String lote : SEPARADOR_GO.split(contenido)) {
+                        if (!lote.isBlank()) st.execute(lote);
+                    }
+                    try (PreparedStatement ps = conn.prepareStatement(
+                            "INSERT INTO SchemaVersion (version, descripcion, checksum) VALUES (?, ?, ?)")) {
+                        ps.setInt(1, version);
+                        ps.setString(2, descripcion(e.getValue()));
+                        ps.setString(3, checksum);
+                        ps.executeUpdate();
+                    }
+                    conn.commit();
+                    cantidad++;
+                } catch (SQLException ex) {
+                    conn.rollback();
+                    throw new SQLException("Falló la migración " + e.getValue().getFileName() + ": " + ex.getMessage(), ex);
+                }
+            }
+            return cantidad;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    public void verificarIndices(Connection conn) throws SQLException {
+        List<String> faltantes = new ArrayList<>();
+        String sql = "SELECT 1 FROM sys.indexes WHERE object_id = OBJECT_ID(?) AND name = ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (Map.Entry<String, String[]> e : INDICES_REQUERIDOS.entrySet()) {
+                for (String indice : e.getValue()) {
+                    ps.setString(1, e.getKey());
+                    ps.setString(2, indice);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (!rs.next()) faltantes.add(e.getKey() + "." + indice);
+                    }
+                }
+            }
+        }
+        if (!faltantes.isEmpty())
+            throw new SQLException("Faltan índices esperados por los DAOs: " + faltantes);
+    }
+
+    private Map<Integer, String> leerAplicadas(Connection conn) throws SQLException {
+        Map<Integer, String> aplicadas = new HashMap<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT version, checksum FROM SchemaVersion")) {
+            while (rs.next()) aplicadas.put(rs.getInt("version"), rs.getString("checksum"));
+        }
+        return aplicadas;
+    }
+
+    private TreeMap<Integer, Path> buscarScripts() throws SQLException {
+        TreeMap<Integer, Path> scripts = new TreeMap<>();
+        if (!Files.isDirectory(directorio))
+            throw new SQLException("No existe el directorio de migraciones: " + directorio.toAbsolutePath());
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            for (Path p : (Iterable<Path>) archivos::iterator) {
+                Matcher m = NOMBRE.matcher(p.getFileName().toString());
+                if (!m.matches()) continue;
+                Path anterior = scripts.put(Integer.parseInt(m.group(1)), p);
+                if (anterior != null)
+                    throw new SQLException("Versión de migración duplicada: " + anterior.getFileName() + " y " + p.getFileName());
+            }
+        } catch (IOException e) {
+            throw new SQLException("No se pudo leer el directorio de migraciones: " + e.getMessage(), e);
+        }
+        return scripts;
+    }
+
+    private static String descripcion(Path script) {
+        Matcher m = NOMBRE.matcher(script.getFileName().toString());
+        return m.matches() ? m.group(2).replace('_', ' ') : script.getFileName().toString();
+    }
+
+    private static String leer(Path script) throws SQLException {
+        try {
+            String contenido = Files.readString(script, StandardCharsets.UTF_8);
+            // Algunos .sql del proyecto se guardaron con BOM
+            return contenido.startsWith("\uFEFF") ? contenido.substring(1) : contenido;
+        } catch (IOException e) {
+            throw new SQLException("No se pudo leer " + script + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static String sha256(String texto) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(texto.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(64);
+            for (byte b : hash) sb.append(String.format("%02x", b));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
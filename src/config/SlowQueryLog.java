@@ -0,0 +1,346 @@
+package config;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Log de consultas lentas a nivel JDBC.
+// - envolver() intercepta las sentencias de una conexión y mide ejecución (execute*) y fetch (ResultSet.next()).
+// - Si ejecución + fetch supera el umbral, escribe una línea con id del SQL, parámetros, tiempos y filas.
+// - Solo se mide una fracción de las sentencias (muestreo); las demás se entregan sin envolver.
+// - Los parámetros de las columnas configuradas se enmascaran.
+// - Archivo rotativo (java.util.logging.FileHandler): N archivos de hasta M bytes.
+//
+// Se configura con las claves tpi.slowlog.* de DataSourceConfig (tpi.properties, entorno o -D). Está apagado
+// por defecto (umbralMs < 0); umbral, muestreo y columnas enmascaradas se pueden cambiar en caliente.
+public final class SlowQueryLog {
+
+    private static final int MAX_LARGO_VALOR = 100;
+
+    private static final Logger LOG = Logger.getLogger("tpi.slowquery");
+    private static boolean archivoAbierto;
+
+    // Lo que usan las sentencias, derivado de la configuración vigente (se recalcula si se recarga)
+    private record Ajustes(DataSourceConfig origen, long umbralNanos, double muestreo, Set<String> enmascaradas) {}
+    private static volatile Ajustes ajustes;
+
+    // "columna = ?", "columna >= ?", "columna LIKE ?"...
+    private static final Pattern COMPARACION = Pattern.compile("(?i)([\\w.\\[\\]]+)\\s*(=|<>|!=|<=|>=|<|>|LIKE)\\s*$");
+    private static final Pattern INSERT = Pattern.compile("(?is)^\\s*INSERT\\s+INTO\\s+\\S+\\s*\\(([^)]*)\\).*?VALUES\\s*");
+
+    private SlowQueryLog() {}
+
+    public static boolean activo(DataSourceConfig c) {
+        return c.getSlowlogUmbralMs() >= 0 && c.getSlowlogMuestreo() > 0;
+    }
+
+    public static Connection envolver(Connection conn, DataSourceConfig c) {
+        if (!activo(c)) return conn;
+        Ajustes a = ajustes(c);
+        InvocationHandler handler = (proxy, m, args) -> {
+            switch (m.getName()) {
+                case "equals": return proxy == args[0];
+                case "hashCode": return System.identityHashCode(proxy);
+                case "unwrap": // Connection.class: esta misma, para que sus sentencias se sigan midiendo
+                    if (((Class<?>) args[0]).isInstance(proxy)) return proxy;
+                    return invocar(conn, m, args);
+                case "prepareStatement": {
+                    Object ps = invocar(conn, m, args);
+                    if (!muestrear(a)) return ps;
+                    return new Sentencia((String) args[0], (Statement) ps, (Connection) proxy, a).proxy(PreparedStatement.class);
+                }
+                case "createStatement": {
+                    Object st = invocar(conn, m, args);
+                    if (!muestrear(a)) return st;
+                    return new Sentencia(null, (Statement) st, (Connection) proxy, a).proxy(Statement.class);
+                }
+                default:
+                    return invocar(conn, m, args);
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, handler);
+    }
+
+    private static Ajustes ajustes(DataSourceConfig c) {
+        Ajustes a = ajustes;
+        if (a == null || a.origen() != c) {
+            a = new Ajustes(c, c.getSlowlogUmbralMs() * 1_000_000, c.getSlowlogMuestreo(), columnas(c.getSlowlogEnmascarar()));
+            ajustes = a;
+        }
+        return a;
+    }
+
+    private static boolean muestrear(Ajustes a) {
+        return a.muestreo() >= 1 || ThreadLocalRandom.current().nextDouble() < a.muestreo();
+    }
+
+    // Estado de una sentencia medida. Se usa desde un solo hilo (como la conexión que la creó).
+    private static final class Sentencia implements InvocationHandler {
+        private final Statement ps;
+        private final Connection conexion;
+        private final Ajustes ajustes;
+        private String sql;
+        private final List<Object> parametros = new ArrayList<>();
+        private Object[] primerLote;
+        private int lotes;
+
+        private boolean pendiente;
+        private long ejecucionNanos;
+        private long fetchNanos;
+        private long filas;
+        private String error;
+
+        Sentencia(String sql, Statement ps, Connection conexion, Ajustes ajustes) {
+            this.sql = sql;
+            this.ps = ps;
+            this.conexion = conexion;
+            this.ajustes = ajustes;
+        }
+
+        <T> T proxy(Class<T> tipo) {
+            return tipo.cast(Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[]{tipo}, this));
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method m, Object[] args) throws Throwable {
+            String nombre = m.getName();
+            switch (nombre) {
+                case "equals": return proxy == args[0];
+                case "hashCode": return System.identityHashCode(proxy);
+                case "getConnection": return conexion;
+                case "close":
+                    cerrarMedicion();
+                    return invocar(ps, m, args);
+                case "clearParameters":
+                    parametros.clear();
+                    return invocar(ps, m, args);
+                case "addBatch":
+                    if (args == null && primerLote == null) primerLote = parametros.toArray();
+                    lotes++;
+                    return invocar(ps, m, args);
+                case "executeQuery":
+                case "executeUpdate":
+                case "executeLargeUpdate":
+                case "executeBatch":
+                case "executeLargeBatch":
+                case "execute":
+                    return ejecutar(m, args);
+                default:
+                    if (nombre.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer
+                            && m.getDeclaringClass() == PreparedStatement.class) {
+                        int i = (Integer) args[0] - 1;
+                        while (parametros.size() <= i) parametros.add(null);
+                        parametros.set(i, nombre.equals("setNull") ? null : args[1]);
+                    }
+                    return invocar(ps, m, args);
+            }
+        }
+
+        private Object ejecutar(Method m, Object[] args) throws Throwable {
+            cerrarMedicion();
+            if (args != null && args.length > 0 && args[0] instanceof String) sql = (String) args[0]; // Statement
+            ejecucionNanos = 0;
+            fetchNanos = 0;
+            filas = 0;
+
+            long inicio = System.nanoTime();
+            Object r;
+            try {
+                r = invocar(ps, m, args);
+            } catch (Throwable e) {
+                // Un timeout o un deadlock también es una consulta lenta
+                ejecucionNanos = System.nanoTime() - inicio;
+                pendiente = true;
+                error = e.getClass().getSimpleName();
+                cerrarMedicion();
+                throw e;
+            }
+            ejecucionNanos = System.nanoTime() - inicio;
+            pendiente = true;
+
+            if (r instanceof ResultSet) return medirFetch((ResultSet) r);
+            if (r instanceof int[]) for (int n : (int[]) r) filas += Math.max(0, n);
+            else if (r instanceof long[]) for (long n : (long[]) r) filas += Math.max(0, n);
+            else if (r instanceof Number) filas = ((Number) r).longValue();
+            cerrarMedicion();
+            return r;
+        }
+
+        // El ResultSet sigue abierto: la medición termina al cerrarlo (o al cerrar/reejecutar la sentencia)
+        private ResultSet medirFetch(ResultSet rs) {
+            InvocationHandler h = (proxy, m, args) -> {
+                switch (m.getName()) {
+                    case "equals": return proxy == args[0];
+                    case "hashCode": return System.identityHashCode(proxy);
+                    case "next": {
+                        long inicio = System.nanoTime();
+                        Object hay = invocar(rs, m, args);
+                        fetchNanos += System.nanoTime() - inicio;
+                        if ((Boolean) hay) filas++;
+                        return hay;
+                    }
+                    case "close":
+                        cerrarMedicion();
+                        return invocar(rs, m, args);
+                    default:
+                        return invocar(rs, m, args);
+                }
+            };
+            return (ResultSet) Proxy.newProxyInstance(
+                    ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class}, h);
+        }
+
+        private void cerrarMedicion() {
+            if (!pendiente) return;
+            pendiente = false;
+            if (ejecucionNanos + fetchNanos >= ajustes.umbralNanos()) {
+                Object[] valores = lotes > 0 && primerLote != null ? primerLote : parametros.toArray();
+                escribir(sql, valores, lotes, ejecucionNanos, fetchNanos, filas, error, ajustes);
+            }
+            error = null;
+            primerLote = null;
+            lotes = 0;
+        }
+    }
+
+    private static void escribir(String sql, Object[] parametros, int lotes, long ejecucionNanos, long fetchNanos, long filas,
+                                 String error, Ajustes ajustes) {
+        abrirArchivo(ajustes.origen());
+        String texto = sql == null ? "?" : sql.replaceAll("\\s+", " ").trim();
+        StringBuilder sb = new StringBuilder(256);
+        sb.append(LocalDateTime.now())
+          .append(" id=").append(idSql(texto))
+          .append(" ejecucion=").append(ejecucionNanos / 1_000_000).append("ms")
+          .append(" fetch=").append(fetchNanos / 1_000_000).append("ms")
+          .append(" filas=").append(filas);
+        if (lotes > 0) sb.append(" lote=").append(lotes);
+        if (error != null) sb.append(" error=").append(error);
+        sb.append(" params=").append(formatear(texto, parametros, ajustes.enmascaradas()))
+          .append(" sql=\"").append(texto).append('"');
+        LOG.info(sb.toString());
+    }
+
+    // Id estable del texto SQL: las sentencias de los DAOs son constantes
+    static String idSql(String sql) {
+        return String.format("%08x", sql.hashCode());
+    }
+
+    private static String formatear(String sql, Object[] valores, Set<String> enmascaradas) {
+        String[] nombres = nombresParametros(sql);
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < valores.length; i++) {
+            if (i > 0) sb.append(", ");
+            String columna = i < nombres.length ? nombres[i] : null;
+            Object v = valores[i];
+            if (columna != null && enmascaradas.contains(columna)) sb.append("***");
+            else if (v == null) sb.append("null");
+            else if (v instanceof byte[]) sb.append('<').append(((byte[]) v).length).append(" bytes>");
+            else if (v instanceof CharSequence) sb.append('\'').append(recortar(v.toString())).append('\'');
+            else sb.append(recortar(String.valueOf(v)));
+        }
+        return sb.append(']').toString();
+    }
+
+    // Columna de cada '?' (en minúsculas, o null si no se deduce): "col = ?" o la lista de un INSERT ... VALUES
+    static String[] nombresParametros(String sql) {
+        List<String> nombres = new ArrayList<>();
+        Matcher insert = INSERT.matcher(sql);
+        String[] columnasInsert = null;
+        int inicioValues = -1;
+        if (insert.find()) {
+            columnasInsert = insert.group(1).split(",");
+            inicioValues = insert.end();
+        }
+
+        int enValues = 0;
+        boolean enLiteral = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') enLiteral = !enLiteral;
+            if (enLiteral || c != '?') continue;
+
+            String nombre = null;
+            if (columnasInsert != null && i >= inicioValues) {
+                nombre = columnasInsert[enValues++ % columnasInsert.length]; // también para VALUES (...), (...)
+            } else {
+                Matcher comp = COMPARACION.matcher(sql.substring(Math.max(0, i - 80), i));
+                if (comp.find()) nombre = comp.group(1);
+            }
+            nombres.add(nombre == null ? null : normalizar(nombre));
+        }
+        return nombres.toArray(new String[0]);
+    }
+
+    private static String normalizar(String columna) {
+        String c = columna.trim().replace("[", "").replace("]", "");
+        int punto = c.lastIndexOf('.');
+        return (punto >= 0 ? c.substring(punto + 1) : c).toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<String> columnas(String lista) {
+        Set<String> s = new HashSet<>();
+        for (String c : lista.split(",")) if (!c.isBlank()) s.add(normalizar(c));
+        return s;
+    }
+
+    private static String recortar(String s) {
+        return s.length() <= MAX_LARGO_VALOR ? s : s.substring(0, MAX_LARGO_VALOR) + "...";
+    }
+
+    // El archivo se abre con la primera consulta lenta, con la configuración de ese momento
+    private static synchronized void abrirArchivo(DataSourceConfig c) {
+        if (archivoAbierto) return;
+        try {
+            Path padre = Paths.get(c.getSlowlogArchivo()).toAbsolutePath().getParent();
+            if (padre != null) Files.createDirectories(padre);
+            FileHandler archivo = new FileHandler(c.getSlowlogArchivo(), c.getSlowlogMaxBytes(), c.getSlowlogArchivos(), true);
+            archivo.setFormatter(new Formatter() {
+                @Override
+                public String format(LogRecord r) {
+                    return r.getMessage() + System.lineSeparator();
+                }
+            });
+            LOG.setUseParentHandlers(false);
+            LOG.setLevel(Level.INFO);
+            LOG.addHandler(archivo);
+            archivoAbierto = true;
+        } catch (IOException | SecurityException e) {
+            // Sigue por los handlers de java.util.logging en lugar de reintentar en cada consulta
+            LOG.setUseParentHandlers(true);
+            LOG.log(Level.WARNING, "No se pudo abrir el log de consultas lentas " + c.getSlowlogArchivo(), e);
+            archivoAbierto = true;
+        }
+    }
+
+    private static Object invocar(Object destino, Method m, Object[] args) throws Throwable {
+        try {
+            return m.invoke(destino, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package config;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Caché LRU de PreparedStatement de UNA conexión física del pool.
+// La clave es el texto SQL (constante en cada método DAO, funciona como su id) + el tipo de prepare.
+// close() sobre la sentencia entregada no la cierra: limpia parámetros/lote, restaura fetchSize, maxRows y
+// queryTimeout y la deja lista para reusar. Una sentencia marcada setPoolable(false) se cierra en lugar de
+// guardarse (SQL de un solo uso, como el último tramo de un INSERT multifila).
+// Las sentencias se cierran de verdad al desalojarse o al cerrarse la conexión física.
+class StatementCache {
+
+    private final Connection fisica;
+    private final int capacidad;
+    private final LongAdder aciertos;
+    private final LongAdder fallos;
+
+    private final Map<String, PreparedStatement> libres;
+    private final List<Prestada> prestadas = new ArrayList<>();
+
+    StatementCache(Connection fisica, int capacidad, LongAdder aciertos, LongAdder fallos) {
+        this.fisica = fisica;
+        this.capacidad = capacidad;
+        this.aciertos = aciertos;
+        this.fallos = fallos;
+        this.libres = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> masVieja) {
+                if (size() <= StatementCache.this.capacidad) return false;
+                cerrarSilencioso(masVieja.getValue());
+                return true;
+            }
+        };
+    }
+
+    // Devuelve null si esta variante de prepareStatement no se cachea
+    synchronized PreparedStatement preparar(Connection proxyConexion, Method m, Object[] args) throws Throwable {
+        String clave = clave(args);
+        if (clave == null) return null;
+
+        PreparedStatement ps = libres.remove(clave);
+        if (ps != null) {
+            aciertos.increment();
+        } else {
+            fallos.increment();
+            ps = (PreparedStatement) invocar(fisica, m, args);
+        }
+        Prestada p = new Prestada(clave, ps, proxyConexion);
+        prestadas.add(p);
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class}, p);
+    }
+
+    // La conexión vuelve al pool: se recuperan las sentencias que el usuario no cerró
+    synchronized void liberarPrestadas() {
+        for (Prestada p : new ArrayList<>(prestadas)) p.cerrar();
+    }
+
+    synchronized void cerrarTodo() {
+        for (Prestada p : prestadas) { p.cerrada = true; cerrarSilencioso(p.ps); }
+        prestadas.clear();
+        libres.values().forEach(StatementCache::cerrarSilencioso);
+        libres.clear();
+    }
+
+    private synchronized void devolver(Prestada p) {
+        prestadas.remove(p);
+        try {
+            if (p.resultado != null) p.resultado.close();
+            p.ps.clearParameters();
+            p.ps.clearBatch();
+            p.ps.clearWarnings();
+            if (!p.ps.isPoolable()) {
+                cerrarSilencioso(p.ps);
+                return;
+            }
+            if (p.ps.getFetchSize() != p.fetchSizeOriginal) p.ps.setFetchSize(p.fetchSizeOriginal);
+            if (p.ps.getMaxRows() != p.maxRowsOriginal) p.ps.setMaxRows(p.maxRowsOriginal);
+            if (p.ps.getQueryTimeout() != p.queryTimeoutOriginal) p.ps.setQueryTimeout(p.queryTimeoutOriginal);
+        } catch (SQLException e) {
+            cerrarSilencioso(p.ps);
+            return;
+        }
+        // Si la misma sentencia se pidió dos veces a la vez, la segunda copia sobra
+        PreparedStatement anterior = libres.putIfAbsent(p.clave, p.ps);
+        if (anterior != null) cerrarSilencioso(p.ps);
+    }
+
+    private static String clave(Object[] args) {
+        if (args == null || !(args[0] instanceof String)) return null;
+        switch (args.length) {
+            case 1: return "0|" + args[0];
+            case 2: return args[1] instanceof Integer ? "K" + args[1] + "|" + args[0] : null; // autoGeneratedKeys
+            case 3: return "T" + args[1] + "," + args[2] + "|" + args[0];                      // tipo, concurrencia
+            default: return null;
+        }
+    }
+
+    private final class Prestada implements InvocationHandler {
+        final String clave;
+        final PreparedStatement ps;
+        final Connection proxyConexion;
+        final int fetchSizeOriginal;
+        final int maxRowsOriginal;
+        final int queryTimeoutOriginal;
+        ResultSet resultado;
+        boolean cerrada;
+
+        Prestada(String clave, PreparedStatement ps, Connection proxyConexion) throws SQLException {
+            this.clave = clave;
+            this.ps = ps;
+            this.proxyConexion = proxyConexion;
+            this.fetchSizeOriginal = ps.getFetchSize();
+            this.maxRowsOriginal = ps.getMaxRows();
+            this.queryTimeoutOriginal = ps.getQueryTimeout();
+        }
+
+        void cerrar() {
+            if (cerrada) return;
+            cerrada = true;
+            devolver(this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method m, Object[] args) throws Throwable {
+            switch (m.getName()) {
+                case "close": cerrar(); return null;
+                case "isClosed": return cerrada;
+                case "getConnection": return proxyConexion;
+                case "equals": return proxy == args[0];
+                case "hashCode": return System.identityHashCode(proxy);
+                case "toString": return "CachedStatement[" + clave + "]";
+                default:
+                    if (cerrada) throw new SQLException("La sentencia está cerrada");
+                    Object r = invocar(ps, m, args);
+                    if (r instanceof ResultSet && m.getName().equals("executeQuery")) resultado = (ResultSet) r;
+                    return r;
+            }
+        }
+    }
+
+    private static Object invocar(Object destino, Method m, Object[] args) throws Throwable {
+        try {
+            return m.invoke(destino, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void cerrarSilencioso(PreparedStatement ps) {
+        try { ps.close(); } catch (SQLException ignore) {}
+    }
+}
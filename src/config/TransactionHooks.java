@@ -0,0 +1,59 @@
+package config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Acciones que solo deben correr si la transacción de una conexión se confirma (por ejemplo, actualizar
+// un índice en memoria con lo que escribió un DAO). Las registra quien escribe; las dispara o descarta
+// el que cierra la transacción (service.impl.FasesTransaccion). En autocommit corren en el acto.
+public final class TransactionHooks {
+
+    private static final Logger LOG = Logger.getLogger("tpi.transacciones");
+
+    private static final Map<Connection, List<Runnable>> PENDIENTES = new IdentityHashMap<>();
+
+    private TransactionHooks() {}
+
+    public static void alConfirmar(Connection conn, Runnable accion) throws SQLException {
+        if (conn.getAutoCommit()) {
+            accion.run();
+            return;
+        }
+        synchronized (PENDIENTES) {
+            PENDIENTES.computeIfAbsent(conn, c -> new ArrayList<>()).add(accion);
+        }
+    }
+
+    // Después del commit, en el orden en que se registraron. Devuelve cuántas fallaron: el commit ya está
+    // hecho, así que una acción que falla no corta a las demás ni debe parecer un error de la transacción;
+    // quien confirma la cuenta en sus métricas (FasesTransaccion: "<servicio>.alConfirmar")
+    public static int confirmada(Connection conn) {
+        List<Runnable> acciones;
+        synchronized (PENDIENTES) {
+            acciones = PENDIENTES.remove(conn);
+        }
+        if (acciones == null) return 0;
+        int fallidas = 0;
+        for (Runnable accion : acciones) {
+            try {
+                accion.run();
+            } catch (RuntimeException e) {
+                fallidas++;
+                LOG.log(Level.WARNING, "Acción posterior al commit falló", e);
+            }
+        }
+        return fallidas;
+    }
+
+    public static void descartada(Connection conn) {
+        synchronized (PENDIENTES) {
+            PENDIENTES.remove(conn);
+        }
+    }
+}
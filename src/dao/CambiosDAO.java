@@ -0,0 +1,16 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+
+// Qué Pedidos/Envios cambiaron desde una marca (columnas rv ROWVERSION de V006 y archivado)
+public interface CambiosDAO {
+    // MIN_ACTIVE_ROWVERSION(): no deja afuera a las transacciones todavía abiertas
+    MarcaCambios marcaActual(Connection conn) throws SQLException;
+    // Pedidos escritos, con su Envio escrito o archivados desde la marca; a lo sumo limite + 1 ids
+    // (más de limite = demasiados para descartarlos de a uno)
+    Set<Integer> pedidosCambiadosDesde(MarcaCambios marca, int limite, Connection conn) throws SQLException;
+    // Envios escritos, con su Pedido escrito o archivados desde la marca; a lo sumo limite + 1 ids
+    Set<Integer> enviosCambiadosDesde(MarcaCambios marca, int limite, Connection conn) throws SQLException;
+}
@@ -0,0 +1,29 @@
+package dao;
+
+import java.sql.SQLException;
+
+// UPDATE con versión vieja: otro usuario modificó la fila después de que se leyó.
+// La fila sigue existiendo (si no existiera, actualizar() devuelve false).
+public class ConflictoVersionException extends SQLException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String entidad;
+    private final long id;
+    private final int versionEsperada;
+    private final int versionActual;
+
+    public ConflictoVersionException(String entidad, long id, int versionEsperada, int versionActual) {
+        super(entidad + " " + id + " fue modificado por otra operación (versión leída " + versionEsperada +
+              ", actual " + versionActual + ")", "40001");
+        this.entidad = entidad;
+        this.id = id;
+        this.versionEsperada = versionEsperada;
+        this.versionActual = versionActual;
+    }
+
+    public String getEntidad() { return entidad; }
+    public long getId() { return id; }
+    public int getVersionEsperada() { return versionEsperada; }
+    public int getVersionActual() { return versionActual; }
+}
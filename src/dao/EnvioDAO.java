@@ -3,12 +3,37 @@ package dao;
 import entities.Envio;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface EnvioDAO {
     Integer crear(Envio b, Connection conn) throws SQLException;
+    void crearEnLote(List<Envio> lista, Connection conn) throws SQLException;
+    // INSERT multifila (VALUES (...), (...)) en sentencias de hasta ~2000 parámetros; asigna los IDs por tracking
+    void crearMultifila(List<Envio> lista, Connection conn) throws SQLException;
     Envio buscarPorId(int id, Connection conn) throws SQLException;
     List<Envio> listarTodos(Connection conn) throws SQLException;
+    // Página ordenada por id: filas con id > despuesDeId (usar 0 para la primera)
+    List<Envio> listarPagina(long despuesDeId, int tamanio, Connection conn) throws SQLException;
+    // Cursor forward-only; el Stream debe cerrarse (try-with-resources)
+    Stream<Envio> listarStream(int fetchSize, Connection conn) throws SQLException;
+    // Escribe solo los campos modificados (Envio.getCambios()).
+    // Si trae versión: ConflictoVersionException cuando la fila cambió desde que se leyó; false si no existe
+    // (también sin campos modificados). La versión nueva y los cambios limpios se aplican al confirmarse la transacción
     boolean actualizar(Envio b, Connection conn) throws SQLException;
+    // Estado actual por tracking (hasta 1000 por llamada), con UPDLOCK hasta el fin de la transacción
+    List<EnvioSeguimiento> buscarParaSeguimiento(Collection<String> trackings, Connection conn) throws SQLException;
+    // Sin bloqueos: para resolver un tracking fuera de una transacción (null si no hay Envio vivo)
+    TrackingEnvio buscarPorTracking(String tracking, Connection conn) throws SQLException;
+    // Los de esos trackings que ya están en Envio, vivos o dados de baja (el UNIQUE abarca a todos)
+    List<String> buscarTrackingsExistentes(Collection<String> trackings, Connection conn) throws SQLException;
+    // Cursor forward-only de tracking, ids y estado de los Envios vivos (carga de cache.TrackingIndex)
+    Stream<TrackingEnvio> listarTrackingsStream(int fetchSize, Connection conn) throws SQLException;
+    int cambiarEstadoEnLote(Collection<Integer> ids, String estado, Connection conn) throws SQLException;
     boolean eliminarLogico(int id, Connection conn) throws SQLException;
+    int eliminarLogicoEnLote(Collection<Integer> ids, Connection conn) throws SQLException;
+    // Mueve a la tabla *Archivo hasta maxFilas bajas lógicas anteriores a 'limite'; devuelve las movidas
+    int archivarEliminados(LocalDateTime limite, int maxFilas, Connection conn) throws SQLException;
 }
@@ -0,0 +1,24 @@
+package dao;
+
+// Lo mínimo de un Envio (y su Pedido) para aplicar cambios de estado por tracking
+public class EnvioSeguimiento {
+    private final int idEnvio;
+    private final String tracking;
+    private final String empresa;
+    private final String estado;
+    private final Integer idPedido;   // null si el Envio no tiene Pedido vivo
+
+    public EnvioSeguimiento(int idEnvio, String tracking, String empresa, String estado, Integer idPedido) {
+        this.idEnvio = idEnvio;
+        this.tracking = tracking;
+        this.empresa = empresa;
+        this.estado = estado;
+        this.idPedido = idPedido;
+    }
+
+    public int getIdEnvio() { return idEnvio; }
+    public String getTracking() { return tracking; }
+    public String getEmpresa() { return empresa; }
+    public String getEstado() { return estado; }
+    public Integer getIdPedido() { return idPedido; }
+}
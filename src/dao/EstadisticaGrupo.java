@@ -0,0 +1,36 @@
+package dao;
+
+// Una fila del tablero: agregados de un grupo (estado, día+estado o empresa+tipo)
+public class EstadisticaGrupo {
+    private final String grupo;
+    private final String subgrupo;          // null si el agrupamiento es de un solo nivel
+    private final long cantidad;
+    private final double montoTotal;        // suma de Pedido.total
+    private final Double costoTotal;        // suma de Envio.costo (solo por empresa/tipo)
+    private final Double plazoPromedioDias; // fechaEstimada - fechaDespacho (solo por empresa/tipo, null sin datos)
+
+    public EstadisticaGrupo(String grupo, String subgrupo, long cantidad, double montoTotal,
+                            Double costoTotal, Double plazoPromedioDias) {
+        this.grupo = grupo;
+        this.subgrupo = subgrupo;
+        this.cantidad = cantidad;
+        this.montoTotal = montoTotal;
+        this.costoTotal = costoTotal;
+        this.plazoPromedioDias = plazoPromedioDias;
+    }
+
+    public String getGrupo() { return grupo; }
+    public String getSubgrupo() { return subgrupo; }
+    public long getCantidad() { return cantidad; }
+    public double getMontoTotal() { return montoTotal; }
+    public Double getCostoTotal() { return costoTotal; }
+    public Double getPlazoPromedioDias() { return plazoPromedioDias; }
+
+    @Override
+    public String toString() {
+        return grupo + (subgrupo != null ? "/" + subgrupo : "") + ": cantidad=" + cantidad +
+               ", monto=" + String.format("%.2f", montoTotal) +
+               (costoTotal != null ? ", costo=" + String.format("%.2f", costoTotal) : "") +
+               (plazoPromedioDias != null ? ", plazo=" + String.format("%.1f", plazoPromedioDias) + " días" : "");
+    }
+}
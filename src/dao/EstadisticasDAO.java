@@ -0,0 +1,16 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+// Lecturas del tablero sobre las vistas indexadas de V004 (no recorren Pedido ni Envio)
+public interface EstadisticasDAO {
+    List<EstadisticaGrupo> porEstado(Connection conn) throws SQLException;
+    // Días en [desde, hasta], un grupo por día y estado
+    List<EstadisticaGrupo> porDia(LocalDate desde, LocalDate hasta, Connection conn) throws SQLException;
+    List<EstadisticaGrupo> porEmpresaTipo(Connection conn) throws SQLException;
+    // Rematerializa las vistas indexadas desde las tablas base
+    void reconstruir(Connection conn) throws SQLException;
+}
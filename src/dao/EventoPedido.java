@@ -0,0 +1,15 @@
+package dao;
+
+import java.time.LocalDateTime;
+
+// Fila del outbox EventoPedido. id y fechaCreacion (UTC) los asigna la base al grabar.
+// El id crece con cada evento: un consumidor puede descartar los de un Pedido con id <= al último que aplicó.
+public record EventoPedido(long id, long idPedido, Tipo tipo, String datos, LocalDateTime fechaCreacion) {
+
+    public enum Tipo { CREADO, ACTUALIZADO, ESTADO_CAMBIADO, ELIMINADO }
+
+    // Evento nuevo, todavía sin grabar
+    public EventoPedido(long idPedido, Tipo tipo, String datos) {
+        this(0, idPedido, tipo, datos, null);
+    }
+}
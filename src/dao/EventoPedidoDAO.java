@@ -0,0 +1,30 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+// Outbox de eventos de Pedido. Los registrar* se llaman dentro de la transacción del cambio que describen.
+public interface EventoPedidoDAO {
+    void registrar(EventoPedido evento, Connection conn) throws SQLException;
+    void registrarEnLote(List<EventoPedido> eventos, Connection conn) throws SQLException;
+
+    // Antes del UPDATE en lote y en la misma transacción: un evento por cada Pedido vivo que todavía
+    // no tiene ese estado (los mismos que va a tocar el UPDATE; quedan bloqueados hasta el commit)
+    int registrarCambioEstado(Collection<Integer> idsPedido, String estado, String datos, Connection conn) throws SQLException;
+    int registrarCambioEstadoPorEnvio(Collection<Integer> idsEnvio, String estado, String datos, Connection conn) throws SQLException;
+    // Antes de eliminarLogicoEnLote: un evento ELIMINADO por cada Pedido vivo
+    int registrarBajas(Collection<Integer> idsPedido, Connection conn) throws SQLException;
+
+    // Turno exclusivo de publicación hasta el fin de la transacción (sp_getapplock); false si otro lo tiene
+    boolean tomarTurnoPublicacion(Connection conn) throws SQLException;
+    // Los primeros 'maximo' pendientes en orden de id
+    List<EventoPedido> pendientes(int maximo, Connection conn) throws SQLException;
+    int marcarPublicados(Collection<Long> ids, Connection conn) throws SQLException;
+    long contarPendientes(Connection conn) throws SQLException;
+    // null si no hay pendientes
+    LocalDateTime pendienteMasAntiguo(Connection conn) throws SQLException;
+    int purgarPublicados(LocalDateTime limite, int maxFilas, Connection conn) throws SQLException;
+}
@@ -0,0 +1,9 @@
+package dao;
+
+import java.time.LocalDateTime;
+
+// Punto de la historia de la base a partir del cual se buscan cambios:
+// todo INSERT/UPDATE con rowversion menor ya había terminado, y lo archivado después tiene fechaArchivo >= fechaUtc.
+// base identifica servidor y base de datos (una marca no sirve en otra base).
+public record MarcaCambios(long rowversion, LocalDateTime fechaUtc, String base) {
+}
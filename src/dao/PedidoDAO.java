@@ -3,12 +3,45 @@ package dao;
 import entities.Pedido;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface PedidoDAO {
     Integer crear(Pedido a, Connection conn) throws SQLException;
+    void crearEnLote(List<Pedido> lista, Connection conn) throws SQLException;
+    // INSERT multifila (VALUES (...), (...)) en sentencias de hasta ~2000 parámetros; asigna los IDs por numero
+    void crearMultifila(List<Pedido> lista, Connection conn) throws SQLException;
     Pedido buscarPorId(int id, Connection conn) throws SQLException;
+    Pedido buscarPorNumero(String numero, Connection conn) throws SQLException;
+    // Resuelve muchos números en pocas consultas IN (los no encontrados no aparecen)
+    List<Pedido> buscarPorNumeros(Collection<String> numeros, Connection conn) throws SQLException;
     List<Pedido> listarTodos(Connection conn) throws SQLException;
+    // Página ordenada por id: filas con id > despuesDeId (usar 0 para la primera)
+    List<Pedido> listarPagina(long despuesDeId, int tamanio, Connection conn) throws SQLException;
+    // Cursor forward-only; el Stream debe cerrarse (try-with-resources)
+    Stream<Pedido> listarStream(int fetchSize, Connection conn) throws SQLException;
+    // Como listarStream pero con todas las columnas del Envio, desde id > despuesDeId (exportaciones)
+    Stream<Pedido> listarCompletoStream(long despuesDeId, int fetchSize, Connection conn) throws SQLException;
+    // Como listarPagina/listarStream pero con la proyección de solo lectura (sin entidades)
+    List<PedidoResumen> listarResumenPagina(long despuesDeId, int tamanio, Connection conn) throws SQLException;
+    Stream<PedidoResumen> listarResumenStream(int fetchSize, Connection conn) throws SQLException;
+    // Búsqueda paginada con filtros opcionales; todo se filtra en la base
+    List<Pedido> buscar(PedidoFiltro filtro, Connection conn) throws SQLException;
+    // Escribe solo los campos modificados (Pedido.getCambios()).
+    // Si trae versión: ConflictoVersionException cuando la fila cambió desde que se leyó; false si no existe
+    // (también sin campos modificados). La versión nueva y los cambios limpios se aplican al confirmarse la transacción
     boolean actualizar(Pedido a, Connection conn) throws SQLException;
+    // Solo el estado, sin control de versión (transiciones de estado).
+    // false si no cambió: no existe o ya tenía ese estado
+    boolean cambiarEstado(int id, String estado, Connection conn) throws SQLException;
+    // Devuelve cuántos pedidos cambiaron (los que ya tenían ese estado no cuentan)
+    int cambiarEstadoEnLote(Collection<Integer> ids, String estado, Connection conn) throws SQLException;
+    // Cambia el estado de los Pedidos de esos Envios; devuelve cuántos cambiaron
+    int cambiarEstadoPorEnvio(Collection<Integer> idsEnvio, String estado, Connection conn) throws SQLException;
     boolean eliminarLogico(int id, Connection conn) throws SQLException;
+    int eliminarLogicoEnLote(Collection<Integer> ids, Connection conn) throws SQLException;
+    // Mueve a la tabla *Archivo hasta maxFilas bajas lógicas anteriores a 'limite'; devuelve las movidas
+    int archivarEliminados(LocalDateTime limite, int maxFilas, Connection conn) throws SQLException;
 }
@@ -0,0 +1,79 @@
+package dao;
+
+import java.time.LocalDate;
+
+// Criterios de búsqueda de Pedidos. Los campos en null no filtran.
+public class PedidoFiltro {
+
+    public enum Orden {
+        ID("p.id"), FECHA("p.fecha"), TOTAL("p.total"), CLIENTE("p.clienteNombre"), NUMERO("p.numero");
+
+        private final String columna;
+        Orden(String columna) { this.columna = columna; }
+        public String getColumna() { return columna; }
+    }
+
+    private String estado;
+    private LocalDate fechaDesde;      // inclusive
+    private LocalDate fechaHasta;      // inclusive
+    private String clientePrefijo;
+    private Double totalMin;           // inclusive
+    private Double totalMax;           // inclusive
+    private String envioEmpresa;
+    private String envioEstado;
+    private Orden orden = Orden.ID;
+    private boolean descendente;
+    private int pagina;                // 0 = primera
+    private int tamanioPagina = 50;
+
+    public PedidoFiltro() {}
+
+    public boolean usaEnvio() {
+        return envioEmpresa != null || envioEstado != null;
+    }
+
+    // Getters/Setters
+    public String getEstado() { return estado; }
+    public void setEstado(String estado) { this.estado = estado; }
+
+    public LocalDate getFechaDesde() { return fechaDesde; }
+    public void setFechaDesde(LocalDate fechaDesde) { this.fechaDesde = fechaDesde; }
+
+    public LocalDate getFechaHasta() { return fechaHasta; }
+    public void setFechaHasta(LocalDate fechaHasta) { this.fechaHasta = fechaHasta; }
+
+    public String getClientePrefijo() { return clientePrefijo; }
+    public void setClientePrefijo(String clientePrefijo) { this.clientePrefijo = clientePrefijo; }
+
+    public Double getTotalMin() { return totalMin; }
+    public void setTotalMin(Double totalMin) { this.totalMin = totalMin; }
+
+    public Double getTotalMax() { return totalMax; }
+    public void setTotalMax(Double totalMax) { this.totalMax = totalMax; }
+
+    public String getEnvioEmpresa() { return envioEmpresa; }
+    public void setEnvioEmpresa(String envioEmpresa) { this.envioEmpresa = envioEmpresa; }
+
+    public String getEnvioEstado() { return envioEstado; }
+    public void setEnvioEstado(String envioEstado) { this.envioEstado = envioEstado; }
+
+    public Orden getOrden() { return orden; }
+    public void setOrden(Orden orden) { this.orden = orden; }
+
+    public boolean isDescendente() { return descendente; }
+    public void setDescendente(boolean descendente) { this.descendente = descendente; }
+
+    public int getPagina() { return pagina; }
+    public void setPagina(int pagina) { this.pagina = pagina; }
+
+    public int getTamanioPagina() { return tamanioPagina; }
+    public void setTamanioPagina(int tamanioPagina) { this.tamanioPagina = tamanioPagina; }
+
+    @Override
+    public String toString() {
+        return "PedidoFiltro{estado='" + estado + "', fechaDesde=" + fechaDesde + ", fechaHasta=" + fechaHasta +
+                ", clientePrefijo='" + clientePrefijo + "', totalMin=" + totalMin + ", totalMax=" + totalMax +
+                ", envioEmpresa='" + envioEmpresa + "', envioEstado='" + envioEstado + "', orden=" + orden +
+                (descendente ? " DESC" : "") + ", pagina=" + pagina + ", tamanioPagina=" + tamanioPagina + "}";
+    }
+}
@@ -0,0 +1,15 @@
+package dao;
+
+import java.time.LocalDate;
+
+// Fila de listado de solo lectura: sin Envio, sin versión ni seguimiento de cambios.
+// Para modificar un Pedido hay que leerlo completo (buscarPorId).
+public record PedidoResumen(long id, String numero, LocalDate fecha, String clienteNombre, double total,
+                            String estado, String tracking) {
+
+    @Override
+    public String toString() {
+        return "Pedido{id=" + id + ", numero='" + numero + "', fecha=" + fecha + ", clienteNombre='" + clienteNombre +
+               "', total=" + total + ", estado='" + estado + "', tracking=" + tracking + "}";
+    }
+}
@@ -0,0 +1,6 @@
+package dao;
+
+// Lo que se resuelve a partir de un tracking (webhooks de transportistas).
+// idPedido es null si el Envio no tiene Pedido vivo.
+public record TrackingEnvio(String tracking, int idEnvio, Integer idPedido, String estado) {
+}
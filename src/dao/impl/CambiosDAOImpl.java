@@ -0,0 +1,57 @@
+package dao.impl;
+
+import dao.CambiosDAO;
+import dao.MarcaCambios;
+
+import java.sql.*;
+import java.util.HashSet;
+import java.util.Set;
+
+// rowversion se compara como BINARY(8): el BIGINT se convierte en la consulta (mismo orden, big-endian)
+public class CambiosDAOImpl implements CambiosDAO {
+
+    private static final String RV = "CAST(CAST(? AS BIGINT) AS BINARY(8))";
+
+    @Override
+    public MarcaCambios marcaActual(Connection conn) throws SQLException {
+        String sql = "SELECT CAST(MIN_ACTIVE_ROWVERSION() AS BIGINT), SYSUTCDATETIME(), " +
+                     "CAST(@@SERVERNAME AS NVARCHAR(128)) + N'/' + DB_NAME()";
+        try (PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return new MarcaCambios(rs.getLong(1), rs.getTimestamp(2).toLocalDateTime(), rs.getString(3));
+        }
+    }
+
+    @Override
+    public Set<Integer> pedidosCambiadosDesde(MarcaCambios marca, int limite, Connection conn) throws SQLException {
+        String sql = "SELECT TOP (?) id FROM (" +
+                     "SELECT id FROM Pedido WHERE rv >= " + RV + " " +
+                     "UNION SELECT p.id FROM Pedido p JOIN Envio e ON e.id = p.id_envio WHERE e.rv >= " + RV + " " +
+                     "UNION SELECT id FROM PedidoArchivo WHERE fechaArchivo >= ?) c";
+        return ids(sql, marca, limite, conn);
+    }
+
+    @Override
+    public Set<Integer> enviosCambiadosDesde(MarcaCambios marca, int limite, Connection conn) throws SQLException {
+        String sql = "SELECT TOP (?) id FROM (" +
+                     "SELECT id FROM Envio WHERE rv >= " + RV + " " +
+                     "UNION SELECT id_envio FROM Pedido WHERE rv >= " + RV + " AND id_envio IS NOT NULL " +
+                     "UNION SELECT id FROM EnvioArchivo WHERE fechaArchivo >= ?) c";
+        return ids(sql, marca, limite, conn);
+    }
+
+    private static Set<Integer> ids(String sql, MarcaCambios marca, int limite, Connection conn) throws SQLException {
+        Set<Integer> ids = new HashSet<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, limite + 1);
+            ps.setLong(2, marca.rowversion());
+            ps.setLong(3, marca.rowversion());
+            ps.setTimestamp(4, Timestamp.valueOf(marca.fechaUtc()));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) ids.add(rs.getInt(1));
+            }
+        }
+        return ids;
+    }
+}
@@ -1,43 +1,40 @@
 package dao.impl;
 
+import config.TransactionHooks;
 import dao.EnvioDAO;
+import dao.EnvioSeguimiento;
+import dao.TrackingEnvio;
+import dao.impl.Mapeadores.EnvioMapeador;
 import entities.Envio;
 
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 public class EnvioDAOImpl implements EnvioDAO {
 
+    private static final int MAX_PARAMETROS_SENTENCIA = 2000; // SQL Server: 2100 como máximo
+
+    // Envios vivos con su Pedido vivo (si tiene): base de buscarPorTracking y listarTrackingsStream
+    private static final String SQL_TRACKINGS =
+        "SELECT e.tracking, e.id, p.id AS id_pedido, e.estado FROM Envio e " +
+        "LEFT JOIN Pedido p ON p.id_envio = e.id AND p.eliminado = 0 " +
+        "WHERE e.eliminado = 0";
+
     @Override
     public Integer crear(Envio envio, Connection conn) throws SQLException {
         // NO seteamos "eliminado" acá: en SQL Server tiene DEFAULT 0
         String sql = "INSERT INTO Envio (tracking, empresa, tipo, costo, fechaDespacho, fechaEstimada, estado) " +
                      "VALUES (?, ?, ?, ?, ?, ?, ?)";
         try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            ps.setString(1, envio.getTracking());
-            ps.setString(2, envio.getEmpresa());
-            ps.setString(3, envio.getTipo());
-
-            if (envio.getCosto() == null) {
-                ps.setNull(4, Types.DECIMAL);
-            } else {
-                ps.setDouble(4, envio.getCosto());
-            }
-
-            if (envio.getFechaDespacho() == null) {
-                ps.setNull(5, Types.DATE);
-            } else {
-                ps.setDate(5, Date.valueOf(envio.getFechaDespacho()));
-            }
-
-            if (envio.getFechaEstimada() == null) {
-                ps.setNull(6, Types.DATE);
-            } else {
-                ps.setDate(6, Date.valueOf(envio.getFechaEstimada()));
-            }
-
-            ps.setString(7, envio.getEstado());
+            setParametros(ps, envio);
 
             int filas = ps.executeUpdate();
             if (filas == 0) return null;
@@ -46,6 +43,8 @@ public class EnvioDAOImpl implements EnvioDAO {
                 if (rs.next()) {
                     int id = rs.getInt(1);
                     envio.setId((long) id);
+                    envio.setVersion(0);
+                    envio.limpiarCambios();
                     return id;
                 }
             }
@@ -53,108 +52,394 @@ public class EnvioDAOImpl implements EnvioDAO {
         return null;
     }
 
+    @Override
+    public void crearEnLote(List<Envio> envios, Connection conn) throws SQLException {
+        if (envios.isEmpty()) return;
+        // Sin tracking no hay cómo resolver el ID si el driver no devuelve una clave por fila (SQL Server
+        // devuelve una por lote): esos van de a uno, antes del lote, en lugar de insertar filas a revertir
+        List<Envio> lote = new ArrayList<>(envios.size());
+        for (Envio envio : envios) {
+            if (envio.getTracking() != null) lote.add(envio);
+            else if (crear(envio, conn) == null) throw new SQLException("No se pudo crear Envio");
+        }
+        if (lote.isEmpty()) return;
+
+        String sql = "INSERT INTO Envio (tracking, empresa, tipo, costo, fechaDespacho, fechaEstimada, estado) " +
+                     "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            for (Envio envio : lote) {
+                setParametros(ps, envio);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            if (asignarClavesGeneradas(ps, lote)) return;
+        }
+        // El driver no devolvió una clave por fila: se resuelven por tracking (UNIQUE)
+        resolverIdsPorTracking(lote, conn);
+    }
+
+    @Override
+    public void crearMultifila(List<Envio> envios, Connection conn) throws SQLException {
+        if (envios.isEmpty()) return;
+        Envio.Campo[] campos = Envio.Campo.values();
+        int filasPorSentencia = MAX_PARAMETROS_SENTENCIA / campos.length;
+
+        StringBuilder columnas = new StringBuilder();
+        StringBuilder fila = new StringBuilder("(");
+        for (int c = 0; c < campos.length; c++) {
+            columnas.append(c == 0 ? "" : ", ").append(columna(campos[c]));
+            fila.append(c == 0 ? "?" : ", ?");
+        }
+        fila.append(")");
+
+        // OUTPUT no garantiza el orden de VALUES: los IDs se asignan por tracking (UNIQUE)
+        Map<String, Envio> porTracking = new HashMap<>();
+        for (Envio envio : envios) {
+            if (envio.getTracking() == null)
+                throw new SQLException("No se puede recuperar el ID de un Envio sin tracking en un INSERT multifila");
+            porTracking.put(envio.getTracking(), envio);
+        }
+
+        for (int desde = 0; desde < envios.size(); desde += filasPorSentencia) {
+            List<Envio> tramo = envios.subList(desde, Math.min(envios.size(), desde + filasPorSentencia));
+            StringBuilder sql = new StringBuilder("INSERT INTO Envio (").append(columnas)
+                .append(") OUTPUT INSERTED.id, INSERTED.tracking VALUES ");
+            for (int i = 0; i < tramo.size(); i++) sql.append(i == 0 ? "" : ", ").append(fila);
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                // Un tramo incompleto es SQL de un solo uso: no ocupa lugar en la caché de sentencias
+                if (tramo.size() < filasPorSentencia) ps.setPoolable(false);
+                int i = 1;
+                for (Envio envio : tramo) {
+                    for (Envio.Campo campo : campos) setCampo(ps, i++, envio, campo);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        Envio envio = porTracking.get(rs.getString(2));
+                        if (envio != null) {
+                            envio.setId(rs.getLong(1));
+                            envio.setVersion(0);
+                            envio.limpiarCambios();
+                        }
+                    }
+                }
+            }
+        }
+        for (Envio envio : envios) {
+            if (envio.getId() == null) throw new SQLException("No se obtuvo ID para el Envio " + envio.getTracking());
+        }
+    }
+
+    private boolean asignarClavesGeneradas(PreparedStatement ps, List<Envio> envios) {
+        List<Long> ids = new ArrayList<>(envios.size());
+        try (ResultSet rs = ps.getGeneratedKeys()) {
+            while (rs.next()) ids.add(rs.getLong(1));
+        } catch (SQLException e) {
+            return false;
+        }
+        if (ids.size() != envios.size()) return false;
+        for (int i = 0; i < envios.size(); i++) {
+            envios.get(i).setId(ids.get(i));
+            envios.get(i).setVersion(0);
+            envios.get(i).limpiarCambios();
+        }
+        return true;
+    }
+
+    // Todos con tracking (crearEnLote deja afuera los que no tienen)
+    private void resolverIdsPorTracking(List<Envio> envios, Connection conn) throws SQLException {
+        Map<String, Envio> porTracking = new HashMap<>();
+        for (Envio envio : envios) porTracking.put(envio.getTracking(), envio);
+        // SQL Server admite hasta 2100 parámetros por sentencia
+        for (int desde = 0; desde < envios.size(); desde += ListasIn.MAXIMO) {
+            List<Envio> tramo = envios.subList(desde, Math.min(envios.size(), desde + ListasIn.MAXIMO));
+            StringBuilder sql = new StringBuilder("SELECT id, tracking FROM Envio WHERE tracking IN (");
+            int tamanio = ListasIn.tamanio(tramo.size());
+            ListasIn.marcadores(sql, tamanio);
+            sql.append(")");
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                for (int i = 0; i < tamanio; i++) ps.setString(i + 1, ListasIn.valor(tramo, i).getTracking());
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        Envio envio = porTracking.get(rs.getString("tracking"));
+                        if (envio != null) {
+                            envio.setId(rs.getLong("id"));
+                            envio.setVersion(0);
+                            envio.limpiarCambios();
+                        }
+                    }
+                }
+            }
+        }
+        for (Envio envio : envios) {
+            if (envio.getId() == null) throw new SQLException("No se obtuvo ID para el Envio " + envio.getTracking());
+        }
+    }
+
+    // Parámetros 1..7 del INSERT (mismo orden que Envio.Campo)
+    private void setParametros(PreparedStatement ps, Envio envio) throws SQLException {
+        for (Envio.Campo campo : Envio.Campo.values()) setCampo(ps, campo.ordinal() + 1, envio, campo);
+    }
+
+    private static String columna(Envio.Campo campo) {
+        switch (campo) {
+            case TRACKING: return "tracking";
+            case EMPRESA: return "empresa";
+            case TIPO: return "tipo";
+            case COSTO: return "costo";
+            case FECHA_DESPACHO: return "fechaDespacho";
+            case FECHA_ESTIMADA: return "fechaEstimada";
+            default: return "estado";
+        }
+    }
+
+    private static void setCampo(PreparedStatement ps, int i, Envio envio, Envio.Campo campo) throws SQLException {
+        switch (campo) {
+            case TRACKING: ps.setString(i, envio.getTracking()); break;
+            case EMPRESA: ps.setString(i, envio.getEmpresa()); break;
+            case TIPO: ps.setString(i, envio.getTipo()); break;
+            case COSTO:
+                if (envio.getCosto() == null) ps.setNull(i, Types.DECIMAL); else ps.setDouble(i, envio.getCosto());
+                break;
+            case FECHA_DESPACHO:
+                if (envio.getFechaDespacho() == null) ps.setNull(i, Types.DATE);
+                else ps.setDate(i, Date.valueOf(envio.getFechaDespacho()));
+                break;
+            case FECHA_ESTIMADA:
+                if (envio.getFechaEstimada() == null) ps.setNull(i, Types.DATE);
+                else ps.setDate(i, Date.valueOf(envio.getFechaEstimada()));
+                break;
+            case ESTADO: ps.setString(i, envio.getEstado()); break;
+        }
+    }
+
     @Override
     public Envio buscarPorId(int id, Connection conn) throws SQLException {
-        String sql = "SELECT id, eliminado, tracking, empresa, tipo, costo, fechaDespacho, fechaEstimada, estado " +
+        String sql = "SELECT id, eliminado, tracking, empresa, tipo, costo, fechaDespacho, fechaEstimada, estado, version " +
                      "FROM Envio WHERE id = ? AND eliminado = 0";
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
                 if (!rs.next()) return null;
-
-                Envio envio = new Envio();
-                envio.setId(rs.getLong("id"));
-                envio.setEliminado(rs.getBoolean("eliminado"));
-                envio.setTracking(rs.getString("tracking"));
-                envio.setEmpresa(rs.getString("empresa"));
-                envio.setTipo(rs.getString("tipo"));
-
-                double costo = rs.getDouble("costo");
-                if (rs.wasNull()) envio.setCosto(null); else envio.setCosto(costo);
-
-                Date fd = rs.getDate("fechaDespacho");
-                envio.setFechaDespacho(fd != null ? fd.toLocalDate() : null);
-
-                Date fe = rs.getDate("fechaEstimada");
-                envio.setFechaEstimada(fe != null ? fe.toLocalDate() : null);
-
-                envio.setEstado(rs.getString("estado"));
-                return envio;
+                return new EnvioMapeador("").mapear(rs);
             }
         }
     }
 
     @Override
     public List<Envio> listarTodos(Connection conn) throws SQLException {
-        String sql = "SELECT id, eliminado, tracking, empresa, tipo, costo, fechaDespacho, fechaEstimada, estado " +
+        String sql = "SELECT id, eliminado, tracking, empresa, tipo, costo, fechaDespacho, fechaEstimada, estado, version " +
                      "FROM Envio WHERE eliminado = 0 ORDER BY id";
         List<Envio> lista = new ArrayList<>();
+        EnvioMapeador mapeador = new EnvioMapeador("");
         try (PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
             while (rs.next()) {
-                Envio envio = new Envio();
-                envio.setId(rs.getLong("id"));
-                envio.setEliminado(rs.getBoolean("eliminado"));
-                envio.setTracking(rs.getString("tracking"));
-                envio.setEmpresa(rs.getString("empresa"));
-                envio.setTipo(rs.getString("tipo"));
+                lista.add(mapeador.mapear(rs));
+            }
+        }
+        return lista;
+    }
 
-                double costo = rs.getDouble("costo");
-                if (rs.wasNull()) envio.setCosto(null); else envio.setCosto(costo);
+    @Override
+    public List<Envio> listarPagina(long despuesDeId, int tamanio, Connection conn) throws SQLException {
+        String sql = "SELECT TOP (?) id, eliminado, tracking, empresa, tipo, costo, fechaDespacho, fechaEstimada, estado, version " +
+                     "FROM Envio WHERE eliminado = 0 AND id > ? ORDER BY id";
+        List<Envio> lista = new ArrayList<>(tamanio);
+        EnvioMapeador mapeador = new EnvioMapeador("");
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, tamanio);
+            ps.setLong(2, despuesDeId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    lista.add(mapeador.mapear(rs));
+                }
+            }
+        }
+        return lista;
+    }
 
-                Date fd = rs.getDate("fechaDespacho");
-                envio.setFechaDespacho(fd != null ? fd.toLocalDate() : null);
+    @Override
+    public Stream<Envio> listarStream(int fetchSize, Connection conn) throws SQLException {
+        String sql = "SELECT id, eliminado, tracking, empresa, tipo, costo, fechaDespacho, fechaEstimada, estado, version " +
+                     "FROM Envio WHERE eliminado = 0 ORDER BY id";
+        PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        ps.setFetchSize(fetchSize);
+        return JdbcStreams.stream(ps, new EnvioMapeador(""));
+    }
+
+    @Override
+    public boolean actualizar(Envio envio, Connection conn) throws SQLException {
+        // Solo las columnas modificadas
+        EnumSet<Envio.Campo> cambios = envio.getCambios();
+        // Sin versión leída no hay contra qué comparar: gana la última escritura
+        Integer version = envio.getVersion();
+        if (cambios.isEmpty()) return PedidoDAOImpl.verificarVigente("Envio", envio.getId(), version, conn);
 
-                Date fe = rs.getDate("fechaEstimada");
-                envio.setFechaEstimada(fe != null ? fe.toLocalDate() : null);
+        StringBuilder sql = new StringBuilder("UPDATE Envio SET ");
+        for (Envio.Campo campo : cambios) sql.append(columna(campo)).append(" = ?, ");
+        sql.append("version = version + 1 WHERE id = ? AND eliminado = 0");
+        if (version != null) sql.append(" AND version = ?");
 
-                envio.setEstado(rs.getString("estado"));
-                lista.add(envio);
+        try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            int i = 1;
+            for (Envio.Campo campo : cambios) setCampo(ps, i++, envio, campo);
+            ps.setLong(i++, envio.getId());
+            if (version != null) ps.setInt(i, version);
+
+            if (ps.executeUpdate() > 0) {
+                // Recién con el commit (ver PedidoDAOImpl.actualizar)
+                TransactionHooks.alConfirmar(conn, () -> {
+                    if (version != null) envio.setVersion(version + 1);
+                    envio.limpiarCambios(cambios);
+                });
+                return true;
+            }
+        }
+        if (version != null) PedidoDAOImpl.verificarVersion("Envio", envio.getId(), version, conn);
+        return false;
+    }
+
+    @Override
+    public List<EnvioSeguimiento> buscarParaSeguimiento(Collection<String> trackings, Connection conn) throws SQLException {
+        List<String> distintos = new ArrayList<>(new LinkedHashSet<>(trackings));
+        if (distintos.size() > ListasIn.MAXIMO)
+            throw new IllegalArgumentException("Hasta " + ListasIn.MAXIMO + " trackings por llamada");
+        List<EnvioSeguimiento> lista = new ArrayList<>(distintos.size());
+        if (distintos.isEmpty()) return lista;
+
+        // UPDLOCK: nadie cambia estos Envios entre la validación y el UPDATE de la misma transacción
+        StringBuilder sql = new StringBuilder(
+            "SELECT e.id, e.tracking, e.empresa, e.estado, p.id AS id_pedido " +
+            "FROM Envio e WITH (UPDLOCK, ROWLOCK) " +
+            "LEFT JOIN Pedido p ON p.id_envio = e.id AND p.eliminado = 0 " +
+            "WHERE e.eliminado = 0 AND e.tracking IN (");
+        int tamanio = ListasIn.tamanio(distintos.size());
+        ListasIn.marcadores(sql, tamanio);
+        sql.append(")");
+        try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < tamanio; i++) ps.setString(i + 1, ListasIn.valor(distintos, i));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int idPedido = rs.getInt("id_pedido");
+                    Integer pedido = rs.wasNull() ? null : idPedido;
+                    lista.add(new EnvioSeguimiento(rs.getInt("id"), rs.getString("tracking"), rs.getString("empresa"),
+                            rs.getString("estado"), pedido));
+                }
             }
         }
         return lista;
     }
 
     @Override
-    public boolean actualizar(Envio envio, Connection conn) throws SQLException {
-        String sql = "UPDATE Envio SET tracking=?, empresa=?, tipo=?, costo=?, fechaDespacho=?, fechaEstimada=?, estado=? " +
-                     "WHERE id = ? AND eliminado = 0";
+    public TrackingEnvio buscarPorTracking(String tracking, Connection conn) throws SQLException {
+        String sql = SQL_TRACKINGS + " AND e.tracking = ?";
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, envio.getTracking());
-            ps.setString(2, envio.getEmpresa());
-            ps.setString(3, envio.getTipo());
-
-            if (envio.getCosto() == null) {
-                ps.setNull(4, Types.DECIMAL);
-            } else {
-                ps.setDouble(4, envio.getCosto());
+            ps.setString(1, tracking);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? trackingEnvio(rs) : null;
             }
+        }
+    }
 
-            if (envio.getFechaDespacho() == null) {
-                ps.setNull(5, Types.DATE);
-            } else {
-                ps.setDate(5, Date.valueOf(envio.getFechaDespacho()));
+    @Override
+    public List<String> buscarTrackingsExistentes(Collection<String> trackings, Connection conn) throws SQLException {
+        List<String> distintos = new ArrayList<>(new LinkedHashSet<>(trackings));
+        distintos.remove(null);
+        List<String> lista = new ArrayList<>();
+        for (int desde = 0; desde < distintos.size(); desde += ListasIn.MAXIMO) {
+            List<String> tramo = distintos.subList(desde, Math.min(distintos.size(), desde + ListasIn.MAXIMO));
+            // Sin filtrar por eliminado: una baja lógica sin archivar también ocupa su tracking
+            StringBuilder sql = new StringBuilder("SELECT tracking FROM Envio WHERE tracking IN (");
+            int tamanio = ListasIn.tamanio(tramo.size());
+            ListasIn.marcadores(sql, tamanio).append(")");
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                for (int i = 0; i < tamanio; i++) ps.setString(i + 1, ListasIn.valor(tramo, i));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) lista.add(rs.getString(1));
+                }
             }
+        }
+        return lista;
+    }
 
-            if (envio.getFechaEstimada() == null) {
-                ps.setNull(6, Types.DATE);
-            } else {
-                ps.setDate(6, Date.valueOf(envio.getFechaEstimada()));
-            }
+    @Override
+    public Stream<TrackingEnvio> listarTrackingsStream(int fetchSize, Connection conn) throws SQLException {
+        // Sin ORDER BY: el orden no importa y evita ordenar millones de filas
+        PreparedStatement ps = conn.prepareStatement(SQL_TRACKINGS + " AND e.tracking IS NOT NULL",
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        ps.setFetchSize(fetchSize);
+        return JdbcStreams.stream(ps, EnvioDAOImpl::trackingEnvio);
+    }
 
-            ps.setString(7, envio.getEstado());
-            ps.setLong(8, envio.getId());
+    private static TrackingEnvio trackingEnvio(ResultSet rs) throws SQLException {
+        int idPedido = rs.getInt(3);
+        Integer pedido = rs.wasNull() ? null : idPedido;
+        return new TrackingEnvio(rs.getString(1), rs.getInt(2), pedido, rs.getString(4));
+    }
 
-            return ps.executeUpdate() > 0;
+    @Override
+    public int cambiarEstadoEnLote(Collection<Integer> ids, String estado, Connection conn) throws SQLException {
+        List<Integer> distintos = new ArrayList<>(new LinkedHashSet<>(ids));
+        int filas = 0;
+        for (int desde = 0; desde < distintos.size(); desde += ListasIn.MAXIMO) {
+            List<Integer> tramo = distintos.subList(desde, Math.min(distintos.size(), desde + ListasIn.MAXIMO));
+            StringBuilder sql = new StringBuilder(
+                "UPDATE Envio SET estado = ?, version = version + 1 WHERE eliminado = 0 AND id IN (");
+            int tamanio = ListasIn.tamanio(tramo.size());
+            ListasIn.marcadores(sql, tamanio);
+            sql.append(")");
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                ps.setString(1, estado);
+                for (int i = 0; i < tamanio; i++) ps.setInt(i + 2, ListasIn.valor(tramo, i));
+                filas += ps.executeUpdate();
+            }
         }
+        return filas;
     }
 
     @Override
     public boolean eliminarLogico(int id, Connection conn) throws SQLException {
-        String sql = "UPDATE Envio SET eliminado = 1 WHERE id = ? AND eliminado = 0";
+        String sql = "UPDATE Envio SET eliminado = 1, fechaEliminacion = SYSUTCDATETIME() WHERE id = ? AND eliminado = 0";
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, id);
             return ps.executeUpdate() > 0;
         }
     }
+
+    @Override
+    public int eliminarLogicoEnLote(Collection<Integer> ids, Connection conn) throws SQLException {
+        // Un UPDATE por tramo de ids en lugar de uno por fila
+        List<Integer> distintos = new ArrayList<>(new LinkedHashSet<>(ids));
+        int filas = 0;
+        for (int desde = 0; desde < distintos.size(); desde += ListasIn.MAXIMO) {
+            List<Integer> tramo = distintos.subList(desde, Math.min(distintos.size(), desde + ListasIn.MAXIMO));
+            StringBuilder sql = new StringBuilder(
+                "UPDATE Envio SET eliminado = 1, fechaEliminacion = SYSUTCDATETIME() WHERE eliminado = 0 AND id IN (");
+            int tamanio = ListasIn.tamanio(tramo.size());
+            ListasIn.marcadores(sql, tamanio);
+            sql.append(")");
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                for (int i = 0; i < tamanio; i++) ps.setInt(i + 1, ListasIn.valor(tramo, i));
+                filas += ps.executeUpdate();
+            }
+        }
+        return filas;
+    }
+
+    @Override
+    public int archivarEliminados(LocalDateTime limite, int maxFilas, Connection conn) throws SQLException {
+        // Solo envíos que ya no referencia ningún Pedido (la FK impide borrar los demás)
+        String sql =
+            "DELETE TOP (?) e " +
+            "OUTPUT DELETED.id, DELETED.tracking, DELETED.empresa, DELETED.tipo, DELETED.costo, DELETED.fechaDespacho, DELETED.fechaEstimada, DELETED.estado, DELETED.fechaEliminacion " +
+            "INTO EnvioArchivo (id, tracking, empresa, tipo, costo, fechaDespacho, fechaEstimada, estado, fechaEliminacion) " +
+            "FROM Envio e " +
+            "WHERE e.eliminado = 1 AND e.fechaEliminacion < ? " +
+            "AND NOT EXISTS (SELECT 1 FROM Pedido p WHERE p.id_envio = e.id)";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, maxFilas);
+            ps.setTimestamp(2, Timestamp.valueOf(limite));
+            return ps.executeUpdate();
+        }
+    }
 }
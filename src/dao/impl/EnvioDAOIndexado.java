@@ -0,0 +1,177 @@
+package dao.impl;
+
+import cache.TrackingIndex;
+import config.TransactionHooks;
+import dao.EnvioDAO;
+import dao.EnvioSeguimiento;
+import dao.TrackingEnvio;
+import entities.Envio;
+import entities.Pedido;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.stream.Stream;
+
+// EnvioDAO que mantiene al día un cache.TrackingIndex: cada escritura deja su efecto sobre el índice
+// en TransactionHooks y se aplica solo si la transacción se confirma.
+// Los Envios nuevos entran sin Pedido resuelto (el Pedido se inserta después con otro DAO): lo completa
+// pedidosCreados() si el servicio lo llama, y si no la primera búsqueda de su tracking, desde la BD.
+public class EnvioDAOIndexado implements EnvioDAO {
+
+    private final EnvioDAO dao;
+    private final TrackingIndex indice;
+
+    public EnvioDAOIndexado(EnvioDAO dao, TrackingIndex indice) {
+        this.dao = dao;
+        this.indice = indice;
+    }
+
+    // Sin índice, el DAO tal cual
+    public static EnvioDAO envolver(EnvioDAO dao, TrackingIndex indice) {
+        return indice == null ? dao : new EnvioDAOIndexado(dao, indice);
+    }
+
+    // Para los servicios que crean el Pedido después de su Envio (otro DAO): completa en el índice el Pedido
+    // de los Envios recién registrados, en el mismo commit. Sin índice no hace nada.
+    public static void pedidosCreados(TrackingIndex indice, List<Pedido> pedidos, Connection conn) throws SQLException {
+        if (indice == null) return;
+        int[] envios = new int[pedidos.size()];
+        int[] ids = new int[pedidos.size()];
+        int n = 0;
+        for (Pedido a : pedidos) {
+            if (a.getId() == null || a.getEnvio() == null || a.getEnvio().getId() == null) continue;
+            envios[n] = a.getEnvio().getId().intValue();
+            ids[n++] = a.getId().intValue();
+        }
+        if (n == 0) return;
+        int[] idsEnvio = Arrays.copyOf(envios, n);
+        int[] idsPedido = Arrays.copyOf(ids, n);
+        TransactionHooks.alConfirmar(conn, () -> indice.asignarPedidos(idsEnvio, idsPedido));
+    }
+
+    @Override
+    public Integer crear(Envio b, Connection conn) throws SQLException {
+        Integer id = dao.crear(b, conn);
+        if (id != null) registrarAltas(List.of(b), List.of(id), conn);
+        return id;
+    }
+
+    @Override
+    public void crearEnLote(List<Envio> lista, Connection conn) throws SQLException {
+        dao.crearEnLote(lista, conn);
+        registrarAltas(lista, null, conn);
+    }
+
+    @Override
+    public void crearMultifila(List<Envio> lista, Connection conn) throws SQLException {
+        dao.crearMultifila(lista, conn);
+        registrarAltas(lista, null, conn);
+    }
+
+    // Se copian tracking, id y estado: el Envio puede cambiar (o perder el id en un rollback) antes del commit
+    private void registrarAltas(List<Envio> lista, List<Integer> ids, Connection conn) throws SQLException {
+        List<TrackingEnvio> altas = new ArrayList<>(lista.size());
+        for (int i = 0; i < lista.size(); i++) {
+            Envio b = lista.get(i);
+            Long id = ids != null ? Long.valueOf(ids.get(i)) : b.getId();
+            if (id != null) altas.add(new TrackingEnvio(b.getTracking(), id.intValue(), null, b.getEstado()));
+        }
+        if (altas.isEmpty()) return;
+        TransactionHooks.alConfirmar(conn, () -> {
+            for (TrackingEnvio t : altas) indice.registrar(t.tracking(), t.idEnvio(), null, false, t.estado());
+        });
+    }
+
+    @Override
+    public boolean actualizar(Envio b, Connection conn) throws SQLException {
+        EnumSet<Envio.Campo> cambios = b.getCambios(); // actualizar() los limpia al confirmarse
+        boolean ok = dao.actualizar(b, conn);
+        if (ok && b.getId() != null) {
+            List<Integer> id = List.of(b.getId().intValue());
+            if (cambios.contains(Envio.Campo.TRACKING)) {
+                // El índice no guarda el Pedido de cada Envio por id: se vuelve a resolver desde la BD
+                TransactionHooks.alConfirmar(conn, () -> indice.quitar(id));
+            } else if (cambios.contains(Envio.Campo.ESTADO)) {
+                String estado = b.getEstado();
+                TransactionHooks.alConfirmar(conn, () -> indice.cambiarEstado(id, estado));
+            }
+        }
+        return ok;
+    }
+
+    @Override
+    public int cambiarEstadoEnLote(Collection<Integer> ids, String estado, Connection conn) throws SQLException {
+        int filas = dao.cambiarEstadoEnLote(ids, estado, conn);
+        List<Integer> copia = new ArrayList<>(ids);
+        TransactionHooks.alConfirmar(conn, () -> indice.cambiarEstado(copia, estado));
+        return filas;
+    }
+
+    @Override
+    public boolean eliminarLogico(int id, Connection conn) throws SQLException {
+        boolean ok = dao.eliminarLogico(id, conn);
+        if (ok) TransactionHooks.alConfirmar(conn, () -> indice.quitar(List.of(id)));
+        return ok;
+    }
+
+    @Override
+    public int eliminarLogicoEnLote(Collection<Integer> ids, Connection conn) throws SQLException {
+        int filas = dao.eliminarLogicoEnLote(ids, conn);
+        List<Integer> copia = new ArrayList<>(ids);
+        if (filas > 0) TransactionHooks.alConfirmar(conn, () -> indice.quitar(copia));
+        return filas;
+    }
+
+    // Lecturas y archivado (mueve bajas que ya no están en el índice): sin cambios
+
+    @Override
+    public Envio buscarPorId(int id, Connection conn) throws SQLException {
+        return dao.buscarPorId(id, conn);
+    }
+
+    @Override
+    public List<Envio> listarTodos(Connection conn) throws SQLException {
+        return dao.listarTodos(conn);
+    }
+
+    @Override
+    public List<Envio> listarPagina(long despuesDeId, int tamanio, Connection conn) throws SQLException {
+        return dao.listarPagina(despuesDeId, tamanio, conn);
+    }
+
+    @Override
+    public Stream<Envio> listarStream(int fetchSize, Connection conn) throws SQLException {
+        return dao.listarStream(fetchSize, conn);
+    }
+
+    @Override
+    public List<EnvioSeguimiento> buscarParaSeguimiento(Collection<String> trackings, Connection conn) throws SQLException {
+        return dao.buscarParaSeguimiento(trackings, conn);
+    }
+
+    @Override
+    public TrackingEnvio buscarPorTracking(String tracking, Connection conn) throws SQLException {
+        return dao.buscarPorTracking(tracking, conn);
+    }
+
+    @Override
+    public List<String> buscarTrackingsExistentes(Collection<String> trackings, Connection conn) throws SQLException {
+        return dao.buscarTrackingsExistentes(trackings, conn);
+    }
+
+    @Override
+    public Stream<TrackingEnvio> listarTrackingsStream(int fetchSize, Connection conn) throws SQLException {
+        return dao.listarTrackingsStream(fetchSize, conn);
+    }
+
+    @Override
+    public int archivarEliminados(LocalDateTime limite, int maxFilas, Connection conn) throws SQLException {
+        return dao.archivarEliminados(limite, maxFilas, conn);
+    }
+}
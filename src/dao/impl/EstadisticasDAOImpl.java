@@ -0,0 +1,75 @@
+package dao.impl;
+
+import dao.EstadisticaGrupo;
+import dao.EstadisticasDAO;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// NOEXPAND: sin la pista, las ediciones Standard/Express expanden la vista y agregan sobre las tablas base
+public class EstadisticasDAOImpl implements EstadisticasDAO {
+
+    private static final String[] VISTAS = {"dbo.EstadisticaPedidoDia", "dbo.EstadisticaEnvio"};
+
+    @Override
+    public List<EstadisticaGrupo> porEstado(Connection conn) throws SQLException {
+        // Unas pocas filas por día: sumar los días es barato aunque haya millones de pedidos
+        String sql = "SELECT estado, SUM(cantidad) AS cantidad, SUM(montoTotal) AS montoTotal " +
+                     "FROM dbo.EstadisticaPedidoDia WITH (NOEXPAND) " +
+                     "GROUP BY estado ORDER BY estado";
+        List<EstadisticaGrupo> lista = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                lista.add(new EstadisticaGrupo(rs.getString("estado"), null,
+                        rs.getLong("cantidad"), rs.getDouble("montoTotal"), null, null));
+            }
+        }
+        return lista;
+    }
+
+    @Override
+    public List<EstadisticaGrupo> porDia(LocalDate desde, LocalDate hasta, Connection conn) throws SQLException {
+        String sql = "SELECT fecha, estado, cantidad, montoTotal " +
+                     "FROM dbo.EstadisticaPedidoDia WITH (NOEXPAND) " +
+                     "WHERE fecha >= ? AND fecha <= ? ORDER BY fecha, estado";
+        List<EstadisticaGrupo> lista = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setDate(1, Date.valueOf(desde));
+            ps.setDate(2, Date.valueOf(hasta));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    lista.add(new EstadisticaGrupo(rs.getDate("fecha").toLocalDate().toString(), rs.getString("estado"),
+                            rs.getLong("cantidad"), rs.getDouble("montoTotal"), null, null));
+                }
+            }
+        }
+        return lista;
+    }
+
+    @Override
+    public List<EstadisticaGrupo> porEmpresaTipo(Connection conn) throws SQLException {
+        String sql = "SELECT empresa, tipo, cantidad, montoTotal, costoTotal, diasPlazo, conPlazo " +
+                     "FROM dbo.EstadisticaEnvio WITH (NOEXPAND) ORDER BY empresa, tipo";
+        List<EstadisticaGrupo> lista = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                long conPlazo = rs.getLong("conPlazo");
+                Double plazo = conPlazo > 0 ? (double) rs.getLong("diasPlazo") / conPlazo : null;
+                lista.add(new EstadisticaGrupo(rs.getString("empresa"), rs.getString("tipo"),
+                        rs.getLong("cantidad"), rs.getDouble("montoTotal"), rs.getDouble("costoTotal"), plazo));
+            }
+        }
+        return lista;
+    }
+
+    @Override
+    public void reconstruir(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            for (String vista : VISTAS) st.execute("ALTER INDEX ALL ON " + vista + " REBUILD");
+        }
+    }
+}
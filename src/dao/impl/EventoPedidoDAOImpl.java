@@ -0,0 +1,172 @@
+package dao.impl;
+
+import dao.EventoPedido;
+import dao.EventoPedidoDAO;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+public class EventoPedidoDAOImpl implements EventoPedidoDAO {
+
+    private static final int MAX_PARAMETROS_SENTENCIA = 2000; // SQL Server: 2100 como máximo
+    private static final String RECURSO_PUBLICACION = "EventoPedido.publicacion";
+
+    @Override
+    public void registrar(EventoPedido evento, Connection conn) throws SQLException {
+        String sql = "INSERT INTO EventoPedido (idPedido, tipo, datos) VALUES (?, ?, ?)";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, evento.idPedido());
+            ps.setString(2, evento.tipo().name());
+            ps.setString(3, evento.datos());
+            ps.executeUpdate();
+        }
+    }
+
+    @Override
+    public void registrarEnLote(List<EventoPedido> eventos, Connection conn) throws SQLException {
+        // INSERT multifila como crearMultifila: las altas en lote no pagan una sentencia por evento
+        int filasPorSentencia = MAX_PARAMETROS_SENTENCIA / 3;
+        for (int desde = 0; desde < eventos.size(); desde += filasPorSentencia) {
+            List<EventoPedido> tramo = eventos.subList(desde, Math.min(eventos.size(), desde + filasPorSentencia));
+            StringBuilder sql = new StringBuilder("INSERT INTO EventoPedido (idPedido, tipo, datos) VALUES ");
+            for (int i = 0; i < tramo.size(); i++) sql.append(i == 0 ? "(?, ?, ?)" : ", (?, ?, ?)");
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                if (tramo.size() < filasPorSentencia) ps.setPoolable(false);
+                int i = 1;
+                for (EventoPedido evento : tramo) {
+                    ps.setLong(i++, evento.idPedido());
+                    ps.setString(i++, evento.tipo().name());
+                    ps.setString(i++, evento.datos());
+                }
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    @Override
+    public int registrarCambioEstado(Collection<Integer> idsPedido, String estado, String datos, Connection conn) throws SQLException {
+        return registrarPorPedidos("id", idsPedido, EventoPedido.Tipo.ESTADO_CAMBIADO, datos, estado, conn);
+    }
+
+    @Override
+    public int registrarCambioEstadoPorEnvio(Collection<Integer> idsEnvio, String estado, String datos, Connection conn) throws SQLException {
+        return registrarPorPedidos("id_envio", idsEnvio, EventoPedido.Tipo.ESTADO_CAMBIADO, datos, estado, conn);
+    }
+
+    @Override
+    public int registrarBajas(Collection<Integer> idsPedido, Connection conn) throws SQLException {
+        return registrarPorPedidos("id", idsPedido, EventoPedido.Tipo.ELIMINADO, null, null, conn);
+    }
+
+    // INSERT ... SELECT con el mismo filtro que el UPDATE en lote que sigue. UPDLOCK retiene las filas leídas
+    // hasta el commit: nadie las cambia entre el evento y el UPDATE.
+    private int registrarPorPedidos(String columnaId, Collection<Integer> ids, EventoPedido.Tipo tipo, String datos,
+                                    String estadoDistinto, Connection conn) throws SQLException {
+        List<Integer> distintos = new ArrayList<>(new LinkedHashSet<>(ids));
+        int filas = 0;
+        for (int desde = 0; desde < distintos.size(); desde += ListasIn.MAXIMO) {
+            List<Integer> tramo = distintos.subList(desde, Math.min(distintos.size(), desde + ListasIn.MAXIMO));
+            StringBuilder sql = new StringBuilder(
+                "INSERT INTO EventoPedido (idPedido, tipo, datos) " +
+                "SELECT id, ?, ? FROM Pedido WITH (UPDLOCK, ROWLOCK) WHERE eliminado = 0");
+            if (estadoDistinto != null) sql.append(" AND estado <> ?");
+            sql.append(" AND ").append(columnaId).append(" IN (");
+            int tamanio = ListasIn.tamanio(tramo.size());
+            ListasIn.marcadores(sql, tamanio);
+            sql.append(") ORDER BY id");
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                int i = 1;
+                ps.setString(i++, tipo.name());
+                ps.setString(i++, datos);
+                if (estadoDistinto != null) ps.setString(i++, estadoDistinto);
+                for (int j = 0; j < tamanio; j++) ps.setInt(i++, ListasIn.valor(tramo, j));
+                filas += ps.executeUpdate();
+            }
+        }
+        return filas;
+    }
+
+    @Override
+    public boolean tomarTurnoPublicacion(Connection conn) throws SQLException {
+        // Lock de aplicación con dueño la transacción: se libera solo con el commit o el rollback
+        String sql = "DECLARE @r INT; " +
+                     "EXEC @r = sp_getapplock @Resource = ?, @LockMode = 'Exclusive', @LockOwner = 'Transaction', @LockTimeout = 0; " +
+                     "SELECT @r";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, RECURSO_PUBLICACION);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getInt(1) >= 0;
+            }
+        }
+    }
+
+    @Override
+    public List<EventoPedido> pendientes(int maximo, Connection conn) throws SQLException {
+        String sql = "SELECT TOP (?) id, idPedido, tipo, datos, fechaCreacion FROM EventoPedido " +
+                     "WHERE fechaPublicacion IS NULL ORDER BY id";
+        List<EventoPedido> lista = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, maximo);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    lista.add(new EventoPedido(rs.getLong(1), rs.getLong(2), EventoPedido.Tipo.valueOf(rs.getString(3)),
+                            rs.getString(4), rs.getTimestamp(5).toLocalDateTime()));
+                }
+            }
+        }
+        return lista;
+    }
+
+    @Override
+    public int marcarPublicados(Collection<Long> ids, Connection conn) throws SQLException {
+        // Por id y no por rango: un id menor todavía sin commit (o salteado) no se marca sin haberse entregado
+        List<Long> lista = new ArrayList<>(ids);
+        int filas = 0;
+        for (int desde = 0; desde < lista.size(); desde += ListasIn.MAXIMO) {
+            List<Long> tramo = lista.subList(desde, Math.min(lista.size(), desde + ListasIn.MAXIMO));
+            StringBuilder sql = new StringBuilder(
+                "UPDATE EventoPedido SET fechaPublicacion = SYSUTCDATETIME() WHERE fechaPublicacion IS NULL AND id IN (");
+            int tamanio = ListasIn.tamanio(tramo.size());
+            ListasIn.marcadores(sql, tamanio);
+            sql.append(")");
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                for (int i = 0; i < tamanio; i++) ps.setLong(i + 1, ListasIn.valor(tramo, i));
+                filas += ps.executeUpdate();
+            }
+        }
+        return filas;
+    }
+
+    @Override
+    public long contarPendientes(Connection conn) throws SQLException {
+        String sql = "SELECT COUNT_BIG(*) FROM EventoPedido WHERE fechaPublicacion IS NULL";
+        try (PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    @Override
+    public LocalDateTime pendienteMasAntiguo(Connection conn) throws SQLException {
+        // El primero por id es el más antiguo (salvo transacciones largas): no hace falta MIN sobre todo el backlog
+        String sql = "SELECT TOP (1) fechaCreacion FROM EventoPedido WHERE fechaPublicacion IS NULL ORDER BY id";
+        try (PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getTimestamp(1).toLocalDateTime() : null;
+        }
+    }
+
+    @Override
+    public int purgarPublicados(LocalDateTime limite, int maxFilas, Connection conn) throws SQLException {
+        String sql = "DELETE TOP (?) FROM EventoPedido WHERE fechaPublicacion IS NOT NULL AND fechaPublicacion < ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, maxFilas);
+            ps.setTimestamp(2, Timestamp.valueOf(limite));
+            return ps.executeUpdate();
+        }
+    }
+}
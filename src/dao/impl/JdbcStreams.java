@@ -0,0 +1,52 @@
+package dao.impl;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Convierte un PreparedStatement en un Stream perezoso: lee fila por fila del cursor
+// y cierra ResultSet + PreparedStatement al cerrar el Stream.
+final class JdbcStreams {
+
+    @FunctionalInterface
+    interface FilaMapper<T> {
+        T mapear(ResultSet rs) throws SQLException;
+    }
+
+    private JdbcStreams() {}
+
+    static <T> Stream<T> stream(PreparedStatement ps, FilaMapper<T> mapper) throws SQLException {
+        ResultSet rs;
+        try {
+            rs = ps.executeQuery();
+        } catch (SQLException e) {
+            ps.close();
+            throw e;
+        }
+
+        Spliterator<T> filas = new Spliterators.AbstractSpliterator<T>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> accion) {
+                try {
+                    if (!rs.next()) return false;
+                    accion.accept(mapper.mapear(rs));
+                    return true;
+                } catch (SQLException e) {
+                    // Stream no admite excepciones chequeadas: la causa original queda en getCause()
+                    throw new IllegalStateException("Error leyendo fila: " + e.getMessage(), e);
+                }
+            }
+        };
+
+        return StreamSupport.stream(filas, false).onClose(() -> {
+            try { rs.close(); } catch (SQLException ignore) {}
+            try { ps.close(); } catch (SQLException ignore) {}
+        });
+    }
+}
@@ -0,0 +1,33 @@
+package dao.impl;
+
+import java.util.List;
+
+// Listas IN de tamaño fijo, compartidas por los DAOs.
+// Cada tramo se completa hasta el siguiente tamaño de la escala repitiendo su último valor (IN no cambia
+// con duplicados): así hay pocas formas de sentencia por consulta, que la caché de sentencias del pool
+// y los planes de SQL Server reutilizan, en lugar de un texto SQL distinto por cada largo de lista.
+final class ListasIn {
+
+    // Tramo máximo: SQL Server admite hasta 2100 parámetros por sentencia
+    static final int MAXIMO = 1000;
+
+    private static final int[] TAMANIOS = {1, 8, 32, 128, 512, MAXIMO};
+
+    private ListasIn() {}
+
+    // Menor tamaño de la escala que alcanza para n valores (n <= MAXIMO)
+    static int tamanio(int n) {
+        for (int t : TAMANIOS) if (t >= n) return t;
+        throw new IllegalArgumentException("Hasta " + MAXIMO + " valores por IN: " + n);
+    }
+
+    static StringBuilder marcadores(StringBuilder sql, int tamanio) {
+        for (int i = 0; i < tamanio; i++) sql.append(i == 0 ? "?" : ", ?");
+        return sql;
+    }
+
+    // Valor de la posición i del IN completado: pasado el final del tramo se repite el último
+    static <T> T valor(List<T> tramo, int i) {
+        return tramo.get(Math.min(i, tramo.size() - 1));
+    }
+}
@@ -0,0 +1,197 @@
+package dao.impl;
+
+import dao.PedidoResumen;
+import entities.Envio;
+import entities.Pedido;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+// Mapeo ResultSet -> entidad compartido por PedidoDAOImpl y EnvioDAOImpl.
+// Un mapeador se crea por consulta: con la primera fila resuelve el índice de cada columna (findColumn)
+// y desde ahí lee por índice con getters primitivos, usando wasNull() para los nulos.
+final class Mapeadores {
+
+    private Mapeadores() {}
+
+    abstract static class Mapeador<T> implements JdbcStreams.FilaMapper<T> {
+        private ResultSet resuelto;
+
+        @Override
+        public final T mapear(ResultSet rs) throws SQLException {
+            prepararPara(rs);
+            return leer(rs);
+        }
+
+        final void prepararPara(ResultSet rs) throws SQLException {
+            if (rs != resuelto) {
+                resolver(rs);
+                resuelto = rs;
+            }
+        }
+
+        abstract void resolver(ResultSet rs) throws SQLException;
+
+        abstract T leer(ResultSet rs) throws SQLException;
+    }
+
+    // Todas las columnas de Envio. prefijo: "" sobre la tabla Envio, "e_" en el JOIN con Pedido
+    // (id, eliminado, estado y version chocan con las de Pedido)
+    static final class EnvioMapeador extends Mapeador<Envio> {
+        private final String prefijo;
+        private int id, eliminado, tracking, empresa, tipo, costo, fechaDespacho, fechaEstimada, estado, version;
+
+        EnvioMapeador(String prefijo) {
+            this.prefijo = prefijo;
+        }
+
+        @Override
+        void resolver(ResultSet rs) throws SQLException {
+            id = rs.findColumn(prefijo + "id");
+            eliminado = rs.findColumn(prefijo + "eliminado");
+            tracking = rs.findColumn("tracking");
+            empresa = rs.findColumn("empresa");
+            tipo = rs.findColumn("tipo");
+            costo = rs.findColumn("costo");
+            fechaDespacho = rs.findColumn("fechaDespacho");
+            fechaEstimada = rs.findColumn("fechaEstimada");
+            estado = rs.findColumn(prefijo + "estado");
+            version = rs.findColumn(prefijo + "version");
+        }
+
+        // En el LEFT JOIN: null si el Pedido no tiene Envio o está dado de baja
+        Envio leerSiExiste(ResultSet rs) throws SQLException {
+            prepararPara(rs);
+            rs.getLong(id);
+            if (rs.wasNull() || rs.getBoolean(eliminado)) return null;
+            return leer(rs);
+        }
+
+        @Override
+        Envio leer(ResultSet rs) throws SQLException {
+            Envio envio = new Envio();
+            envio.setId(rs.getLong(id));
+            envio.setEliminado(rs.getBoolean(eliminado));
+            envio.setTracking(rs.getString(tracking));
+            envio.setEmpresa(rs.getString(empresa));
+            envio.setTipo(rs.getString(tipo));
+
+            double c = rs.getDouble(costo);
+            envio.setCosto(rs.wasNull() ? null : c);
+            envio.setFechaDespacho(fecha(rs, fechaDespacho));
+            envio.setFechaEstimada(fecha(rs, fechaEstimada));
+
+            envio.setEstado(rs.getString(estado));
+            envio.setVersion(rs.getInt(version));
+            envio.limpiarCambios();
+            return envio;
+        }
+    }
+
+    // Qué se lee del Envio de cada Pedido
+    enum ColumnasEnvio {
+        COMPLETO,   // todas (COLUMNAS_COMPLETO, alias e_*)
+        TRACKING,   // e_id, e_eliminado y tracking (COLUMNAS_LISTA)
+        ID          // solo id_envio, sin JOIN
+    }
+
+    static final class PedidoMapeador extends Mapeador<Pedido> {
+        private final ColumnasEnvio columnasEnvio;
+        private final EnvioMapeador envioMapeador;
+        private int id, eliminado, numero, fecha, clienteNombre, total, estado, version;
+        private int envioId, envioEliminado, tracking;
+
+        PedidoMapeador(ColumnasEnvio columnasEnvio) {
+            this.columnasEnvio = columnasEnvio;
+            this.envioMapeador = columnasEnvio == ColumnasEnvio.COMPLETO ? new EnvioMapeador("e_") : null;
+        }
+
+        @Override
+        void resolver(ResultSet rs) throws SQLException {
+            id = rs.findColumn("id");
+            eliminado = rs.findColumn("eliminado");
+            numero = rs.findColumn("numero");
+            fecha = rs.findColumn("fecha");
+            clienteNombre = rs.findColumn("clienteNombre");
+            total = rs.findColumn("total");
+            estado = rs.findColumn("estado");
+            // Los listados no traen la versión: esas copias no sirven para un UPDATE con control optimista
+            version = columnasEnvio == ColumnasEnvio.COMPLETO ? rs.findColumn("version") : 0;
+            switch (columnasEnvio) {
+                case COMPLETO:
+                    envioMapeador.prepararPara(rs);
+                    break;
+                case TRACKING:
+                    envioId = rs.findColumn("e_id");
+                    envioEliminado = rs.findColumn("e_eliminado");
+                    tracking = rs.findColumn("tracking");
+                    break;
+                case ID:
+                    envioId = rs.findColumn("id_envio");
+                    break;
+            }
+        }
+
+        @Override
+        Pedido leer(ResultSet rs) throws SQLException {
+            Pedido p = new Pedido();
+            p.setId(rs.getLong(id));
+            p.setEliminado(rs.getBoolean(eliminado));
+            p.setNumero(rs.getString(numero));
+            p.setFecha(rs.getDate(fecha).toLocalDate());
+            p.setClienteNombre(rs.getString(clienteNombre));
+            p.setTotal(rs.getDouble(total));
+            p.setEstado(rs.getString(estado));
+            if (version > 0) p.setVersion(rs.getInt(version));
+            p.setEnvio(leerEnvio(rs));
+            p.limpiarCambios();
+            return p;
+        }
+
+        private Envio leerEnvio(ResultSet rs) throws SQLException {
+            if (columnasEnvio == ColumnasEnvio.COMPLETO) return envioMapeador.leerSiExiste(rs);
+
+            long idEnvio = rs.getLong(envioId);
+            if (rs.wasNull()) return null;
+            if (columnasEnvio == ColumnasEnvio.TRACKING && rs.getBoolean(envioEliminado)) return null;
+            Envio envio = new Envio();
+            envio.setId(idEnvio);
+            if (columnasEnvio == ColumnasEnvio.TRACKING) envio.setTracking(rs.getString(tracking));
+            envio.limpiarCambios();
+            return envio;
+        }
+    }
+
+    // Proyección de solo lectura para listados (COLUMNAS_LISTA): sin entidades ni seguimiento de cambios
+    static final class PedidoResumenMapeador extends Mapeador<PedidoResumen> {
+        private int id, numero, fecha, clienteNombre, total, estado, envioEliminado, tracking;
+
+        @Override
+        void resolver(ResultSet rs) throws SQLException {
+            id = rs.findColumn("id");
+            numero = rs.findColumn("numero");
+            fecha = rs.findColumn("fecha");
+            clienteNombre = rs.findColumn("clienteNombre");
+            total = rs.findColumn("total");
+            estado = rs.findColumn("estado");
+            envioEliminado = rs.findColumn("e_eliminado");
+            tracking = rs.findColumn("tracking");
+        }
+
+        @Override
+        PedidoResumen leer(ResultSet rs) throws SQLException {
+            // tracking es null si no hay Envio (LEFT JOIN); el de un Envio dado de baja no se muestra
+            String t = rs.getString(tracking);
+            if (t != null && rs.getBoolean(envioEliminado)) t = null;
+            return new PedidoResumen(rs.getLong(id), rs.getString(numero), rs.getDate(fecha).toLocalDate(),
+                    rs.getString(clienteNombre), rs.getDouble(total), rs.getString(estado), t);
+        }
+    }
+
+    private static LocalDate fecha(ResultSet rs, int indice) throws SQLException {
+        Date d = rs.getDate(indice);
+        return d != null ? d.toLocalDate() : null;
+    }
+}
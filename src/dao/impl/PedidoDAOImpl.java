@@ -1,32 +1,52 @@
 package dao.impl;
 
+import config.TransactionHooks;
+import dao.ConflictoVersionException;
 import dao.PedidoDAO;
-import entities.Envio;
+import dao.PedidoFiltro;
+import dao.PedidoResumen;
+import dao.impl.Mapeadores.ColumnasEnvio;
+import dao.impl.Mapeadores.PedidoMapeador;
+import dao.impl.Mapeadores.PedidoResumenMapeador;
 import entities.Pedido;
 
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 public class PedidoDAOImpl implements PedidoDAO {
 
+    private static final int MAX_PARAMETROS_SENTENCIA = 2000; // SQL Server: 2100 como máximo
+
+    // Columnas + JOIN de las búsquedas puntuales: Pedido con su Envio completo
+    private static final String COLUMNAS_COMPLETO =
+        "p.id, p.eliminado, p.numero, p.fecha, p.clienteNombre, p.total, p.estado, p.id_envio, p.version, " +
+        "       e.id AS e_id, e.eliminado AS e_eliminado, e.tracking, e.empresa, e.tipo, e.costo, " +
+        "       e.fechaDespacho, e.fechaEstimada, e.estado AS e_estado, e.version AS e_version " +
+        "FROM Pedido p " +
+        "LEFT JOIN Envio e ON p.id_envio = e.id ";
+
+    // Columnas + JOIN de los listados: del Envio solo se trae el tracking
+    private static final String COLUMNAS_LISTA =
+        "p.id, p.eliminado, p.numero, p.fecha, p.clienteNombre, p.total, p.estado, p.id_envio, " +
+        "       e.id AS e_id, e.eliminado AS e_eliminado, e.tracking " +
+        "FROM Pedido p " +
+        "LEFT JOIN Envio e ON p.id_envio = e.id ";
+
     @Override
     public Integer crear(Pedido pedido, Connection conn) throws SQLException {
         // Tampoco seteamos "eliminado": usa DEFAULT 0 en SQL Server
         String sql = "INSERT INTO Pedido (numero, fecha, clienteNombre, total, estado, id_envio) " +
                      "VALUES (?, ?, ?, ?, ?, ?)";
         try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            ps.setString(1, pedido.getNumero());
-            ps.setDate(2, Date.valueOf(pedido.getFecha()));
-            ps.setString(3, pedido.getClienteNombre());
-            ps.setDouble(4, pedido.getTotal());
-            ps.setString(5, pedido.getEstado());
-
-            if (pedido.getEnvio() != null && pedido.getEnvio().getId() != null) {
-                ps.setLong(6, pedido.getEnvio().getId());
-            } else {
-                ps.setNull(6, Types.INTEGER);
-            }
+            setParametros(ps, pedido);
 
             int filas = ps.executeUpdate();
             if (filas == 0) return null;
@@ -35,6 +55,8 @@ public class PedidoDAOImpl implements PedidoDAO {
                 if (rs.next()) {
                     int id = rs.getInt(1);
                     pedido.setId((long) id);
+                    pedido.setVersion(0);
+                    pedido.limpiarCambios();
                     return id;
                 }
             }
@@ -42,140 +64,492 @@ public class PedidoDAOImpl implements PedidoDAO {
         return null;
     }
 
+    @Override
+    public void crearEnLote(List<Pedido> pedidos, Connection conn) throws SQLException {
+        if (pedidos.isEmpty()) return;
+        String sql = "INSERT INTO Pedido (numero, fecha, clienteNombre, total, estado, id_envio) " +
+                     "VALUES (?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            for (Pedido pedido : pedidos) {
+                setParametros(ps, pedido);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            if (asignarClavesGeneradas(ps, pedidos)) return;
+        }
+        // El driver no devolvió una clave por fila: se resuelven por numero (UNIQUE)
+        resolverIdsPorNumero(pedidos, conn);
+    }
+
+    @Override
+    public void crearMultifila(List<Pedido> pedidos, Connection conn) throws SQLException {
+        if (pedidos.isEmpty()) return;
+        Pedido.Campo[] campos = Pedido.Campo.values();
+        int filasPorSentencia = MAX_PARAMETROS_SENTENCIA / campos.length;
+
+        StringBuilder columnas = new StringBuilder();
+        StringBuilder fila = new StringBuilder("(");
+        for (int c = 0; c < campos.length; c++) {
+            columnas.append(c == 0 ? "" : ", ").append(columna(campos[c]));
+            fila.append(c == 0 ? "?" : ", ?");
+        }
+        fila.append(")");
+
+        // OUTPUT no garantiza el orden de VALUES: los IDs se asignan por numero (UNIQUE)
+        Map<String, Pedido> porNumero = new HashMap<>();
+        for (Pedido pedido : pedidos) porNumero.put(pedido.getNumero(), pedido);
+
+        for (int desde = 0; desde < pedidos.size(); desde += filasPorSentencia) {
+            List<Pedido> tramo = pedidos.subList(desde, Math.min(pedidos.size(), desde + filasPorSentencia));
+            StringBuilder sql = new StringBuilder("INSERT INTO Pedido (").append(columnas)
+                .append(") OUTPUT INSERTED.id, INSERTED.numero VALUES ");
+            for (int i = 0; i < tramo.size(); i++) sql.append(i == 0 ? "" : ", ").append(fila);
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                // Un tramo incompleto es SQL de un solo uso: no ocupa lugar en la caché de sentencias
+                if (tramo.size() < filasPorSentencia) ps.setPoolable(false);
+                int i = 1;
+                for (Pedido pedido : tramo) {
+                    for (Pedido.Campo campo : campos) setCampo(ps, i++, pedido, campo);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        Pedido pedido = porNumero.get(rs.getString(2));
+                        if (pedido != null) {
+                            pedido.setId(rs.getLong(1));
+                            pedido.setVersion(0);
+                            pedido.limpiarCambios();
+                        }
+                    }
+                }
+            }
+        }
+        for (Pedido pedido : pedidos) {
+            if (pedido.getId() == null) throw new SQLException("No se obtuvo ID para el Pedido " + pedido.getNumero());
+        }
+    }
+
+    private boolean asignarClavesGeneradas(PreparedStatement ps, List<Pedido> pedidos) {
+        List<Long> ids = new ArrayList<>(pedidos.size());
+        try (ResultSet rs = ps.getGeneratedKeys()) {
+            while (rs.next()) ids.add(rs.getLong(1));
+        } catch (SQLException e) {
+            return false;
+        }
+        if (ids.size() != pedidos.size()) return false;
+        for (int i = 0; i < pedidos.size(); i++) {
+            pedidos.get(i).setId(ids.get(i));
+            pedidos.get(i).setVersion(0);
+            pedidos.get(i).limpiarCambios();
+        }
+        return true;
+    }
+
+    private void resolverIdsPorNumero(List<Pedido> pedidos, Connection conn) throws SQLException {
+        Map<String, Pedido> porNumero = new HashMap<>();
+        for (Pedido pedido : pedidos) porNumero.put(pedido.getNumero(), pedido);
+
+        for (int desde = 0; desde < pedidos.size(); desde += ListasIn.MAXIMO) {
+            List<Pedido> tramo = pedidos.subList(desde, Math.min(pedidos.size(), desde + ListasIn.MAXIMO));
+            StringBuilder sql = new StringBuilder("SELECT id, numero FROM Pedido WHERE numero IN (");
+            int tamanio = ListasIn.tamanio(tramo.size());
+            ListasIn.marcadores(sql, tamanio);
+            sql.append(")");
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                for (int i = 0; i < tamanio; i++) ps.setString(i + 1, ListasIn.valor(tramo, i).getNumero());
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        Pedido pedido = porNumero.get(rs.getString("numero"));
+                        if (pedido != null) {
+                            pedido.setId(rs.getLong("id"));
+                            pedido.setVersion(0);
+                            pedido.limpiarCambios();
+                        }
+                    }
+                }
+            }
+        }
+        for (Pedido pedido : pedidos) {
+            if (pedido.getId() == null) throw new SQLException("No se obtuvo ID para el Pedido " + pedido.getNumero());
+        }
+    }
+
+    // Parámetros 1..6 del INSERT (mismo orden que Pedido.Campo)
+    private void setParametros(PreparedStatement ps, Pedido pedido) throws SQLException {
+        for (Pedido.Campo campo : Pedido.Campo.values()) setCampo(ps, campo.ordinal() + 1, pedido, campo);
+    }
+
+    private static String columna(Pedido.Campo campo) {
+        switch (campo) {
+            case NUMERO: return "numero";
+            case FECHA: return "fecha";
+            case CLIENTE_NOMBRE: return "clienteNombre";
+            case TOTAL: return "total";
+            case ESTADO: return "estado";
+            default: return "id_envio";
+        }
+    }
+
+    private static void setCampo(PreparedStatement ps, int i, Pedido pedido, Pedido.Campo campo) throws SQLException {
+        switch (campo) {
+            case NUMERO: ps.setString(i, pedido.getNumero()); break;
+            case FECHA: ps.setDate(i, Date.valueOf(pedido.getFecha())); break;
+            case CLIENTE_NOMBRE: ps.setString(i, pedido.getClienteNombre()); break;
+            case TOTAL: ps.setDouble(i, pedido.getTotal()); break;
+            case ESTADO: ps.setString(i, pedido.getEstado()); break;
+            case ENVIO:
+                if (pedido.getEnvio() != null && pedido.getEnvio().getId() != null) {
+                    ps.setLong(i, pedido.getEnvio().getId());
+                } else {
+                    ps.setNull(i, Types.INTEGER);
+                }
+                break;
+        }
+    }
+
     @Override
     public Pedido buscarPorId(int id, Connection conn) throws SQLException {
-        String sql =
-            "SELECT p.id, p.eliminado, p.numero, p.fecha, p.clienteNombre, p.total, p.estado, p.id_envio, " +
-            "       e.id AS e_id, e.eliminado AS e_eliminado, e.tracking, e.empresa, e.tipo, e.costo, " +
-            "       e.fechaDespacho, e.fechaEstimada, e.estado AS e_estado " +
-            "FROM Pedido p " +
-            "LEFT JOIN Envio e ON p.id_envio = e.id " +
-            "WHERE p.id = ? AND p.eliminado = 0";
+        String sql = "SELECT " + COLUMNAS_COMPLETO + "WHERE p.id = ? AND p.eliminado = 0";
 
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
                 if (!rs.next()) return null;
+                return new PedidoMapeador(ColumnasEnvio.COMPLETO).mapear(rs);
+            }
+        }
+    }
 
-                Envio envio = null;
-                Object eIdObj = rs.getObject("e_id");
-                if (eIdObj != null && !rs.getBoolean("e_eliminado")) {
-                    envio = new Envio();
-                    envio.setId(((Number) eIdObj).longValue());
-                    envio.setEliminado(rs.getBoolean("e_eliminado"));
-                    envio.setTracking(rs.getString("tracking"));
-                    envio.setEmpresa(rs.getString("empresa"));
-                    envio.setTipo(rs.getString("tipo"));
-
-                    double costo = rs.getDouble("costo");
-                    if (rs.wasNull()) envio.setCosto(null); else envio.setCosto(costo);
+    @Override
+    public Pedido buscarPorNumero(String numero, Connection conn) throws SQLException {
+        // Un solo viaje: el JOIN con Envio va en la misma sentencia
+        String sql = "SELECT " + COLUMNAS_COMPLETO + "WHERE p.numero = ? AND p.eliminado = 0";
 
-                    Date fd = rs.getDate("fechaDespacho");
-                    envio.setFechaDespacho(fd != null ? fd.toLocalDate() : null);
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, numero);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return null;
+                return new PedidoMapeador(ColumnasEnvio.COMPLETO).mapear(rs);
+            }
+        }
+    }
 
-                    Date fe = rs.getDate("fechaEstimada");
-                    envio.setFechaEstimada(fe != null ? fe.toLocalDate() : null);
+    @Override
+    public List<Pedido> buscarPorNumeros(Collection<String> numeros, Connection conn) throws SQLException {
+        List<String> distintos = new ArrayList<>(new LinkedHashSet<>(numeros));
+        List<Pedido> lista = new ArrayList<>(distintos.size());
+        PedidoMapeador mapeador = new PedidoMapeador(ColumnasEnvio.COMPLETO);
 
-                    envio.setEstado(rs.getString("e_estado"));
-                }
+        for (int desde = 0; desde < distintos.size(); desde += ListasIn.MAXIMO) {
+            List<String> tramo = distintos.subList(desde, Math.min(distintos.size(), desde + ListasIn.MAXIMO));
 
-                Pedido p = new Pedido();
-                p.setId(rs.getLong("id"));
-                p.setEliminado(rs.getBoolean("eliminado"));
-                p.setNumero(rs.getString("numero"));
-                p.setFecha(rs.getDate("fecha").toLocalDate());
-                p.setClienteNombre(rs.getString("clienteNombre"));
-                p.setTotal(rs.getDouble("total"));
-                p.setEstado(rs.getString("estado"));
-                p.setEnvio(envio);
+            // IN de tamaño fijo: pocas formas de sentencia distintas, con sus planes reutilizados
+            int tamanio = ListasIn.tamanio(tramo.size());
+            StringBuilder sql = new StringBuilder("SELECT ").append(COLUMNAS_COMPLETO)
+                    .append("WHERE p.eliminado = 0 AND p.numero IN (");
+            ListasIn.marcadores(sql, tamanio).append(")");
 
-                return p;
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                for (int i = 0; i < tamanio; i++) ps.setString(i + 1, ListasIn.valor(tramo, i));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        lista.add(mapeador.mapear(rs));
+                    }
+                }
             }
         }
+        return lista;
     }
 
     @Override
     public List<Pedido> listarTodos(Connection conn) throws SQLException {
-        String sql =
-            "SELECT p.id, p.eliminado, p.numero, p.fecha, p.clienteNombre, p.total, p.estado, p.id_envio, " +
-            "       e.id AS e_id, e.eliminado AS e_eliminado, e.tracking " +
-            "FROM Pedido p " +
-            "LEFT JOIN Envio e ON p.id_envio = e.id " +
-            "WHERE p.eliminado = 0 " +
-            "ORDER BY p.id";
+        String sql = "SELECT " + COLUMNAS_LISTA + "WHERE p.eliminado = 0 ORDER BY p.id";
 
         List<Pedido> lista = new ArrayList<>();
+        PedidoMapeador mapeador = new PedidoMapeador(ColumnasEnvio.TRACKING);
         try (PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
             while (rs.next()) {
-                Envio envio = null;
-                Object eIdObj = rs.getObject("e_id");
-                if (eIdObj != null && !rs.getBoolean("e_eliminado")) {
-                    envio = new Envio();
-                    envio.setId(((Number) eIdObj).longValue());
-                    envio.setTracking(rs.getString("tracking"));
+                lista.add(mapeador.mapear(rs));
+            }
+        }
+        return lista;
+    }
+
+    @Override
+    public List<Pedido> listarPagina(long despuesDeId, int tamanio, Connection conn) throws SQLException {
+        // Paginación por clave (keyset): el costo no crece con el número de página
+        String sql = "SELECT TOP (?) " + COLUMNAS_LISTA + "WHERE p.eliminado = 0 AND p.id > ? ORDER BY p.id";
+        List<Pedido> lista = new ArrayList<>(tamanio);
+        PedidoMapeador mapeador = new PedidoMapeador(ColumnasEnvio.TRACKING);
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, tamanio);
+            ps.setLong(2, despuesDeId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    lista.add(mapeador.mapear(rs));
+                }
+            }
+        }
+        return lista;
+    }
+
+    @Override
+    public Stream<Pedido> listarStream(int fetchSize, Connection conn) throws SQLException {
+        String sql = "SELECT " + COLUMNAS_LISTA + "WHERE p.eliminado = 0 ORDER BY p.id";
+        PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        ps.setFetchSize(fetchSize);
+        return JdbcStreams.stream(ps, new PedidoMapeador(ColumnasEnvio.TRACKING));
+    }
+
+    @Override
+    public Stream<Pedido> listarCompletoStream(long despuesDeId, int fetchSize, Connection conn) throws SQLException {
+        String sql = "SELECT " + COLUMNAS_COMPLETO + "WHERE p.eliminado = 0 AND p.id > ? ORDER BY p.id";
+        PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        ps.setFetchSize(fetchSize);
+        ps.setLong(1, despuesDeId);
+        return JdbcStreams.stream(ps, new PedidoMapeador(ColumnasEnvio.COMPLETO));
+    }
+
+    @Override
+    public List<PedidoResumen> listarResumenPagina(long despuesDeId, int tamanio, Connection conn) throws SQLException {
+        String sql = "SELECT TOP (?) " + COLUMNAS_LISTA + "WHERE p.eliminado = 0 AND p.id > ? ORDER BY p.id";
+        List<PedidoResumen> lista = new ArrayList<>(tamanio);
+        PedidoResumenMapeador mapeador = new PedidoResumenMapeador();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, tamanio);
+            ps.setLong(2, despuesDeId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    lista.add(mapeador.mapear(rs));
                 }
+            }
+        }
+        return lista;
+    }
 
-                Pedido p = new Pedido();
-                p.setId(rs.getLong("id"));
-                p.setEliminado(rs.getBoolean("eliminado"));
-                p.setNumero(rs.getString("numero"));
-                p.setFecha(rs.getDate("fecha").toLocalDate());
-                p.setClienteNombre(rs.getString("clienteNombre"));
-                p.setTotal(rs.getDouble("total"));
-                p.setEstado(rs.getString("estado"));
-                p.setEnvio(envio);
+    @Override
+    public Stream<PedidoResumen> listarResumenStream(int fetchSize, Connection conn) throws SQLException {
+        String sql = "SELECT " + COLUMNAS_LISTA + "WHERE p.eliminado = 0 ORDER BY p.id";
+        PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        ps.setFetchSize(fetchSize);
+        return JdbcStreams.stream(ps, new PedidoResumenMapeador());
+    }
 
-                lista.add(p);
+    @Override
+    public List<Pedido> buscar(PedidoFiltro filtro, Connection conn) throws SQLException {
+        // El SQL depende solo de QUÉ filtros vienen (nunca de sus valores): hay pocas formas
+        // distintas de sentencia y SQL Server reutiliza el plan de cada una.
+        StringBuilder sql = new StringBuilder();
+        List<Object> params = new ArrayList<>();
+
+        if (filtro.usaEnvio()) {
+            // Con filtro por Envio hace falta el JOIN; INNER porque el Envio debe existir y coincidir
+            sql.append("SELECT p.id, p.eliminado, p.numero, p.fecha, p.clienteNombre, p.total, p.estado, p.id_envio, ")
+               .append("       e.id AS e_id, e.eliminado AS e_eliminado, e.tracking ")
+               .append("FROM Pedido p JOIN Envio e ON p.id_envio = e.id AND e.eliminado = 0 ");
+        } else {
+            sql.append("SELECT p.id, p.eliminado, p.numero, p.fecha, p.clienteNombre, p.total, p.estado, p.id_envio ")
+               .append("FROM Pedido p ");
+        }
+        sql.append("WHERE p.eliminado = 0");
+
+        if (filtro.getEstado() != null) { sql.append(" AND p.estado = ?"); params.add(filtro.getEstado()); }
+        if (filtro.getFechaDesde() != null) { sql.append(" AND p.fecha >= ?"); params.add(Date.valueOf(filtro.getFechaDesde())); }
+        if (filtro.getFechaHasta() != null) { sql.append(" AND p.fecha <= ?"); params.add(Date.valueOf(filtro.getFechaHasta())); }
+        if (filtro.getClientePrefijo() != null) {
+            sql.append(" AND p.clienteNombre LIKE ? ESCAPE '\\'");
+            params.add(escaparLike(filtro.getClientePrefijo()) + "%");
+        }
+        if (filtro.getTotalMin() != null) { sql.append(" AND p.total >= ?"); params.add(filtro.getTotalMin()); }
+        if (filtro.getTotalMax() != null) { sql.append(" AND p.total <= ?"); params.add(filtro.getTotalMax()); }
+        if (filtro.getEnvioEmpresa() != null) { sql.append(" AND e.empresa = ?"); params.add(filtro.getEnvioEmpresa()); }
+        if (filtro.getEnvioEstado() != null) { sql.append(" AND e.estado = ?"); params.add(filtro.getEnvioEstado()); }
+
+        // Columna de orden por lista blanca (enum) + p.id para que la paginación sea estable
+        PedidoFiltro.Orden orden = filtro.getOrden() != null ? filtro.getOrden() : PedidoFiltro.Orden.ID;
+        String dir = filtro.isDescendente() ? " DESC" : "";
+        sql.append(" ORDER BY ").append(orden.getColumna()).append(dir);
+        if (orden != PedidoFiltro.Orden.ID) sql.append(", p.id").append(dir);
+        sql.append(" OFFSET ? ROWS FETCH NEXT ? ROWS ONLY");
+        params.add(Math.max(0, filtro.getPagina()) * filtro.getTamanioPagina());
+        params.add(filtro.getTamanioPagina());
+
+        List<Pedido> lista = new ArrayList<>(filtro.getTamanioPagina());
+        PedidoMapeador mapeador = new PedidoMapeador(filtro.usaEnvio() ? ColumnasEnvio.TRACKING : ColumnasEnvio.ID);
+        try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                Object v = params.get(i);
+                if (v instanceof String) ps.setString(i + 1, (String) v);
+                else if (v instanceof Date) ps.setDate(i + 1, (Date) v);
+                else if (v instanceof Double) ps.setDouble(i + 1, (Double) v);
+                else ps.setInt(i + 1, (Integer) v);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    lista.add(mapeador.mapear(rs));
+                }
             }
         }
         return lista;
     }
 
+    private static String escaparLike(String texto) {
+        return texto.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_").replace("[", "\\[");
+    }
+
     @Override
     public boolean actualizar(Pedido pedido, Connection conn) throws SQLException {
-        String sql =
-            "UPDATE Pedido SET numero=?, fecha=?, clienteNombre=?, total=?, estado=?, id_envio=? " +
-            "WHERE id = ? AND eliminado = 0";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, pedido.getNumero());
-            ps.setDate(2, Date.valueOf(pedido.getFecha()));
-            ps.setString(3, pedido.getClienteNombre());
-            ps.setDouble(4, pedido.getTotal());
-            ps.setString(5, pedido.getEstado());
+        // Solo las columnas modificadas: menos log y no se tocan los índices UNIQUE (numero, id_envio) sin necesidad
+        EnumSet<Pedido.Campo> cambios = pedido.getCambios();
+        // Sin versión leída no hay contra qué comparar: gana la última escritura
+        Integer version = pedido.getVersion();
+        if (cambios.isEmpty()) return verificarVigente("Pedido", pedido.getId(), version, conn);
 
-            if (pedido.getEnvio() != null && pedido.getEnvio().getId() != null) {
-                ps.setLong(6, pedido.getEnvio().getId());
-            } else {
-                ps.setNull(6, Types.INTEGER);
+        StringBuilder sql = new StringBuilder("UPDATE Pedido SET ");
+        for (Pedido.Campo campo : cambios) sql.append(columna(campo)).append(" = ?, ");
+        sql.append("version = version + 1 WHERE id = ? AND eliminado = 0");
+        if (version != null) sql.append(" AND version = ?");
+
+        try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            int i = 1;
+            for (Pedido.Campo campo : cambios) setCampo(ps, i++, pedido, campo);
+            ps.setLong(i++, pedido.getId());
+            if (version != null) ps.setInt(i, version);
+            if (ps.executeUpdate() > 0) {
+                // Recién con el commit: si la transacción se revierte, el Pedido conserva versión y cambios para reintentar
+                TransactionHooks.alConfirmar(conn, () -> {
+                    if (version != null) pedido.setVersion(version + 1);
+                    pedido.limpiarCambios(cambios);
+                });
+                return true;
             }
+        }
+        if (version != null) verificarVersion("Pedido", pedido.getId(), version, conn);
+        return false;
+    }
 
-            ps.setLong(7, pedido.getId());
+    @Override
+    public boolean cambiarEstado(int id, String estado, Connection conn) throws SQLException {
+        // Como en cambiarEstadoEnLote: repetir el estado no es un cambio (ni versión nueva ni evento)
+        String sql = "UPDATE Pedido SET estado = ?, version = version + 1 WHERE id = ? AND eliminado = 0 AND estado <> ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, estado);
+            ps.setInt(2, id);
+            ps.setString(3, estado);
             return ps.executeUpdate() > 0;
         }
     }
 
+    @Override
+    public int cambiarEstadoEnLote(Collection<Integer> ids, String estado, Connection conn) throws SQLException {
+        // Un UPDATE por tramo de ids; las filas que ya tienen ese estado no se reescriben
+        List<Integer> distintos = new ArrayList<>(new LinkedHashSet<>(ids));
+        int filas = 0;
+        for (int desde = 0; desde < distintos.size(); desde += ListasIn.MAXIMO) {
+            List<Integer> tramo = distintos.subList(desde, Math.min(distintos.size(), desde + ListasIn.MAXIMO));
+            StringBuilder sql = new StringBuilder(
+                "UPDATE Pedido SET estado = ?, version = version + 1 WHERE eliminado = 0 AND estado <> ? AND id IN (");
+            int tamanio = ListasIn.tamanio(tramo.size());
+            ListasIn.marcadores(sql, tamanio);
+            sql.append(")");
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                ps.setString(1, estado);
+                ps.setString(2, estado);
+                for (int i = 0; i < tamanio; i++) ps.setInt(i + 3, ListasIn.valor(tramo, i));
+                filas += ps.executeUpdate();
+            }
+        }
+        return filas;
+    }
+
+    @Override
+    public int cambiarEstadoPorEnvio(Collection<Integer> idsEnvio, String estado, Connection conn) throws SQLException {
+        List<Integer> distintos = new ArrayList<>(new LinkedHashSet<>(idsEnvio));
+        int filas = 0;
+        for (int desde = 0; desde < distintos.size(); desde += ListasIn.MAXIMO) {
+            List<Integer> tramo = distintos.subList(desde, Math.min(distintos.size(), desde + ListasIn.MAXIMO));
+            StringBuilder sql = new StringBuilder(
+                "UPDATE Pedido SET estado = ?, version = version + 1 WHERE eliminado = 0 AND estado <> ? AND id_envio IN (");
+            int tamanio = ListasIn.tamanio(tramo.size());
+            ListasIn.marcadores(sql, tamanio);
+            sql.append(")");
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                ps.setString(1, estado);
+                ps.setString(2, estado);
+                for (int i = 0; i < tamanio; i++) ps.setInt(i + 3, ListasIn.valor(tramo, i));
+                filas += ps.executeUpdate();
+            }
+        }
+        return filas;
+    }
+
+    // UPDATE sin columnas que escribir: la fila tiene que existir viva y, si se leyó la versión, seguir en ella
+    static boolean verificarVigente(String tabla, long id, Integer versionLeida, Connection conn) throws SQLException {
+        String sql = "SELECT version FROM " + tabla + " WHERE id = ? AND eliminado = 0";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return false;
+                if (versionLeida != null && rs.getInt(1) != versionLeida)
+                    throw new ConflictoVersionException(tabla, id, versionLeida, rs.getInt(1));
+                return true;
+            }
+        }
+    }
+
+    // Ninguna fila actualizada: si la fila existe, es porque cambió su versión
+    static void verificarVersion(String tabla, long id, int versionLeida, Connection conn) throws SQLException {
+        String sql = "SELECT version FROM " + tabla + " WHERE id = ? AND eliminado = 0";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) throw new ConflictoVersionException(tabla, id, versionLeida, rs.getInt(1));
+            }
+        }
+    }
+
     @Override
     public boolean eliminarLogico(int id, Connection conn) throws SQLException {
-        String sql = "UPDATE Pedido SET eliminado = 1 WHERE id = ? AND eliminado = 0";
+        String sql = "UPDATE Pedido SET eliminado = 1, fechaEliminacion = SYSUTCDATETIME() WHERE id = ? AND eliminado = 0";
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, id);
             return ps.executeUpdate() > 0;
         }
     }
 
-    // BONUS opcional: buscar por número
-    public Pedido buscarPorNumero(String numero, Connection conn) throws SQLException {
-        String sql = "SELECT id FROM Pedido WHERE numero = ? AND eliminado = 0";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, numero);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    int id = rs.getInt("id");
-                    return buscarPorId(id, conn);
-                }
+    @Override
+    public int eliminarLogicoEnLote(Collection<Integer> ids, Connection conn) throws SQLException {
+        // Un UPDATE por tramo de ids en lugar de uno por fila
+        List<Integer> distintos = new ArrayList<>(new LinkedHashSet<>(ids));
+        int filas = 0;
+        for (int desde = 0; desde < distintos.size(); desde += ListasIn.MAXIMO) {
+            List<Integer> tramo = distintos.subList(desde, Math.min(distintos.size(), desde + ListasIn.MAXIMO));
+            StringBuilder sql = new StringBuilder(
+                "UPDATE Pedido SET eliminado = 1, fechaEliminacion = SYSUTCDATETIME() WHERE eliminado = 0 AND id IN (");
+            int tamanio = ListasIn.tamanio(tramo.size());
+            ListasIn.marcadores(sql, tamanio);
+            sql.append(")");
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                for (int i = 0; i < tamanio; i++) ps.setInt(i + 1, ListasIn.valor(tramo, i));
+                filas += ps.executeUpdate();
             }
         }
-        return null;
+        return filas;
+    }
+
+    @Override
+    public int archivarEliminados(LocalDateTime limite, int maxFilas, Connection conn) throws SQLException {
+        // Una sola sentencia acotada por TOP: mueve y borra en la misma operación atómica,
+        // con locks breves sobre Pedido
+        String sql =
+            "DELETE TOP (?) FROM Pedido " +
+            "OUTPUT DELETED.id, DELETED.numero, DELETED.fecha, DELETED.clienteNombre, DELETED.total, DELETED.estado, DELETED.id_envio, DELETED.fechaEliminacion " +
+            "INTO PedidoArchivo (id, numero, fecha, clienteNombre, total, estado, id_envio, fechaEliminacion) " +
+            "WHERE eliminado = 1 AND fechaEliminacion < ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, maxFilas);
+            ps.setTimestamp(2, Timestamp.valueOf(limite));
+            return ps.executeUpdate();
+        }
     }
 }
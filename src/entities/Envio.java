@@ -1,8 +1,15 @@
 package entities;
 
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Objects;
 
 public class Envio {
+
+    // Campos persistentes que se pueden actualizar (ver getCambios())
+    public enum Campo { TRACKING, EMPRESA, TIPO, COSTO, FECHA_DESPACHO, FECHA_ESTIMADA, ESTADO }
+
     private Long id;
     private boolean eliminado;
     private String tracking; // UNIQUE, máx. 40
@@ -12,6 +19,10 @@ public class Envio {
     private LocalDate fechaDespacho;
     private LocalDate fechaEstimada;
     private String estado;   // EN_PREPARACION | EN_TRANSITO | ENTREGADO
+    private Integer version;   // concurrencia optimista; null = no leído de la BD
+
+    // Campos modificados desde que se leyó/guardó (un Envio armado a mano tiene todos marcados)
+    private final EnumSet<Campo> cambios = EnumSet.allOf(Campo.class);
 
     public Envio() {}
 
@@ -36,25 +47,38 @@ public class Envio {
     public void setEliminado(boolean eliminado) { this.eliminado = eliminado; }
 
     public String getTracking() { return tracking; }
-    public void setTracking(String tracking) { this.tracking = tracking; }
+    public void setTracking(String tracking) { marcar(Campo.TRACKING, this.tracking, tracking); this.tracking = tracking; }
 
     public String getEmpresa() { return empresa; }
-    public void setEmpresa(String empresa) { this.empresa = empresa; }
+    public void setEmpresa(String empresa) { marcar(Campo.EMPRESA, this.empresa, empresa); this.empresa = empresa; }
 
     public String getTipo() { return tipo; }
-    public void setTipo(String tipo) { this.tipo = tipo; }
+    public void setTipo(String tipo) { marcar(Campo.TIPO, this.tipo, tipo); this.tipo = tipo; }
 
     public Double getCosto() { return costo; }
-    public void setCosto(Double costo) { this.costo = costo; }
+    public void setCosto(Double costo) { marcar(Campo.COSTO, this.costo, costo); this.costo = costo; }
 
     public LocalDate getFechaDespacho() { return fechaDespacho; }
-    public void setFechaDespacho(LocalDate fechaDespacho) { this.fechaDespacho = fechaDespacho; }
+    public void setFechaDespacho(LocalDate fechaDespacho) { marcar(Campo.FECHA_DESPACHO, this.fechaDespacho, fechaDespacho); this.fechaDespacho = fechaDespacho; }
 
     public LocalDate getFechaEstimada() { return fechaEstimada; }
-    public void setFechaEstimada(LocalDate fechaEstimada) { this.fechaEstimada = fechaEstimada; }
+    public void setFechaEstimada(LocalDate fechaEstimada) { marcar(Campo.FECHA_ESTIMADA, this.fechaEstimada, fechaEstimada); this.fechaEstimada = fechaEstimada; }
 
     public String getEstado() { return estado; }
-    public void setEstado(String estado) { this.estado = estado; }
+    public void setEstado(String estado) { marcar(Campo.ESTADO, this.estado, estado); this.estado = estado; }
+
+    public Integer getVersion() { return version; }
+    public void setVersion(Integer version) { this.version = version; }
+
+    public EnumSet<Campo> getCambios() { return EnumSet.copyOf(cambios); }
+    public boolean tieneCambios() { return !cambios.isEmpty(); }
+    public void limpiarCambios() { cambios.clear(); }
+    // Solo los que se guardaron: lo que se modificó después sigue pendiente
+    public void limpiarCambios(Collection<Campo> guardados) { cambios.removeAll(guardados); }
+
+    private void marcar(Campo campo, Object anterior, Object nuevo) {
+        if (!Objects.equals(anterior, nuevo)) cambios.add(campo);
+    }
 
     @Override
     public String toString() {
@@ -0,0 +1,25 @@
+package entities;
+
+// Ciclo de vida de un Envio: EN_PREPARACION -> EN_TRANSITO -> ENTREGADO (solo hacia adelante, de a un paso)
+public enum EstadoEnvio {
+    EN_PREPARACION, EN_TRANSITO, ENTREGADO;
+
+    public boolean puedePasarA(EstadoEnvio nuevo) {
+        return nuevo.ordinal() == ordinal() + 1;
+    }
+
+    // El Pedido ya salió del depósito
+    public boolean despachado() {
+        return this != EN_PREPARACION;
+    }
+
+    // null si el texto no es un estado conocido
+    public static EstadoEnvio desde(String texto) {
+        if (texto == null) return null;
+        try {
+            return valueOf(texto.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -1,8 +1,15 @@
 package entities;
 
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Objects;
 
 public class Pedido {
+
+    // Campos persistentes que se pueden actualizar (ver getCambios())
+    public enum Campo { NUMERO, FECHA, CLIENTE_NOMBRE, TOTAL, ESTADO, ENVIO }
+
     private Long id;
     private boolean eliminado;
     private String numero;     // UNIQUE, NOT NULL
@@ -11,6 +18,11 @@ public class Pedido {
     private Double total;      // NOT NULL (12,2)
     private String estado;     // NUEVO | FACTURADO | ENVIADO
     private Envio envio;       // Referencia 1→1 a B
+    private Integer version;   // concurrencia optimista; null = no leído de la BD
+
+    // Campos modificados desde que se leyó/guardó. Un Pedido armado a mano tiene todos marcados,
+    // así actualizar() escribe todo; los DAOs lo limpian al leer o guardar.
+    private final EnumSet<Campo> cambios = EnumSet.allOf(Campo.class);
 
     public Pedido() {}
 
@@ -34,22 +46,39 @@ public class Pedido {
     public void setEliminado(boolean eliminado) { this.eliminado = eliminado; }
 
     public String getNumero() { return numero; }
-    public void setNumero(String numero) { this.numero = numero; }
+    public void setNumero(String numero) { marcar(Campo.NUMERO, this.numero, numero); this.numero = numero; }
 
     public LocalDate getFecha() { return fecha; }
-    public void setFecha(LocalDate fecha) { this.fecha = fecha; }
+    public void setFecha(LocalDate fecha) { marcar(Campo.FECHA, this.fecha, fecha); this.fecha = fecha; }
 
     public String getClienteNombre() { return clienteNombre; }
-    public void setClienteNombre(String clienteNombre) { this.clienteNombre = clienteNombre; }
+    public void setClienteNombre(String clienteNombre) { marcar(Campo.CLIENTE_NOMBRE, this.clienteNombre, clienteNombre); this.clienteNombre = clienteNombre; }
 
     public Double getTotal() { return total; }
-    public void setTotal(Double total) { this.total = total; }
+    public void setTotal(Double total) { marcar(Campo.TOTAL, this.total, total); this.total = total; }
 
     public String getEstado() { return estado; }
-    public void setEstado(String estado) { this.estado = estado; }
+    public void setEstado(String estado) { marcar(Campo.ESTADO, this.estado, estado); this.estado = estado; }
 
     public Envio getEnvio() { return envio; }
-    public void setEnvio(Envio envio) { this.envio = envio; }
+    public void setEnvio(Envio envio) { marcar(Campo.ENVIO, idEnvio(this.envio), idEnvio(envio)); this.envio = envio; }
+
+    public Integer getVersion() { return version; }
+    public void setVersion(Integer version) { this.version = version; }
+
+    public EnumSet<Campo> getCambios() { return EnumSet.copyOf(cambios); }
+    public boolean tieneCambios() { return !cambios.isEmpty(); }
+    public void limpiarCambios() { cambios.clear(); }
+    // Solo los que se guardaron: lo que se modificó después sigue pendiente
+    public void limpiarCambios(Collection<Campo> guardados) { cambios.removeAll(guardados); }
+
+    private void marcar(Campo campo, Object anterior, Object nuevo) {
+        if (!Objects.equals(anterior, nuevo)) cambios.add(campo);
+    }
+
+    private static Long idEnvio(Envio e) {
+        return e != null ? e.getId() : null;
+    }
 
     @Override
     public String toString() {
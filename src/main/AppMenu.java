@@ -1,21 +1,79 @@
 package main;
 
+import cache.PedidoCache;
+import cache.TrackingIndex;
+import config.DataSourceConfig;
+import config.DatabaseConnection;
+import config.SchemaMigrator;
+import dao.PedidoFiltro;
+import dao.PedidoResumen;
+import dao.TrackingEnvio;
 import entities.Envio;
 import entities.Pedido;
+import metrics.Metricas;
+import service.ArchivadorService;
+import service.EnvioService;
+import service.EstadisticasService;
+import service.ExportadorService;
+import service.ImportadorService;
 import service.PedidoService;
+import service.PublicadorEventosService;
+import service.ResultadoExportacion;
+import service.ResultadoImportacion;
+import service.ResultadoSnapshot;
+import service.ResultadoTransiciones;
+import service.SnapshotService;
+import service.impl.ArchivadorServiceImpl;
+import service.impl.DestinoEventosArchivo;
+import service.impl.EnvioServiceImpl;
+import service.impl.EstadisticasServiceImpl;
+import service.impl.ExportadorServiceImpl;
+import service.impl.ImportadorServiceImpl;
 import service.impl.PedidoServiceImpl;
+import service.impl.PublicadorEventosServiceImpl;
+import service.impl.SnapshotServiceImpl;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.InputMismatchException;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class AppMenu {
 
     private static final Scanner sc = new Scanner(System.in);
-    private static final PedidoService service = new PedidoServiceImpl();
+    private static final PedidoCache cache = new PedidoCache();
+    private static final TrackingIndex trackings = new TrackingIndex();
+    private static final PedidoService service = new PedidoServiceImpl(cache, trackings);
+    private static final ArchivadorService archivador = new ArchivadorServiceImpl();
+    private static final EnvioService envioService = new EnvioServiceImpl(cache, trackings);
+    private static final ExportadorService exportador = new ExportadorServiceImpl();
+    private static final ImportadorService importador = new ImportadorServiceImpl(trackings);
+    private static final EstadisticasService estadisticas = new EstadisticasServiceImpl();
+    private static final SnapshotService snapshots = new SnapshotServiceImpl(cache, trackings);
+    private static final AtomicBoolean copiaGuardada = new AtomicBoolean();
+    // Lo muestra la opción 21: el hilo de carga no escribe en la consola mientras el menú espera una opción
+    private static volatile String cargaIndice = "no hizo falta (restaurado completo de la copia)";
+    private static final int TAMANIO_PAGINA = 100;
 
     public static void main(String[] args) {
+        try {
+            SchemaMigrator.migrarAlIniciar();
+        } catch (SQLException e) {
+            System.out.println("❌ Esquema de base de datos inválido: " + e.getMessage());
+            DatabaseConnection.cerrarPool();
+            return;
+        }
+        restaurarCopiaCaches();
+        if (!trackings.isCompleto()) cargarIndiceTrackingEnSegundoPlano();
+        // También si se corta con Ctrl+C; antes de que se cierre el pool, que guardar() necesita
+        DatabaseConnection.alSalir(AppMenu::guardarCopiaCaches);
+
         boolean salir = false;
         while (!salir) {
             try {
@@ -26,6 +84,21 @@ public class AppMenu {
                 System.out.println("4) Actualizar Pedido");
                 System.out.println("5) Eliminar (lógico) Pedido");
                 System.out.println("6) DEMO ROLLBACK (violar UNIQUE de id_envio)");
+                System.out.println("7) Métricas del pool de conexiones");
+                System.out.println("8) Métricas de la caché de pedidos");
+                System.out.println("9) Buscar Pedido por número");
+                System.out.println("10) Eliminar (lógico) varios Pedidos");
+                System.out.println("11) Archivar eliminados antiguos");
+                System.out.println("12) Buscar Pedidos con filtros");
+                System.out.println("13) Métricas de DAOs y transacciones");
+                System.out.println("14) Aplicar archivo de estados de transportista");
+                System.out.println("15) Exportar Pedidos (CSV/JSONL)");
+                System.out.println("16) Importar Pedidos + Envios desde CSV");
+                System.out.println("17) Tablero de estadísticas");
+                System.out.println("18) Reconstruir estadísticas");
+                System.out.println("19) Publicar eventos pendientes a archivo (outbox)");
+                System.out.println("20) Recargar configuración (" + DataSourceConfig.archivo() + ")");
+                System.out.println("21) Buscar Envio por tracking (índice en memoria)");
                 System.out.println("0) Salir");
                 System.out.print("Opción: ");
                 int op = Integer.parseInt(sc.nextLine());
@@ -37,6 +110,24 @@ public class AppMenu {
                     case 4 -> actualizarPedidoUI();
                     case 5 -> eliminarPedidoUI();
                     case 6 -> demoRollbackUI();
+                    case 7 -> {
+                        System.out.println(DatabaseConnection.getPool());
+                        if (DatabaseConnection.getRouter() != null) System.out.println(DatabaseConnection.getRouter());
+                    }
+                    case 8 -> System.out.println(cache);
+                    case 9 -> buscarPedidoPorNumeroUI();
+                    case 10 -> eliminarPedidosEnLoteUI();
+                    case 11 -> archivarEliminadosUI();
+                    case 12 -> buscarPedidosUI();
+                    case 13 -> System.out.println(Metricas.volcar());
+                    case 14 -> aplicarEstadosEnvioUI();
+                    case 15 -> exportarPedidosUI();
+                    case 16 -> importarPedidosUI();
+                    case 17 -> tableroUI();
+                    case 18 -> reconstruirEstadisticasUI();
+                    case 19 -> publicarEventosUI();
+                    case 20 -> System.out.println(DatabaseConnection.recargarConfiguracion());
+                    case 21 -> buscarPorTrackingUI();
                     case 0 -> salir = true;
                     default -> System.out.println("Opción inválida");
                 }
@@ -47,6 +138,7 @@ public class AppMenu {
                 System.out.println("Error: " + e.getMessage());
             }
         }
+        guardarCopiaCaches();
         System.out.println("¡Hasta luego!");
     }
 
@@ -89,12 +181,18 @@ public class AppMenu {
     }
 
     private static void listarPedidosUI() throws Exception {
-        List<Pedido> lista = service.listarPedidos();
-        if (lista.isEmpty()) {
-            System.out.println("(sin pedidos)");
-            return;
+        // Se imprime página por página para no cargar toda la tabla en memoria
+        long ultimoId = 0;
+        boolean vacio = true;
+        while (true) {
+            List<PedidoResumen> pagina = service.listarResumenPagina(ultimoId, TAMANIO_PAGINA);
+            if (pagina.isEmpty()) break;
+            vacio = false;
+            pagina.forEach(System.out::println);
+            ultimoId = pagina.get(pagina.size() - 1).id();
+            if (pagina.size() < TAMANIO_PAGINA) break;
         }
-        lista.forEach(System.out::println);
+        if (vacio) System.out.println("(sin pedidos)");
     }
 
     private static void buscarPedidoUI() throws Exception {
@@ -104,17 +202,50 @@ public class AppMenu {
         System.out.println(p != null ? p : "(no encontrado)");
     }
 
+    private static void buscarPedidoPorNumeroUI() throws Exception {
+        System.out.print("Número de Pedido: ");
+        String numero = sc.nextLine().trim();
+        Pedido p = service.obtenerPedidoPorNumero(numero);
+        System.out.println(p != null ? p : "(no encontrado)");
+    }
+
+    private static void buscarPedidosUI() throws Exception {
+        System.out.println("(dejar vacío para no filtrar)");
+        PedidoFiltro f = new PedidoFiltro();
+        System.out.print("Estado [NUEVO/FACTURADO/ENVIADO]: ");
+        f.setEstado(vacioANull(sc.nextLine().trim().toUpperCase()));
+        System.out.print("Fecha desde (YYYY-MM-DD): ");
+        String fd = sc.nextLine().trim();
+        f.setFechaDesde(fd.isBlank() ? null : LocalDate.parse(fd));
+        System.out.print("Fecha hasta (YYYY-MM-DD): ");
+        String fh = sc.nextLine().trim();
+        f.setFechaHasta(fh.isBlank() ? null : LocalDate.parse(fh));
+        System.out.print("Cliente (comienza con): ");
+        f.setClientePrefijo(vacioANull(sc.nextLine().trim()));
+        System.out.print("Empresa de envío [ANDREANI/OCA/CORREO_ARG]: ");
+        f.setEnvioEmpresa(vacioANull(sc.nextLine().trim().toUpperCase()));
+        f.setOrden(PedidoFiltro.Orden.FECHA);
+        f.setDescendente(true);
+
+        List<Pedido> lista = service.buscarPedidos(f);
+        if (lista.isEmpty()) {
+            System.out.println("(sin resultados)");
+            return;
+        }
+        lista.forEach(System.out::println);
+    }
+
+    private static String vacioANull(String s) {
+        return s.isBlank() ? null : s;
+    }
+
     private static void actualizarPedidoUI() throws Exception {
         System.out.print("ID de Pedido a actualizar: ");
         Long id = Long.parseLong(sc.nextLine().trim());
         System.out.print("Nuevo estado [NUEVO/FACTURADO/ENVIADO]: ");
         String estado = sc.nextLine().trim().toUpperCase();
 
-        Pedido p = service.obtenerPedidoPorId(id.intValue());
-        if (p == null) { System.out.println("(no existe)"); return; }
-        p.setEstado(estado);
-
-        service.actualizarPedido(p);
+        service.cambiarEstado(id.intValue(), estado);
         System.out.println("✓ Actualizado");
     }
 
@@ -125,6 +256,133 @@ public class AppMenu {
         System.out.println("✓ Eliminación lógica realizada");
     }
 
+    private static void eliminarPedidosEnLoteUI() throws Exception {
+        System.out.print("IDs de Pedido separados por coma: ");
+        List<Integer> ids = new ArrayList<>();
+        for (String parte : sc.nextLine().split(",")) {
+            if (!parte.isBlank()) ids.add(Integer.parseInt(parte.trim()));
+        }
+        int filas = service.eliminarPedidosEnLote(ids);
+        System.out.println("✓ Eliminación lógica realizada: " + filas + " pedido(s)");
+    }
+
+    private static void archivarEliminadosUI() throws Exception {
+        System.out.print("Archivar bajas con más de N días (N): ");
+        int dias = Integer.parseInt(sc.nextLine().trim());
+        int filas = archivador.archivarEliminados(dias);
+        System.out.println("✓ Archivadas " + filas + " fila(s)");
+    }
+
+    private static void aplicarEstadosEnvioUI() throws Exception {
+        System.out.print("Archivo (tracking,estado por línea): ");
+        Path archivo = Paths.get(sc.nextLine().trim());
+        System.out.print("Empresa [ANDREANI/OCA/CORREO_ARG] (vacío = no controlar): ");
+        String empresa = vacioANull(sc.nextLine());
+
+        ResultadoTransiciones r = envioService.aplicarArchivo(archivo, empresa);
+        System.out.println("✓ " + r);
+        r.getRechazos().stream().limit(20).forEach(x -> System.out.println("  ✗ " + x));
+        if (r.getRechazos().size() > 20) System.out.println("  ... y " + (r.getRechazos().size() - 20) + " rechazos más");
+    }
+
+    private static void exportarPedidosUI() throws Exception {
+        System.out.print("Archivo destino: ");
+        Path destino = Paths.get(sc.nextLine().trim());
+        System.out.print("Formato [CSV/JSONL]: ");
+        ExportadorService.Formato formato = ExportadorService.Formato.valueOf(sc.nextLine().trim().toUpperCase());
+        System.out.print("¿Comprimir con gzip? (s/n): ");
+        boolean gzip = sc.nextLine().trim().equalsIgnoreCase("s");
+
+        ResultadoExportacion r;
+        if (Files.exists(Paths.get(destino + ".checkpoint"))) {
+            System.out.print("Hay una exportación interrumpida en ese archivo. ¿Reanudarla? (s/n): ");
+            r = sc.nextLine().trim().equalsIgnoreCase("s")
+                ? exportador.reanudar(destino, formato, gzip)
+                : exportador.exportar(destino, formato, gzip, 0);
+        } else {
+            r = exportador.exportar(destino, formato, gzip, 0);
+        }
+        System.out.println("✓ " + r);
+    }
+
+    private static void importarPedidosUI() throws Exception {
+        System.out.print("Archivo CSV (con encabezado): ");
+        Path archivo = Paths.get(sc.nextLine().trim());
+        Path rechazados = Paths.get(archivo + ".rechazados.csv");
+
+        ResultadoImportacion r = importador.importar(archivo, rechazados);
+        System.out.println("✓ " + r);
+        if (r.getRechazadas() > 0) System.out.println("  Filas rechazadas en " + rechazados);
+    }
+
+    private static void tableroUI() throws Exception {
+        System.out.println("\n-- Por estado --");
+        estadisticas.porEstado().forEach(g -> System.out.println("  " + g));
+        System.out.println("-- Por empresa/tipo --");
+        estadisticas.porEmpresaTipo().forEach(g -> System.out.println("  " + g));
+        System.out.println("-- Últimos 7 días --");
+        estadisticas.porDia(LocalDate.now().minusDays(6), LocalDate.now()).forEach(g -> System.out.println("  " + g));
+    }
+
+    private static void reconstruirEstadisticasUI() throws Exception {
+        long inicio = System.currentTimeMillis();
+        estadisticas.reconstruir();
+        System.out.println("✓ Estadísticas reconstruidas en " + (System.currentTimeMillis() - inicio) + " ms");
+    }
+
+    private static void publicarEventosUI() throws Exception {
+        System.out.print("Archivo JSONL destino (se agrega al final): ");
+        Path archivo = Paths.get(sc.nextLine().trim());
+        PublicadorEventosService publicador = new PublicadorEventosServiceImpl(new DestinoEventosArchivo(archivo));
+
+        int eventos = publicador.publicarPendientes();
+        System.out.println("✓ " + eventos + " evento(s) publicados en " + archivo);
+        System.out.println("  " + publicador.estado());
+    }
+
+    // Mientras carga, las búsquedas que el índice todavía no sabe van a la BD
+    private static void cargarIndiceTrackingEnSegundoPlano() {
+        cargaIndice = "en curso";
+        Thread t = new Thread(() -> {
+            try {
+                long inicio = System.nanoTime();
+                long filas = envioService.cargarIndiceTracking();
+                cargaIndice = "terminada, " + filas + " Envios en " + (System.nanoTime() - inicio) / 1_000_000 + " ms";
+            } catch (Exception e) {
+                cargaIndice = "falló (" + e.getMessage() + "); las búsquedas siguen yendo a la BD";
+            }
+        }, "carga-trackings");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private static void restaurarCopiaCaches() {
+        try {
+            ResultadoSnapshot r = snapshots.restaurar();
+            System.out.println((r.isRechazado() ? "Cachés en frío: " : "Cachés restauradas: ") + r);
+        } catch (Exception e) {
+            System.out.println("⚠️ No se pudo restaurar la copia de las cachés: " + e.getMessage());
+        }
+    }
+
+    // Una sola vez: al salir por el menú o en el shutdown hook
+    private static void guardarCopiaCaches() {
+        if (!copiaGuardada.compareAndSet(false, true)) return;
+        try {
+            System.out.println("Copia de las cachés guardada: " + snapshots.guardar());
+        } catch (Exception e) {
+            System.err.println("⚠️ " + e.getMessage());
+        }
+    }
+
+    private static void buscarPorTrackingUI() throws Exception {
+        System.out.print("Tracking: ");
+        TrackingEnvio t = envioService.buscarPorTracking(sc.nextLine());
+        System.out.println(t != null ? t : "No hay un Envio vivo con ese tracking");
+        System.out.println(trackings);
+        System.out.println("Carga del índice: " + cargaIndice);
+    }
+
     // DEMO de rollback: intenta reutilizar el mismo id_envio (violando UNIQUE)
     private static void demoRollbackUI() throws Exception {
         System.out.println("\n** DEMO ROLLBACK **");
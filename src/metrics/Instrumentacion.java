@@ -0,0 +1,65 @@
+package metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+// Envuelve un DAO (por su interfaz) para medir cada método como "<Interfaz>.<metodo>".
+// Las métricas se resuelven al crear el proxy: por llamada solo hay un lookup en un HashMap inmutable,
+// dos System.nanoTime() y contadores sin locks.
+public final class Instrumentacion {
+
+    private Instrumentacion() {}
+
+    @SuppressWarnings("unchecked")
+    public static <T> T envolver(Class<T> interfaz, T destino) {
+        Map<Method, MetricaOperacion> metricas = new HashMap<>();
+        for (Method m : interfaz.getMethods()) {
+            if (m.getDeclaringClass() == Object.class) continue;
+            metricas.put(m, Metricas.operacion(interfaz.getSimpleName() + "." + m.getName()));
+        }
+
+        InvocationHandler handler = (proxy, m, args) -> {
+            MetricaOperacion metrica = metricas.get(m);
+            if (metrica == null) return invocar(destino, m, args); // equals/hashCode/toString
+
+            long inicio = System.nanoTime();
+            boolean error = true;
+            try {
+                Object r = invocar(destino, m, args);
+                error = false;
+                return contarFilas(metrica, m, args, r);
+            } finally {
+                metrica.registrar(System.nanoTime() - inicio, error);
+            }
+        };
+        return (T) Proxy.newProxyInstance(interfaz.getClassLoader(), new Class<?>[]{interfaz}, handler);
+    }
+
+    // Filas devueltas/afectadas según la firma: int = filas afectadas, void = tamaño del lote recibido,
+    // Integer = ID generado (una fila), colecciones por tamaño y Streams a medida que se consumen
+    private static Object contarFilas(MetricaOperacion metrica, Method m, Object[] args, Object r) {
+        Class<?> tipo = m.getReturnType();
+        if (tipo == int.class || tipo == long.class) metrica.sumarFilas(((Number) r).longValue());
+        else if (tipo == void.class && args != null && args.length > 0 && args[0] instanceof Collection)
+            metrica.sumarFilas(((Collection<?>) args[0]).size());
+        else if (r instanceof Collection) metrica.sumarFilas(((Collection<?>) r).size());
+        else if (r instanceof Boolean) metrica.sumarFilas((Boolean) r ? 1 : 0);
+        else if (r instanceof Stream) return ((Stream<?>) r).peek(x -> metrica.sumarFilas(1));
+        else if (r != null) metrica.sumarFilas(1);
+        return r;
+    }
+
+    private static Object invocar(Object destino, Method m, Object[] args) throws Throwable {
+        try {
+            return m.invoke(destino, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package metrics;
+
+import config.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Latencia, cantidad, errores y filas de una operación (un método DAO o una fase de transacción)
+public class MetricaOperacion implements MetricaOperacionMBean {
+
+    private final String nombre;
+    private final LatencyHistogram latencias = new LatencyHistogram();
+    private final LongAdder errores = new LongAdder();
+    private final LongAdder filas = new LongAdder();
+
+    MetricaOperacion(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public void registrar(long nanos, boolean error) {
+        latencias.registrarNanos(nanos);
+        if (error) errores.increment();
+    }
+
+    public void sumarFilas(long n) {
+        if (n > 0) filas.add(n);
+    }
+
+    public String getNombre() { return nombre; }
+
+    public LatencyHistogram getLatencias() { return latencias; }
+
+    @Override public long getCantidad() { return latencias.getCantidad(); }
+    @Override public long getErrores() { return errores.sum(); }
+    @Override public long getFilas() { return filas.sum(); }
+    @Override public double getPromedioMicros() { return latencias.getPromedioMicros(); }
+    @Override public long getP50Micros() { return latencias.percentilMicros(50); }
+    @Override public long getP99Micros() { return latencias.percentilMicros(99); }
+    @Override public long getMaxMicros() { return latencias.getMaxMicros(); }
+
+    @Override
+    public void reiniciar() {
+        latencias.reiniciar();
+        errores.reset();
+        filas.reset();
+    }
+
+    @Override
+    public String toString() {
+        return nombre + ": " + latencias + ", errores=" + getErrores() + ", filas=" + getFilas();
+    }
+}
@@ -0,0 +1,13 @@
+package metrics;
+
+// Vista JMX de una operación instrumentada (tpi:type=Operacion,name=<nombre>)
+public interface MetricaOperacionMBean {
+    long getCantidad();
+    long getErrores();
+    long getFilas();
+    double getPromedioMicros();
+    long getP50Micros();
+    long getP99Micros();
+    long getMaxMicros();
+    void reiniciar();
+}
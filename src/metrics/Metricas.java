@@ -0,0 +1,51 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Registro global de métricas por operación.
+// Cada métrica se publica también como MBean; volcar() da el mismo contenido en texto.
+public final class Metricas {
+
+    public static final String DOMINIO_JMX = "tpi";
+
+    private static final Map<String, MetricaOperacion> OPERACIONES = new ConcurrentHashMap<>();
+
+    private Metricas() {}
+
+    // Pensado para resolverse una vez (en un campo o al crear el proxy), no en cada llamada
+    public static MetricaOperacion operacion(String nombre) {
+        return OPERACIONES.computeIfAbsent(nombre, n -> {
+            MetricaOperacion m = new MetricaOperacion(n);
+            registrarMBean(m);
+            return m;
+        });
+    }
+
+    public static String volcar() {
+        StringBuilder sb = new StringBuilder();
+        for (MetricaOperacion m : new TreeMap<>(OPERACIONES).values()) {
+            if (m.getCantidad() > 0) sb.append(m).append(System.lineSeparator());
+        }
+        return sb.length() == 0 ? "Sin operaciones registradas" : sb.toString().stripTrailing();
+    }
+
+    public static void reiniciar() {
+        OPERACIONES.values().forEach(MetricaOperacion::reiniciar);
+    }
+
+    private static void registrarMBean(MetricaOperacion m) {
+        try {
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            ObjectName nombre = new ObjectName(DOMINIO_JMX + ":type=Operacion,name=" + ObjectName.quote(m.getNombre()));
+            if (!servidor.isRegistered(nombre)) servidor.registerMBean(m, nombre);
+        } catch (JMException | SecurityException ignore) {
+            // Sin JMX las métricas siguen disponibles por volcar()
+        }
+    }
+}
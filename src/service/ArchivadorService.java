@@ -0,0 +1,9 @@
+package service;
+
+// Mueve las bajas lógicas antiguas de Pedido/Envio a PedidoArchivo/EnvioArchivo
+public interface ArchivadorService {
+    // Un barrido completo en tramos acotados; devuelve la cantidad de filas archivadas
+    int archivarEliminados(int diasAntiguedad) throws Exception;
+    void iniciar(int diasAntiguedad, long periodoMs);
+    void detener();
+}
@@ -0,0 +1,20 @@
+package service;
+
+// Una novedad de estado informada por el transportista
+public class CambioEstadoEnvio {
+    private final String tracking;
+    private final String estado;
+
+    public CambioEstadoEnvio(String tracking, String estado) {
+        this.tracking = tracking;
+        this.estado = estado;
+    }
+
+    public String getTracking() { return tracking; }
+    public String getEstado() { return estado; }
+
+    @Override
+    public String toString() {
+        return tracking + " -> " + estado;
+    }
+}
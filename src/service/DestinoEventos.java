@@ -0,0 +1,11 @@
+package service;
+
+import dao.EventoPedido;
+
+import java.util.List;
+
+// Adónde entrega PublicadorEventosService. publicar() recibe un tramo en orden de id y vuelve cuando
+// el tramo quedó entregado; si lanza, el tramo entero se vuelve a entregar más tarde (al menos una vez).
+public interface DestinoEventos {
+    void publicar(List<EventoPedido> eventos) throws Exception;
+}
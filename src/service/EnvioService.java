@@ -0,0 +1,23 @@
+package service;
+
+import dao.TrackingEnvio;
+
+import java.nio.file.Path;
+import java.util.List;
+
+// Cambios de estado de Envio validados con entities.EstadoEnvio.
+// Al despacharse un Envio (EN_TRANSITO o ENTREGADO) su Pedido pasa a ENVIADO en la misma transacción.
+public interface EnvioService {
+    // Un solo cambio; lanza excepción si la transición no es válida
+    void cambiarEstado(String tracking, String estado) throws Exception;
+    // Aplica los cambios en orden, en tramos set-based; las filas inválidas quedan en el resultado
+    ResultadoTransiciones aplicarEstados(List<CambioEstadoEnvio> cambios) throws Exception;
+    // Archivo del transportista: una línea "tracking,estado" (o con ';') por novedad, encabezado opcional.
+    // Si se indica empresa, se rechazan los trackings de otra empresa.
+    ResultadoTransiciones aplicarArchivo(Path archivo, String empresa) throws Exception;
+    // Para los webhooks: resuelve con el índice en memoria (cache.TrackingIndex) y, si no sabe, consulta la BD.
+    // null si no hay un Envio vivo con ese tracking.
+    TrackingEnvio buscarPorTracking(String tracking) throws Exception;
+    // Carga el índice recorriendo por cursor todos los Envios vivos; devuelve las filas leídas
+    long cargarIndiceTracking() throws Exception;
+}
@@ -0,0 +1,17 @@
+package service;
+
+import dao.EstadisticaGrupo;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Tablero de operaciones. Lee agregados mantenidos por la base (vistas indexadas): el costo
+// de cada consulta depende de la cantidad de grupos, no de la cantidad de pedidos.
+public interface EstadisticasService {
+    List<EstadisticaGrupo> porEstado() throws Exception;
+    List<EstadisticaGrupo> porDia(LocalDate desde, LocalDate hasta) throws Exception;
+    // Incluye costo total y plazo promedio de entrega por empresa/tipo
+    List<EstadisticaGrupo> porEmpresaTipo() throws Exception;
+    // Reconstrucción completa desde Pedido/Envio (por ejemplo, después de cargas masivas)
+    void reconstruir() throws Exception;
+}
@@ -0,0 +1,33 @@
+package service;
+
+public class EstadoPublicacion {
+    private final long publicados;       // entregados por este publicador desde que arrancó
+    private final long fallos;           // pasadas que terminaron en error (se reintentan)
+    private final long pendientes;
+    private final long esperaMaximaMs;   // antigüedad del pendiente más viejo; 0 si no hay
+    private final long lagP50Ms;         // de la creación del evento a su entrega
+    private final long lagP99Ms;
+
+    public EstadoPublicacion(long publicados, long fallos, long pendientes, long esperaMaximaMs,
+                             long lagP50Ms, long lagP99Ms) {
+        this.publicados = publicados;
+        this.fallos = fallos;
+        this.pendientes = pendientes;
+        this.esperaMaximaMs = esperaMaximaMs;
+        this.lagP50Ms = lagP50Ms;
+        this.lagP99Ms = lagP99Ms;
+    }
+
+    public long getPublicados() { return publicados; }
+    public long getFallos() { return fallos; }
+    public long getPendientes() { return pendientes; }
+    public long getEsperaMaximaMs() { return esperaMaximaMs; }
+    public long getLagP50Ms() { return lagP50Ms; }
+    public long getLagP99Ms() { return lagP99Ms; }
+
+    @Override
+    public String toString() {
+        return "publicados=" + publicados + ", fallos=" + fallos + ", pendientes=" + pendientes +
+               ", esperaMaxima=" + esperaMaximaMs + " ms, lag p50=" + lagP50Ms + " ms, p99=" + lagP99Ms + " ms";
+    }
+}
@@ -0,0 +1,16 @@
+package service;
+
+import java.nio.file.Path;
+
+// Exportación de todos los Pedidos vivos con su Envio completo, leídos con un cursor forward-only.
+// Mientras exporta deja junto al archivo un punto de control "<archivo>.checkpoint" (último id + bytes escritos);
+// reanudar() recorta el archivo a ese punto y sigue desde ahí. Al terminar bien, el checkpoint se borra.
+public interface ExportadorService {
+
+    enum Formato { CSV, JSONL }
+
+    // Exporta los Pedidos con id > despuesDeId (0 = todos), reemplazando el archivo si existe
+    ResultadoExportacion exportar(Path destino, Formato formato, boolean gzip, long despuesDeId) throws Exception;
+    // Continúa una exportación interrumpida del mismo archivo, formato y compresión
+    ResultadoExportacion reanudar(Path destino, Formato formato, boolean gzip) throws Exception;
+}
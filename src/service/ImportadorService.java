@@ -0,0 +1,14 @@
+package service;
+
+import java.nio.file.Path;
+
+// Alta masiva de Pedido+Envio desde archivos CSV de socios, en etapas:
+// lectura → parseo y validación (varios hilos) → escritura con INSERT multifila (una transacción por lote).
+// Las colas entre etapas son acotadas: si la base no da abasto, el parseo y la lectura esperan.
+// La primera línea es el encabezado; las columnas se reconocen por nombre, en cualquier orden:
+// numero, fecha, clienteNombre, total, estado, tracking, empresa, tipo, costo, fechaDespacho, fechaEstimada, envio_estado
+public interface ImportadorService {
+
+    // Las filas rechazadas se escriben en 'rechazados' (línea, motivo y registro original)
+    ResultadoImportacion importar(Path archivo, Path rechazados) throws Exception;
+}
@@ -1,13 +1,42 @@
 package service;
 
+import dao.PedidoFiltro;
+import dao.PedidoResumen;
 import entities.Envio;
 import entities.Pedido;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public interface PedidoService {
     void crearPedidoCompleto(Pedido a, Envio b) throws Exception;
+    // Cada Pedido trae su Envio en getEnvio()
+    List<ResultadoLote> crearPedidosEnLote(List<Pedido> pedidos) throws Exception;
+    List<ResultadoLote> crearPedidosEnLote(List<Pedido> pedidos, int filasPorCommit) throws Exception;
+    // Si el Pedido trae versión y otro lo modificó antes, lanza dao.ConflictoVersionException
     void actualizarPedido(Pedido a) throws Exception;
+    // Lee el Pedido, aplica 'cambios' y actualiza; ante conflicto de versión relee y reintenta.
+    // Devuelve el Pedido actualizado, o null si no existe.
+    Pedido actualizarPedidoConReintentos(int idPedido, Consumer<Pedido> cambios) throws Exception;
+    // Transiciones de estado: un UPDATE de una columna, sin leer el Pedido antes.
+    // Si ya tenía ese estado no hace nada (ni versión nueva ni evento)
+    void cambiarEstado(int idPedido, String estado) throws Exception;
+    // Devuelve cuántos pedidos cambiaron de estado
+    int cambiarEstado(Collection<Integer> idsPedido, String estado) throws Exception;
     void eliminarPedido(int idPedido) throws Exception;
+    // Baja lógica set-based; devuelve cuántos pedidos se dieron de baja
+    int eliminarPedidosEnLote(Collection<Integer> idsPedido) throws Exception;
     Pedido obtenerPedidoPorId(int idPedido) throws Exception;
+    Pedido obtenerPedidoPorNumero(String numero) throws Exception;
+    // Clave = número de pedido; los no encontrados no aparecen en el mapa
+    Map<String, Pedido> obtenerPedidosPorNumeros(Collection<String> numeros) throws Exception;
     List<Pedido> listarPedidos() throws Exception;
+    List<Pedido> buscarPedidos(PedidoFiltro filtro) throws Exception;
+    List<Pedido> listarPedidosPagina(long despuesDeId, int tamanio) throws Exception;
+    // Misma página en la proyección de solo lectura, para mostrar listados
+    List<PedidoResumen> listarResumenPagina(long despuesDeId, int tamanio) throws Exception;
+    // Mantiene una conexión abierta hasta cerrar el Stream (usar try-with-resources)
+    Stream<Pedido> streamPedidos(int fetchSize) throws Exception;
 }
@@ -0,0 +1,44 @@
+package service;
+
+import dao.PedidoFiltro;
+import entities.Envio;
+import entities.Pedido;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+// Fachada asíncrona de PedidoService. Cada llamada corre en su propio hilo (virtual si la JVM los
+// soporta), con concurrencia acotada al tamaño del pool y un timeout por llamada.
+// El timeout baja hasta JDBC (config.PlazoConsulta): acota la espera de conexión y cada sentencia sale con
+// queryTimeout, así que al vencer el servidor cancela la consulta en lugar de seguir trabajando.
+// - Lecturas: al vencer o cancelarse, el future termina enseguida y la llamada se interrumpe.
+// - Escrituras: una vez empezadas no se abandonan. El future termina con el resultado real; si vence el plazo,
+//   la sentencia en curso falla con SQLTimeoutException y la transacción se deshace. Cancelar o vencer antes
+//   de tener turno evita que empiece. Esta fachada nunca reintenta una escritura: tras un timeout, el que
+//   llama decide (sabiendo que no quedó nada confirmado).
+public interface PedidoServiceAsync extends AutoCloseable {
+
+    @FunctionalInterface
+    interface Llamada<T> {
+        T ejecutar(PedidoService service) throws Exception;
+    }
+
+    CompletableFuture<Void> crearPedidoCompleto(Pedido a, Envio b);
+    CompletableFuture<Void> actualizarPedido(Pedido a);
+    CompletableFuture<Void> eliminarPedido(int idPedido);
+    CompletableFuture<Pedido> obtenerPedidoPorId(int idPedido);
+    CompletableFuture<Pedido> obtenerPedidoPorNumero(String numero);
+    CompletableFuture<Map<String, Pedido>> obtenerPedidosPorNumeros(Collection<String> numeros);
+    CompletableFuture<List<Pedido>> buscarPedidos(PedidoFiltro filtro);
+
+    // Cualquier operación del servicio con un timeout propio, tratada como escritura
+    <T> CompletableFuture<T> ejecutar(Llamada<T> llamada, Duration timeout);
+    // Igual, para operaciones de solo lectura: se abandonan al vencer el timeout
+    <T> CompletableFuture<T> consultar(Llamada<T> llamada, Duration timeout);
+
+    @Override
+    void close();
+}
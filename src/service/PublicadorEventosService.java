@@ -0,0 +1,13 @@
+package service;
+
+// Relay del outbox EventoPedido: entrega los eventos pendientes a un DestinoEventos.
+// Al menos una vez y, para un mismo Pedido, en el orden en que se grabaron.
+public interface PublicadorEventosService {
+    // Publica en tramos hasta vaciar el outbox; devuelve la cantidad de eventos entregados
+    int publicarPendientes() throws Exception;
+    // Borra los eventos publicados hace más de diasRetencion días
+    int purgarPublicados(int diasRetencion) throws Exception;
+    EstadoPublicacion estado() throws Exception;
+    void iniciar(long periodoMs);
+    void detener();
+}
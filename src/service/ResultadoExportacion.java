@@ -0,0 +1,26 @@
+package service;
+
+public class ResultadoExportacion {
+    private final long filas;
+    private final long ultimoId;     // para reanudar con exportar(..., ultimoId)
+    private final long bytes;        // tamaño final del archivo
+    private final long millis;
+
+    public ResultadoExportacion(long filas, long ultimoId, long bytes, long millis) {
+        this.filas = filas;
+        this.ultimoId = ultimoId;
+        this.bytes = bytes;
+        this.millis = millis;
+    }
+
+    public long getFilas() { return filas; }
+    public long getUltimoId() { return ultimoId; }
+    public long getBytes() { return bytes; }
+    public long getMillis() { return millis; }
+
+    @Override
+    public String toString() {
+        return "filas=" + filas + ", ultimoId=" + ultimoId + ", bytes=" + bytes + ", " + millis + " ms" +
+               (millis > 0 ? " (" + (filas * 1000 / millis) + " filas/s)" : "");
+    }
+}
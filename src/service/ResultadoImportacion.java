@@ -0,0 +1,38 @@
+package service;
+
+public class ResultadoImportacion {
+    private final long leidas;
+    private final long importadas;
+    private final long rechazadas;
+    private final long lotes;             // transacciones multifila confirmadas
+    private final long millis;
+    private final long esperaLecturaMs;   // lector bloqueado por la cola de parseo llena
+    private final long esperaParseoMs;    // parsers bloqueados por la cola de escritura llena
+
+    public ResultadoImportacion(long leidas, long importadas, long rechazadas, long lotes, long millis,
+                                long esperaLecturaMs, long esperaParseoMs) {
+        this.leidas = leidas;
+        this.importadas = importadas;
+        this.rechazadas = rechazadas;
+        this.lotes = lotes;
+        this.millis = millis;
+        this.esperaLecturaMs = esperaLecturaMs;
+        this.esperaParseoMs = esperaParseoMs;
+    }
+
+    public long getLeidas() { return leidas; }
+    public long getImportadas() { return importadas; }
+    public long getRechazadas() { return rechazadas; }
+    public long getLotes() { return lotes; }
+    public long getMillis() { return millis; }
+    public long getEsperaLecturaMs() { return esperaLecturaMs; }
+    public long getEsperaParseoMs() { return esperaParseoMs; }
+
+    @Override
+    public String toString() {
+        return "leidas=" + leidas + ", importadas=" + importadas + ", rechazadas=" + rechazadas +
+               ", lotes=" + lotes + ", " + millis + " ms" +
+               (millis > 0 ? " (" + (leidas * 1000 / millis) + " filas/s)" : "") +
+               ", espera lectura=" + esperaLecturaMs + " ms, espera parseo=" + esperaParseoMs + " ms";
+    }
+}
@@ -0,0 +1,38 @@
+package service;
+
+// Resultado por fila de una carga en lote
+public class ResultadoLote {
+    private final int indice;       // posición en la lista de entrada
+    private final String numero;    // número de pedido (para informes)
+    private final boolean exito;
+    private final Long idPedido;
+    private final String error;
+
+    private ResultadoLote(int indice, String numero, boolean exito, Long idPedido, String error) {
+        this.indice = indice;
+        this.numero = numero;
+        this.exito = exito;
+        this.idPedido = idPedido;
+        this.error = error;
+    }
+
+    public static ResultadoLote ok(int indice, String numero, Long idPedido) {
+        return new ResultadoLote(indice, numero, true, idPedido, null);
+    }
+
+    public static ResultadoLote error(int indice, String numero, String error) {
+        return new ResultadoLote(indice, numero, false, null, error);
+    }
+
+    public int getIndice() { return indice; }
+    public String getNumero() { return numero; }
+    public boolean isExito() { return exito; }
+    public Long getIdPedido() { return idPedido; }
+    public String getError() { return error; }
+
+    @Override
+    public String toString() {
+        return "ResultadoLote{indice=" + indice + ", numero='" + numero + "', " +
+               (exito ? "idPedido=" + idPedido : "error='" + error + "'") + "}";
+    }
+}
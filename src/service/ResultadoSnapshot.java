@@ -0,0 +1,38 @@
+package service;
+
+public class ResultadoSnapshot {
+    private final long pedidos;
+    private final long trackings;
+    private final long descartados;    // entradas que cambiaron en la BD después de la copia
+    private final long bytes;
+    private final long millis;
+    private final String motivoRechazo; // null = se usó la copia
+
+    public ResultadoSnapshot(long pedidos, long trackings, long descartados, long bytes, long millis, String motivoRechazo) {
+        this.pedidos = pedidos;
+        this.trackings = trackings;
+        this.descartados = descartados;
+        this.bytes = bytes;
+        this.millis = millis;
+        this.motivoRechazo = motivoRechazo;
+    }
+
+    public static ResultadoSnapshot rechazado(String motivo, long millis) {
+        return new ResultadoSnapshot(0, 0, 0, 0, millis, motivo);
+    }
+
+    public long getPedidos() { return pedidos; }
+    public long getTrackings() { return trackings; }
+    public long getDescartados() { return descartados; }
+    public long getBytes() { return bytes; }
+    public long getMillis() { return millis; }
+    public String getMotivoRechazo() { return motivoRechazo; }
+    public boolean isRechazado() { return motivoRechazo != null; }
+
+    @Override
+    public String toString() {
+        if (motivoRechazo != null) return "copia descartada: " + motivoRechazo + " (" + millis + " ms)";
+        return "pedidos=" + pedidos + ", trackings=" + trackings + ", descartados=" + descartados +
+               ", bytes=" + bytes + ", " + millis + " ms";
+    }
+}
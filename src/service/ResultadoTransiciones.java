@@ -0,0 +1,63 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Resumen de una corrida de cambios de estado de Envio. Las filas rechazadas no frenan la corrida.
+public class ResultadoTransiciones {
+
+    public static class Rechazo {
+        private final int indice;        // posición en la lista (o línea del archivo)
+        private final String tracking;
+        private final String estadoActual;
+        private final String estadoPedido;
+        private final String motivo;
+
+        Rechazo(int indice, String tracking, String estadoActual, String estadoPedido, String motivo) {
+            this.indice = indice;
+            this.tracking = tracking;
+            this.estadoActual = estadoActual;
+            this.estadoPedido = estadoPedido;
+            this.motivo = motivo;
+        }
+
+        public int getIndice() { return indice; }
+        public String getTracking() { return tracking; }
+        public String getEstadoActual() { return estadoActual; }
+        public String getEstadoPedido() { return estadoPedido; }
+        public String getMotivo() { return motivo; }
+
+        @Override
+        public String toString() {
+            return "#" + indice + " " + tracking + " (" + estadoActual + " -> " + estadoPedido + "): " + motivo;
+        }
+    }
+
+    private long procesados;
+    private long aplicados;
+    private long sinCambio;          // ya estaba en ese estado
+    private long pedidosEnviados;    // Pedidos que pasaron a ENVIADO
+    private final List<Rechazo> rechazos = new ArrayList<>();
+
+    public void sumarProcesados(long n) { procesados += n; }
+    public void sumarAplicados(long n) { aplicados += n; }
+    public void sumarSinCambio(long n) { sinCambio += n; }
+    public void sumarPedidosEnviados(long n) { pedidosEnviados += n; }
+
+    public void rechazar(int indice, String tracking, String estadoActual, String estadoPedido, String motivo) {
+        rechazos.add(new Rechazo(indice, tracking, estadoActual, estadoPedido, motivo));
+    }
+
+    public long getProcesados() { return procesados; }
+    public long getAplicados() { return aplicados; }
+    public long getSinCambio() { return sinCambio; }
+    public long getPedidosEnviados() { return pedidosEnviados; }
+    public List<Rechazo> getRechazos() { return Collections.unmodifiableList(rechazos); }
+
+    @Override
+    public String toString() {
+        return "procesados=" + procesados + ", aplicados=" + aplicados + ", sinCambio=" + sinCambio +
+               ", rechazados=" + rechazos.size() + ", pedidosEnviados=" + pedidosEnviados;
+    }
+}
@@ -0,0 +1,10 @@
+package service;
+
+// Copia de PedidoCache y TrackingIndex a un archivo (cache.CacheSnapshot) para no arrancar en frío.
+// La copia lleva la marca de cambios de la BD del momento en que se tomó: al restaurar se descartan
+// las entradas que cambiaron desde entonces, o la copia entera si es de otra base o cambió demasiado.
+public interface SnapshotService {
+    ResultadoSnapshot guardar() throws Exception;
+    // Sin archivo o con la copia rechazada no es un error: devuelve el motivo y las cachés quedan como estaban
+    ResultadoSnapshot restaurar() throws Exception;
+}
@@ -0,0 +1,105 @@
+package service.impl;
+
+import config.DatabaseConnection;
+import dao.EnvioDAO;
+import dao.PedidoDAO;
+import dao.impl.EnvioDAOImpl;
+import dao.impl.PedidoDAOImpl;
+import metrics.Instrumentacion;
+import metrics.MetricaOperacion;
+import metrics.Metricas;
+import service.ArchivadorService;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Archivado en segundo plano. Cada tramo es una sola sentencia en autocommit,
+// así los locks sobre Pedido/Envio duran lo que dura un tramo; entre tramos se hace una pausa.
+public class ArchivadorServiceImpl implements ArchivadorService {
+
+    private final PedidoDAO pedidoDAO = Instrumentacion.envolver(PedidoDAO.class, new PedidoDAOImpl());
+    private final EnvioDAO envioDAO = Instrumentacion.envolver(EnvioDAO.class, new EnvioDAOImpl());
+    // Cada pasada programada (filas = movidas a *Archivo), con error si falló
+    private final MetricaOperacion ciclo = Metricas.operacion("ArchivadorService.ciclo");
+
+    private final int filasPorTramo;
+    private final long pausaEntreTramosMs;
+    private ScheduledExecutorService programador;
+
+    public ArchivadorServiceImpl() {
+        this(1_000, 200);
+    }
+
+    public ArchivadorServiceImpl(int filasPorTramo, long pausaEntreTramosMs) {
+        if (filasPorTramo < 1) throw new IllegalArgumentException("filasPorTramo debe ser >= 1");
+        this.filasPorTramo = filasPorTramo;
+        this.pausaEntreTramosMs = pausaEntreTramosMs;
+    }
+
+    @Override
+    public int archivarEliminados(int diasAntiguedad) throws Exception {
+        if (diasAntiguedad < 0) throw new IllegalArgumentException("Días de antigüedad debe ser >= 0");
+        // fechaEliminacion se graba con SYSUTCDATETIME()
+        LocalDateTime limite = LocalDateTime.now(ZoneOffset.UTC).minusDays(diasAntiguedad);
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            // Primero los pedidos: liberan la FK de sus envíos
+            int total = 0;
+            int movidas;
+            do {
+                movidas = pedidoDAO.archivarEliminados(limite, filasPorTramo, conn);
+                total += movidas;
+                pausar(movidas);
+            } while (movidas == filasPorTramo);
+
+            do {
+                movidas = envioDAO.archivarEliminados(limite, filasPorTramo, conn);
+                total += movidas;
+                pausar(movidas);
+            } while (movidas == filasPorTramo);
+
+            return total;
+        } catch (SQLException e) {
+            throw new Exception("Error archivando eliminados: " + e.getMessage(), e);
+        }
+    }
+
+    private void pausar(int movidas) throws InterruptedException {
+        if (movidas == filasPorTramo && pausaEntreTramosMs > 0) Thread.sleep(pausaEntreTramosMs);
+    }
+
+    @Override
+    public synchronized void iniciar(int diasAntiguedad, long periodoMs) {
+        if (programador != null) return;
+        programador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "archivador-pedidos");
+            t.setDaemon(true);
+            return t;
+        });
+        programador.scheduleWithFixedDelay(() -> {
+            long inicio = System.nanoTime();
+            boolean error = true;
+            try {
+                ciclo.sumarFilas(archivarEliminados(diasAntiguedad));
+                error = false;
+            } catch (Exception e) {
+                // No se relanza: cortaría las pasadas siguientes. Se reintenta en el próximo período
+            } finally {
+                ciclo.registrar(System.nanoTime() - inicio, error);
+            }
+        }, periodoMs, periodoMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void detener() {
+        if (programador != null) {
+            programador.shutdownNow();
+            programador = null;
+        }
+    }
+}
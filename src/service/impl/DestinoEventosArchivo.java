@@ -0,0 +1,44 @@
+package service.impl;
+
+import dao.EventoPedido;
+import service.DestinoEventos;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// Una línea JSON por evento al final del archivo (JSONL). El tramo queda en disco antes de volver;
+// si el publicador falla después, el reintento puede repetir líneas: se deduplica por "id".
+public class DestinoEventosArchivo implements DestinoEventos {
+
+    private final Path archivo;
+
+    public DestinoEventosArchivo(Path archivo) {
+        if (archivo == null) throw new IllegalArgumentException("Archivo requerido");
+        this.archivo = archivo;
+    }
+
+    @Override
+    public synchronized void publicar(List<EventoPedido> eventos) throws IOException {
+        StringBuilder sb = new StringBuilder(eventos.size() * 256);
+        for (EventoPedido e : eventos) {
+            EventosPedido.json(sb, e);
+            sb.append('\n');
+        }
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(sb));
+        try (FileChannel canal = FileChannel.open(archivo,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (bytes.hasRemaining()) canal.write(bytes);
+            canal.force(false);
+        }
+    }
+
+    public Path getArchivo() {
+        return archivo;
+    }
+}
@@ -0,0 +1,26 @@
+package service.impl;
+
+import dao.EventoPedido;
+import service.DestinoEventos;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Para pruebas y demos: guarda lo entregado, en el orden en que llegó (con los duplicados de los reintentos)
+public class DestinoEventosMemoria implements DestinoEventos {
+
+    private final List<EventoPedido> recibidos = new ArrayList<>();
+
+    @Override
+    public synchronized void publicar(List<EventoPedido> eventos) {
+        recibidos.addAll(eventos);
+    }
+
+    public synchronized List<EventoPedido> getRecibidos() {
+        return new ArrayList<>(recibidos);
+    }
+
+    public synchronized void limpiar() {
+        recibidos.clear();
+    }
+}
@@ -0,0 +1,261 @@
+package service.impl;
+
+import cache.PedidoCache;
+import cache.TrackingIndex;
+import config.DatabaseConnection;
+import dao.EnvioDAO;
+import dao.EnvioSeguimiento;
+import dao.EventoPedidoDAO;
+import dao.PedidoDAO;
+import dao.TrackingEnvio;
+import dao.impl.EnvioDAOImpl;
+import dao.impl.EnvioDAOIndexado;
+import dao.impl.EventoPedidoDAOImpl;
+import dao.impl.PedidoDAOImpl;
+import entities.EstadoEnvio;
+import metrics.Instrumentacion;
+import service.CambioEstadoEnvio;
+import service.EnvioService;
+import service.ResultadoTransiciones;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+// Cada tramo (hasta TAMANIO_TRAMO novedades) es una transacción:
+// 1 SELECT con UPDLOCK por tracking, validación en memoria, 1 UPDATE de Envio por estado destino
+// y 1 UPDATE de los Pedidos despachados (con sus eventos ESTADO_CAMBIADO en el outbox). Un tramo que falla se informa como rechazado y se sigue.
+public class EnvioServiceImpl implements EnvioService {
+
+    private static final int TAMANIO_TRAMO = 1_000; // trackings por IN (SQL Server: hasta 2100 parámetros)
+    private static final String PEDIDO_ENVIADO = "ENVIADO";
+    private static final FasesTransaccion TX = new FasesTransaccion("EnvioService");
+
+    private final PedidoDAO pedidoDAO = Instrumentacion.envolver(PedidoDAO.class, new PedidoDAOImpl());
+    private final EnvioDAO envioDAO;
+    private final EventoPedidoDAO eventoDAO = Instrumentacion.envolver(EventoPedidoDAO.class, new EventoPedidoDAOImpl());
+
+    // Los Pedidos cacheados incluyen su Envio: se invalidan los afectados
+    private final PedidoCache cache;
+    // null: buscarPorTracking va siempre a la BD
+    private final TrackingIndex trackings;
+
+    public EnvioServiceImpl() {
+        this(new PedidoCache());
+    }
+
+    public EnvioServiceImpl(PedidoCache cache) {
+        this(cache, null);
+    }
+
+    public EnvioServiceImpl(PedidoCache cache, TrackingIndex trackings) {
+        this.cache = cache;
+        this.trackings = trackings;
+        this.envioDAO = EnvioDAOIndexado.envolver(Instrumentacion.envolver(EnvioDAO.class, new EnvioDAOImpl()), trackings);
+    }
+
+    @Override
+    public TrackingEnvio buscarPorTracking(String tracking) throws Exception {
+        if (tracking == null || tracking.isBlank()) throw new IllegalArgumentException("Tracking requerido");
+        String t = tracking.trim();
+        if (trackings != null) {
+            TrackingEnvio encontrado = trackings.buscar(t);
+            if (encontrado != null) return encontrado;
+        }
+        // Al primario: lo que se lee acá queda en el índice, y una réplica atrasada lo dejaría viejo
+        long epoca = trackings != null ? trackings.epoca() : 0;
+        try (Connection conn = TX.conectar()) {
+            TrackingEnvio leido = envioDAO.buscarPorTracking(t, conn);
+            if (trackings != null) trackings.putSiVigente(leido, epoca);
+            return leido;
+        } catch (SQLException e) {
+            throw new Exception("Error buscando tracking: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public long cargarIndiceTracking() throws Exception {
+        if (trackings == null) throw new IllegalStateException("Servicio sin índice de trackings");
+        // Del primario, por lo mismo que buscarPorTracking
+        try (Connection conn = TX.conectar();
+             Stream<TrackingEnvio> filas = envioDAO.listarTrackingsStream(
+                     DatabaseConnection.getConfig().getFetchSize(), conn)) {
+            return trackings.cargar(filas);
+        } catch (SQLException | IllegalStateException e) {
+            throw new Exception("Error cargando el índice de trackings: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void cambiarEstado(String tracking, String estado) throws Exception {
+        if (tracking == null || tracking.isBlank()) throw new IllegalArgumentException("Tracking requerido");
+        ResultadoTransiciones r = aplicarEstados(List.of(new CambioEstadoEnvio(tracking.trim(), estado)));
+        if (!r.getRechazos().isEmpty())
+            throw new Exception("No se cambió el estado: " + r.getRechazos().get(0).getMotivo());
+    }
+
+    @Override
+    public ResultadoTransiciones aplicarEstados(List<CambioEstadoEnvio> cambios) throws Exception {
+        if (cambios == null) throw new IllegalArgumentException("Lista de cambios requerida");
+        ResultadoTransiciones resultado = new ResultadoTransiciones();
+        for (int desde = 0; desde < cambios.size(); desde += TAMANIO_TRAMO) {
+            List<CambioEstadoEnvio> tramo = cambios.subList(desde, Math.min(cambios.size(), desde + TAMANIO_TRAMO));
+            int[] indices = new int[tramo.size()];
+            for (int i = 0; i < indices.length; i++) indices[i] = desde + i;
+            aplicarTramo(tramo, indices, null, resultado);
+        }
+        return resultado;
+    }
+
+    @Override
+    public ResultadoTransiciones aplicarArchivo(Path archivo, String empresa) throws Exception {
+        ResultadoTransiciones resultado = new ResultadoTransiciones();
+        String empresaNormalizada = empresa == null || empresa.isBlank() ? null : empresa.trim().toUpperCase();
+
+        // Se lee de a un tramo: el archivo puede tener cientos de miles de líneas
+        List<CambioEstadoEnvio> tramo = new ArrayList<>(TAMANIO_TRAMO);
+        int[] indices = new int[TAMANIO_TRAMO];
+        try (BufferedReader in = Files.newBufferedReader(archivo, StandardCharsets.UTF_8)) {
+            String linea;
+            int numeroLinea = 0;
+            while ((linea = in.readLine()) != null) {
+                numeroLinea++;
+                if (numeroLinea == 1 && linea.startsWith("\uFEFF")) linea = linea.substring(1);
+                if (linea.isBlank()) continue;
+                String[] partes = linea.split("[,;]");
+                if (numeroLinea == 1 && partes[0].trim().equalsIgnoreCase("tracking")) continue;
+                if (partes.length < 2 || partes[0].isBlank()) {
+                    resultado.sumarProcesados(1);
+                    resultado.rechazar(numeroLinea, null, null, null, "Línea inválida: " + linea);
+                    continue;
+                }
+                indices[tramo.size()] = numeroLinea;
+                tramo.add(new CambioEstadoEnvio(partes[0].trim(), partes[1].trim()));
+                if (tramo.size() == TAMANIO_TRAMO) {
+                    aplicarTramo(tramo, indices, empresaNormalizada, resultado);
+                    tramo.clear();
+                }
+            }
+        } catch (IOException e) {
+            throw new Exception("Error leyendo " + archivo + ": " + e.getMessage(), e);
+        }
+        if (!tramo.isEmpty()) aplicarTramo(tramo, indices, empresaNormalizada, resultado);
+        return resultado;
+    }
+
+    private void aplicarTramo(List<CambioEstadoEnvio> tramo, int[] indices, String empresa,
+                              ResultadoTransiciones resultado) {
+        resultado.sumarProcesados(tramo.size());
+        Set<String> trackings = new LinkedHashSet<>();
+        for (CambioEstadoEnvio c : tramo) if (c.getTracking() != null) trackings.add(c.getTracking());
+
+        Connection conn = null;
+        try {
+            conn = TX.conectar();
+            conn.setAutoCommit(false);
+
+            Map<String, EnvioSeguimiento> actuales = new HashMap<>();
+            for (EnvioSeguimiento e : envioDAO.buscarParaSeguimiento(trackings, conn)) actuales.put(e.getTracking(), e);
+
+            // Se valida en orden: un mismo tracking puede avanzar más de un paso dentro del tramo
+            Map<String, EstadoEnvio> enCurso = new HashMap<>();
+            Map<Integer, EstadoEnvio> finales = new LinkedHashMap<>(); // idEnvio -> estado final
+            List<Integer> rechazadas = new ArrayList<>();              // posición en el tramo (se informan tras el commit)
+            List<String> motivos = new ArrayList<>();
+            int aplicados = 0;
+            int sinCambio = 0;
+
+            for (int i = 0; i < tramo.size(); i++) {
+                CambioEstadoEnvio c = tramo.get(i);
+                EnvioSeguimiento e = actuales.get(c.getTracking());
+                EstadoEnvio nuevo = EstadoEnvio.desde(c.getEstado());
+                String motivo = null;
+                if (e == null) {
+                    motivo = "Tracking inexistente";
+                } else if (empresa != null && !empresa.equalsIgnoreCase(e.getEmpresa())) {
+                    motivo = "El tracking pertenece a " + e.getEmpresa();
+                } else if (nuevo == null) {
+                    motivo = "Estado desconocido";
+                } else {
+                    EstadoEnvio actual = enCurso.getOrDefault(c.getTracking(), EstadoEnvio.desde(e.getEstado()));
+                    if (actual == nuevo) {
+                        sinCambio++;
+                        continue;
+                    }
+                    // Un Envio sin estado reconocible acepta el que informe el transportista
+                    if (actual != null && !actual.puedePasarA(nuevo)) {
+                        motivo = "Transición inválida";
+                    } else {
+                        enCurso.put(c.getTracking(), nuevo);
+                        finales.put(e.getIdEnvio(), nuevo);
+                        aplicados++;
+                        continue;
+                    }
+                }
+                rechazadas.add(i);
+                motivos.add(motivo);
+            }
+
+            // Un UPDATE por estado destino
+            Map<EstadoEnvio, List<Integer>> porEstado = new EnumMap<>(EstadoEnvio.class);
+            List<Integer> despachados = new ArrayList<>();
+            for (Map.Entry<Integer, EstadoEnvio> f : finales.entrySet()) {
+                porEstado.computeIfAbsent(f.getValue(), k -> new ArrayList<>()).add(f.getKey());
+                if (f.getValue().despachado()) despachados.add(f.getKey());
+            }
+            for (Map.Entry<EstadoEnvio, List<Integer>> g : porEstado.entrySet()) {
+                envioDAO.cambiarEstadoEnLote(g.getValue(), g.getKey().name(), conn);
+            }
+            int pedidos = 0;
+            if (!despachados.isEmpty()) {
+                // El evento del outbox antes del UPDATE: registra justo los Pedidos que va a cambiar
+                eventoDAO.registrarCambioEstadoPorEnvio(despachados, PEDIDO_ENVIADO,
+                        EventosPedido.datosEstado(PEDIDO_ENVIADO), conn);
+                pedidos = pedidoDAO.cambiarEstadoPorEnvio(despachados, PEDIDO_ENVIADO, conn);
+            }
+
+            TX.commit(conn);
+
+            for (EnvioSeguimiento e : actuales.values()) {
+                if (e.getIdPedido() != null && finales.containsKey(e.getIdEnvio())) cache.invalidar(e.getIdPedido());
+            }
+            resultado.sumarAplicados(aplicados);
+            resultado.sumarSinCambio(sinCambio);
+            resultado.sumarPedidosEnviados(pedidos);
+            for (int k = 0; k < rechazadas.size(); k++) {
+                int i = rechazadas.get(k);
+                CambioEstadoEnvio c = tramo.get(i);
+                EnvioSeguimiento e = actuales.get(c.getTracking());
+                resultado.rechazar(indices[i], c.getTracking(), e != null ? e.getEstado() : null, c.getEstado(), motivos.get(k));
+            }
+        } catch (SQLException e) {
+            if (conn != null) {
+                try { TX.rollback(conn); } catch (SQLException ignore) {}
+            }
+            for (int i = 0; i < tramo.size(); i++) {
+                CambioEstadoEnvio c = tramo.get(i);
+                resultado.rechazar(indices[i], c.getTracking(), null, c.getEstado(), "Error en el tramo: " + e.getMessage());
+            }
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                } catch (SQLException ignore) {}
+            }
+        }
+    }
+}
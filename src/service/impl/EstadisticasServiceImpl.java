@@ -0,0 +1,61 @@
+package service.impl;
+
+import dao.EstadisticaGrupo;
+import dao.EstadisticasDAO;
+import dao.impl.EstadisticasDAOImpl;
+import metrics.Instrumentacion;
+import service.EstadisticasService;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+// No hay que actualizar nada desde los servicios de escritura: SQL Server mantiene las vistas
+// indexadas en la misma transacción que cada alta, cambio de estado o baja.
+// Las lecturas van a las réplicas si hay: unos segundos de atraso no cambian el tablero.
+public class EstadisticasServiceImpl implements EstadisticasService {
+
+    private static final FasesTransaccion TX = new FasesTransaccion("EstadisticasService");
+
+    private final EstadisticasDAO estadisticasDAO =
+        Instrumentacion.envolver(EstadisticasDAO.class, new EstadisticasDAOImpl());
+
+    @Override
+    public List<EstadisticaGrupo> porEstado() throws Exception {
+        try (Connection conn = TX.conectarLectura()) {
+            return estadisticasDAO.porEstado(conn);
+        } catch (SQLException e) {
+            throw new Exception("Error leyendo estadísticas por estado: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public List<EstadisticaGrupo> porDia(LocalDate desde, LocalDate hasta) throws Exception {
+        if (desde == null || hasta == null) throw new IllegalArgumentException("Rango de fechas requerido");
+        if (desde.isAfter(hasta)) throw new IllegalArgumentException("La fecha desde es posterior a hasta");
+        try (Connection conn = TX.conectarLectura()) {
+            return estadisticasDAO.porDia(desde, hasta, conn);
+        } catch (SQLException e) {
+            throw new Exception("Error leyendo estadísticas por día: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public List<EstadisticaGrupo> porEmpresaTipo() throws Exception {
+        try (Connection conn = TX.conectarLectura()) {
+            return estadisticasDAO.porEmpresaTipo(conn);
+        } catch (SQLException e) {
+            throw new Exception("Error leyendo estadísticas por empresa: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void reconstruir() throws Exception {
+        try (Connection conn = TX.conectar()) {
+            estadisticasDAO.reconstruir(conn);
+        } catch (SQLException e) {
+            throw new Exception("Error reconstruyendo estadísticas: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package service.impl;
+
+import dao.EventoPedido;
+import entities.Pedido;
+
+import java.util.EnumSet;
+
+// Eventos del outbox que graban los servicios; "datos" es JSON con el mismo formato que la exportación JSONL
+final class EventosPedido {
+
+    private EventosPedido() {}
+
+    // El Pedido recién creado, con su Envio
+    static EventoPedido creado(Pedido p) {
+        StringBuilder sb = new StringBuilder(256);
+        ExportadorServiceImpl.json(sb, p);
+        return new EventoPedido(p.getId(), EventoPedido.Tipo.CREADO, sb.toString());
+    }
+
+    // Solo los campos modificados (los mismos que escribe el UPDATE), con su valor nuevo
+    static EventoPedido actualizado(Pedido p, EnumSet<Pedido.Campo> cambios) {
+        StringBuilder sb = new StringBuilder(128).append("{\"cambios\":{");
+        boolean primero = true;
+        for (Pedido.Campo campo : cambios) {
+            if (!primero) sb.append(',');
+            primero = false;
+            switch (campo) {
+                case NUMERO -> { sb.append("\"numero\":"); ExportadorServiceImpl.jsonTexto(sb, p.getNumero()); }
+                case FECHA -> { sb.append("\"fecha\":"); ExportadorServiceImpl.jsonTexto(sb, String.valueOf(p.getFecha())); }
+                case CLIENTE_NOMBRE -> { sb.append("\"clienteNombre\":"); ExportadorServiceImpl.jsonTexto(sb, p.getClienteNombre()); }
+                case TOTAL -> sb.append("\"total\":").append(ExportadorServiceImpl.importe(p.getTotal()));
+                case ESTADO -> { sb.append("\"estado\":"); ExportadorServiceImpl.jsonTexto(sb, p.getEstado()); }
+                case ENVIO -> sb.append("\"envio_id\":").append(p.getEnvio() != null ? p.getEnvio().getId() : null);
+            }
+        }
+        return new EventoPedido(p.getId(), EventoPedido.Tipo.ACTUALIZADO, sb.append("}}").toString());
+    }
+
+    static EventoPedido estadoCambiado(long idPedido, String estado) {
+        return new EventoPedido(idPedido, EventoPedido.Tipo.ESTADO_CAMBIADO, datosEstado(estado));
+    }
+
+    // "datos" de los ESTADO_CAMBIADO que se graban en lote (EventoPedidoDAO.registrarCambioEstado*)
+    static String datosEstado(String estado) {
+        StringBuilder sb = new StringBuilder(32).append("{\"estado\":");
+        ExportadorServiceImpl.jsonTexto(sb, estado);
+        return sb.append('}').toString();
+    }
+
+    static EventoPedido eliminado(long idPedido) {
+        return new EventoPedido(idPedido, EventoPedido.Tipo.ELIMINADO, null);
+    }
+
+    // Una línea de DestinoEventosArchivo: datos ya es JSON y va tal cual
+    static void json(StringBuilder sb, EventoPedido e) {
+        sb.append("{\"id\":").append(e.id());
+        sb.append(",\"idPedido\":").append(e.idPedido());
+        sb.append(",\"tipo\":\"").append(e.tipo().name()).append('"');
+        sb.append(",\"fecha\":"); ExportadorServiceImpl.jsonTexto(sb, String.valueOf(e.fechaCreacion()));
+        sb.append(",\"datos\":").append(e.datos() != null ? e.datos() : "null");
+        sb.append('}');
+    }
+}
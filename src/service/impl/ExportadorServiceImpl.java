@@ -0,0 +1,264 @@
+package service.impl;
+
+import config.DatabaseConnection;
+import dao.PedidoDAO;
+import dao.impl.PedidoDAOImpl;
+import entities.Envio;
+import entities.Pedido;
+import metrics.Instrumentacion;
+import service.ExportadorService;
+import service.ResultadoExportacion;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+// En memoria hay a lo sumo un fetch del cursor y los buffers de escritura. El cursor se abre en una réplica si hay.
+// Con gzip, cada punto de control cierra un miembro gzip: el archivo se puede recortar en cualquier
+// punto de control y seguir agregando miembros (gzip admite miembros concatenados).
+public class ExportadorServiceImpl implements ExportadorService {
+
+    private static final int FILAS_POR_CHECKPOINT = 10_000;
+    private static final int TAMANIO_BUFFER = 64 * 1024;
+    private static final String ENCABEZADO_CSV =
+        "id,numero,fecha,clienteNombre,total,estado,envio_id,tracking,empresa,tipo,costo," +
+        "fechaDespacho,fechaEstimada,envio_estado";
+    private static final FasesTransaccion TX = new FasesTransaccion("ExportadorService");
+
+    private final PedidoDAO pedidoDAO = Instrumentacion.envolver(PedidoDAO.class, new PedidoDAOImpl());
+
+    @Override
+    public ResultadoExportacion exportar(Path destino, Formato formato, boolean gzip, long despuesDeId) throws Exception {
+        if (destino == null || formato == null) throw new IllegalArgumentException("Destino y formato requeridos");
+        if (despuesDeId < 0) throw new IllegalArgumentException("despuesDeId debe ser >= 0");
+        FileChannel canal = FileChannel.open(destino,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        return escribir(canal, destino, formato, gzip, despuesDeId, true);
+    }
+
+    @Override
+    public ResultadoExportacion reanudar(Path destino, Formato formato, boolean gzip) throws Exception {
+        Path archivoCheckpoint = checkpoint(destino);
+        if (!Files.exists(archivoCheckpoint) || !Files.exists(destino))
+            throw new IllegalStateException("No hay una exportación interrumpida en " + destino);
+
+        Properties cp = new Properties();
+        try (var in = Files.newBufferedReader(archivoCheckpoint, StandardCharsets.UTF_8)) {
+            cp.load(in);
+        }
+        if (!formato.name().equals(cp.getProperty("formato")) || gzip != Boolean.parseBoolean(cp.getProperty("gzip")))
+            throw new IllegalStateException("La exportación interrumpida era " + cp.getProperty("formato") +
+                                            (Boolean.parseBoolean(cp.getProperty("gzip")) ? " con gzip" : " sin gzip"));
+        long ultimoId = Long.parseLong(cp.getProperty("ultimoId"));
+        long bytes = Long.parseLong(cp.getProperty("bytes"));
+
+        // Lo escrito después del último punto de control se descarta y se vuelve a exportar
+        FileChannel canal = FileChannel.open(destino, StandardOpenOption.WRITE);
+        canal.truncate(bytes);
+        canal.position(bytes);
+        return escribir(canal, destino, formato, gzip, ultimoId, false);
+    }
+
+    private ResultadoExportacion escribir(FileChannel canal, Path destino, Formato formato, boolean gzip,
+                                          long despuesDeId, boolean encabezado) throws Exception {
+        long inicio = System.nanoTime();
+        long filas = 0;
+        long ultimoId = despuesDeId;
+        StringBuilder linea = new StringBuilder(256);
+
+        try (FileChannel c = canal;
+             Connection conn = TX.conectarLectura();
+             Stream<Pedido> pedidos = pedidoDAO.listarCompletoStream(despuesDeId,
+                     DatabaseConnection.getConfig().getFetchSize(), conn)) {
+            Salida salida = new Salida(c, gzip);
+            if (encabezado) {
+                if (formato == Formato.CSV) salida.writer().write(ENCABEZADO_CSV + "\n");
+                salida.cortar();
+                guardarCheckpoint(destino, formato, gzip, ultimoId, c);
+            }
+
+            Iterator<Pedido> it = pedidos.iterator();
+            while (it.hasNext()) {
+                Pedido p = it.next();
+                linea.setLength(0);
+                if (formato == Formato.CSV) csv(linea, p); else json(linea, p);
+                salida.writer().append(linea).append('\n');
+                ultimoId = p.getId();
+                if (++filas % FILAS_POR_CHECKPOINT == 0) {
+                    salida.cortar();
+                    guardarCheckpoint(destino, formato, gzip, ultimoId, c);
+                }
+            }
+            salida.cortar();
+            c.force(true);
+            Files.deleteIfExists(checkpoint(destino));
+            return new ResultadoExportacion(filas, ultimoId, c.size(), (System.nanoTime() - inicio) / 1_000_000);
+        } catch (IOException | SQLException | IllegalStateException e) {
+            // IllegalStateException: error de lectura del cursor dentro del Stream
+            throw new Exception("Error exportando (se puede reanudar desde el id " + ultimoIdCheckpoint(destino) + "): " +
+                                e.getMessage(), e);
+        }
+    }
+
+    // Un miembro gzip (o un tramo de texto plano) por punto de control; el canal no se cierra entre medio
+    private static final class Salida {
+        private final OutputStream canal;
+        private final boolean gzip;
+        private GZIPOutputStream gz;
+        private Writer writer;
+
+        Salida(FileChannel canal, boolean gzip) {
+            this.canal = Channels.newOutputStream(canal);
+            this.gzip = gzip;
+        }
+
+        Writer writer() throws IOException {
+            if (writer == null) {
+                OutputStream destino = canal;
+                if (gzip) destino = gz = new GZIPOutputStream(canal, TAMANIO_BUFFER);
+                writer = new BufferedWriter(new OutputStreamWriter(destino, StandardCharsets.UTF_8), TAMANIO_BUFFER);
+            }
+            return writer;
+        }
+
+        // Deja todo lo escrito en el canal; el siguiente writer() abre un miembro gzip nuevo
+        void cortar() throws IOException {
+            if (writer == null) return;
+            writer.flush();
+            if (gzip) gz.finish();
+            writer = null;
+            gz = null;
+        }
+    }
+
+    private static void guardarCheckpoint(Path destino, Formato formato, boolean gzip, long ultimoId,
+                                          FileChannel canal) throws IOException {
+        canal.force(false); // el checkpoint no puede apuntar a datos que no llegaron al disco
+        Properties cp = new Properties();
+        cp.setProperty("formato", formato.name());
+        cp.setProperty("gzip", String.valueOf(gzip));
+        cp.setProperty("ultimoId", String.valueOf(ultimoId));
+        cp.setProperty("bytes", String.valueOf(canal.position()));
+
+        Path tmp = destino.resolveSibling(destino.getFileName() + ".checkpoint.tmp");
+        try (var out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            cp.store(out, null);
+        }
+        Files.move(tmp, checkpoint(destino), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Path checkpoint(Path destino) {
+        return destino.resolveSibling(destino.getFileName() + ".checkpoint");
+    }
+
+    private static String ultimoIdCheckpoint(Path destino) {
+        Properties cp = new Properties();
+        try (var in = Files.newBufferedReader(checkpoint(destino), StandardCharsets.UTF_8)) {
+            cp.load(in);
+            return cp.getProperty("ultimoId", "0");
+        } catch (IOException e) {
+            return "0";
+        }
+    }
+
+    private static void csv(StringBuilder sb, Pedido p) {
+        Envio e = p.getEnvio();
+        sb.append(p.getId()).append(',');
+        csvTexto(sb, p.getNumero()).append(',');
+        sb.append(p.getFecha()).append(',');
+        csvTexto(sb, p.getClienteNombre()).append(',');
+        sb.append(importe(p.getTotal())).append(',');
+        csvTexto(sb, p.getEstado()).append(',');
+        if (e != null) {
+            sb.append(e.getId()).append(',');
+            csvTexto(sb, e.getTracking()).append(',');
+            csvTexto(sb, e.getEmpresa()).append(',');
+            csvTexto(sb, e.getTipo()).append(',');
+            if (e.getCosto() != null) sb.append(importe(e.getCosto()));
+            sb.append(',');
+            if (e.getFechaDespacho() != null) sb.append(e.getFechaDespacho());
+            sb.append(',');
+            if (e.getFechaEstimada() != null) sb.append(e.getFechaEstimada());
+            sb.append(',');
+            csvTexto(sb, e.getEstado());
+        } else {
+            sb.append(",,,,,,,");
+        }
+    }
+
+    // RFC 4180: entre comillas si tiene separador, comillas o saltos de línea (también lo usa ImportadorServiceImpl)
+    static StringBuilder csvTexto(StringBuilder sb, String s) {
+        if (s == null) return sb;
+        boolean comillas = false;
+        for (int i = 0; i < s.length() && !comillas; i++) {
+            char c = s.charAt(i);
+            comillas = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!comillas) return sb.append(s);
+        return sb.append('"').append(s.replace("\"", "\"\"")).append('"');
+    }
+
+    // También es el "datos" de los eventos CREADO del outbox (EventosPedido)
+    static void json(StringBuilder sb, Pedido p) {
+        Envio e = p.getEnvio();
+        sb.append("{\"id\":").append(p.getId());
+        sb.append(",\"numero\":"); jsonTexto(sb, p.getNumero());
+        sb.append(",\"fecha\":"); jsonTexto(sb, String.valueOf(p.getFecha()));
+        sb.append(",\"clienteNombre\":"); jsonTexto(sb, p.getClienteNombre());
+        sb.append(",\"total\":").append(importe(p.getTotal()));
+        sb.append(",\"estado\":"); jsonTexto(sb, p.getEstado());
+        if (e == null) {
+            sb.append(",\"envio\":null}");
+            return;
+        }
+        sb.append(",\"envio\":{\"id\":").append(e.getId());
+        sb.append(",\"tracking\":"); jsonTexto(sb, e.getTracking());
+        sb.append(",\"empresa\":"); jsonTexto(sb, e.getEmpresa());
+        sb.append(",\"tipo\":"); jsonTexto(sb, e.getTipo());
+        sb.append(",\"costo\":").append(e.getCosto() != null ? importe(e.getCosto()) : "null");
+        sb.append(",\"fechaDespacho\":"); jsonTexto(sb, e.getFechaDespacho() != null ? e.getFechaDespacho().toString() : null);
+        sb.append(",\"fechaEstimada\":"); jsonTexto(sb, e.getFechaEstimada() != null ? e.getFechaEstimada().toString() : null);
+        sb.append(",\"estado\":"); jsonTexto(sb, e.getEstado());
+        sb.append("}}");
+    }
+
+    static void jsonTexto(StringBuilder sb, String s) {
+        if (s == null) { sb.append("null"); return; }
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c)); else sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    // DECIMAL(12,2)/(10,2): siempre con dos decimales, sin notación científica
+    static String importe(Double valor) {
+        return BigDecimal.valueOf(valor).setScale(2, RoundingMode.HALF_UP).toPlainString();
+    }
+}
@@ -0,0 +1,86 @@
+package service.impl;
+
+import config.DatabaseConnection;
+import config.MarcaEscritura;
+import config.TransactionHooks;
+import metrics.MetricaOperacion;
+import metrics.Metricas;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// Fases de transacción medidas por servicio ("<servicio>.conexion", ".conexionLectura", ".commit", ".rollback",
+// ".alConfirmar": acciones posteriores al commit, con error si alguna falló).
+// Las sentencias se miden en los DAOs instrumentados.
+// commit/rollback disparan o descartan las acciones que los DAOs dejaron en config.TransactionHooks.
+// Lectura de lo propio por servicio: tras un commit, sus lecturas van al primario mientras las réplicas
+// puedan estar atrasadas, sin importar en qué hilo corran (ver config.MarcaEscritura).
+class FasesTransaccion {
+
+    private final MetricaOperacion conexion;
+    private final MetricaOperacion conexionLectura;
+    private final MetricaOperacion commit;
+    private final MetricaOperacion rollback;
+    private final MetricaOperacion alConfirmar;
+    private final MarcaEscritura escrituras = new MarcaEscritura();
+
+    FasesTransaccion(String servicio) {
+        this.conexion = Metricas.operacion(servicio + ".conexion");
+        this.conexionLectura = Metricas.operacion(servicio + ".conexionLectura");
+        this.commit = Metricas.operacion(servicio + ".commit");
+        this.rollback = Metricas.operacion(servicio + ".rollback");
+        this.alConfirmar = Metricas.operacion(servicio + ".alConfirmar");
+    }
+
+    Connection conectar() throws SQLException {
+        long inicio = System.nanoTime();
+        boolean error = true;
+        try {
+            Connection conn = DatabaseConnection.getConnection();
+            error = false;
+            return conn;
+        } finally {
+            conexion.registrar(System.nanoTime() - inicio, error);
+        }
+    }
+
+    // Solo para lecturas que toleran el atraso de una réplica (ver DatabaseConnection.getConnectionLectura)
+    Connection conectarLectura() throws SQLException {
+        long inicio = System.nanoTime();
+        boolean error = true;
+        try {
+            Connection conn = DatabaseConnection.getConnectionLectura(escrituras);
+            error = false;
+            return conn;
+        } finally {
+            conexionLectura.registrar(System.nanoTime() - inicio, error);
+        }
+    }
+
+    void commit(Connection conn) throws SQLException {
+        long inicio = System.nanoTime();
+        boolean error = true;
+        try {
+            conn.commit();
+            error = false;
+            escrituras.registrar(); // las lecturas del servicio van al primario hasta que las réplicas se pongan al día
+        } finally {
+            commit.registrar(System.nanoTime() - inicio, error);
+        }
+        inicio = System.nanoTime();
+        int fallidas = TransactionHooks.confirmada(conn);
+        alConfirmar.registrar(System.nanoTime() - inicio, fallidas > 0);
+    }
+
+    void rollback(Connection conn) throws SQLException {
+        long inicio = System.nanoTime();
+        boolean error = true;
+        try {
+            conn.rollback();
+            error = false;
+        } finally {
+            TransactionHooks.descartada(conn);
+            rollback.registrar(System.nanoTime() - inicio, error);
+        }
+    }
+}
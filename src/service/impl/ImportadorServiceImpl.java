@@ -0,0 +1,559 @@
+package service.impl;
+
+import cache.TrackingIndex;
+import config.DatabaseConnection;
+import dao.EnvioDAO;
+import dao.EventoPedido;
+import dao.EventoPedidoDAO;
+import dao.PedidoDAO;
+import dao.impl.EnvioDAOImpl;
+import dao.impl.EnvioDAOIndexado;
+import dao.impl.EventoPedidoDAOImpl;
+import dao.impl.PedidoDAOImpl;
+import entities.Envio;
+import entities.EstadoEnvio;
+import entities.Pedido;
+import metrics.Instrumentacion;
+import service.ImportadorService;
+import service.ResultadoImportacion;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+// Lector (el hilo que llama) → bloques de registros → parsers → filas válidas → escritores.
+// Cada escritor usa su propia conexión y acumula tpi.importacion.filasPorCommit filas: las inserta con crearMultifila
+// (Envios, Pedidos y sus eventos CREADO del outbox) en una transacción.
+// Si el lote falla, se reintenta fila por fila para aislar las malas.
+public class ImportadorServiceImpl implements ImportadorService {
+
+    private static final int TAMANIO_BUFFER = 1 << 20;
+    private static final int REGISTROS_POR_BLOQUE = 500;
+    private static final int BLOQUES_POR_HILO = 4;      // capacidad de cada cola, por hilo que la consume
+    private static final long ESPERA_COLA_MS = 100;
+    private static final String ESTADO_PEDIDO_INICIAL = "NUEVO";
+    private static final FasesTransaccion TX = new FasesTransaccion("ImportadorService");
+
+    // Marcas de fin (se comparan por identidad)
+    private static final List<Registro> FIN_REGISTROS = new ArrayList<>(0);
+    private static final List<Fila> FIN_FILAS = new ArrayList<>(0);
+
+    private enum Columna {
+        NUMERO("numero", true), FECHA("fecha", true), CLIENTE_NOMBRE("clienteNombre", true), TOTAL("total", true),
+        ESTADO("estado", false), TRACKING("tracking", true), EMPRESA("empresa", true), TIPO("tipo", true),
+        COSTO("costo", false), FECHA_DESPACHO("fechaDespacho", false), FECHA_ESTIMADA("fechaEstimada", false),
+        ENVIO_ESTADO("envio_estado", false);
+
+        final String nombre;
+        final boolean obligatoria;
+
+        Columna(String nombre, boolean obligatoria) {
+            this.nombre = nombre;
+            this.obligatoria = obligatoria;
+        }
+    }
+
+    private final PedidoDAO pedidoDAO = Instrumentacion.envolver(PedidoDAO.class, new PedidoDAOImpl());
+    private final EnvioDAO envioDAO;
+    private final TrackingIndex trackings; // null si no hay índice de trackings
+    private final EventoPedidoDAO eventoDAO = Instrumentacion.envolver(EventoPedidoDAO.class, new EventoPedidoDAOImpl());
+
+    private final int parsers;
+    private final int escritores;
+
+    public ImportadorServiceImpl() {
+        this(null);
+    }
+
+    // Los Envios importados entran al índice de trackings (si hay) al confirmarse cada lote
+    public ImportadorServiceImpl(TrackingIndex trackings) {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), 2, trackings);
+    }
+
+    public ImportadorServiceImpl(int parsers, int escritores) {
+        this(parsers, escritores, null);
+    }
+
+    public ImportadorServiceImpl(int parsers, int escritores, TrackingIndex trackings) {
+        if (parsers < 1 || escritores < 1) throw new IllegalArgumentException("Se requiere al menos un parser y un escritor");
+        this.parsers = parsers;
+        this.escritores = escritores;
+        this.trackings = trackings;
+        this.envioDAO = EnvioDAOIndexado.envolver(Instrumentacion.envolver(EnvioDAO.class, new EnvioDAOImpl()), trackings);
+    }
+
+    private static final class Registro {
+        final long linea;       // primera línea física del registro
+        final String texto;
+
+        Registro(long linea, String texto) {
+            this.linea = linea;
+            this.texto = texto;
+        }
+    }
+
+    private static final class Fila {
+        final long linea;
+        final String texto;
+        final Pedido pedido;    // con su Envio
+
+        Fila(long linea, String texto, Pedido pedido) {
+            this.linea = linea;
+            this.texto = texto;
+            this.pedido = pedido;
+        }
+    }
+
+    // Estado compartido por las etapas de una importación
+    private static final class Corrida {
+        final BlockingQueue<List<Registro>> registros;
+        final BlockingQueue<List<Fila>> filas;
+        final int[] indices;    // posición de cada Columna en el registro (-1 si no está)
+        final char separador;
+        final Rechazos rechazos;
+        final ExecutorService hilos;
+        final AtomicReference<Throwable> falla = new AtomicReference<>();
+        final AtomicInteger parsersActivos;
+        final int escritores;
+        // Repetidos dentro del archivo: gana la primera aparición
+        final Set<String> numeros = ConcurrentHashMap.newKeySet();
+        final Set<String> trackings = ConcurrentHashMap.newKeySet();
+        final LongAdder importadas = new LongAdder();
+        final LongAdder lotes = new LongAdder();
+        final LongAdder esperaLecturaNs = new LongAdder();
+        final LongAdder esperaParseoNs = new LongAdder();
+
+        Corrida(int parsers, int escritores, int[] indices, char separador, Rechazos rechazos, ExecutorService hilos) {
+            this.registros = new ArrayBlockingQueue<>(parsers * BLOQUES_POR_HILO);
+            this.filas = new ArrayBlockingQueue<>(escritores * BLOQUES_POR_HILO);
+            this.indices = indices;
+            this.separador = separador;
+            this.rechazos = rechazos;
+            this.hilos = hilos;
+            this.parsersActivos = new AtomicInteger(parsers);
+            this.escritores = escritores;
+        }
+
+        // Una etapa que falla corta toda la corrida: se interrumpen los hilos bloqueados en las colas
+        void fallar(Throwable t) {
+            if (falla.compareAndSet(null, t)) hilos.shutdownNow();
+        }
+    }
+
+    @Override
+    public ResultadoImportacion importar(Path archivo, Path rechazados) throws Exception {
+        if (archivo == null || rechazados == null) throw new IllegalArgumentException("Archivo y archivo de rechazados requeridos");
+        long inicio = System.nanoTime();
+        // Cada escritor retiene una conexión durante toda la importación: se deja al menos una libre
+        int escritoresEfectivos = Math.max(1, Math.min(escritores, DatabaseConnection.getPool().getMaximo() - 1));
+
+        AtomicInteger numeroHilo = new AtomicInteger();
+        ExecutorService hilos = Executors.newFixedThreadPool(parsers + escritoresEfectivos, r -> {
+            Thread t = new Thread(r, "importador-" + numeroHilo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        long leidas = 0;
+        try (BufferedReader in = new BufferedReader(
+                 new InputStreamReader(Files.newInputStream(archivo), StandardCharsets.UTF_8), TAMANIO_BUFFER);
+             Rechazos rechazos = new Rechazos(rechazados)) {
+            long[] linea = {0};
+            String encabezado = leerRegistro(in, linea);
+            if (encabezado == null) throw new IllegalArgumentException("Archivo vacío");
+            if (encabezado.startsWith("\uFEFF")) encabezado = encabezado.substring(1);
+            char separador = encabezado.indexOf(',') < 0 && encabezado.indexOf(';') >= 0 ? ';' : ',';
+            Corrida c = new Corrida(parsers, escritoresEfectivos, indices(parsearCsv(encabezado, separador)),
+                                    separador, rechazos, hilos);
+
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int i = 0; i < parsers; i++) tareas.add(hilos.submit(() -> etapa(c, () -> parsear(c))));
+            for (int i = 0; i < escritoresEfectivos; i++) tareas.add(hilos.submit(() -> etapa(c, () -> escribir(c))));
+
+            List<Registro> bloque = new ArrayList<>(REGISTROS_POR_BLOQUE);
+            String registro;
+            long desde = linea[0] + 1;
+            while ((registro = leerRegistro(in, linea)) != null) {
+                if (!registro.isBlank()) {
+                    bloque.add(new Registro(desde, registro));
+                    leidas++;
+                    if (bloque.size() == REGISTROS_POR_BLOQUE) {
+                        if (!poner(c.registros, bloque, c, c.esperaLecturaNs)) break;
+                        bloque = new ArrayList<>(REGISTROS_POR_BLOQUE);
+                    }
+                }
+                desde = linea[0] + 1;
+            }
+            if (!bloque.isEmpty()) poner(c.registros, bloque, c, c.esperaLecturaNs);
+            for (int i = 0; i < parsers; i++) poner(c.registros, FIN_REGISTROS, c, c.esperaLecturaNs);
+
+            for (Future<?> t : tareas) {
+                try {
+                    t.get();
+                } catch (ExecutionException | CancellationException ignore) {
+                    // la causa queda en c.falla
+                }
+            }
+            if (c.falla.get() != null) throw c.falla.get();
+
+            return new ResultadoImportacion(leidas, c.importadas.sum(), rechazos.getTotal(), c.lotes.sum(),
+                    (System.nanoTime() - inicio) / 1_000_000,
+                    c.esperaLecturaNs.sum() / 1_000_000, c.esperaParseoNs.sum() / 1_000_000);
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new Exception("Error importando " + archivo + " (línea leída " + leidas + "): " + e.getMessage(), e);
+        } finally {
+            hilos.shutdownNow();
+        }
+    }
+
+    private interface Etapa {
+        void correr() throws Exception;
+    }
+
+    private static Void etapa(Corrida c, Etapa etapa) {
+        try {
+            etapa.correr();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // corrida cancelada por otra etapa
+        } catch (Throwable t) {
+            c.fallar(t);
+        }
+        return null;
+    }
+
+    // Espera lugar en la cola (backpressure); false si la corrida se canceló
+    private static <T> boolean poner(BlockingQueue<T> cola, T elemento, Corrida c, LongAdder espera)
+            throws InterruptedException {
+        if (cola.offer(elemento)) return true;
+        long inicio = System.nanoTime();
+        try {
+            while (!cola.offer(elemento, ESPERA_COLA_MS, TimeUnit.MILLISECONDS)) {
+                if (c.falla.get() != null) return false;
+            }
+            return true;
+        } finally {
+            espera.add(System.nanoTime() - inicio);
+        }
+    }
+
+    private void parsear(Corrida c) throws InterruptedException {
+        while (true) {
+            List<Registro> bloque = c.registros.take();
+            if (bloque == FIN_REGISTROS) break;
+            List<Fila> validas = new ArrayList<>(bloque.size());
+            for (Registro r : bloque) {
+                try {
+                    validas.add(new Fila(r.linea, r.texto, convertir(parsearCsv(r.texto, c.separador), c.indices)));
+                } catch (IllegalArgumentException e) {
+                    c.rechazos.agregar(r.linea, e.getMessage(), r.texto);
+                }
+            }
+            if (!validas.isEmpty() && !poner(c.filas, validas, c, c.esperaParseoNs)) return;
+        }
+        // El último parser en terminar avisa a los escritores
+        if (c.parsersActivos.decrementAndGet() == 0) {
+            for (int i = 0; i < c.escritores; i++) poner(c.filas, FIN_FILAS, c, c.esperaParseoNs);
+        }
+    }
+
+    private void escribir(Corrida c) throws SQLException, InterruptedException {
+        Connection conn = TX.conectar();
+        try {
+            conn.setAutoCommit(false);
+            int filasPorCommit = DatabaseConnection.getConfig().getFilasPorCommitImportacion();
+            List<Fila> lote = new ArrayList<>(filasPorCommit);
+            while (true) {
+                List<Fila> filas = c.filas.take();
+                if (filas == FIN_FILAS) break;
+                for (Fila f : filas) {
+                    Pedido a = f.pedido;
+                    if (!c.numeros.add(a.getNumero())) {
+                        c.rechazos.agregar(f.linea, "Número de pedido repetido en el archivo", f.texto);
+                        continue;
+                    }
+                    if (!c.trackings.add(a.getEnvio().getTracking())) {
+                        c.numeros.remove(a.getNumero());
+                        c.rechazos.agregar(f.linea, "Tracking repetido en el archivo", f.texto);
+                        continue;
+                    }
+                    lote.add(f);
+                    if (lote.size() == filasPorCommit) {
+                        escribirLote(lote, conn, c);
+                        lote.clear();
+                    }
+                }
+            }
+            if (!lote.isEmpty()) escribirLote(lote, conn, c);
+        } finally {
+            try {
+                conn.setAutoCommit(true);
+                conn.close();
+            } catch (SQLException ignore) {}
+        }
+    }
+
+    private void escribirLote(List<Fila> lote, Connection conn, Corrida c) throws SQLException {
+        // Los números y trackings que ya están en la base se rechazan antes: harían fallar el INSERT multifila entero
+        Map<String, Fila> porNumero = new LinkedHashMap<>();
+        for (Fila f : lote) porNumero.put(f.pedido.getNumero(), f);
+        for (Pedido existente : pedidoDAO.buscarPorNumeros(porNumero.keySet(), conn)) {
+            Fila f = porNumero.remove(existente.getNumero());
+            if (f != null) c.rechazos.agregar(f.linea, "El número de pedido ya existe", f.texto);
+        }
+        Map<String, Fila> porTracking = new HashMap<>();
+        for (Fila f : porNumero.values()) porTracking.put(f.pedido.getEnvio().getTracking(), f);
+        for (String existente : envioDAO.buscarTrackingsExistentes(porTracking.keySet(), conn)) {
+            Fila f = porTracking.remove(existente);
+            if (f == null) continue;
+            porNumero.remove(f.pedido.getNumero());
+            c.rechazos.agregar(f.linea, "El tracking ya existe", f.texto);
+        }
+        if (porNumero.isEmpty()) {
+            TX.commit(conn);
+            return;
+        }
+
+        List<Fila> filas = new ArrayList<>(porNumero.values());
+        List<Envio> envios = new ArrayList<>(filas.size());
+        List<Pedido> pedidos = new ArrayList<>(filas.size());
+        for (Fila f : filas) {
+            envios.add(f.pedido.getEnvio());
+            pedidos.add(f.pedido);
+        }
+
+        try {
+            envioDAO.crearMultifila(envios, conn); // asigna los IDs que usa el id_envio de cada Pedido
+            pedidoDAO.crearMultifila(pedidos, conn);
+            EnvioDAOIndexado.pedidosCreados(trackings, pedidos, conn);
+            List<EventoPedido> eventos = new ArrayList<>(pedidos.size());
+            for (Pedido a : pedidos) eventos.add(EventosPedido.creado(a));
+            eventoDAO.registrarEnLote(eventos, conn);
+            TX.commit(conn);
+            c.importadas.add(filas.size());
+            c.lotes.increment();
+            return;
+        } catch (SQLException e) {
+            TX.rollback(conn);
+            // Los IDs asignados antes del rollback ya no existen
+            for (Fila f : filas) {
+                f.pedido.setId(null);
+                f.pedido.getEnvio().setId(null);
+            }
+        }
+
+        for (Fila f : filas) {
+            Pedido a = f.pedido;
+            Envio b = a.getEnvio();
+            try {
+                if (envioDAO.crear(b, conn) == null) throw new SQLException("No se pudo crear Envio");
+                if (pedidoDAO.crear(a, conn) == null) throw new SQLException("No se pudo crear Pedido");
+                EnvioDAOIndexado.pedidosCreados(trackings, List.of(a), conn);
+                eventoDAO.registrar(EventosPedido.creado(a), conn);
+                TX.commit(conn);
+                c.importadas.increment();
+            } catch (SQLException e) {
+                TX.rollback(conn);
+                a.setId(null);
+                b.setId(null);
+                c.rechazos.agregar(f.linea, e.getMessage(), f.texto);
+            }
+        }
+    }
+
+    // Arma un registro CSV: si quedan comillas abiertas, el campo sigue en la línea siguiente
+    private static String leerRegistro(BufferedReader in, long[] linea) throws IOException {
+        String primera = in.readLine();
+        if (primera == null) return null;
+        linea[0]++;
+        if (!comillasAbiertas(primera, false)) return primera;
+
+        StringBuilder registro = new StringBuilder(primera);
+        boolean abiertas = true;
+        String siguiente;
+        while (abiertas && (siguiente = in.readLine()) != null) {
+            linea[0]++;
+            registro.append('\n').append(siguiente);
+            abiertas = comillasAbiertas(siguiente, true);
+        }
+        return registro.toString();
+    }
+
+    private static boolean comillasAbiertas(String texto, boolean abiertas) {
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) == '"') abiertas = !abiertas;
+        }
+        return abiertas;
+    }
+
+    // RFC 4180
+    private static List<String> parsearCsv(String registro, char separador) {
+        List<String> campos = new ArrayList<>(Columna.values().length);
+        StringBuilder campo = new StringBuilder();
+        boolean comillas = false;
+        for (int i = 0; i < registro.length(); i++) {
+            char ch = registro.charAt(i);
+            if (comillas) {
+                if (ch != '"') {
+                    campo.append(ch);
+                } else if (i + 1 < registro.length() && registro.charAt(i + 1) == '"') {
+                    campo.append('"');
+                    i++;
+                } else {
+                    comillas = false;
+                }
+            } else if (ch == '"') {
+                comillas = true;
+            } else if (ch == separador) {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else {
+                campo.append(ch);
+            }
+        }
+        if (comillas) throw new IllegalArgumentException("Comillas sin cerrar");
+        campos.add(campo.toString());
+        return campos;
+    }
+
+    private static int[] indices(List<String> encabezado) {
+        int[] indices = new int[Columna.values().length];
+        Arrays.fill(indices, -1);
+        for (int i = 0; i < encabezado.size(); i++) {
+            String nombre = encabezado.get(i).trim();
+            for (Columna col : Columna.values()) {
+                if (col.nombre.equalsIgnoreCase(nombre)) indices[col.ordinal()] = i;
+            }
+        }
+        List<String> faltantes = new ArrayList<>();
+        for (Columna col : Columna.values()) {
+            if (col.obligatoria && indices[col.ordinal()] < 0) faltantes.add(col.nombre);
+        }
+        if (!faltantes.isEmpty()) throw new IllegalArgumentException("Faltan columnas en el encabezado: " + faltantes);
+        return indices;
+    }
+
+    private static Pedido convertir(List<String> campos, int[] indices) {
+        Envio b = new Envio();
+        b.setTracking(valor(campos, indices, Columna.TRACKING));
+        // Los IDs del INSERT multifila se recuperan por tracking
+        if (b.getTracking() == null) throw new IllegalArgumentException("Tracking requerido");
+        b.setEmpresa(mayusculas(valor(campos, indices, Columna.EMPRESA)));
+        b.setTipo(mayusculas(valor(campos, indices, Columna.TIPO)));
+        b.setCosto(importe(campos, indices, Columna.COSTO));
+        b.setFechaDespacho(fecha(campos, indices, Columna.FECHA_DESPACHO));
+        b.setFechaEstimada(fecha(campos, indices, Columna.FECHA_ESTIMADA));
+        String estadoEnvio = valor(campos, indices, Columna.ENVIO_ESTADO);
+        EstadoEnvio estado = estadoEnvio == null ? EstadoEnvio.EN_PREPARACION : EstadoEnvio.desde(estadoEnvio);
+        if (estado == null) throw new IllegalArgumentException("Estado de Envio inválido: " + estadoEnvio);
+        b.setEstado(estado.name());
+
+        Pedido a = new Pedido();
+        a.setNumero(valor(campos, indices, Columna.NUMERO));
+        a.setFecha(fecha(campos, indices, Columna.FECHA));
+        a.setClienteNombre(valor(campos, indices, Columna.CLIENTE_NOMBRE));
+        a.setTotal(importe(campos, indices, Columna.TOTAL));
+        String estadoPedido = mayusculas(valor(campos, indices, Columna.ESTADO));
+        a.setEstado(estadoPedido != null ? estadoPedido : ESTADO_PEDIDO_INICIAL);
+
+        PedidoServiceImpl.validar(a, b);
+        PedidoServiceImpl.validarEstado(a.getEstado());
+        a.setEnvio(b);
+        return a;
+    }
+
+    private static String valor(List<String> campos, int[] indices, Columna col) {
+        int i = indices[col.ordinal()];
+        if (i < 0 || i >= campos.size()) return null;
+        String v = campos.get(i).trim();
+        return v.isEmpty() ? null : v;
+    }
+
+    private static String mayusculas(String v) {
+        return v == null ? null : v.toUpperCase();
+    }
+
+    private static Double importe(List<String> campos, int[] indices, Columna col) {
+        String v = valor(campos, indices, col);
+        if (v == null) return null;
+        try {
+            return Double.valueOf(v);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(col.nombre + " inválido: " + v);
+        }
+    }
+
+    private static LocalDate fecha(List<String> campos, int[] indices, Columna col) {
+        String v = valor(campos, indices, col);
+        if (v == null) return null;
+        try {
+            return LocalDate.parse(v);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(col.nombre + " inválida (YYYY-MM-DD): " + v);
+        }
+    }
+
+    // Archivo de rechazados en CSV (linea,motivo,registro); lo comparten parsers y escritores
+    private static final class Rechazos implements Closeable {
+        private final BufferedWriter out;
+        private final StringBuilder linea = new StringBuilder(256);
+        private long total;
+
+        Rechazos(Path archivo) throws IOException {
+            out = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8);
+            out.write("linea,motivo,registro\n");
+        }
+
+        synchronized void agregar(long numeroLinea, String motivo, String registro) {
+            linea.setLength(0);
+            linea.append(numeroLinea).append(',');
+            ExportadorServiceImpl.csvTexto(linea, motivo).append(',');
+            ExportadorServiceImpl.csvTexto(linea, registro).append('\n');
+            try {
+                out.append(linea);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            total++;
+        }
+
+        synchronized long getTotal() {
+            return total;
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package service.impl;
+
+import config.DatabaseConnection;
+import config.PlazoConsulta;
+import dao.PedidoFiltro;
+import entities.Envio;
+import entities.Pedido;
+import service.PedidoService;
+import service.PedidoServiceAsync;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntSupplier;
+
+public class PedidoServiceAsyncImpl implements PedidoServiceAsync {
+
+    private final PedidoService service;
+    private final ExecutorService executor;
+    private final Permisos permisos;
+    private final IntSupplier maxConcurrencia;
+    private final Duration timeoutDefault;
+
+    public PedidoServiceAsyncImpl(PedidoService service) {
+        // Más llamadas concurrentes que conexiones solo agregan espera en el pool. Se sigue el máximo actual
+        // del pool: reconfigurar() o recargarConfiguracion() lo cambian en caliente
+        this(service, () -> DatabaseConnection.getPool().getMaximo(), Duration.ofSeconds(30));
+    }
+
+    public PedidoServiceAsyncImpl(PedidoService service, int maxConcurrencia, Duration timeoutDefault) {
+        this(service, validarConcurrencia(maxConcurrencia), timeoutDefault);
+    }
+
+    private PedidoServiceAsyncImpl(PedidoService service, IntSupplier maxConcurrencia, Duration timeoutDefault) {
+        if (service == null) throw new IllegalArgumentException("PedidoService requerido");
+        this.service = service;
+        this.maxConcurrencia = maxConcurrencia;
+        this.permisos = new Permisos(Math.max(1, maxConcurrencia.getAsInt()));
+        this.timeoutDefault = timeoutDefault;
+        this.executor = crearExecutor();
+    }
+
+    private static IntSupplier validarConcurrencia(int maxConcurrencia) {
+        if (maxConcurrencia < 1) throw new IllegalArgumentException("maxConcurrencia debe ser >= 1");
+        return () -> maxConcurrencia;
+    }
+
+    // Semaphore de tamaño ajustable (reducePermits es protected). Al achicarse, los permisos prestados
+    // de más se absorben a medida que se devuelven
+    private static final class Permisos extends Semaphore {
+        private static final long serialVersionUID = 1L;
+
+        private volatile int tamanio;
+
+        Permisos(int tamanio) {
+            super(tamanio, true);
+            this.tamanio = tamanio;
+        }
+
+        void ajustar(int nuevo) {
+            if (nuevo == tamanio) return;
+            synchronized (this) {
+                if (nuevo > tamanio) release(nuevo - tamanio);
+                else if (nuevo < tamanio) reducePermits(tamanio - nuevo);
+                tamanio = nuevo;
+            }
+        }
+
+        int getTamanio() { return tamanio; }
+    }
+
+    // Future de una escritura: cancel() solo tiene efecto mientras la llamada no empezó
+    private static final class Escritura<T> extends CompletableFuture<T> {
+        private static final int PENDIENTE = 0, EMPEZADA = 1, CANCELADA = 2;
+        private final AtomicInteger estado = new AtomicInteger(PENDIENTE);
+
+        boolean empezar() {
+            return estado.compareAndSet(PENDIENTE, EMPEZADA);
+        }
+
+        @Override
+        public boolean cancel(boolean interrumpir) {
+            return estado.compareAndSet(PENDIENTE, CANCELADA) && super.cancel(false);
+        }
+    }
+
+    // Hilos virtuales (Java 21+). Se buscan por reflexión para seguir compilando con JDKs anteriores,
+    // donde se usa un pool de hilos daemon.
+    private static ExecutorService crearExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "pedido-service-async");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> crearPedidoCompleto(Pedido a, Envio b) {
+        return ejecutar(s -> { s.crearPedidoCompleto(a, b); return null; }, timeoutDefault);
+    }
+
+    @Override
+    public CompletableFuture<Void> actualizarPedido(Pedido a) {
+        return ejecutar(s -> { s.actualizarPedido(a); return null; }, timeoutDefault);
+    }
+
+    @Override
+    public CompletableFuture<Void> eliminarPedido(int idPedido) {
+        return ejecutar(s -> { s.eliminarPedido(idPedido); return null; }, timeoutDefault);
+    }
+
+    @Override
+    public CompletableFuture<Pedido> obtenerPedidoPorId(int idPedido) {
+        return consultar(s -> s.obtenerPedidoPorId(idPedido), timeoutDefault);
+    }
+
+    @Override
+    public CompletableFuture<Pedido> obtenerPedidoPorNumero(String numero) {
+        return consultar(s -> s.obtenerPedidoPorNumero(numero), timeoutDefault);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Pedido>> obtenerPedidosPorNumeros(Collection<String> numeros) {
+        return consultar(s -> s.obtenerPedidosPorNumeros(numeros), timeoutDefault);
+    }
+
+    @Override
+    public CompletableFuture<List<Pedido>> buscarPedidos(PedidoFiltro filtro) {
+        return consultar(s -> s.buscarPedidos(filtro), timeoutDefault);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> ejecutar(Llamada<T> llamada, Duration timeout) {
+        Escritura<T> resultado = new Escritura<>();
+        Future<?> tarea = enviar(llamada, timeout, resultado, resultado::empezar);
+        // Sin orTimeout: el plazo llega a las sentencias y el future espera el resultado real.
+        // Solo se interrumpe una tarea que todavía no empezó (cancel() de Escritura no tiene efecto después)
+        if (tarea != null) resultado.whenComplete((r, e) -> { if (resultado.isCancelled()) tarea.cancel(true); });
+        return resultado;
+    }
+
+    @Override
+    public <T> CompletableFuture<T> consultar(Llamada<T> llamada, Duration timeout) {
+        CompletableFuture<T> resultado = new CompletableFuture<>();
+        Future<?> tarea = enviar(llamada, timeout, resultado, () -> !resultado.isDone());
+        // Timeout o cancelación del llamador: se abandona la lectura y se interrumpe su hilo
+        if (tarea != null) {
+            resultado.orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS)
+                     .whenComplete((r, e) -> { if (e != null) tarea.cancel(true); });
+        }
+        return resultado;
+    }
+
+    // null si el executor está cerrado (el future ya terminó con el error)
+    private <T> Future<?> enviar(Llamada<T> llamada, Duration timeout, CompletableFuture<T> resultado,
+                                 BooleanSupplier empezar) {
+        PlazoConsulta plazo = new PlazoConsulta(System.nanoTime() + timeout.toNanos());
+        try {
+            return executor.submit(() -> {
+                boolean conPermiso = false;
+                try {
+                    permisos.ajustar(Math.max(1, maxConcurrencia.getAsInt()));
+                    // El tiempo esperando turno también cuenta para el timeout de la llamada
+                    conPermiso = permisos.tryAcquire(plazo.restanteNanos(), TimeUnit.NANOSECONDS);
+                    if (!conPermiso) throw new TimeoutException("Timeout esperando turno (" + timeout.toMillis() + " ms)");
+                    if (!empezar.getAsBoolean()) return; // cancelada o vencida mientras esperaba turno
+                    resultado.complete(plazo.ejecutar(() -> llamada.ejecutar(service)));
+                } catch (Throwable e) {
+                    resultado.completeExceptionally(e instanceof CompletionException ? e.getCause() : e);
+                } finally {
+                    if (conPermiso) permisos.release();
+                }
+            });
+        } catch (RuntimeException e) { // executor cerrado
+            resultado.completeExceptionally(e);
+            return null;
+        }
+    }
+
+    public int getPermisosDisponibles() {
+        return permisos.availablePermits();
+    }
+
+    public int getMaxConcurrencia() {
+        return permisos.getTamanio();
+    }
+
+    public int getEnEspera() {
+        return permisos.getQueueLength();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -1,40 +1,81 @@
 package service.impl;
 
+import cache.PedidoCache;
+import cache.TrackingIndex;
 import config.DatabaseConnection;
+import dao.ConflictoVersionException;
 import dao.EnvioDAO;
+import dao.EventoPedido;
+import dao.EventoPedidoDAO;
 import dao.PedidoDAO;
+import dao.PedidoFiltro;
+import dao.PedidoResumen;
 import dao.impl.EnvioDAOImpl;
+import dao.impl.EnvioDAOIndexado;
+import dao.impl.EventoPedidoDAOImpl;
 import dao.impl.PedidoDAOImpl;
 import entities.Envio;
 import entities.Pedido;
+import metrics.Instrumentacion;
 import service.PedidoService;
+import service.ResultadoLote;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+// Cada alta, cambio o baja graba su evento en el outbox EventoPedido dentro de la misma transacción,
+// después de tomar el lock de la fila: el orden de los eventos de un Pedido es el orden de sus cambios.
+// Las consultas van a las réplicas de lectura si hay (TX.conectarLectura); lo que se lee para modificar, al primario.
 public class PedidoServiceImpl implements PedidoService {
 
-    private final PedidoDAO pedidoDAO = new PedidoDAOImpl();
-    private final EnvioDAO envioDAO = new EnvioDAOImpl();
+    private final PedidoDAO pedidoDAO = Instrumentacion.envolver(PedidoDAO.class, new PedidoDAOImpl());
+    private final EnvioDAO envioDAO;
+    private final EventoPedidoDAO eventoDAO = Instrumentacion.envolver(EventoPedidoDAO.class, new EventoPedidoDAOImpl());
+
+    private final PedidoCache cache;
+    private final TrackingIndex trackings; // null si no hay índice de trackings
+
+    private static final int MAX_TAMANIO_PAGINA = 1_000;
+    private static final int MAX_INTENTOS_CONFLICTO = 5;
+    private static final Set<String> ESTADOS_PEDIDO = Set.of("NUEVO", "FACTURADO", "ENVIADO");
+    private static final long BACKOFF_BASE_MS = 10;
+    private static final long BACKOFF_MAX_MS = 200;
+
+    private static final FasesTransaccion TX = new FasesTransaccion("PedidoService");
+
+    public PedidoServiceImpl() {
+        this(new PedidoCache());
+    }
+
+    public PedidoServiceImpl(PedidoCache cache) {
+        this(cache, null);
+    }
+
+    public PedidoServiceImpl(PedidoCache cache, TrackingIndex trackings) {
+        this.cache = cache;
+        this.trackings = trackings;
+        this.envioDAO = EnvioDAOIndexado.envolver(Instrumentacion.envolver(EnvioDAO.class, new EnvioDAOImpl()), trackings);
+        cache.setRetrasoLecturas(DatabaseConnection.getRetrasoLecturasMs());
+    }
 
     @Override
     public void crearPedidoCompleto(Pedido a, Envio b) throws Exception {
         Connection conn = null;
         try {
-            // Validaciones básicas
-            if (a == null || b == null)
-                throw new IllegalArgumentException("Pedido y Envio son obligatorios");
-            if (a.getNumero() == null || a.getNumero().isBlank())
-                throw new IllegalArgumentException("Número de pedido requerido");
-            if (a.getFecha() == null)
-                throw new IllegalArgumentException("Fecha de pedido requerida");
-            if (a.getClienteNombre() == null || a.getClienteNombre().isBlank())
-                throw new IllegalArgumentException("Cliente requerido");
-            if (a.getTotal() == null)
-                throw new IllegalArgumentException("Total requerido");
-
-            conn = DatabaseConnection.getConnection();
+            validar(a, b);
+
+            conn = TX.conectar();
             conn.setAutoCommit(false); // 👈 acá va solo 'false'
 
             Integer idB = envioDAO.crear(b, conn);
@@ -44,11 +85,14 @@ public class PedidoServiceImpl implements PedidoService {
             a.setEnvio(b);
             Integer idA = pedidoDAO.crear(a, conn);
             if (idA == null) throw new SQLException("No se pudo crear Pedido");
+            EnvioDAOIndexado.pedidosCreados(trackings, List.of(a), conn);
+            eventoDAO.registrar(EventosPedido.creado(a), conn);
 
-            conn.commit();
+            TX.commit(conn);
+            cache.actualizar(a);
         } catch (Exception e) {
             if (conn != null) {
-                try { conn.rollback(); } catch (SQLException ignore) {}
+                try { TX.rollback(conn); } catch (SQLException ignore) {}
             }
             throw new Exception("Error en la transacción crearPedidoCompleto: " + e.getMessage(), e);
         } finally {
@@ -61,6 +105,100 @@ public class PedidoServiceImpl implements PedidoService {
         }
     }
 
+    @Override
+    public List<ResultadoLote> crearPedidosEnLote(List<Pedido> pedidos) throws Exception {
+        return crearPedidosEnLote(pedidos, DatabaseConnection.getConfig().getFilasPorCommit());
+    }
+
+    @Override
+    public List<ResultadoLote> crearPedidosEnLote(List<Pedido> pedidos, int filasPorCommit) throws Exception {
+        if (pedidos == null) throw new IllegalArgumentException("Lista de pedidos requerida");
+        if (filasPorCommit < 1) throw new IllegalArgumentException("filasPorCommit debe ser >= 1");
+
+        ResultadoLote[] resultados = new ResultadoLote[pedidos.size()];
+        List<Integer> validos = new ArrayList<>(pedidos.size());
+        for (int i = 0; i < pedidos.size(); i++) {
+            Pedido a = pedidos.get(i);
+            try {
+                validar(a, a != null ? a.getEnvio() : null);
+                validos.add(i);
+            } catch (IllegalArgumentException e) {
+                resultados[i] = ResultadoLote.error(i, a != null ? a.getNumero() : null, e.getMessage());
+            }
+        }
+
+        Connection conn = null;
+        try {
+            conn = TX.conectar();
+            conn.setAutoCommit(false);
+
+            for (int desde = 0; desde < validos.size(); desde += filasPorCommit) {
+                List<Integer> tramo = validos.subList(desde, Math.min(validos.size(), desde + filasPorCommit));
+                crearTramo(pedidos, tramo, resultados, conn);
+            }
+        } catch (SQLException e) {
+            throw new Exception("Error en la carga en lote: " + e.getMessage(), e);
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                } catch (SQLException ignore) {}
+            }
+        }
+        return Arrays.asList(resultados);
+    }
+
+    // Un tramo = un commit. Si el lote falla, se reintenta fila por fila para aislar las filas malas.
+    private void crearTramo(List<Pedido> pedidos, List<Integer> tramo, ResultadoLote[] resultados,
+                            Connection conn) throws SQLException {
+        List<Pedido> lotePedidos = new ArrayList<>(tramo.size());
+        List<Envio> loteEnvios = new ArrayList<>(tramo.size());
+        for (int i : tramo) {
+            lotePedidos.add(pedidos.get(i));
+            loteEnvios.add(pedidos.get(i).getEnvio());
+        }
+
+        try {
+            envioDAO.crearEnLote(loteEnvios, conn); // asigna los IDs generados a cada Envio
+            pedidoDAO.crearEnLote(lotePedidos, conn);
+            EnvioDAOIndexado.pedidosCreados(trackings, lotePedidos, conn);
+            List<EventoPedido> eventos = new ArrayList<>(lotePedidos.size());
+            for (Pedido a : lotePedidos) eventos.add(EventosPedido.creado(a));
+            eventoDAO.registrarEnLote(eventos, conn);
+            TX.commit(conn);
+            for (int i : tramo) resultados[i] = ResultadoLote.ok(i, pedidos.get(i).getNumero(), pedidos.get(i).getId());
+            return;
+        } catch (SQLException e) {
+            TX.rollback(conn);
+            // Los IDs asignados antes del rollback ya no existen
+            for (int k = 0; k < lotePedidos.size(); k++) {
+                lotePedidos.get(k).setId(null);
+                loteEnvios.get(k).setId(null);
+            }
+        }
+
+        for (int i : tramo) {
+            Pedido a = pedidos.get(i);
+            Envio b = a.getEnvio();
+            try {
+                Integer idB = envioDAO.crear(b, conn);
+                if (idB == null) throw new SQLException("No se pudo crear Envio");
+                Integer idA = pedidoDAO.crear(a, conn);
+                if (idA == null) throw new SQLException("No se pudo crear Pedido");
+                EnvioDAOIndexado.pedidosCreados(trackings, List.of(a), conn);
+                eventoDAO.registrar(EventosPedido.creado(a), conn);
+                TX.commit(conn);
+                resultados[i] = ResultadoLote.ok(i, a.getNumero(), a.getId());
+            } catch (SQLException e) {
+                TX.rollback(conn);
+                a.setId(null);
+                b.setId(null);
+                resultados[i] = ResultadoLote.error(i, a.getNumero(), e.getMessage());
+            }
+        }
+    }
+
     @Override
     public void actualizarPedido(Pedido a) throws Exception {
         Connection conn = null;
@@ -68,16 +206,29 @@ public class PedidoServiceImpl implements PedidoService {
             if (a == null || a.getId() == null)
                 throw new IllegalArgumentException("Pedido con ID requerido");
 
-            conn = DatabaseConnection.getConnection();
+            conn = TX.conectar();
             conn.setAutoCommit(false);
 
+            EnumSet<Pedido.Campo> cambios = a.getCambios(); // actualizar() los limpia al confirmarse
             boolean ok = pedidoDAO.actualizar(a, conn);
             if (!ok) throw new SQLException("No se actualizó el pedido");
+            if (!cambios.isEmpty()) eventoDAO.registrar(EventosPedido.actualizado(a, cambios), conn);
 
-            conn.commit();
+            TX.commit(conn);
+            cache.invalidar(a.getId());
+            if (trackings != null && cambios.contains(Pedido.Campo.ENVIO)) {
+                // El Envio anterior queda sin Pedido; el nuevo se vuelve a resolver desde la BD
+                trackings.pedidosDadosDeBaja(List.of(a.getId().intValue()));
+                if (a.getEnvio() != null && a.getEnvio().getId() != null)
+                    trackings.quitar(List.of(a.getEnvio().getId().intValue()));
+            }
         } catch (Exception e) {
             if (conn != null) {
-                try { conn.rollback(); } catch (SQLException ignore) {}
+                try { TX.rollback(conn); } catch (SQLException ignore) {}
+            }
+            if (e instanceof ConflictoVersionException) {
+                cache.invalidar(a.getId()); // la copia cacheada tiene la versión vieja
+                throw e;
             }
             throw new Exception("Error actualizando pedido: " + e.getMessage(), e);
         } finally {
@@ -90,20 +241,112 @@ public class PedidoServiceImpl implements PedidoService {
         }
     }
 
+    @Override
+    public Pedido actualizarPedidoConReintentos(int idPedido, Consumer<Pedido> cambios) throws Exception {
+        if (cambios == null) throw new IllegalArgumentException("Cambios requeridos");
+        for (int intento = 1; ; intento++) {
+            // Siempre de la base: una copia cacheada puede tener una versión vieja
+            Pedido p;
+            try (Connection conn = TX.conectar()) {
+                p = pedidoDAO.buscarPorId(idPedido, conn);
+            } catch (SQLException e) {
+                throw new Exception("Error obteniendo pedido: " + e.getMessage(), e);
+            }
+            if (p == null) return null;
+
+            cambios.accept(p);
+            try {
+                actualizarPedido(p);
+                return p;
+            } catch (ConflictoVersionException e) {
+                if (intento >= MAX_INTENTOS_CONFLICTO) throw e;
+                // Backoff exponencial con jitter para que los que chocaron no vuelvan a chocar
+                long tope = Math.min(BACKOFF_MAX_MS, BACKOFF_BASE_MS << (intento - 1));
+                Thread.sleep(ThreadLocalRandom.current().nextLong(tope + 1));
+            }
+        }
+    }
+
+    @Override
+    public void cambiarEstado(int idPedido, String estado) throws Exception {
+        validarEstado(estado);
+        Connection conn = null;
+        try {
+            conn = TX.conectar();
+            conn.setAutoCommit(false);
+
+            if (pedidoDAO.cambiarEstado(idPedido, estado, conn)) {
+                eventoDAO.registrar(EventosPedido.estadoCambiado(idPedido, estado), conn);
+            } else if (pedidoDAO.buscarPorId(idPedido, conn) == null) {
+                throw new SQLException("No existe el pedido " + idPedido);
+            } // si no, ya tenía ese estado: sin evento
+
+            TX.commit(conn);
+            cache.invalidar(idPedido);
+        } catch (Exception e) {
+            if (conn != null) {
+                try { TX.rollback(conn); } catch (SQLException ignore) {}
+            }
+            throw new Exception("Error cambiando estado: " + e.getMessage(), e);
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                } catch (SQLException ignore) {}
+            }
+        }
+    }
+
+    @Override
+    public int cambiarEstado(Collection<Integer> idsPedido, String estado) throws Exception {
+        if (idsPedido == null) throw new IllegalArgumentException("IDs de pedido requeridos");
+        validarEstado(estado);
+        if (idsPedido.isEmpty()) return 0;
+
+        Connection conn = null;
+        try {
+            conn = TX.conectar();
+            conn.setAutoCommit(false);
+
+            eventoDAO.registrarCambioEstado(idsPedido, estado, EventosPedido.datosEstado(estado), conn);
+            int filas = pedidoDAO.cambiarEstadoEnLote(idsPedido, estado, conn);
+
+            TX.commit(conn);
+            for (int id : idsPedido) cache.invalidar(id);
+            return filas;
+        } catch (Exception e) {
+            if (conn != null) {
+                try { TX.rollback(conn); } catch (SQLException ignore) {}
+            }
+            throw new Exception("Error cambiando estados: " + e.getMessage(), e);
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                } catch (SQLException ignore) {}
+            }
+        }
+    }
+
     @Override
     public void eliminarPedido(int idPedido) throws Exception {
         Connection conn = null;
         try {
-            conn = DatabaseConnection.getConnection();
+            conn = TX.conectar();
             conn.setAutoCommit(false);
 
             boolean ok = pedidoDAO.eliminarLogico(idPedido, conn);
             if (!ok) throw new SQLException("No se eliminó (lógico) el pedido");
+            eventoDAO.registrar(EventosPedido.eliminado(idPedido), conn);
 
-            conn.commit();
+            TX.commit(conn);
+            cache.invalidar(idPedido);
+            if (trackings != null) trackings.pedidosDadosDeBaja(List.of(idPedido));
         } catch (Exception e) {
             if (conn != null) {
-                try { conn.rollback(); } catch (SQLException ignore) {}
+                try { TX.rollback(conn); } catch (SQLException ignore) {}
             }
             throw new Exception("Error eliminando pedido: " + e.getMessage(), e);
         } finally {
@@ -116,22 +359,172 @@ public class PedidoServiceImpl implements PedidoService {
         }
     }
 
+    @Override
+    public int eliminarPedidosEnLote(Collection<Integer> idsPedido) throws Exception {
+        if (idsPedido == null) throw new IllegalArgumentException("IDs de pedido requeridos");
+        if (idsPedido.isEmpty()) return 0;
+
+        Connection conn = null;
+        try {
+            conn = TX.conectar();
+            conn.setAutoCommit(false);
+
+            eventoDAO.registrarBajas(idsPedido, conn);
+            int filas = pedidoDAO.eliminarLogicoEnLote(idsPedido, conn);
+
+            TX.commit(conn);
+            for (int id : idsPedido) cache.invalidar(id);
+            if (trackings != null) trackings.pedidosDadosDeBaja(idsPedido);
+            return filas;
+        } catch (Exception e) {
+            if (conn != null) {
+                try { TX.rollback(conn); } catch (SQLException ignore) {}
+            }
+            throw new Exception("Error eliminando pedidos: " + e.getMessage(), e);
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                } catch (SQLException ignore) {}
+            }
+        }
+    }
+
     @Override
     public Pedido obtenerPedidoPorId(int idPedido) throws Exception {
-        try (Connection conn = DatabaseConnection.getConnection()) {
-            return pedidoDAO.buscarPorId(idPedido, conn);
+        Pedido cacheado = cache.getPorId(idPedido);
+        if (cacheado != null) return cacheado;
+
+        long epoca = cache.epoca();
+        try (Connection conn = TX.conectarLectura()) {
+            Pedido p = pedidoDAO.buscarPorId(idPedido, conn);
+            if (p != null) cache.putSiVigente(p, epoca);
+            return p;
+        } catch (SQLException e) {
+            throw new Exception("Error obteniendo pedido: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Pedido obtenerPedidoPorNumero(String numero) throws Exception {
+        if (numero == null || numero.isBlank())
+            throw new IllegalArgumentException("Número de pedido requerido");
+
+        Pedido cacheado = cache.getPorNumero(numero);
+        if (cacheado != null) return cacheado;
+
+        long epoca = cache.epoca();
+        try (Connection conn = TX.conectarLectura()) {
+            Pedido p = pedidoDAO.buscarPorNumero(numero, conn);
+            if (p != null) cache.putSiVigente(p, epoca);
+            return p;
         } catch (SQLException e) {
             throw new Exception("Error obteniendo pedido: " + e.getMessage(), e);
         }
     }
 
+    @Override
+    public Map<String, Pedido> obtenerPedidosPorNumeros(Collection<String> numeros) throws Exception {
+        if (numeros == null) throw new IllegalArgumentException("Números de pedido requeridos");
+
+        Map<String, Pedido> resultado = new LinkedHashMap<>();
+        List<String> faltantes = new ArrayList<>();
+        for (String numero : numeros) {
+            if (numero == null || resultado.containsKey(numero)) continue;
+            Pedido cacheado = cache.getPorNumero(numero);
+            if (cacheado != null) resultado.put(numero, cacheado); else faltantes.add(numero);
+        }
+        if (faltantes.isEmpty()) return resultado;
+
+        long epoca = cache.epoca();
+        try (Connection conn = TX.conectarLectura()) {
+            for (Pedido p : pedidoDAO.buscarPorNumeros(faltantes, conn)) {
+                cache.putSiVigente(p, epoca);
+                resultado.put(p.getNumero(), p);
+            }
+            return resultado;
+        } catch (SQLException e) {
+            throw new Exception("Error obteniendo pedidos: " + e.getMessage(), e);
+        }
+    }
+
     @Override
     public List<Pedido> listarPedidos() throws Exception {
-        try (Connection conn = DatabaseConnection.getConnection()) {
+        try (Connection conn = TX.conectarLectura()) {
             return pedidoDAO.listarTodos(conn);
         } catch (SQLException e) {
             throw new Exception("Error listando pedidos: " + e.getMessage(), e);
         }
     }
 
-}
\ No newline at end of file
+    @Override
+    public List<Pedido> buscarPedidos(PedidoFiltro filtro) throws Exception {
+        if (filtro == null) throw new IllegalArgumentException("Filtro requerido");
+        if (filtro.getTamanioPagina() < 1 || filtro.getTamanioPagina() > MAX_TAMANIO_PAGINA)
+            throw new IllegalArgumentException("Tamaño de página debe estar entre 1 y " + MAX_TAMANIO_PAGINA);
+        if (filtro.getPagina() < 0)
+            throw new IllegalArgumentException("Página debe ser >= 0");
+        try (Connection conn = TX.conectarLectura()) {
+            return pedidoDAO.buscar(filtro, conn);
+        } catch (SQLException e) {
+            throw new Exception("Error buscando pedidos: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public List<Pedido> listarPedidosPagina(long despuesDeId, int tamanio) throws Exception {
+        if (tamanio < 1) throw new IllegalArgumentException("Tamaño de página debe ser >= 1");
+        try (Connection conn = TX.conectarLectura()) {
+            return pedidoDAO.listarPagina(despuesDeId, tamanio, conn);
+        } catch (SQLException e) {
+            throw new Exception("Error listando pedidos: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public List<PedidoResumen> listarResumenPagina(long despuesDeId, int tamanio) throws Exception {
+        if (tamanio < 1) throw new IllegalArgumentException("Tamaño de página debe ser >= 1");
+        try (Connection conn = TX.conectarLectura()) {
+            return pedidoDAO.listarResumenPagina(despuesDeId, tamanio, conn);
+        } catch (SQLException e) {
+            throw new Exception("Error listando pedidos: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Stream<Pedido> streamPedidos(int fetchSize) throws Exception {
+        Connection conn = TX.conectarLectura();
+        try {
+            return pedidoDAO.listarStream(fetchSize, conn).onClose(() -> {
+                try { conn.close(); } catch (SQLException ignore) {}
+            });
+        } catch (SQLException e) {
+            try { conn.close(); } catch (SQLException ignore) {}
+            throw new Exception("Error listando pedidos: " + e.getMessage(), e);
+        }
+    }
+
+    // Validaciones básicas compartidas por el alta individual, en lote y la importación (ImportadorServiceImpl)
+    static void validar(Pedido a, Envio b) {
+        if (a == null || b == null)
+            throw new IllegalArgumentException("Pedido y Envio son obligatorios");
+        if (a.getNumero() == null || a.getNumero().isBlank())
+            throw new IllegalArgumentException("Número de pedido requerido");
+        if (a.getFecha() == null)
+            throw new IllegalArgumentException("Fecha de pedido requerida");
+        if (a.getClienteNombre() == null || a.getClienteNombre().isBlank())
+            throw new IllegalArgumentException("Cliente requerido");
+        if (a.getTotal() == null)
+            throw new IllegalArgumentException("Total requerido");
+    }
+
+    static void validarEstado(String estado) {
+        if (estado == null || !ESTADOS_PEDIDO.contains(estado))
+            throw new IllegalArgumentException("Estado inválido: " + estado + " (válidos: " + ESTADOS_PEDIDO + ")");
+    }
+
+    public PedidoCache getCache() {
+        return cache;
+    }
+}
@@ -0,0 +1,188 @@
+package service.impl;
+
+import dao.EventoPedido;
+import dao.EventoPedidoDAO;
+import dao.impl.EventoPedidoDAOImpl;
+import metrics.Instrumentacion;
+import metrics.MetricaOperacion;
+import metrics.Metricas;
+import service.DestinoEventos;
+import service.EstadoPublicacion;
+import service.PublicadorEventosService;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Cada tramo es una transacción: turno exclusivo (sp_getapplock) → pendientes en orden de id → destino → marcar.
+// Con un solo publicador a la vez y los eventos de un Pedido grabados con su fila bloqueada, el orden de id
+// es el orden de los cambios de cada Pedido. Se marca después de entregar: si algo falla entre medio,
+// el tramo se vuelve a entregar (al menos una vez, nunca se pierde un evento).
+public class PublicadorEventosServiceImpl implements PublicadorEventosService {
+
+    private static final int FILAS_POR_PURGA = 1_000;
+    private static final int DIAS_RETENCION = 7;
+    private static final FasesTransaccion TX = new FasesTransaccion("PublicadorEventos");
+
+    private final EventoPedidoDAO eventoDAO = Instrumentacion.envolver(EventoPedidoDAO.class, new EventoPedidoDAOImpl());
+
+    // entrega: latencia del destino por tramo (filas = eventos); lag: de la creación de cada evento a su entrega;
+    // ciclo: cada pasada programada (publicar + purgar), con error si alguna de las dos falló
+    private final MetricaOperacion entrega = Metricas.operacion("PublicadorEventos.entrega");
+    private final MetricaOperacion ciclo = Metricas.operacion("PublicadorEventos.ciclo");
+    private final MetricaOperacion lag = Metricas.operacion("PublicadorEventos.lag");
+    private final LongAdder publicados = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+
+    private final DestinoEventos destino;
+    private final int eventosPorTramo;
+    private ScheduledExecutorService programador;
+
+    public PublicadorEventosServiceImpl(DestinoEventos destino) {
+        this(destino, 500);
+    }
+
+    public PublicadorEventosServiceImpl(DestinoEventos destino, int eventosPorTramo) {
+        if (destino == null) throw new IllegalArgumentException("Destino requerido");
+        if (eventosPorTramo < 1) throw new IllegalArgumentException("eventosPorTramo debe ser >= 1");
+        this.destino = destino;
+        this.eventosPorTramo = eventosPorTramo;
+    }
+
+    @Override
+    public int publicarPendientes() throws Exception {
+        Connection conn = null;
+        try {
+            conn = TX.conectar();
+            conn.setAutoCommit(false);
+
+            int total = 0;
+            int entregados;
+            do {
+                entregados = publicarTramo(conn);
+                total += entregados;
+            } while (entregados == eventosPorTramo);
+            return total;
+        } catch (Exception e) {
+            if (conn != null) {
+                try { TX.rollback(conn); } catch (SQLException ignore) {}
+            }
+            fallos.increment();
+            throw new Exception("Error publicando eventos: " + e.getMessage(), e);
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                } catch (SQLException ignore) {}
+            }
+        }
+    }
+
+    private int publicarTramo(Connection conn) throws Exception {
+        if (!eventoDAO.tomarTurnoPublicacion(conn)) {
+            TX.rollback(conn); // otro publicador está entregando
+            return 0;
+        }
+        List<EventoPedido> eventos = eventoDAO.pendientes(eventosPorTramo, conn);
+        if (eventos.isEmpty()) {
+            TX.commit(conn);
+            return 0;
+        }
+
+        long inicio = System.nanoTime();
+        boolean error = true;
+        try {
+            destino.publicar(eventos);
+            error = false;
+        } finally {
+            entrega.registrar(System.nanoTime() - inicio, error);
+        }
+        entrega.sumarFilas(eventos.size());
+
+        List<Long> ids = new ArrayList<>(eventos.size());
+        for (EventoPedido e : eventos) ids.add(e.id());
+        eventoDAO.marcarPublicados(ids, conn);
+        TX.commit(conn);
+
+        // Como en el archivador: reloj UTC de la aplicación contra el SYSUTCDATETIME() de la base
+        LocalDateTime ahora = LocalDateTime.now(ZoneOffset.UTC);
+        for (EventoPedido e : eventos) {
+            lag.registrar(Math.max(0, Duration.between(e.fechaCreacion(), ahora).toNanos()), false);
+        }
+        publicados.add(eventos.size());
+        return eventos.size();
+    }
+
+    @Override
+    public int purgarPublicados(int diasRetencion) throws Exception {
+        if (diasRetencion < 0) throw new IllegalArgumentException("Días de retención debe ser >= 0");
+        LocalDateTime limite = LocalDateTime.now(ZoneOffset.UTC).minusDays(diasRetencion);
+        // Tramos cortos en autocommit, como el archivador
+        try (Connection conn = TX.conectar()) {
+            int total = 0;
+            int borradas;
+            do {
+                borradas = eventoDAO.purgarPublicados(limite, FILAS_POR_PURGA, conn);
+                total += borradas;
+            } while (borradas == FILAS_POR_PURGA);
+            return total;
+        } catch (SQLException e) {
+            throw new Exception("Error purgando eventos publicados: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public EstadoPublicacion estado() throws Exception {
+        try (Connection conn = TX.conectar()) {
+            long pendientes = eventoDAO.contarPendientes(conn);
+            LocalDateTime masAntiguo = eventoDAO.pendienteMasAntiguo(conn);
+            long esperaMs = masAntiguo == null ? 0
+                : Math.max(0, Duration.between(masAntiguo, LocalDateTime.now(ZoneOffset.UTC)).toMillis());
+            return new EstadoPublicacion(publicados.sum(), fallos.sum(), pendientes, esperaMs,
+                    lag.getP50Micros() / 1000, lag.getP99Micros() / 1000);
+        } catch (SQLException e) {
+            throw new Exception("Error leyendo el estado del outbox: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized void iniciar(long periodoMs) {
+        if (programador != null) return;
+        programador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "publicador-eventos");
+            t.setDaemon(true);
+            return t;
+        });
+        programador.scheduleWithFixedDelay(() -> {
+            long inicio = System.nanoTime();
+            boolean error = true;
+            try {
+                publicarPendientes();
+                purgarPublicados(DIAS_RETENCION);
+                error = false;
+            } catch (Exception e) {
+                // No se relanza: cortaría las pasadas siguientes. Lo no marcado se vuelve a entregar en el
+                // próximo período; la falla queda en las métricas (PublicadorEventos.ciclo y getEstado().fallos)
+            } finally {
+                ciclo.registrar(System.nanoTime() - inicio, error);
+            }
+        }, periodoMs, periodoMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void detener() {
+        if (programador != null) {
+            programador.shutdownNow();
+            programador = null;
+        }
+    }
+}
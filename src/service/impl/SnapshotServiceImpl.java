@@ -0,0 +1,110 @@
+package service.impl;
+
+import cache.CacheSnapshot;
+import cache.PedidoCache;
+import cache.TrackingIndex;
+import config.DatabaseConnection;
+import dao.CambiosDAO;
+import dao.MarcaCambios;
+import dao.impl.CambiosDAOImpl;
+import metrics.Instrumentacion;
+import service.ResultadoSnapshot;
+import service.SnapshotService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.util.Set;
+
+// La marca se toma antes de recorrer las cachés: lo que se escriba mientras tanto queda con rv >= marca
+// y se descarta al restaurar. restaurar() es para el arranque, antes de que los servicios escriban en las cachés.
+public class SnapshotServiceImpl implements SnapshotService {
+
+    private static final String ARCHIVO_DEFAULT = "snapshot/caches.bin";
+    private static final int MAX_CAMBIOS_DEFAULT = 50_000;
+
+    private final CambiosDAO cambiosDAO = Instrumentacion.envolver(CambiosDAO.class, new CambiosDAOImpl());
+
+    private final PedidoCache cache;
+    private final TrackingIndex trackings;
+    private final Path archivo;
+    // Más cambios que esto desde la copia: se descarta entera (cargar de cero sale más barato)
+    private final int maxCambios;
+
+    public SnapshotServiceImpl(PedidoCache cache, TrackingIndex trackings) {
+        this(cache, trackings, Paths.get(System.getProperty("tpi.snapshot", ARCHIVO_DEFAULT)),
+             Integer.getInteger("tpi.snapshot.maxCambios", MAX_CAMBIOS_DEFAULT));
+    }
+
+    public SnapshotServiceImpl(PedidoCache cache, TrackingIndex trackings, Path archivo, int maxCambios) {
+        if (maxCambios < 0) throw new IllegalArgumentException("maxCambios debe ser >= 0");
+        this.cache = cache;
+        this.trackings = trackings;
+        this.archivo = archivo;
+        this.maxCambios = maxCambios;
+    }
+
+    @Override
+    public ResultadoSnapshot guardar() throws Exception {
+        long inicio = System.nanoTime();
+        try {
+            MarcaCambios marca;
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                marca = cambiosDAO.marcaActual(conn);
+            }
+            CacheSnapshot.Resumen r = CacheSnapshot.escribir(archivo, marca, cache, trackings);
+            return new ResultadoSnapshot(r.pedidos(), r.trackings(), 0, r.bytes(), millisDesde(inicio), null);
+        } catch (Exception e) {
+            throw new Exception("Error al guardar la copia de las cachés: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public ResultadoSnapshot restaurar() throws Exception {
+        long inicio = System.nanoTime();
+        if (!Files.exists(archivo)) return ResultadoSnapshot.rechazado("no hay copia en " + archivo, millisDesde(inicio));
+
+        CacheSnapshot copia;
+        try {
+            copia = CacheSnapshot.abrir(archivo);
+        } catch (IOException e) {
+            return ResultadoSnapshot.rechazado(e.getMessage(), millisDesde(inicio));
+        }
+        MarcaCambios guardada = copia.getMarca();
+
+        Set<Integer> pedidos;
+        Set<Integer> envios;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            MarcaCambios actual = cambiosDAO.marcaActual(conn);
+            if (!actual.base().equals(guardada.base()))
+                return ResultadoSnapshot.rechazado("es de otra base (" + guardada.base() + ")", millisDesde(inicio));
+            // rowversion solo avanza: una marca mayor que la actual es de una base restaurada desde un backup
+            if (Long.compareUnsigned(guardada.rowversion(), actual.rowversion()) > 0)
+                return ResultadoSnapshot.rechazado("es posterior al estado de la base (¿se restauró un backup?)",
+                                                   millisDesde(inicio));
+            pedidos = cambiosDAO.pedidosCambiadosDesde(guardada, maxCambios, conn);
+            envios = cambiosDAO.enviosCambiadosDesde(guardada, maxCambios, conn);
+        } catch (Exception e) {
+            throw new Exception("Error al verificar la copia de las cachés: " + e.getMessage(), e);
+        }
+        if (pedidos.size() > maxCambios || envios.size() > maxCambios)
+            return ResultadoSnapshot.rechazado("más de " + maxCambios + " cambios desde " + guardada.fechaUtc() + " UTC",
+                                               millisDesde(inicio));
+
+        try {
+            CacheSnapshot.Resumen r = copia.restaurar(cache, trackings, pedidos, envios);
+            return new ResultadoSnapshot(r.pedidos(), r.trackings(), r.descartados(), r.bytes(), millisDesde(inicio), null);
+        } catch (IOException e) {
+            // A medio cargar no se sabe qué quedó: mejor en frío
+            cache.limpiar();
+            trackings.limpiar();
+            return ResultadoSnapshot.rechazado(e.getMessage(), millisDesde(inicio));
+        }
+    }
+
+    private static long millisDesde(long inicioNanos) {
+        return (System.nanoTime() - inicioNanos) / 1_000_000;
+    }
+}